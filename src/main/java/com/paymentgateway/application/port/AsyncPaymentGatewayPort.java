@@ -0,0 +1,40 @@
+package com.paymentgateway.application.port;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequest;
+import com.paymentgateway.domain.model.PaymentResponse;
+
+/**
+ * Variante asincrona del puerto de salida hacia la pasarela de pago
+ * Las llamadas no bloquean al hilo que las invoca; los errores completan el futuro de forma excepcional
+ */
+public interface AsyncPaymentGatewayPort {
+
+    CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request);
+
+    CompletableFuture<PaymentResponse> checkPaymentStatusAsync(String gatewayTransactionId);
+
+    CompletableFuture<PaymentResponse> cancelPaymentAsync(String gatewayTransactionId);
+
+    CompletableFuture<PaymentResponse> refundPaymentAsync(String gatewayTransactionId, String reason);
+
+    // variantes con el comercio que creo la transaccion, como en PaymentGatewayPort
+    default CompletableFuture<PaymentResponse> checkPaymentStatusAsync(String merchantId, String gatewayTransactionId) {
+        return checkPaymentStatusAsync(gatewayTransactionId);
+    }
+
+    default CompletableFuture<PaymentResponse> cancelPaymentAsync(String merchantId, String gatewayTransactionId) {
+        return cancelPaymentAsync(gatewayTransactionId);
+    }
+
+    default CompletableFuture<PaymentResponse> refundPaymentAsync(String merchantId, String gatewayTransactionId,
+                                                                  String reason) {
+        return refundPaymentAsync(gatewayTransactionId, reason);
+    }
+
+    boolean supportsPaymentMethod(PaymentMethod paymentMethod);
+
+    String gatewayProvider();
+}
@@ -0,0 +1,44 @@
+package com.paymentgateway.application.port;
+
+import com.paymentgateway.domain.model.PaymentResponse;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Consulta de estado en bloque para pasarelas con API de listado por rango de fechas
+ * Evita una llamada por pago al sincronizar muchos pagos de la misma pasarela
+ */
+public interface BatchPaymentStatusPort {
+    /**
+     * Estado de las transacciones dadas, creadas aproximadamente en [createdFrom, createdTo] por el
+     * comercio merchantId (el listado usa su credencial)
+     * Las que no aparezcan en el resultado deben consultarse una a una
+     */
+    Map<String, PaymentResponse> checkPaymentStatuses(
+        String merchantId,
+        Collection<String> gatewayTransactionIds,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo
+    );
+
+    /**
+     * Como checkPaymentStatuses, llamando a beforeRequest antes de cada peticion a la pasarela (una por
+     * pagina del listado); si beforeRequest lanza, la excepcion se propaga sin tocar la pasarela
+     */
+    default Map<String, PaymentResponse> checkPaymentStatuses(
+        String merchantId,
+        Collection<String> gatewayTransactionIds,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo,
+        Runnable beforeRequest
+    ) {
+        beforeRequest.run();
+        return checkPaymentStatuses(merchantId, gatewayTransactionIds, createdFrom, createdTo);
+    }
+
+    // false en los decoradores cuya pasarela no tiene listado
+    default boolean supportsBatchStatusLookup() {
+        return true;
+    }
+}
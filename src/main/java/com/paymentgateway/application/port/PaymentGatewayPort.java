@@ -1,5 +1,7 @@
 package com.paymentgateway.application.port;
 
+import java.math.BigDecimal;
+
 import com.paymentgateway.domain.model.PaymentMethod;
 import com.paymentgateway.domain.model.PaymentRequest;
 import com.paymentgateway.domain.model.PaymentResponse;
@@ -30,12 +32,35 @@ public interface PaymentGatewayPort {
      */
     PaymentResponse refundPayment(String gatewayTransactionId, String reason);
 
+    /**
+     * Variantes con el comercio que creo la transaccion: la pasarela llama con la misma credencial
+     * que uso en el alta. Por defecto la pasarela tiene una sola credencial y se ignora el comercio
+     */
+    default PaymentResponse checkPaymentStatus(String merchantId, String gatewayTransactionId) {
+        return checkPaymentStatus(gatewayTransactionId);
+    }
+
+    default PaymentResponse cancelPayment(String merchantId, String gatewayTransactionId) {
+        return cancelPayment(gatewayTransactionId);
+    }
+
+    default PaymentResponse refundPayment(String merchantId, String gatewayTransactionId, String reason) {
+        return refundPayment(gatewayTransactionId, reason);
+    }
+
     /**
      * Verifica si esta pasarela soporta medio de pago
      */
 
     boolean supportsPaymentMethod(PaymentMethod paymentMethod);
 
+    /**
+     * Verifica si la pasarela acepta el medio de pago, la moneda y el monto
+     */
+    default boolean canProcess(PaymentMethod paymentMethod, String currency, BigDecimal amount) {
+        return supportsPaymentMethod(paymentMethod);
+    }
+
     /**
      * Obtiene el identificador unico de la pasareela de pago
      */
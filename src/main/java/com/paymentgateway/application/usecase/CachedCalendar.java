@@ -0,0 +1,68 @@
+package com.paymentgateway.application.usecase;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Fecha actual calculada una vez por dia
+ *
+ * YearMonth.now() y LocalDate.now() resuelven la zona y crean objetos en cada llamada; aqui cada
+ * consulta lee clock.millis() y solo recalcula el dia al cruzar la medianoche de la zona del reloj
+ * (o si el reloj retrocede). El dia se guarda como epoch day y el mes como indice year * 12 + month - 1.
+ */
+final class CachedCalendar {
+
+    private final Clock clock;
+    private volatile Today today;
+
+    CachedCalendar(Clock clock) {
+        this.clock = clock;
+        this.today = compute(clock.millis());
+    }
+
+    static int monthIndex(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * epoch day del ultimo dia del mes, sin crear LocalDate (algoritmo days_from_civil)
+     */
+    static long epochDayOfMonthEnd(int year, int month) {
+        long y = month == 12 ? year + 1L : year;
+        int m = month == 12 ? 1 : month + 1;
+        // primer dia del mes siguiente menos uno
+        y -= m <= 2 ? 1 : 0;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (m > 2 ? m - 3 : m + 9) + 2) / 5;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468 - 1;
+    }
+
+    /**
+     * fecha de hoy; dia y mes salen de la misma lectura del reloj
+     */
+    Today today() {
+        long now = clock.millis();
+        Today current = today;
+        if (now >= current.validUntilMillis() || now < current.validFromMillis()) {
+            current = compute(now);
+            today = current;
+        }
+        return current;
+    }
+
+    private Today compute(long now) {
+        LocalDate date = LocalDate.ofInstant(Instant.ofEpochMilli(now), clock.getZone());
+        return new Today(
+            date.toEpochDay(),
+            monthIndex(date.getYear(), date.getMonthValue()),
+            date.atStartOfDay(clock.getZone()).toInstant().toEpochMilli(),
+            date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli()
+        );
+    }
+
+    record Today(long epochDay, int monthIndex, long validFromMillis, long validUntilMillis) {
+    }
+}
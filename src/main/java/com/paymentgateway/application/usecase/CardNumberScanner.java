@@ -0,0 +1,147 @@
+package com.paymentgateway.application.usecase;
+
+/**
+ * Analiza un numero de tarjeta en una sola pasada sobre el texto recibido
+ *
+ * Ignora espacios y guiones (lo que antes quitaba replaceAll("[\\s-]+", "")) y en el mismo recorrido
+ * calcula el digito de control de Luhn, la red por prefijo y longitud y los ultimos cuatro digitos.
+ * El resultado se empaqueta en un long para no crear objetos ni cadenas intermedias; se lee con los
+ * metodos estaticos de esta clase. Los textos enmascarados se comparten por ultimos cuatro digitos.
+ */
+final class CardNumberScanner {
+
+    static final String UNKNOWN = "UNKNOWN";
+    static final String FULL_MASK = "****-****-****-****";
+    private static final String MASK_PREFIX = "****-****-****-";
+    private static final String[] NETWORKS = {UNKNOWN, "VISA", "MASTERCARD", "AMEX", "DISCOVER"};
+    private static final int VISA = 1;
+    private static final int MASTERCARD = 2;
+    private static final int AMEX = 3;
+    private static final int DISCOVER = 4;
+
+    // se rellena bajo demanda; una carrera solo crea dos veces la misma cadena inmutable
+    private static final String[] MASKS = new String[10_000];
+
+    private static final long LAST_FOUR_MASK = 0x3FFF;
+    private static final int NETWORK_SHIFT = 16;
+    private static final long LUHN_VALID = 1L << 24;
+    private static final long NON_DIGIT = 1L << 25;
+    private static final int DIGITS_SHIFT = 32;
+
+    private CardNumberScanner() {
+    }
+
+    static long scan(CharSequence cardNumber) {
+        int digits = 0;
+        int evenDoubled = 0;
+        int oddDoubled = 0;
+        int prefix = 0;
+        int lastFour = 0;
+        boolean nonDigit = false;
+        for (int i = 0, length = cardNumber.length(); i < length; i++) {
+            char c = cardNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                int doubled = digit < 5 ? digit * 2 : digit * 2 - 9;
+                // aun no se sabe la paridad desde la derecha: se suman las dos variantes
+                if ((digits & 1) == 0) {
+                    evenDoubled += doubled;
+                    oddDoubled += digit;
+                } else {
+                    evenDoubled += digit;
+                    oddDoubled += doubled;
+                }
+                if (digits < 4) {
+                    prefix = prefix * 10 + digit;
+                }
+                lastFour = (lastFour * 10 + digit) % 10_000;
+                digits++;
+            } else if (!isSeparator(c)) {
+                nonDigit = true;
+            }
+        }
+        // el ultimo digito no se duplica: con longitud par se duplican las posiciones pares
+        int sum = (digits & 1) == 0 ? evenDoubled : oddDoubled;
+        boolean luhnValid = digits > 0 && !nonDigit && sum % 10 == 0;
+        int network = nonDigit ? 0 : network(prefix, digits);
+        return lastFour
+            | (long) network << NETWORK_SHIFT
+            | (luhnValid ? LUHN_VALID : 0)
+            | (nonDigit ? NON_DIGIT : 0)
+            | (long) digits << DIGITS_SHIFT;
+    }
+
+    static boolean isLuhnValid(long scan) {
+        return (scan & LUHN_VALID) != 0;
+    }
+
+    static String network(long scan) {
+        return NETWORKS[(int) (scan >>> NETWORK_SHIFT) & 0xFF];
+    }
+
+    static int digits(long scan) {
+        return (int) (scan >>> DIGITS_SHIFT);
+    }
+
+    /**
+     * "****-****-****-" y los ultimos cuatro caracteres sin separadores, o FULL_MASK si hay menos de cuatro
+     */
+    static String mask(CharSequence cardNumber, long scan) {
+        if ((scan & NON_DIGIT) != 0) {
+            return maskWithNonDigits(cardNumber);
+        }
+        if (digits(scan) < 4) {
+            return FULL_MASK;
+        }
+        int lastFour = (int) (scan & LAST_FOUR_MASK);
+        String mask = MASKS[lastFour];
+        if (mask == null) {
+            mask = MASK_PREFIX + (char) ('0' + lastFour / 1000) + (char) ('0' + lastFour / 100 % 10)
+                + (char) ('0' + lastFour / 10 % 10) + (char) ('0' + lastFour % 10);
+            MASKS[lastFour] = mask;
+        }
+        return mask;
+    }
+
+    // caso raro (numero con caracteres que no son digitos): se conserva el comportamiento anterior
+    private static String maskWithNonDigits(CharSequence cardNumber) {
+        char[] lastFour = new char[4];
+        int found = 0;
+        for (int i = cardNumber.length() - 1; i >= 0 && found < 4; i--) {
+            char c = cardNumber.charAt(i);
+            if (!isSeparator(c)) {
+                lastFour[3 - found++] = c;
+            }
+        }
+        return found < 4 ? FULL_MASK : MASK_PREFIX + new String(lastFour);
+    }
+
+    /**
+     * mismos prefijos y longitudes que los patrones VISA, MASTERCARD, AMEX y DISCOVER anteriores
+     */
+    private static int network(int prefix, int digits) {
+        if (digits < 4) {
+            return 0;
+        }
+        int first = prefix / 1000;
+        int firstTwo = prefix / 100;
+        if (first == 4 && (digits == 13 || digits == 16)) {
+            return VISA;
+        }
+        if (firstTwo >= 51 && firstTwo <= 55 && digits == 16) {
+            return MASTERCARD;
+        }
+        if ((firstTwo == 34 || firstTwo == 37) && digits == 15) {
+            return AMEX;
+        }
+        if ((prefix == 6011 || firstTwo == 65) && digits == 16) {
+            return DISCOVER;
+        }
+        return 0;
+    }
+
+    // \s de java.util.regex mas el guion
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,51 @@
+package com.paymentgateway.application.usecase;
+
+import com.paymentgateway.application.port.in.QueryPaymentUseCase;
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.repository.PaymentRepository;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Consultas de pagos
+ * Todas las operaciones son de solo lectura: con la replica habilitada se atienden desde ella
+ */
+@Service
+@Transactional(readOnly = true)
+public class QueryPaymentUseCaseImpl implements QueryPaymentUseCase {
+
+    private final PaymentRepository paymentRepository;
+
+    public QueryPaymentUseCaseImpl(PaymentRepository paymentRepository) {
+        this.paymentRepository = paymentRepository;
+    }
+
+    @Override
+    public Optional<Payment> getPaymentById(UUID paymentId) {
+        return paymentRepository.findById(paymentId);
+    }
+
+    @Override
+    public Optional<Payment> getPaymentByReference(String reference) {
+        return paymentRepository.findByPaymentReference(reference);
+    }
+
+    @Override
+    public List<Payment> getPaymentByCustomer(String customerId) {
+        return paymentRepository.findByCustomerId(customerId);
+    }
+
+    @Override
+    public List<Payment> getPaymentsByMerchant(String merchantId) {
+        return paymentRepository.findByMerchanId(merchantId);
+    }
+
+    @Override
+    public List<Payment> getPaymentsByStatus(PaymentStatus status) {
+        return paymentRepository.findByStatus(status);
+    }
+}
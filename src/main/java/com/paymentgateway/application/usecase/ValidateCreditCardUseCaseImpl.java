@@ -1,9 +1,8 @@
 package com.paymentgateway.application.usecase;
 
-import java.time.YearMonth;
-import java.time.temporal.ChronoUnit;
-import java.util.regex.Pattern;
+import java.time.Clock;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.paymentgateway.application.port.in.ValidateCreditCardUseCase;
@@ -12,36 +11,55 @@ import com.paymentgateway.domain.model.CreditCardValidationResult;
 
 /*
  * implememntacion del caso de uso de validacion de tarjetas de credito
+ * El numero se recorre una sola vez (CardNumberScanner): normalizacion, Luhn, red y ultimos cuatro
+ * digitos sin expresiones regulares ni cadenas intermedias; la fecha sale de un reloj cacheado por dia
  */
 @Service
 public class ValidateCreditCardUseCaseImpl implements ValidateCreditCardUseCase {
 
-    // patrones para diferentes tipos de tarjetas
-    private static final Pattern VISA_PATTERN = Pattern.compile("^4[0-9]{12}(?:[0-9]{3})?$");
-    private static final Pattern MASTERCARD_PATTERN = Pattern.compile("^5[1-5][0-9]{14}$");
-    private static final Pattern AMEX_PATTERN = Pattern.compile("^3[47][0-9]{13}$");
-    private static final Pattern DISCOVER_PATTERN = Pattern.compile("^6(?:011|5[0-9]{2})[0-9]{12}$");
+    private static final CreditCardValidationResult INVALID_NUMBER =
+        CreditCardValidationResult.invalid("Numero de tarjeta invalido");
+
+    private final CachedCalendar calendar;
+
+    @Autowired
+    public ValidateCreditCardUseCaseImpl() {
+        this(Clock.systemDefaultZone());
+    }
+
+    ValidateCreditCardUseCaseImpl(Clock clock) {
+        this.calendar = new CachedCalendar(clock);
+    }
 
     @Override
     public CreditCardValidationResult validateCreditCard(CreditCardDetails creditCardDetails) {
         try {
+            String cardNumber = creditCardDetails.cardNumber();
+            long scan = CardNumberScanner.scan(cardNumber);
+            int expiryMonth = Integer.parseInt(creditCardDetails.expiryMonth());
+            int expiryYear = Integer.parseInt(creditCardDetails.expiryYear());
+            CachedCalendar.Today today = calendar.today();
+
             // validar que la tarjeta no este expirada
-            if (isExpired(creditCardDetails.expiryMonth(), creditCardDetails.expiryYear())) {
-                return CreditCardValidationResult.expired(determineCardType(creditCardDetails.cardNumber()),
-                        maskCardNumber(creditCardDetails.cardNumber()));
+            if (isExpired(expiryMonth, expiryYear, today)) {
+                return CreditCardValidationResult.expired(CardNumberScanner.network(scan),
+                        CardNumberScanner.mask(cardNumber, scan));
             }
 
-            if (!isValidLuhn(creditCardDetails.cardNumber())) {
-                return CreditCardValidationResult.invalid("Numero de tarjeta invalido");
+            if (!CardNumberScanner.isLuhnValid(scan)) {
+                return INVALID_NUMBER;
             }
 
-            String cardType = determineCardType(creditCardDetails.cardNumber());
-            String maskedNumber = maskCardNumber(creditCardDetails.cardNumber());
-            long daysUntilExpiry = calculateDaysUntilExpiry(creditCardDetails.expiryMonth(),
-                    creditCardDetails.expiryYear());
-
-            return CreditCardValidationResult.valid(cardType, maskedNumber, daysUntilExpiry);
+            long daysUntilExpiry = CachedCalendar.epochDayOfMonthEnd(expiryYear, expiryMonth) - today.epochDay();
+            return CreditCardValidationResult.valid(CardNumberScanner.network(scan),
+                    CardNumberScanner.mask(cardNumber, scan), daysUntilExpiry);
 
+        } catch (NumberFormatException e) {
+            // mes o año no numericos: se trata como expirada, igual que antes
+            String cardNumber = creditCardDetails.cardNumber();
+            long scan = CardNumberScanner.scan(cardNumber);
+            return CreditCardValidationResult.expired(CardNumberScanner.network(scan),
+                    CardNumberScanner.mask(cardNumber, scan));
         } catch (Exception e) {
             return CreditCardValidationResult.invalid("Error al validar la tarjeta: " + e.getMessage());
         }
@@ -49,80 +67,14 @@ public class ValidateCreditCardUseCaseImpl implements ValidateCreditCardUseCase
 
     @Override
     public String determineCardType(String cardNumber) {
-        String cleanCardNumber = cardNumber.replaceAll("[\\s-]+", "");
-        if (VISA_PATTERN.matcher(cleanCardNumber).matches()) {
-            return "VISA";
-        } else if (MASTERCARD_PATTERN.matcher(cleanCardNumber).matches()) {
-            return "MASTERCARD";
-        } else if (AMEX_PATTERN.matcher(cleanCardNumber).matches()) {
-            return "AMEX";
-        } else if (DISCOVER_PATTERN.matcher(cleanCardNumber).matches()) {
-            return "DISCOVER";
-        }
-        return "UNKNOWN";
-    }
-
-    // * Valida el número de tarjeta usando el algoritmo de Luhn
-    // * @param cardNumber el número de tarjeta a validar
-    // * @return true si el número de tarjeta es válido, false en caso contrario
-    private boolean isValidLuhn(String cardNumber) {
-        String cleanCardNumber = cardNumber.replaceAll("[\\s-]+", "");
-        int suma = 0;
-        boolean alternar = false;
-
-        for (int i = cleanCardNumber.length() - 1; i >= 0; i--) {
-            int digit = Character.getNumericValue(cleanCardNumber.charAt(i));
-            if (alternar) {
-                digit *= 2;
-                if (digit > 9) {
-                    digit -= 9;
-                }
-            }
-            suma += digit;
-            alternar = !alternar;
-        }
-        return suma % 10 == 0;
-    }
-
-    private String maskCardNumber(String cardNumber) {
-        String cleanCardNumber = cardNumber.replaceAll("[\\s-]+", "");
-        if (cleanCardNumber.length() < 4) {
-            return "****-****-****-****";
-        }
-        String lastFour = cleanCardNumber.substring(cleanCardNumber.length() - 4);
-        return "****-****-****-" + lastFour;
+        return CardNumberScanner.network(CardNumberScanner.scan(cardNumber));
     }
 
     /*
-     * Verifica si la tarjeta esta expirada
+     * Verifica si la tarjeta esta expirada (mes fuera de rango: expirada)
      */
-    private boolean isExpired(String expiryMonth, String expiryYear) {
-        try {
-            int month = Integer.parseInt(expiryMonth);
-            int year = Integer.parseInt(expiryYear);
-            YearMonth expiryDate = YearMonth.of(year, month);
-            return expiryDate.isBefore(YearMonth.now());
-        } catch (Exception e) {
-            return true;
-        }
-    }
-
-    /*
-     * Calcula los dias hasta la expiracion de la tarjeta
-     */
-    private long calculateDaysUntilExpiry(String expiryMonth, String expiryYear) {
-        try {
-            int month = Integer.parseInt(expiryMonth);
-            int year = Integer.parseInt(expiryYear);
-            
-            // Crear fecha de expiración (último día del mes)
-            YearMonth expiryYearMonth = YearMonth.of(year, month);
-            java.time.LocalDate expiryDate = expiryYearMonth.atEndOfMonth();
-            java.time.LocalDate currentDate = java.time.LocalDate.now();
-            
-            return ChronoUnit.DAYS.between(currentDate, expiryDate);
-        } catch (Exception e) {
-            return 0;
-        }
+    private static boolean isExpired(int expiryMonth, int expiryYear, CachedCalendar.Today today) {
+        return expiryMonth < 1 || expiryMonth > 12
+            || CachedCalendar.monthIndex(expiryYear, expiryMonth) < today.monthIndex();
     }
 }
@@ -126,17 +126,13 @@ public class Payment {
 
     // Métodos de negocio del dominio
     public void markAsProcessing() {
-        if (this.status != PaymentStatus.PENDING) {
-            throw new PaymentException("Payment can only be marked as processing from pending status");
-        }
+        PaymentTransition.START_PROCESSING.checkFrom(this.status);
         this.status = PaymentStatus.PROCESSING;
         this.updatedAt = LocalDateTime.now();
     }
 
     public void markAsCompleted(String gatewayTransactionId) {
-        if (this.status != PaymentStatus.PROCESSING) {
-            throw new PaymentException("Payment can only be completed from processing status");
-        }
+        PaymentTransition.COMPLETE.checkFrom(this.status);
         this.status = PaymentStatus.COMPLETED;
         this.gatewayTransactionId = gatewayTransactionId;
         this.completedAt = LocalDateTime.now();
@@ -144,18 +140,14 @@ public class Payment {
     }
 
     public void markAsFailed(String failureReason) {
-        if (this.status == PaymentStatus.COMPLETED) {
-            throw new PaymentException("Cannot fail a completed payment");
-        }
+        PaymentTransition.FAIL.checkFrom(this.status);
         this.status = PaymentStatus.FAILED;
         this.failureReason = failureReason;
         this.updatedAt = LocalDateTime.now();
     }
 
     public void cancel() {
-        if (this.status == PaymentStatus.COMPLETED) {
-            throw new PaymentException("Cannot cancel a completed payment");
-        }
+        PaymentTransition.CANCEL.checkFrom(this.status);
         this.status = PaymentStatus.CANCELLED;
         this.updatedAt = LocalDateTime.now();
     }
@@ -0,0 +1,23 @@
+package com.paymentgateway.domain.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cursor de paginacion keyset sobre (created_at, id)
+ * Apunta al ultimo pago entregado; la siguiente pagina empieza justo despues
+ */
+public record PaymentCursor(LocalDateTime createdAt, UUID id) {
+    public PaymentCursor {
+        if (createdAt == null) {
+            throw new IllegalArgumentException("Cursor createdAt is required");
+        }
+        if (id == null) {
+            throw new IllegalArgumentException("Cursor id is required");
+        }
+    }
+
+    public static PaymentCursor from(Payment payment) {
+        return new PaymentCursor(payment.getCreatedAt(), payment.getId());
+    }
+}
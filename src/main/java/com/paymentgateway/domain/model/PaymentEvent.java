@@ -0,0 +1,52 @@
+package com.paymentgateway.domain.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Evento de ciclo de vida de un pago publicado a otros sistemas
+ *
+ * version es la version del pago tras el cambio: los consumidores pueden usarla para
+ * descartar eventos duplicados o recibidos fuera de orden.
+ */
+public record PaymentEvent(
+    UUID eventId,
+    Type type,
+    UUID paymentId,
+    String paymentReference,
+    String merchantId,
+    BigDecimal amount,
+    String currency,
+    PaymentStatus previousStatus,
+    PaymentStatus status,
+    String gatewayTransactionId,
+    Long version,
+    LocalDateTime occurredAt
+) {
+
+    public enum Type {
+        PAYMENT_CREATED,
+        PAYMENT_STATUS_CHANGED
+    }
+
+    /**
+     * previousStatus == null indica un pago recien creado
+     */
+    public static PaymentEvent of(Payment payment, PaymentStatus previousStatus) {
+        return new PaymentEvent(
+            UUID.randomUUID(),
+            previousStatus == null ? Type.PAYMENT_CREATED : Type.PAYMENT_STATUS_CHANGED,
+            payment.getId(),
+            payment.getPaymentReference(),
+            payment.getMerchantId(),
+            payment.getAmount(),
+            payment.getCurrency(),
+            previousStatus,
+            payment.getStatus(),
+            payment.getGatewayTransactionId(),
+            payment.getVersion(),
+            LocalDateTime.now()
+        );
+    }
+}
@@ -0,0 +1,17 @@
+package com.paymentgateway.domain.model;
+
+import java.util.List;
+
+/**
+ * Pagina de pagos obtenida con paginacion keyset
+ * nextCursor es null cuando no quedan mas resultados
+ */
+public record PaymentPage(List<Payment> payments, PaymentCursor nextCursor) {
+    public PaymentPage {
+        payments = List.copyOf(payments);
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.paymentgateway.domain.model;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Intervalo semiabierto [from, to) sobre created_at
+ * Cualquiera de los dos extremos puede ser null (sin limite); con limites concretos
+ * la base de datos solo recorre las particiones mensuales que se solapan con el intervalo
+ */
+public record PaymentPeriod(LocalDateTime from, LocalDateTime to) {
+
+    // limites usados en lugar de null para mantener una sola forma de consulta
+    public static final LocalDateTime MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    public static final LocalDateTime MAX = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    public PaymentPeriod {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Period start must be before its end");
+        }
+    }
+
+    public static PaymentPeriod unbounded() {
+        return new PaymentPeriod(null, null);
+    }
+
+    public static PaymentPeriod since(LocalDateTime from) {
+        return new PaymentPeriod(from, null);
+    }
+
+    public static PaymentPeriod of(YearMonth month) {
+        return new PaymentPeriod(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    public LocalDateTime fromOrMin() {
+        return from == null ? MIN : from;
+    }
+
+    public LocalDateTime toOrMax() {
+        return to == null ? MAX : to;
+    }
+}
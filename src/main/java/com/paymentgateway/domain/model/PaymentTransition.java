@@ -0,0 +1,59 @@
+package com.paymentgateway.domain.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.paymentgateway.shared.exception.PaymentException;
+
+/**
+ * Reglas de transicion de estado del pago
+ * Las comparten los metodos de Payment y las transiciones atomicas del repositorio
+ */
+public enum PaymentTransition {
+    START_PROCESSING(
+        PaymentStatus.PROCESSING,
+        EnumSet.of(PaymentStatus.PENDING),
+        "Payment can only be marked as processing from pending status"),
+    COMPLETE(
+        PaymentStatus.COMPLETED,
+        EnumSet.of(PaymentStatus.PROCESSING),
+        "Payment can only be completed from processing status"),
+    FAIL(
+        PaymentStatus.FAILED,
+        EnumSet.complementOf(EnumSet.of(PaymentStatus.COMPLETED)),
+        "Cannot fail a completed payment"),
+    CANCEL(
+        PaymentStatus.CANCELLED,
+        EnumSet.complementOf(EnumSet.of(PaymentStatus.COMPLETED)),
+        "Cannot cancel a completed payment");
+
+    private final PaymentStatus target;
+    private final Set<PaymentStatus> sources;
+    private final String rejection;
+
+    PaymentTransition(PaymentStatus target, Set<PaymentStatus> sources, String rejection) {
+        this.target = target;
+        this.sources = Collections.unmodifiableSet(sources);
+        this.rejection = rejection;
+    }
+
+    public PaymentStatus target() {
+        return target;
+    }
+
+    // estados desde los que se permite la transicion
+    public Set<PaymentStatus> sources() {
+        return sources;
+    }
+
+    public boolean allowsFrom(PaymentStatus status) {
+        return sources.contains(status);
+    }
+
+    public void checkFrom(PaymentStatus status) {
+        if (!allowsFrom(status)) {
+            throw new PaymentException(rejection);
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.paymentgateway.domain.repository;
 
 import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentCursor;
+import com.paymentgateway.domain.model.PaymentPage;
+import com.paymentgateway.domain.model.PaymentPeriod;
 import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.model.PaymentTransition;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Port de salida del dominio de pagos
@@ -35,6 +41,9 @@ public interface PaymentRepository {
     //buscar pago por id de transaccion de la pasarela
     Optional<Payment> findByGatewayTransactionId(String gatewayTransactionId);
 
+    //busca en una sola consulta los pagos con cualquiera de los ids de transaccion dados
+    List<Payment> findByGatewayTransactionIds(Collection<String> gatewayTransactionIds);
+
     //verifica si existe el pago con la referencia dada
     boolean existsByPaymentReference(String paymentReference);
 
@@ -43,4 +52,59 @@ public interface PaymentRepository {
 
     //cuenta el total de pagos por estado
     long countByStatus(PaymentStatus status);
+
+    /**
+     * Transiciones atomicas con guarda: un unico UPDATE condicionado al estado actual,
+     * con las mismas reglas que los metodos de Payment (ver PaymentTransition)
+     * Devuelven false si el pago no existe o su estado no permite la transicion
+     */
+    boolean markAsProcessing(UUID paymentId);
+
+    boolean markAsCompleted(UUID paymentId, String gatewayTransactionId);
+
+    boolean markAsFailed(UUID paymentId, String failureReason);
+
+    boolean cancel(UUID paymentId);
+
+    /**
+     * Transicion en bloque: un unico UPDATE condicionado para todos los pagos dados
+     * Devuelve los ids que cambiaron de estado; failureReason solo se usa con FAIL
+     */
+    List<UUID> transitionAll(Collection<UUID> paymentIds, PaymentTransition transition, String failureReason);
+
+    /**
+     * Paginacion keyset ordenada por (created_at, id)
+     * after == null devuelve la primera pagina
+     */
+    PaymentPage findByMerchantId(String merchantId, PaymentCursor after, int limit);
+
+    PaymentPage findByCustomerId(String customerId, PaymentCursor after, int limit);
+
+    PaymentPage findByStatus(PaymentStatus status, PaymentCursor after, int limit);
+
+    PaymentPage findByGatewayProvider(String gatewayProvider, PaymentCursor after, int limit);
+
+    /**
+     * Busquedas acotadas por fecha de creacion, ordenadas por (created_at, id)
+     * Con un periodo acotado solo se leen las particiones mensuales implicadas
+     */
+    List<Payment> findByMerchantId(String merchantId, PaymentPeriod period);
+
+    List<Payment> findByCustomerId(String customerId, PaymentPeriod period);
+
+    List<Payment> findByStatus(PaymentStatus status, PaymentPeriod period);
+
+    List<Payment> findByGatewayProvider(String gatewayProvider, PaymentPeriod period);
+
+    /**
+     * Recorren todos los pagos con un cursor JDBC sin materializar la lista
+     * El consumer recibe cada pago ya mapeado; la memoria se mantiene constante
+     */
+    void forEachByMerchantId(String merchantId, Consumer<Payment> consumer);
+
+    void forEachByCustomerId(String customerId, Consumer<Payment> consumer);
+
+    void forEachByStatus(PaymentStatus status, Consumer<Payment> consumer);
+
+    void forEachByGatewayProvider(String gatewayProvider, Consumer<Payment> consumer);
 }
@@ -0,0 +1,124 @@
+package com.paymentgateway.infrastructure.adapter.gateway;
+
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.PaymentMethod;
+
+/**
+ * Tabla de enrutado precompilada: que pasarelas aceptan cada medio de pago y moneda
+ *
+ * Cada pasarela ocupa un bit; por medio de pago se guarda la mascara de las que lo admiten y por
+ * moneda ISO 4217 un array de mascaras indexado por el ordinal del medio de pago. Consultar es una
+ * lectura de array sin reservar memoria. Las listas de candidatas que pide el router se crean al
+ * compilar para cada subconjunto posible (hasta MAX_PRECOMPUTED_GATEWAYS pasarelas). La tabla es
+ * inmutable: activar o desactivar una pasarela compila otra y la sustituye.
+ */
+final class GatewayRoutingTable {
+
+    static final int MAX_GATEWAYS = Long.SIZE;
+    private static final int MAX_PRECOMPUTED_GATEWAYS = 8;
+    private static final PaymentMethod[] METHODS = PaymentMethod.values();
+
+    private final PaymentGatewayPort[] gateways;
+    private final long[] methodMasks = new long[METHODS.length];
+    private final Map<String, long[]> currencyMasks = new HashMap<>();
+    private final int[] preferred = new int[METHODS.length];
+    private final List<PaymentGatewayPort>[] subsets;
+
+    /**
+     * gateways en orden estable; preferredProviders: preferencia de negocio por medio de pago
+     */
+    @SuppressWarnings("unchecked")
+    GatewayRoutingTable(List<? extends PaymentGatewayPort> gateways, Map<PaymentMethod, String> preferredProviders) {
+        if (gateways.size() > MAX_GATEWAYS) {
+            throw new IllegalArgumentException("At most " + MAX_GATEWAYS + " gateways can be routed");
+        }
+        this.gateways = gateways.toArray(new PaymentGatewayPort[0]);
+        for (int i = 0; i < this.gateways.length; i++) {
+            PaymentGatewayPort gateway = this.gateways[i];
+            long bit = 1L << i;
+            for (PaymentMethod method : METHODS) {
+                if (!gateway.canProcess(method, null, null)) {
+                    continue;
+                }
+                methodMasks[method.ordinal()] |= bit;
+                for (Currency currency : Currency.getAvailableCurrencies()) {
+                    if (gateway.canProcess(method, currency.getCurrencyCode(), null)) {
+                        currencyMasks.computeIfAbsent(currency.getCurrencyCode(), code -> new long[METHODS.length])
+                            [method.ordinal()] |= bit;
+                    }
+                }
+            }
+        }
+        for (PaymentMethod method : METHODS) {
+            preferred[method.ordinal()] = indexOf(preferredProviders.get(method));
+        }
+        if (this.gateways.length <= MAX_PRECOMPUTED_GATEWAYS) {
+            subsets = new List[1 << this.gateways.length];
+            for (int mask = 1; mask < subsets.length; mask++) {
+                subsets[mask] = build(mask);
+            }
+        } else {
+            subsets = null;
+        }
+    }
+
+    /**
+     * mascara de las pasarelas que admiten el medio de pago y, si se da, la moneda
+     */
+    long compatible(PaymentMethod paymentMethod, String currency) {
+        if (currency == null) {
+            return methodMasks[paymentMethod.ordinal()];
+        }
+        long[] masks = currencyMasks.get(currency.toUpperCase(Locale.ROOT));
+        return masks == null ? 0 : masks[paymentMethod.ordinal()];
+    }
+
+    PaymentGatewayPort gateway(int index) {
+        return gateways[index];
+    }
+
+    /**
+     * la preferida del medio de pago si esta en la mascara, si no la primera de la mascara
+     */
+    PaymentGatewayPort preferred(PaymentMethod paymentMethod, long mask) {
+        int index = preferred[paymentMethod.ordinal()];
+        return index >= 0 && (mask & (1L << index)) != 0
+            ? gateways[index]
+            : gateways[Long.numberOfTrailingZeros(mask)];
+    }
+
+    /**
+     * las pasarelas de la mascara (no vacia) en el orden de la tabla
+     */
+    List<PaymentGatewayPort> candidates(long mask) {
+        return subsets != null ? subsets[(int) mask] : build(mask);
+    }
+
+    boolean contains(String provider) {
+        return indexOf(provider) >= 0;
+    }
+
+    private List<PaymentGatewayPort> build(long mask) {
+        List<PaymentGatewayPort> candidates = new ArrayList<>(Long.bitCount(mask));
+        for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+            candidates.add(gateways[Long.numberOfTrailingZeros(remaining)]);
+        }
+        return List.copyOf(candidates);
+    }
+
+    private int indexOf(String provider) {
+        for (int i = 0; provider != null && i < gateways.length; i++) {
+            if (gateways[i].gatewayProvider().equals(provider)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
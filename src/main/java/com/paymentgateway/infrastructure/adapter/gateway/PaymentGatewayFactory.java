@@ -1,29 +1,62 @@
 package com.paymentgateway.infrastructure.adapter.gateway;
 
+import com.paymentgateway.application.port.AsyncPaymentGatewayPort;
 import com.paymentgateway.application.port.PaymentGatewayPort;
 import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequest;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayResilienceRegistry;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.ResilientPaymentGateway;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.AdaptiveGatewayRouter;
 import com.paymentgateway.shared.exception.PaymentException;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import org.springframework.beans.factory.annotation.Qualifier;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.stereotype.Component;
 
 /**
  * Factory para seleccionar la pasarela de pago apropiada
  * Implementa el patrón Factory junto con Strategy
+ * Cada pasarela se entrega envuelta en su circuit breaker y bulkhead, y la eleccion entre
+ * pasarelas compatibles la hace el enrutado por coste y latencia
+ *
+ * Las pasarelas son todos los beans PaymentGatewayPort del contexto: anadir una es registrar su
+ * bean. Al arrancar se compila una GatewayRoutingTable (medio de pago x moneda) con las activas;
+ * desactivar o reactivar una pasarela en caliente compila otra tabla y la publica de una vez.
+ * Una pasarela desactivada deja de recibir pagos nuevos pero sigue accesible por nombre para
+ * consultar, cancelar o reembolsar lo que ya proceso.
  */
 
 @Component
 public class PaymentGatewayFactory {
 
+    private static final Map<PaymentMethod, String> PREFERRED_PROVIDERS = preferredProviders();
+
     private final Map<String, PaymentGatewayPort> gateways;
+    private final Set<String> disabled = ConcurrentHashMap.newKeySet();
+    private final AdaptiveGatewayRouter router;
+    private volatile GatewayRoutingTable routingTable;
 
     public PaymentGatewayFactory(
-        @Qualifier("paypalGateway") PaymentGatewayPort paypalGateway,
-        @Qualifier("stripeGateway") PaymentGatewayPort stripeGateway
+        List<PaymentGatewayPort> gateways,
+        GatewayResilienceRegistry resilienceRegistry,
+        AdaptiveGatewayRouter router
     ) {
-        this.gateways = Map.of("PAYPAL", paypalGateway, "STRIPE", stripeGateway);
+        this.router = router;
+        Map<String, PaymentGatewayPort> byProvider = new LinkedHashMap<>();
+        gateways.stream()
+            .sorted(Comparator.comparing(PaymentGatewayPort::gatewayProvider))
+            .forEach(gateway -> {
+                if (byProvider.putIfAbsent(gateway.gatewayProvider(), resilienceRegistry.wrap(gateway)) != null) {
+                    throw new IllegalStateException("Duplicate payment gateway provider: " + gateway.gatewayProvider());
+                }
+            });
+        this.gateways = byProvider;
+        this.routingTable = compileRoutingTable();
     }
 
     /**
@@ -37,22 +70,32 @@ public class PaymentGatewayFactory {
         return gateway;
     }
 
+    /**
+     * obtiene la variante asincrona de una pasarela especifica
+     */
+    public AsyncPaymentGatewayPort getAsyncGateway(String gatewayProvider) {
+        return asAsync(getGateway(gatewayProvider));
+    }
+
     /**
      * obtiene la mejor pasarela para un metodo de pago especifico
      */
     public PaymentGatewayPort getBestGatewayForPaymentMethod(PaymentMethod paymentMethod) {
-        List<PaymentGatewayPort> compatibleGateways = gateways
-            .values()
-            .stream()
-            .filter(gateway -> gateway.supportsPaymentMethod(paymentMethod))
-            .collect(Collectors.toList());
-        if (compatibleGateways.isEmpty()) {
-            throw new PaymentException(
-                "No compatible payment gateway found for payment method: " + paymentMethod,
-                "NO_GATEWAY_AVAILABLE"
-            );
-        }
-        return selectOptimalGateway(compatibleGateways, paymentMethod);
+        return selectGateway(paymentMethod, null, null);
+    }
+
+    /**
+     * obtiene la mejor pasarela para una solicitud: medio de pago, moneda y monto admitidos
+     */
+    public PaymentGatewayPort getBestGatewayFor(PaymentRequest request) {
+        return selectGateway(request.paymentMethod(), request.currency(), request.amount());
+    }
+
+    /**
+     * obtiene la variante asincrona de la mejor pasarela para un metodo de pago
+     */
+    public AsyncPaymentGatewayPort getBestAsyncGatewayForPaymentMethod(PaymentMethod paymentMethod) {
+        return asAsync(getBestGatewayForPaymentMethod(paymentMethod));
     }
 
     /**
@@ -63,24 +106,87 @@ public class PaymentGatewayFactory {
     }
 
     /**
-     * Selecciona la pasarela optima basada en criterios de negocio
+     * Activa o desactiva una pasarela para el enrutado de pagos nuevos y publica la tabla recompilada
      */
-    private PaymentGatewayPort selectOptimalGateway(
-        List<PaymentGatewayPort> compatibleGateways,
-        PaymentMethod paymentMethod
-    ) {
-        return switch (paymentMethod) {
-            case DEBIT_CARD, CREDIT_CARD, APPLE_PAY, GOOGLE_PAY -> compatibleGateways
-                .stream()
-                .filter(gateway -> "STRIPE".equals(gateway.gatewayProvider()))
-                .findFirst()
-                .orElse(compatibleGateways.get(0));
-            case PAYPAL -> compatibleGateways
-                .stream()
-                .filter(gateway -> "PAYPAL".equals(gateway.gatewayProvider()))
-                .findFirst()
-                .orElse(compatibleGateways.get(0));
-            default -> compatibleGateways.get(0); // por defecto se selecciona la primera pasarela disponible
-        };
+    public synchronized void setEnabled(String gatewayProvider, boolean enabled) {
+        String provider = getGateway(gatewayProvider).gatewayProvider();
+        boolean changed = enabled ? disabled.remove(provider) : disabled.add(provider);
+        if (changed) {
+            routingTable = compileRoutingTable();
+        }
+    }
+
+    /**
+     * true si la pasarela entra en el enrutado de pagos nuevos
+     */
+    public boolean isEnabled(String gatewayProvider) {
+        return routingTable.contains(getGateway(gatewayProvider).gatewayProvider());
+    }
+
+    private GatewayRoutingTable compileRoutingTable() {
+        return new GatewayRoutingTable(
+            gateways.values().stream().filter(gateway -> !disabled.contains(gateway.gatewayProvider())).toList(),
+            PREFERRED_PROVIDERS
+        );
+    }
+
+    /**
+     * Selecciona entre las disponibles la mas barata dentro del SLO de latencia (con moneda y monto)
+     * o la de menor latencia esperada. Las que tienen el breaker abierto o el bulkhead lleno quedan
+     * fuera; la preferencia de negocio decide mientras no hay estadisticas suficientes
+     */
+    private PaymentGatewayPort selectGateway(PaymentMethod paymentMethod, String currency, BigDecimal amount) {
+        GatewayRoutingTable table = routingTable;
+        long compatible = table.compatible(paymentMethod, currency);
+        long available = 0;
+        for (long remaining = compatible; remaining != 0; remaining &= remaining - 1) {
+            int index = Long.numberOfTrailingZeros(remaining);
+            PaymentGatewayPort gateway = table.gateway(index);
+            // los limites de monto no estan en la tabla: se comprueban en cada solicitud
+            if (amount != null && !gateway.canProcess(paymentMethod, currency, amount)) {
+                compatible &= ~(1L << index);
+            } else if (isAvailable(gateway)) {
+                available |= 1L << index;
+            }
+        }
+        if (compatible == 0) {
+            throw new PaymentException(
+                "No compatible payment gateway found for payment method: " + paymentMethod,
+                "NO_GATEWAY_AVAILABLE"
+            );
+        }
+        PaymentGatewayPort preferred = table.preferred(paymentMethod, compatible);
+        if (available == 0) {
+            // ninguna disponible: la preferida fallara rapido con GATEWAY_UNAVAILABLE
+            return preferred;
+        }
+        return router.select(table.candidates(available), paymentMethod, currency, amount, preferred);
+    }
+
+    /**
+     * Preferencia de negocio por medio de pago; sin entrada se usa la primera compatible
+     */
+    private static Map<PaymentMethod, String> preferredProviders() {
+        Map<PaymentMethod, String> preferred = new EnumMap<>(PaymentMethod.class);
+        for (PaymentMethod method : List.of(
+            PaymentMethod.DEBIT_CARD, PaymentMethod.CREDIT_CARD, PaymentMethod.APPLE_PAY, PaymentMethod.GOOGLE_PAY)) {
+            preferred.put(method, "STRIPE");
+        }
+        preferred.put(PaymentMethod.PAYPAL, "PAYPAL");
+        return preferred;
+    }
+
+    private boolean isAvailable(PaymentGatewayPort gateway) {
+        return !(gateway instanceof ResilientPaymentGateway resilient) || resilient.isAvailable();
+    }
+
+    private AsyncPaymentGatewayPort asAsync(PaymentGatewayPort gateway) {
+        if (gateway instanceof AsyncPaymentGatewayPort asyncGateway) {
+            return asyncGateway;
+        }
+        throw new PaymentException(
+            "Payment gateway does not support asynchronous calls: " + gateway.gatewayProvider(),
+            "UNSUPPORTED_GATEWAY"
+        );
     }
 }
@@ -1,19 +1,108 @@
 package com.paymentgateway.infrastructure.adapter.gateway;
 
+import com.paymentgateway.application.port.AsyncPaymentGatewayPort;
 import com.paymentgateway.application.port.PaymentGatewayPort;
 import com.paymentgateway.domain.model.PaymentDetails;
+import com.paymentgateway.domain.model.PaymentMethod;
 import com.paymentgateway.domain.model.PaymentRequest;
 import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeScheduleProvider;
 import java.math.BigDecimal;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import org.springframework.stereotype.Component;
 
 /**
  * Implementacion base del Strategy Pattern para pasarelas de pago
+ * La variante asincrona ejecuta la llamada bloqueante del SDK en un hilo virtual: la espera de red
+ * no ocupa un hilo de plataforma, asi que el rendimiento lo limita la latencia de la pasarela
+ * Cada pasarela publica su tarifario para el enrutado por coste
  */
 
 @Component
-public abstract class PaymentGatewayStrategy implements PaymentGatewayPort {
+public abstract class PaymentGatewayStrategy implements PaymentGatewayPort, AsyncPaymentGatewayPort, FeeScheduleProvider {
+
+    // un hilo virtual por llamada; no se expone como bean para no sustituir al applicationTaskExecutor
+    private static final Executor GATEWAY_EXECUTOR =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gateway-", 0).factory());
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+        return CompletableFuture.supplyAsync(() -> processPayment(request), GATEWAY_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> checkPaymentStatusAsync(String gatewayTransactionId) {
+        return CompletableFuture.supplyAsync(() -> checkPaymentStatus(gatewayTransactionId), GATEWAY_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> cancelPaymentAsync(String gatewayTransactionId) {
+        return CompletableFuture.supplyAsync(() -> cancelPayment(gatewayTransactionId), GATEWAY_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> refundPaymentAsync(String gatewayTransactionId, String reason) {
+        return CompletableFuture.supplyAsync(() -> refundPayment(gatewayTransactionId, reason), GATEWAY_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> checkPaymentStatusAsync(String merchantId, String gatewayTransactionId) {
+        return CompletableFuture.supplyAsync(() -> checkPaymentStatus(merchantId, gatewayTransactionId),
+            GATEWAY_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> cancelPaymentAsync(String merchantId, String gatewayTransactionId) {
+        return CompletableFuture.supplyAsync(() -> cancelPayment(merchantId, gatewayTransactionId), GATEWAY_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> refundPaymentAsync(String merchantId, String gatewayTransactionId,
+                                                                 String reason) {
+        return CompletableFuture.supplyAsync(() -> refundPayment(merchantId, gatewayTransactionId, reason),
+            GATEWAY_EXECUTOR);
+    }
+
+    @Override
+    public boolean canProcess(PaymentMethod paymentMethod, String currency, BigDecimal amount) {
+        return supportsPaymentMethod(paymentMethod)
+            && (currency == null || getSupportedCurrencies().contains(currency.toUpperCase()))
+            && (amount == null
+                || (amount.compareTo(getMinimumAmount()) >= 0 && amount.compareTo(getMaximumAmount()) <= 0));
+    }
+
+    /**
+     * prepara la pasarela antes de recibir trafico (conexiones, clientes del SDK); por defecto nada.
+     * Se llama una vez durante el warm-up de arranque y no debe lanzar llamadas con efectos
+     */
+    public void warmUp() throws Exception {
+    }
+
+    /**
+     * identificador opaco de la credencial (cuenta / API key) con la que se llama a la pasarela;
+     * las llamadas con la misma credencial comparten limite de velocidad
+     */
+    public String credentialId() {
+        return "default";
+    }
+
+    /**
+     * credencial con la que se llama para un comercio; por defecto la misma para todos
+     */
+    public String credentialId(String merchantId) {
+        return credentialId();
+    }
+
+    /**
+     * clave de idempotencia del proveedor para una operacion con efectos: es la misma en todos los
+     * reintentos, asi que la pasarela ejecuta la operacion una sola vez
+     */
+    protected String idempotencyKey(String operation, String id) {
+        return gatewayProvider().toLowerCase() + "-" + operation + "-" + id;
+    }
 
     /***
      * Valida la solicitud de pago antes de procesarla
@@ -0,0 +1,184 @@
+package com.paymentgateway.infrastructure.adapter.gateway.fee;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import com.paymentgateway.domain.model.PaymentMethod;
+
+/**
+ * Tarifario de comisiones de una pasarela precompilado en tablas de consulta
+ *
+ * Cada regla fija un porcentaje y un fijo para un medio de pago y/o moneda (null = cualquiera) a
+ * partir de un monto; las reglas con la misma clave forman los tramos. Al compilar se resuelve
+ * para cada moneda nombrada y cada medio de pago la clave mas especifica con reglas
+ * (medio + moneda, medio, moneda, general), de modo que evaluar una comision es una busqueda en un
+ * mapa, un acceso por ordinal y aritmetica entera sin reservar memoria.
+ *
+ * Los montos se expresan en centesimas (escala 2), igual que el resto del servicio.
+ */
+public final class FeeSchedule {
+
+    // comision de un medio de pago o moneda que la pasarela no tarifica
+    public static final long UNPRICED = Long.MAX_VALUE;
+
+    private static final PaymentMethod[] METHODS = PaymentMethod.values();
+    private static final long RATE_SCALE = 1_000_000;
+
+    private final String provider;
+    private final Tiers[] anyCurrency;
+    private final Map<String, Tiers[]> byCurrency;
+
+    private FeeSchedule(String provider, Tiers[] anyCurrency, Map<String, Tiers[]> byCurrency) {
+        this.provider = provider;
+        this.anyCurrency = anyCurrency;
+        this.byCurrency = byCurrency;
+    }
+
+    public static Builder builder(String provider) {
+        return new Builder(provider);
+    }
+
+    public String provider() {
+        return provider;
+    }
+
+    /**
+     * Comision en centesimas; currency en mayusculas. UNPRICED si no hay tarifa aplicable
+     */
+    public long feeMinor(PaymentMethod paymentMethod, String currency, long amountMinor) {
+        Tiers tiers = byCurrency.getOrDefault(currency, anyCurrency)[paymentMethod.ordinal()];
+        if (tiers == null) {
+            return UNPRICED;
+        }
+        int tier = tiers.indexFor(amountMinor);
+        return tiers.fixedMinor[tier] + (amountMinor * tiers.rateMicros[tier] + RATE_SCALE / 2) / RATE_SCALE;
+    }
+
+    /**
+     * Comision para informes; null si no hay tarifa aplicable
+     */
+    public BigDecimal fee(PaymentMethod paymentMethod, String currency, BigDecimal amount) {
+        long fee = feeMinor(paymentMethod, currency.toUpperCase(Locale.ROOT), toMinorUnits(amount));
+        return fee == UNPRICED ? null : BigDecimal.valueOf(fee, 2);
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Tramos de una clave en arrays paralelos ordenados por monto minimo
+     */
+    private static final class Tiers {
+        private final long[] fromMinor;
+        private final long[] rateMicros;
+        private final long[] fixedMinor;
+
+        private Tiers(List<Rule> rules) {
+            int size = rules.size();
+            this.fromMinor = new long[size];
+            this.rateMicros = new long[size];
+            this.fixedMinor = new long[size];
+            for (int i = 0; i < size; i++) {
+                Rule rule = rules.get(i);
+                fromMinor[i] = rule.fromMinor();
+                rateMicros[i] = rule.rateMicros();
+                fixedMinor[i] = rule.fixedMinor();
+            }
+        }
+
+        private int indexFor(long amountMinor) {
+            int tier = fromMinor.length - 1;
+            while (tier > 0 && amountMinor < fromMinor[tier]) {
+                tier--;
+            }
+            return tier;
+        }
+    }
+
+    private record Rule(PaymentMethod method, String currency, long fromMinor, long rateMicros, long fixedMinor) {
+
+        private boolean hasKey(PaymentMethod keyMethod, String keyCurrency) {
+            return method == keyMethod && Objects.equals(currency, keyCurrency);
+        }
+    }
+
+    public static final class Builder {
+
+        private final String provider;
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Builder(String provider) {
+            this.provider = provider;
+        }
+
+        /**
+         * Tarifa general: porcentaje (0.029 = 2.9%) mas fijo
+         */
+        public Builder rate(String percentage, String fixedFee) {
+            return rule(null, null, "0", percentage, fixedFee);
+        }
+
+        /**
+         * Regla para un medio de pago y/o moneda (null = cualquiera) desde un monto minimo
+         */
+        public Builder rule(PaymentMethod method, String currency, String fromAmount, String percentage,
+                            String fixedFee) {
+            long rateMicros = new BigDecimal(percentage).movePointRight(6).setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+            if (rateMicros < 0 || rateMicros > RATE_SCALE) {
+                throw new IllegalArgumentException("Fee percentage must be between 0 and 1: " + percentage);
+            }
+            rules.add(new Rule(
+                method,
+                currency == null ? null : currency.toUpperCase(Locale.ROOT),
+                toMinorUnits(new BigDecimal(fromAmount)),
+                rateMicros,
+                toMinorUnits(new BigDecimal(fixedFee))
+            ));
+            return this;
+        }
+
+        public FeeSchedule build() {
+            Map<String, Tiers[]> byCurrency = new HashMap<>();
+            for (Rule rule : rules) {
+                if (rule.currency() != null) {
+                    byCurrency.computeIfAbsent(rule.currency(), this::compile);
+                }
+            }
+            return new FeeSchedule(provider, compile(null), Map.copyOf(byCurrency));
+        }
+
+        private Tiers[] compile(String currency) {
+            Tiers[] table = new Tiers[METHODS.length];
+            for (PaymentMethod method : METHODS) {
+                List<Rule> tiers = currency == null ? List.of() : tiersFor(method, currency);
+                if (tiers.isEmpty()) {
+                    tiers = tiersFor(method, null);
+                }
+                if (tiers.isEmpty() && currency != null) {
+                    tiers = tiersFor(null, currency);
+                }
+                if (tiers.isEmpty()) {
+                    tiers = tiersFor(null, null);
+                }
+                table[method.ordinal()] = tiers.isEmpty() ? null : new Tiers(tiers);
+            }
+            return table;
+        }
+
+        private List<Rule> tiersFor(PaymentMethod method, String currency) {
+            return rules.stream()
+                .filter(rule -> rule.hasKey(method, currency))
+                .sorted(Comparator.comparingLong(Rule::fromMinor))
+                .toList();
+        }
+    }
+}
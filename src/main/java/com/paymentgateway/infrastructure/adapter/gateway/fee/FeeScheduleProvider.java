@@ -0,0 +1,9 @@
+package com.paymentgateway.infrastructure.adapter.gateway.fee;
+
+/**
+ * Pasarela que publica su tarifario para el enrutado por coste
+ */
+public interface FeeScheduleProvider {
+
+    FeeSchedule feeSchedule();
+}
@@ -9,18 +9,21 @@ import com.paymentgateway.domain.model.PaymentRequest;
 import com.paymentgateway.domain.model.PaymentResponse;
 import com.paymentgateway.domain.model.PaymentStatus;
 import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayStrategy;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeSchedule;
 import com.paymentgateway.shared.exception.PaymentException;
 import java.math.BigDecimal;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 /**
  * Implementación de PayPal para el patrón Strategy
  */
 @Service("paypalGateway")
+@Profile("!simulator")
 public class PayPalPaymentGateway extends PaymentGatewayStrategy {
 
     private static final Logger log = LoggerFactory.getLogger(PayPalPaymentGateway.class);
@@ -37,6 +40,17 @@ public class PayPalPaymentGateway extends PaymentGatewayStrategy {
         PaymentMethod.DEBIT_CARD
     );
 
+    // PayPal Checkout 3.49% + $0.49; tarjetas 2.99% + $0.49 y tarifa reducida por volumen
+    private static final FeeSchedule FEE_SCHEDULE = FeeSchedule.builder("PAYPAL")
+        .rate("0.0349", "0.49")
+        .rule(PaymentMethod.CREDIT_CARD, null, "0", "0.0299", "0.49")
+        .rule(PaymentMethod.CREDIT_CARD, null, "3000.00", "0.0219", "0.49")
+        .rule(PaymentMethod.DEBIT_CARD, null, "0", "0.0299", "0.49")
+        .rule(PaymentMethod.DEBIT_CARD, null, "3000.00", "0.0219", "0.49")
+        .rule(PaymentMethod.PAYPAL, "EUR", "0", "0.034", "0.35")
+        .rule(PaymentMethod.PAYPAL, "GBP", "0", "0.029", "0.30")
+        .build();
+
     public PayPalPaymentGateway(
         @Value("${paypal.client.id}") String clientId,
         @Value("${paypal.client.secret}") String clientSecret,
@@ -54,12 +68,15 @@ public class PayPalPaymentGateway extends PaymentGatewayStrategy {
 
             // Simulación de integración con PayPal SDK
             // En producción aquí usarías el PayPal Checkout SDK
-            String transactionId = simulatePayPalPayment(request);
+            String transactionId = simulatePayPalPayment(
+                request,
+                idempotencyKey("payment", request.paymentReference())
+            );
 
             GatewaySpecificData gatewayData = new GatewaySpecificData(
                 "paypal",
                 "{\"status\":\"COMPLETED\"}",
-                calculatePayPalFees(request.amount()),
+                calculatePayPalFees(request),
                 "PayPal payment processed successfully"
             );
             return PaymentResponse.success(
@@ -137,7 +154,11 @@ public class PayPalPaymentGateway extends PaymentGatewayStrategy {
     public PaymentResponse refundPayment(String gatewayTransactionId, String reason) {
         try {
             // Simulación de reembolso en PayPal
-            String refundId = simulatePayPalRefund(gatewayTransactionId, reason);
+            String refundId = simulatePayPalRefund(
+                gatewayTransactionId,
+                reason,
+                idempotencyKey("refund", gatewayTransactionId)
+            );
             GatewaySpecificData gatewayData = new GatewaySpecificData(
                 "paypal",
                 "{\"refund_id\": \"" + refundId + "\"}",
@@ -180,11 +201,21 @@ public class PayPalPaymentGateway extends PaymentGatewayStrategy {
         return minAmount;
     }
 
+    @Override
+    public FeeSchedule feeSchedule() {
+        return FEE_SCHEDULE;
+    }
+
     @Override
     protected Set<String> getSupportedCurrencies() {
         return SUPPORTED_CURRENCIES;
     }
 
+    @Override
+    public String credentialId() {
+        return clientId;
+    }
+
     @Override
     protected String determineErrorCode(Exception e) {
         // Mapeo de errores específicos de PayPal
@@ -198,14 +229,17 @@ public class PayPalPaymentGateway extends PaymentGatewayStrategy {
             return "AUTHENTICATION_ERROR";
         } else if (message.contains("connection")) {
             return "CONNECTION_ERROR";
+        } else if (message.contains("rate limit") || message.contains("too many requests")) {
+            return "RATE_LIMITED";
         } else {
             return "PAYPAL_ERROR";
         }
     }
 
     // Métodos de simulación (en producción se usa SDK real de PayPal)
-    private String simulatePayPalPayment(PaymentRequest request) {
+    private String simulatePayPalPayment(PaymentRequest request, String requestId) {
         // Simulación simple - en producción se usa checkout SDK PayPal
+        // con requestId en la cabecera PayPal-Request-Id para que los reintentos sean idempotentes
         return "PAYPAL_TXN_" + System.currentTimeMillis();
     }
 
@@ -219,17 +253,14 @@ public class PayPalPaymentGateway extends PaymentGatewayStrategy {
         return true;
     }
 
-    private String simulatePayPalRefund(String transactionId, String reason) {
+    private String simulatePayPalRefund(String transactionId, String reason, String requestId) {
         // Simulación - en producción se usaría la API de PayPal
         return "PAYPAL_REFUND_" + System.currentTimeMillis();
     }
 
-    private String calculatePayPalFees(BigDecimal amount) {
-        // PayPal cobra 2.9% + $0.30 por transacción - cálculo de comisión de PayPal
-        BigDecimal feePercentage = new BigDecimal("0.029"); // 2.9%
-        BigDecimal fixedFee = new BigDecimal("0.30"); // $0.30
-        BigDecimal totalFee = amount.multiply(feePercentage).add(fixedFee);
-        return totalFee.toString();
+    private String calculatePayPalFees(PaymentRequest request) {
+        // cálculo de comisión de PayPal según el tarifario
+        return String.valueOf(FEE_SCHEDULE.fee(request.paymentMethod(), request.currency(), request.amount()));
     }
 
     private void validatePayPalDetails(PayPalDetails paypalDetails) {
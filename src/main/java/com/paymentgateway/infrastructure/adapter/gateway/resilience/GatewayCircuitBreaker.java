@@ -0,0 +1,186 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker por pasarela con ventana deslizante de las ultimas N llamadas
+ *
+ * Se abre cuando, con al menos minimumCalls registradas, la tasa de fallos o la de llamadas lentas
+ * supera su umbral. Abierto rechaza sin llamar a la pasarela durante openDuration; despues deja
+ * pasar halfOpenCalls llamadas de prueba: si todas van bien se cierra y si alguna falla o es lenta
+ * se vuelve a abrir. Las llamadas son de milisegundos, asi que basta con un monitor.
+ */
+public class GatewayCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    // ventana circular de resultados (bits FAILURE | SLOW)
+    private final byte[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public GatewayCircuitBreaker(int slidingWindowSize, int minimumCalls, int failureRateThreshold,
+                                 int slowCallRateThreshold, Duration slowCallDuration, Duration openDuration,
+                                 int halfOpenCalls) {
+        this(slidingWindowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallDuration,
+            openDuration, halfOpenCalls, System::nanoTime);
+    }
+
+    GatewayCircuitBreaker(int slidingWindowSize, int minimumCalls, int failureRateThreshold,
+                          int slowCallRateThreshold, Duration slowCallDuration, Duration openDuration,
+                          int halfOpenCalls, LongSupplier nanoClock) {
+        if (slidingWindowSize < 1 || minimumCalls < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Circuit breaker window, minimum calls and half-open calls must be positive");
+        }
+        this.window = new byte[slidingWindowSize];
+        this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * true si la llamada puede hacerse; en semiabierto consume uno de los permisos de prueba
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            transitionToHalfOpen();
+        }
+        if (halfOpenPermits == 0) {
+            return false;
+        }
+        halfOpenPermits--;
+        return true;
+    }
+
+    /**
+     * Si el breaker aceptaria llamadas ahora mismo, sin consumir permisos
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> nanoClock.getAsLong() - openedAt >= openNanos;
+            case HALF_OPEN -> halfOpenPermits > 0;
+        };
+    }
+
+    public void onSuccess(long durationNanos) {
+        record(durationNanos >= slowCallNanos ? SLOW : 0);
+    }
+
+    public void onFailure(long durationNanos) {
+        record((byte) (FAILURE | (durationNanos >= slowCallNanos ? SLOW : 0)));
+    }
+
+    /**
+     * Libera un permiso de prueba de una llamada que no llego a la pasarela
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized float getFailureRate() {
+        return recorded == 0 ? 0 : failures * 100f / recorded;
+    }
+
+    public synchronized float getSlowCallRate() {
+        return recorded == 0 ? 0 : slowCalls * 100f / recorded;
+    }
+
+    public synchronized int getBufferedCalls() {
+        return recorded;
+    }
+
+    private synchronized void record(byte outcome) {
+        switch (state) {
+            case HALF_OPEN -> {
+                if (outcome != 0) {
+                    transitionToOpen();
+                } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                    transitionToClosed();
+                }
+            }
+            case CLOSED -> {
+                push(outcome);
+                if (recorded >= minimumCalls
+                    && (failures * 100 >= failureRateThreshold * recorded
+                        || slowCalls * 100 >= slowCallRateThreshold * recorded)) {
+                    transitionToOpen();
+                }
+            }
+            // resultados de llamadas que empezaron antes de abrirse: ya no cuentan
+            case OPEN -> { }
+        }
+    }
+
+    private void push(byte outcome) {
+        if (recorded == window.length) {
+            byte evicted = window[next];
+            failures -= evicted & FAILURE;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        window[next] = outcome;
+        failures += outcome & FAILURE;
+        slowCalls += (outcome & SLOW) >> 1;
+        next = (next + 1) % window.length;
+    }
+
+    private void transitionToOpen() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private void transitionToHalfOpen() {
+        state = State.HALF_OPEN;
+        halfOpenPermits = halfOpenCalls;
+        halfOpenSuccesses = 0;
+    }
+
+    private void transitionToClosed() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
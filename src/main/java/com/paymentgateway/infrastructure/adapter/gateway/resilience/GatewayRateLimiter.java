@@ -0,0 +1,91 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket de llamadas salientes hacia una pasarela (una cuenta / API key)
+ *
+ * Se implementa como GCRA: el unico estado es el instante teorico en que el cubo vuelve a estar lleno,
+ * que se avanza con CAS. El rellenado es implicito en el paso del tiempo, sin hilos ni locks.
+ * Cada llamada reserva su token al entrar; si el token no estara disponible antes de maxQueueWait
+ * la llamada se descarta sin consumir nada, en otro caso espera hasta su turno.
+ */
+public class GatewayRateLimiter {
+
+    /** la llamada no cabe en la cola */
+    public static final long REJECTED = -1;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long maxQueueWaitNanos;
+    private final LongSupplier nanoClock;
+
+    // instante (nanoClock) en el que el cubo volveria a estar lleno sin mas llamadas
+    private final AtomicLong fullAt;
+
+    public GatewayRateLimiter(double permitsPerSecond, int burst, long maxQueueWaitNanos) {
+        this(permitsPerSecond, burst, maxQueueWaitNanos, System::nanoTime);
+    }
+
+    GatewayRateLimiter(double permitsPerSecond, int burst, long maxQueueWaitNanos, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxQueueWaitNanos < 0) {
+            throw new IllegalArgumentException("Invalid rate limit: " + permitsPerSecond + "/s, burst " + burst);
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.maxQueueWaitNanos = maxQueueWaitNanos;
+        this.nanoClock = nanoClock;
+        this.fullAt = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Reserva un token; devuelve los nanos que hay que esperar hasta poder llamar (0 si hay token libre)
+     * o REJECTED si la espera superaria maxQueueWait
+     */
+    public long reserve() {
+        return reserve(maxQueueWaitNanos);
+    }
+
+    /**
+     * Toma un token solo si esta libre ahora mismo, sin pasar por la cola
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    private long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long waitNanos = next - now - burstNanos;
+            if (waitNanos > maxWaitNanos) {
+                return REJECTED;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return Math.max(0, waitNanos);
+            }
+        }
+    }
+
+    /**
+     * Reserva un token y espera su turno; devuelve los nanos esperados o REJECTED
+     */
+    public long acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * tokens disponibles ahora mismo (aproximado)
+     */
+    public double getAvailablePermits() {
+        long backlog = Math.max(0, fullAt.get() - nanoClock.getAsLong());
+        return Math.max(0, (double) (burstNanos - backlog) / intervalNanos);
+    }
+}
@@ -0,0 +1,97 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayStrategy;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Crea el token bucket de cada pasarela y credencial (payment.gateways.rate-limit.*)
+ *
+ * Los valores generales se pueden sobrescribir por pasarela en
+ * payment.gateways.rate-limit.providers.<pasarela>.*; las pasarelas que usan la misma
+ * credencial comparten el cubo. Una pasarela con claves por comercio tiene un cubo por clave, porque
+ * el limite del proveedor es por cuenta.
+ */
+@Component
+public class GatewayRateLimiterFactory {
+
+    private static final String PREFIX = "payment.gateways.rate-limit.providers.";
+
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final boolean enabled;
+    private final double permitsPerSecond;
+    private final int burst;
+    private final Duration maxQueueWait;
+
+    private final Map<String, GatewayRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    public GatewayRateLimiterFactory(
+        MeterRegistry meterRegistry,
+        Environment environment,
+        @Value("${payment.gateways.rate-limit.enabled:false}") boolean enabled,
+        @Value("${payment.gateways.rate-limit.permits-per-second:50}") double permitsPerSecond,
+        @Value("${payment.gateways.rate-limit.burst:25}") int burst,
+        @Value("${payment.gateways.rate-limit.max-queue-wait:250ms}") Duration maxQueueWait
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxQueueWait = maxQueueWait;
+    }
+
+    /**
+     * cubo de la credencial que usa la pasarela para cada comercio (null: credencial por defecto);
+     * null cuando la limitacion esta deshabilitada
+     */
+    public Function<String, GatewayRateLimiter> create(PaymentGatewayPort gateway) {
+        if (!enabled) {
+            return null;
+        }
+        String provider = gateway.gatewayProvider();
+        if (!(gateway instanceof PaymentGatewayStrategy strategy)) {
+            GatewayRateLimiter limiter = limiter(provider, "default");
+            return merchantId -> limiter;
+        }
+        // la credencial se resuelve en cada llamada: cachear por merchantId creceria con cada id recibido
+        return merchantId -> limiter(provider, strategy.credentialId(merchantId));
+    }
+
+    private GatewayRateLimiter limiter(String provider, String credential) {
+        return limiters.computeIfAbsent(provider + "/" + credential, key -> newLimiter(provider));
+    }
+
+    public Duration getMaxQueueWait(String provider) {
+        return property(provider, "max-queue-wait", Duration.class, maxQueueWait);
+    }
+
+    private GatewayRateLimiter newLimiter(String provider) {
+        GatewayRateLimiter limiter = new GatewayRateLimiter(
+            property(provider, "permits-per-second", Double.class, permitsPerSecond),
+            property(provider, "burst", Integer.class, burst),
+            getMaxQueueWait(provider).toNanos()
+        );
+        // la credencial no se publica como etiqueta
+        Gauge.builder("payments.gateway.rate_limit.available", limiter, GatewayRateLimiter::getAvailablePermits)
+            .tag("gateway", provider)
+            .register(meterRegistry);
+        return limiter;
+    }
+
+    private <T> T property(String provider, String name, Class<T> type, T defaultValue) {
+        return environment.getProperty(PREFIX + provider.toLowerCase() + "." + name, type, defaultValue);
+    }
+}
@@ -0,0 +1,65 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayFactory;
+
+/**
+ * /actuator/gateways: estado del circuit breaker y del bulkhead de cada pasarela
+ * POST /actuator/gateways/{provider} {"enabled": false} la saca del enrutado de pagos nuevos
+ */
+@Component
+@Endpoint(id = "gateways")
+public class GatewayResilienceEndpoint {
+
+    private final GatewayResilienceRegistry registry;
+    private final PaymentGatewayFactory gatewayFactory;
+
+    public GatewayResilienceEndpoint(GatewayResilienceRegistry registry, PaymentGatewayFactory gatewayFactory) {
+        this.registry = registry;
+        this.gatewayFactory = gatewayFactory;
+    }
+
+    @ReadOperation
+    public Map<String, GatewayState> gateways() {
+        Map<String, GatewayState> states = new TreeMap<>();
+        registry.getGateways().forEach((provider, gateway) -> {
+            GatewayCircuitBreaker breaker = gateway.getCircuitBreaker();
+            GatewayBulkhead bulkhead = gateway.getBulkhead();
+            states.put(provider, new GatewayState(
+                gatewayFactory.isEnabled(provider),
+                breaker.getState().name(),
+                breaker.getFailureRate(),
+                breaker.getSlowCallRate(),
+                breaker.getBufferedCalls(),
+                bulkhead.getAvailablePermits(),
+                bulkhead.getMaxConcurrentCalls()
+            ));
+        });
+        return states;
+    }
+
+    @WriteOperation
+    public Map<String, GatewayState> setEnabled(@Selector String provider, boolean enabled) {
+        gatewayFactory.setEnabled(provider, enabled);
+        return gateways();
+    }
+
+    public record GatewayState(
+        boolean enabled,
+        String circuitState,
+        float failureRate,
+        float slowCallRate,
+        int bufferedCalls,
+        int availableConcurrentCalls,
+        int maxConcurrentCalls
+    ) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.GatewayLatencyTracker;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Crea y guarda el circuit breaker y el bulkhead de cada pasarela (payment.gateways.resilience.*)
+ * junto con su hedger de consultas de estado, su rate limiter y la politica de reintentos cuando estan habilitados
+ */
+@Component
+public class GatewayResilienceRegistry {
+
+    private final MeterRegistry meterRegistry;
+    private final GatewayLatencyTracker latencyTracker;
+    private final StatusCheckHedgerFactory hedgerFactory;
+    private final GatewayRateLimiterFactory rateLimiterFactory;
+    private final GatewayRetryPolicy retryPolicy;
+    private final int slidingWindowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final Duration slowCallDuration;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final int maxConcurrentCalls;
+    private final Duration maxWait;
+
+    private final Map<String, ResilientPaymentGateway> gateways = new ConcurrentHashMap<>();
+
+    public GatewayResilienceRegistry(
+        MeterRegistry meterRegistry,
+        GatewayLatencyTracker latencyTracker,
+        StatusCheckHedgerFactory hedgerFactory,
+        GatewayRateLimiterFactory rateLimiterFactory,
+        GatewayRetryPolicy retryPolicy,
+        @Value("${payment.gateways.resilience.sliding-window-size:20}") int slidingWindowSize,
+        @Value("${payment.gateways.resilience.minimum-calls:10}") int minimumCalls,
+        @Value("${payment.gateways.resilience.failure-rate-threshold:50}") int failureRateThreshold,
+        @Value("${payment.gateways.resilience.slow-call-rate-threshold:80}") int slowCallRateThreshold,
+        @Value("${payment.gateways.resilience.slow-call-duration:5s}") Duration slowCallDuration,
+        @Value("${payment.gateways.resilience.open-duration:30s}") Duration openDuration,
+        @Value("${payment.gateways.resilience.half-open-calls:3}") int halfOpenCalls,
+        @Value("${payment.gateways.resilience.max-concurrent-calls:25}") int maxConcurrentCalls,
+        @Value("${payment.gateways.resilience.max-wait:0ms}") Duration maxWait
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.latencyTracker = latencyTracker;
+        this.hedgerFactory = hedgerFactory;
+        this.rateLimiterFactory = rateLimiterFactory;
+        this.retryPolicy = retryPolicy;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Envuelve la pasarela; una misma pasarela comparte breaker y bulkhead aunque se envuelva varias veces
+     */
+    public ResilientPaymentGateway wrap(PaymentGatewayPort gateway) {
+        if (gateway instanceof ResilientPaymentGateway resilient) {
+            return resilient;
+        }
+        return gateways.computeIfAbsent(gateway.gatewayProvider(), provider -> create(gateway));
+    }
+
+    public Map<String, ResilientPaymentGateway> getGateways() {
+        return Map.copyOf(gateways);
+    }
+
+    private ResilientPaymentGateway create(PaymentGatewayPort gateway) {
+        GatewayCircuitBreaker circuitBreaker = new GatewayCircuitBreaker(slidingWindowSize, minimumCalls,
+            failureRateThreshold, slowCallRateThreshold, slowCallDuration, openDuration, halfOpenCalls);
+        GatewayBulkhead bulkhead = new GatewayBulkhead(maxConcurrentCalls, maxWait);
+        String provider = gateway.gatewayProvider();
+        Gauge.builder("payments.gateway.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+            .description("0 cerrado, 1 semiabierto, 2 abierto")
+            .tag("gateway", provider)
+            .register(meterRegistry);
+        Gauge.builder("payments.gateway.circuit.failure_rate", circuitBreaker, GatewayCircuitBreaker::getFailureRate)
+            .tag("gateway", provider)
+            .register(meterRegistry);
+        Gauge.builder("payments.gateway.bulkhead.available", bulkhead, GatewayBulkhead::getAvailablePermits)
+            .tag("gateway", provider)
+            .register(meterRegistry);
+        return new ResilientPaymentGateway(gateway, circuitBreaker, bulkhead, latencyTracker,
+            hedgerFactory.create(provider), rateLimiterFactory.create(gateway), retryPolicy,
+            meterRegistry);
+    }
+}
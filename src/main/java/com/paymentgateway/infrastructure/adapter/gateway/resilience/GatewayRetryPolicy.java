@@ -0,0 +1,146 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.shared.exception.PaymentException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Politica de reintentos de las llamadas a pasarelas (payment.gateways.retry.*)
+ *
+ * Solo se reintentan fallos transitorios (conexion, error interno o limite de la pasarela) con backoff
+ * exponencial y full jitter: la espera es aleatoria en [0, min(max-delay, base-delay * 2^intento)).
+ * Las altas y los reembolsos llevan clave de idempotencia del proveedor, asi que repetirlos es seguro.
+ *
+ * El presupuesto es global: cada peticion ingresa budget-percent/100 fichas (hasta budget-max-retries)
+ * y cada reintento gasta una. Durante una caida los reintentos no superan ese porcentaje de las
+ * peticiones y no amplifican la carga sobre la pasarela.
+ */
+@Component
+public class GatewayRetryPolicy {
+
+    // codigos de respuesta que indican un fallo transitorio de la pasarela
+    static final Set<String> TRANSIENT_ERROR_CODES = Set.of("CONNECTION_ERROR", "GATEWAY_ERROR", "RATE_LIMITED");
+
+    private static final long TOKEN = 1_000;
+
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final DoubleSupplier random;
+
+    private final long depositPerRequest;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    @Autowired
+    public GatewayRetryPolicy(
+        MeterRegistry meterRegistry,
+        @Value("${payment.gateways.retry.enabled:false}") boolean enabled,
+        @Value("${payment.gateways.retry.max-attempts:3}") int maxAttempts,
+        @Value("${payment.gateways.retry.base-delay:50ms}") Duration baseDelay,
+        @Value("${payment.gateways.retry.max-delay:1s}") Duration maxDelay,
+        @Value("${payment.gateways.retry.budget-percent:10}") double budgetPercent,
+        @Value("${payment.gateways.retry.budget-max-retries:50}") int budgetMaxRetries
+    ) {
+        this(meterRegistry, enabled, maxAttempts, baseDelay, maxDelay, budgetPercent, budgetMaxRetries,
+            () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    GatewayRetryPolicy(MeterRegistry meterRegistry, boolean enabled, int maxAttempts, Duration baseDelay,
+                       Duration maxDelay, double budgetPercent, int budgetMaxRetries, DoubleSupplier random) {
+        if (maxAttempts < 1 || budgetPercent < 0 || budgetMaxRetries < 1) {
+            throw new IllegalArgumentException("Invalid payment.gateways.retry configuration");
+        }
+        this.enabled = enabled;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.random = random;
+        this.depositPerRequest = Math.round(budgetPercent / 100 * TOKEN);
+        this.maxTokens = budgetMaxRetries * TOKEN;
+        // se arranca con el presupuesto lleno para poder reintentar con poco trafico
+        this.tokens = new AtomicLong(maxTokens);
+        Gauge.builder("payments.gateway.retry.budget", this, GatewayRetryPolicy::getAvailableRetries)
+            .description("Reintentos disponibles en el presupuesto global")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled && maxAttempts > 1;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * registra una peticion original (no un reintento) en el presupuesto
+     */
+    public void onRequest() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= maxTokens) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + depositPerRequest)));
+    }
+
+    /**
+     * toma una ficha del presupuesto; false si no queda ninguna
+     */
+    public boolean tryAcquireRetry() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * espera antes del reintento numero attempt (1 para el primero) con full jitter
+     */
+    public long backoffNanos(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        long ceiling = baseDelayNanos > maxDelayNanos >> shift ? maxDelayNanos : baseDelayNanos << shift;
+        return (long) (random.getAsDouble() * ceiling);
+    }
+
+    /**
+     * true si el resultado es un fallo transitorio que merece otro intento
+     */
+    public static boolean isTransient(PaymentResponse response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+            // GATEWAY_UNAVAILABLE y GATEWAY_THROTTLED son rechazos locales: reintentar solo añadiria carga
+            return cause instanceof PaymentException paymentException
+                && paymentException.getCode() != null
+                && TRANSIENT_ERROR_CODES.contains(paymentException.getCode());
+        }
+        return response != null && !response.success() && response.errorCode() != null
+            && TRANSIENT_ERROR_CODES.contains(response.errorCode());
+    }
+
+    double getAvailableRetries() {
+        return (double) tokens.get() / TOKEN;
+    }
+}
@@ -0,0 +1,585 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.paymentgateway.application.port.AsyncPaymentGatewayPort;
+import com.paymentgateway.application.port.BatchPaymentStatusPort;
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequest;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeSchedule;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeScheduleProvider;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.GatewayLatencyTracker;
+import com.paymentgateway.shared.exception.PaymentException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Decorador de una pasarela con limite de velocidad, bulkhead y circuit breaker
+ *
+ * Cuentan como fallo las excepciones y las respuestas con un codigo de error de infraestructura
+ * (conexion, caida o limite de la pasarela); un rechazo de negocio como una tarjeta denegada es una
+ * respuesta valida de una pasarela sana. Las llamadas rechazadas fallan con GATEWAY_UNAVAILABLE sin
+ * tocar la pasarela; en la variante asincrona, como cualquier otro error, completan el futuro en vez de
+ * lanzarse. La latencia y el resultado de cada alta de pago alimentan el enrutado adaptativo.
+ * Las consultas de estado se cubren con hedging si hay hedger; el par de llamadas ocupa un solo
+ * permiso y cuenta como una llamada para el breaker.
+ * Con rate limiter cada peticion a la pasarela toma un token despues de que bulkhead y breaker la admitan,
+ * asi que un rechazo local no gasta token; cada pagina de un listado toma el suyo y el hedge solo sale si
+ * hay un token libre en ese momento. Las llamadas sincronas esperan su turno en el hilo que llama; las
+ * asincronas reservan el token y se lanzan cuando llega su turno, sin bloquear. Si no hay token a tiempo
+ * falla con GATEWAY_THROTTLED sin contar como fallo de la pasarela. El cubo es el de la credencial del
+ * comercio de la llamada (alta o variantes con merchantId); las llamadas sin comercio usan el de la
+ * credencial por defecto.
+ * Con politica de reintentos los fallos transitorios se repiten con backoff; cada intento pasa de nuevo
+ * por bulkhead, breaker y limite y cuenta para ellos. Un rechazo local en un reintento devuelve el
+ * resultado del intento anterior.
+ */
+public class ResilientPaymentGateway
+    implements PaymentGatewayPort, AsyncPaymentGatewayPort, BatchPaymentStatusPort, FeeScheduleProvider {
+
+    public static final String UNAVAILABLE_CODE = "GATEWAY_UNAVAILABLE";
+    public static final String THROTTLED_CODE = "GATEWAY_THROTTLED";
+
+    // codigos con los que las pasarelas devuelven fallos de infraestructura
+    static final Set<String> INFRASTRUCTURE_ERROR_CODES = Set.of(
+        "CONNECTION_ERROR",
+        "AUTHENTICATION_ERROR",
+        "GATEWAY_ERROR",
+        "RATE_LIMITED"
+    );
+
+    // esperas de las llamadas asincronas: backoff de los reintentos y turno del rate limiter
+    private static final Executor DELAY_EXECUTOR =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gateway-delay-", 0).factory());
+
+    private final PaymentGatewayPort delegate;
+    private final GatewayCircuitBreaker circuitBreaker;
+    private final GatewayBulkhead bulkhead;
+    private final GatewayLatencyTracker latencyTracker;
+    private final StatusCheckHedger hedger;
+    private final Function<String, GatewayRateLimiter> rateLimiters;
+    private final GatewayRetryPolicy retryPolicy;
+
+    private final Counter successCalls;
+    private final Counter failedCalls;
+    private final Counter rejectedOpen;
+    private final Counter rejectedFull;
+    private final Counter rejectedRateLimit;
+    private final Timer queueWait;
+    private final Counter retried;
+    private final Counter retryBudgetExhausted;
+
+    /**
+     * rateLimiters da el cubo de la credencial de cada comercio (null: el de la credencial por defecto)
+     */
+    public ResilientPaymentGateway(PaymentGatewayPort delegate, GatewayCircuitBreaker circuitBreaker,
+                                   GatewayBulkhead bulkhead, GatewayLatencyTracker latencyTracker,
+                                   StatusCheckHedger hedger, Function<String, GatewayRateLimiter> rateLimiters,
+                                   GatewayRetryPolicy retryPolicy, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.latencyTracker = latencyTracker;
+        this.hedger = isHedged() ? hedger : null;
+        this.rateLimiters = rateLimiters;
+        this.retryPolicy = retryPolicy != null && retryPolicy.isEnabled() ? retryPolicy : null;
+        this.successCalls = calls(meterRegistry, "success");
+        this.failedCalls = calls(meterRegistry, "failure");
+        this.rejectedOpen = calls(meterRegistry, "rejected_open");
+        this.rejectedFull = calls(meterRegistry, "rejected_bulkhead");
+        this.rejectedRateLimit = calls(meterRegistry, "rejected_rate_limit");
+        this.queueWait = Timer.builder("payments.gateway.rate_limit.wait")
+            .description("Espera en cola hasta obtener un token de la pasarela")
+            .tag("gateway", delegate.gatewayProvider())
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.retried = retries(meterRegistry, "retried");
+        this.retryBudgetExhausted = retries(meterRegistry, "budget_exhausted");
+    }
+
+    @Override
+    public PaymentResponse processPayment(PaymentRequest request) {
+        return execute(request.paymentMethod(), request.merchantId(), () -> delegate.processPayment(request));
+    }
+
+    @Override
+    public PaymentResponse checkPaymentStatus(String gatewayTransactionId) {
+        if (hedger == null) {
+            return execute(null, null, () -> delegate.checkPaymentStatus(gatewayTransactionId));
+        }
+        return execute(null, null, () -> join(hedgedStatusCheck(null, gatewayTransactionId)));
+    }
+
+    @Override
+    public PaymentResponse checkPaymentStatus(String merchantId, String gatewayTransactionId) {
+        if (hedger == null) {
+            return execute(null, merchantId, () -> delegate.checkPaymentStatus(merchantId, gatewayTransactionId));
+        }
+        return execute(null, merchantId, () -> join(hedgedStatusCheck(merchantId, gatewayTransactionId)));
+    }
+
+    @Override
+    public PaymentResponse cancelPayment(String gatewayTransactionId) {
+        return execute(null, null, () -> delegate.cancelPayment(gatewayTransactionId));
+    }
+
+    @Override
+    public PaymentResponse cancelPayment(String merchantId, String gatewayTransactionId) {
+        return execute(null, merchantId, () -> delegate.cancelPayment(merchantId, gatewayTransactionId));
+    }
+
+    @Override
+    public PaymentResponse refundPayment(String gatewayTransactionId, String reason) {
+        return execute(null, null, () -> delegate.refundPayment(gatewayTransactionId, reason));
+    }
+
+    @Override
+    public PaymentResponse refundPayment(String merchantId, String gatewayTransactionId, String reason) {
+        return execute(null, merchantId, () -> delegate.refundPayment(merchantId, gatewayTransactionId, reason));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+        return executeAsync(request.paymentMethod(), request.merchantId(),
+            () -> asyncDelegate().processPaymentAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> checkPaymentStatusAsync(String gatewayTransactionId) {
+        if (hedger == null) {
+            return executeAsync(null, null, () -> asyncDelegate().checkPaymentStatusAsync(gatewayTransactionId));
+        }
+        return executeAsync(null, null, () -> hedgedStatusCheck(null, gatewayTransactionId));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> checkPaymentStatusAsync(String merchantId, String gatewayTransactionId) {
+        if (hedger == null) {
+            return executeAsync(null, merchantId,
+                () -> asyncDelegate().checkPaymentStatusAsync(merchantId, gatewayTransactionId));
+        }
+        return executeAsync(null, merchantId, () -> hedgedStatusCheck(merchantId, gatewayTransactionId));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> cancelPaymentAsync(String gatewayTransactionId) {
+        return executeAsync(null, null, () -> asyncDelegate().cancelPaymentAsync(gatewayTransactionId));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> cancelPaymentAsync(String merchantId, String gatewayTransactionId) {
+        return executeAsync(null, merchantId,
+            () -> asyncDelegate().cancelPaymentAsync(merchantId, gatewayTransactionId));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> refundPaymentAsync(String gatewayTransactionId, String reason) {
+        return executeAsync(null, null, () -> asyncDelegate().refundPaymentAsync(gatewayTransactionId, reason));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> refundPaymentAsync(String merchantId, String gatewayTransactionId,
+                                                                 String reason) {
+        return executeAsync(null, merchantId,
+            () -> asyncDelegate().refundPaymentAsync(merchantId, gatewayTransactionId, reason));
+    }
+
+    /**
+     * el listado en bloque ocupa un permiso y cuenta como una llamada para el breaker; cada pagina toma
+     * su token
+     */
+    @Override
+    public Map<String, PaymentResponse> checkPaymentStatuses(String merchantId,
+                                                             Collection<String> gatewayTransactionIds,
+                                                             LocalDateTime createdFrom, LocalDateTime createdTo) {
+        if (!(delegate instanceof BatchPaymentStatusPort batchGateway)) {
+            throw new PaymentException(
+                "Payment gateway does not support batch status lookups: " + delegate.gatewayProvider(),
+                "UNSUPPORTED_GATEWAY");
+        }
+        admit();
+        long start = System.nanoTime();
+        try {
+            Map<String, PaymentResponse> statuses = batchGateway.checkPaymentStatuses(
+                merchantId, gatewayTransactionIds, createdFrom, createdTo, () -> takeToken(merchantId));
+            record(null, null, null, System.nanoTime() - start);
+            return statuses;
+        } catch (RuntimeException e) {
+            if (isLocalRejection(e)) {
+                // una pagina sin token no dice nada de la salud de la pasarela
+                circuitBreaker.releasePermission();
+            } else {
+                record(null, null, e, System.nanoTime() - start);
+            }
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    @Override
+    public boolean supportsBatchStatusLookup() {
+        return delegate instanceof BatchPaymentStatusPort batchGateway && batchGateway.supportsBatchStatusLookup();
+    }
+
+    @Override
+    public boolean supportsPaymentMethod(PaymentMethod paymentMethod) {
+        return delegate.supportsPaymentMethod(paymentMethod);
+    }
+
+    @Override
+    public boolean canProcess(PaymentMethod paymentMethod, String currency, BigDecimal amount) {
+        return delegate.canProcess(paymentMethod, currency, amount);
+    }
+
+    /**
+     * tarifario de la pasarela envuelta; null si no publica ninguno
+     */
+    @Override
+    public FeeSchedule feeSchedule() {
+        return delegate instanceof FeeScheduleProvider provider ? provider.feeSchedule() : null;
+    }
+
+    @Override
+    public String gatewayProvider() {
+        return delegate.gatewayProvider();
+    }
+
+    /**
+     * false mientras el breaker esta abierto: la factory lo usa para conmutar a otra pasarela
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted() && bulkhead.getAvailablePermits() > 0;
+    }
+
+    public PaymentGatewayPort getDelegate() {
+        return delegate;
+    }
+
+    public GatewayCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public GatewayBulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public StatusCheckHedger getHedger() {
+        return hedger;
+    }
+
+    /**
+     * cubo de la credencial por defecto
+     */
+    public GatewayRateLimiter getRateLimiter() {
+        return rateLimiters == null ? null : rateLimiters.apply(null);
+    }
+
+    private boolean isHedged() {
+        // las dos llamadas del hedge se lanzan sin bloquear con la variante asincrona
+        return delegate instanceof AsyncPaymentGatewayPort;
+    }
+
+    // la primera llamada ya tiene su token; el hedge toma otro sin esperar turno o no sale
+    private CompletableFuture<PaymentResponse> hedgedStatusCheck(String merchantId, String gatewayTransactionId) {
+        return hedger.hedge(() -> merchantId == null
+                ? asyncDelegate().checkPaymentStatusAsync(gatewayTransactionId)
+                : asyncDelegate().checkPaymentStatusAsync(merchantId, gatewayTransactionId),
+            () -> rateLimiters == null || rateLimiters.apply(merchantId).tryAcquire());
+    }
+
+    private static PaymentResponse join(CompletableFuture<PaymentResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private PaymentResponse execute(PaymentMethod routedMethod, String merchantId, Supplier<PaymentResponse> call) {
+        if (retryPolicy == null) {
+            return executeOnce(routedMethod, merchantId, call);
+        }
+        retryPolicy.onRequest();
+        PaymentResponse response = null;
+        RuntimeException error = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                response = executeOnce(routedMethod, merchantId, call);
+                error = null;
+            } catch (RuntimeException e) {
+                if (attempt > 1 && isLocalRejection(e)) {
+                    break;
+                }
+                response = null;
+                error = e;
+            }
+            if (!shouldRetry(attempt, response, error)) {
+                break;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(retryPolicy.backoffNanos(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return response;
+    }
+
+    private CompletableFuture<PaymentResponse> executeAsync(PaymentMethod routedMethod, String merchantId,
+                                                            Supplier<CompletableFuture<PaymentResponse>> call) {
+        if (retryPolicy == null) {
+            return executeAsyncOnce(routedMethod, merchantId, call);
+        }
+        retryPolicy.onRequest();
+        return attemptAsync(routedMethod, merchantId, call, 1, null, null);
+    }
+
+    // previousResponse / previousError: resultado del intento anterior, que se devuelve si un reintento
+    // se rechaza localmente
+    private CompletableFuture<PaymentResponse> attemptAsync(PaymentMethod routedMethod, String merchantId,
+                                                            Supplier<CompletableFuture<PaymentResponse>> call,
+                                                            int attempt, PaymentResponse previousResponse,
+                                                            Throwable previousError) {
+        return executeAsyncOnce(routedMethod, merchantId, call).handle((response, error) -> {
+            if (attempt > 1 && unwrap(error) instanceof RuntimeException e && isLocalRejection(e)) {
+                return outcome(previousResponse, previousError);
+            }
+            if (!shouldRetry(attempt, response, error)) {
+                return outcome(response, error);
+            }
+            Executor backoff = CompletableFuture.delayedExecutor(
+                retryPolicy.backoffNanos(attempt), TimeUnit.NANOSECONDS, DELAY_EXECUTOR);
+            return CompletableFuture.runAsync(() -> { }, backoff)
+                .thenCompose(ignored -> attemptAsync(routedMethod, merchantId, call, attempt + 1, response, error));
+        }).thenCompose(Function.identity());
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private boolean shouldRetry(int attempt, PaymentResponse response, Throwable error) {
+        if (attempt >= retryPolicy.getMaxAttempts() || !GatewayRetryPolicy.isTransient(response, error)) {
+            return false;
+        }
+        if (!retryPolicy.tryAcquireRetry()) {
+            retryBudgetExhausted.increment();
+            return false;
+        }
+        retried.increment();
+        return true;
+    }
+
+    private static boolean isLocalRejection(RuntimeException e) {
+        return e instanceof PaymentException paymentException
+            && (UNAVAILABLE_CODE.equals(paymentException.getCode())
+                || THROTTLED_CODE.equals(paymentException.getCode()));
+    }
+
+    private static CompletableFuture<PaymentResponse> outcome(PaymentResponse response, Throwable error) {
+        if (error == null) {
+            return CompletableFuture.completedFuture(response);
+        }
+        return CompletableFuture.failedFuture(unwrap(error));
+    }
+
+    private PaymentResponse executeOnce(PaymentMethod routedMethod, String merchantId,
+                                        Supplier<PaymentResponse> call) {
+        acquire(merchantId);
+        long start = System.nanoTime();
+        try {
+            PaymentResponse response = call.get();
+            record(routedMethod, response, null, System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            record(routedMethod, null, e, System.nanoTime() - start);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    // ningun error sale por el hilo que llama: los rechazos y fallos al lanzar completan el futuro
+    private CompletableFuture<PaymentResponse> executeAsyncOnce(PaymentMethod routedMethod, String merchantId,
+                                                                Supplier<CompletableFuture<PaymentResponse>> call) {
+        long waitNanos;
+        try {
+            waitNanos = acquireAsync(merchantId);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (waitNanos == 0) {
+            return launch(routedMethod, call);
+        }
+        // el permiso ya esta tomado: la llamada sale cuando llega el turno de su token
+        Executor turn = CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, DELAY_EXECUTOR);
+        return CompletableFuture.runAsync(() -> { }, turn).thenCompose(ignored -> launch(routedMethod, call));
+    }
+
+    private CompletableFuture<PaymentResponse> launch(PaymentMethod routedMethod,
+                                                      Supplier<CompletableFuture<PaymentResponse>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<PaymentResponse> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            record(routedMethod, null, e, System.nanoTime() - start);
+            bulkhead.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        // el permiso del bulkhead se retiene hasta que la pasarela responde
+        return future.whenComplete((response, error) -> {
+            record(routedMethod, response, error, System.nanoTime() - start);
+            bulkhead.release();
+        });
+    }
+
+    // llamadas sincronas: permiso y despues token, esperando su turno en el hilo que llama
+    private void acquire(String merchantId) {
+        admit();
+        try {
+            takeToken(merchantId);
+        } catch (RuntimeException e) {
+            releaseAdmission();
+            throw e;
+        }
+    }
+
+    // llamadas asincronas: permiso y reserva del token; devuelve la espera hasta su turno
+    private long acquireAsync(String merchantId) {
+        admit();
+        try {
+            return reserveToken(merchantId);
+        } catch (RuntimeException e) {
+            releaseAdmission();
+            throw e;
+        }
+    }
+
+    private void admit() {
+        if (!bulkhead.tryAcquire()) {
+            rejectedFull.increment();
+            throw new PaymentException(
+                "Too many concurrent calls to payment gateway " + delegate.gatewayProvider(), UNAVAILABLE_CODE);
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            rejectedOpen.increment();
+            throw new PaymentException(
+                "Payment gateway " + delegate.gatewayProvider() + " is temporarily unavailable", UNAVAILABLE_CODE);
+        }
+    }
+
+    // la llamada no llega a la pasarela: devuelve el permiso del bulkhead y el de prueba del breaker
+    private void releaseAdmission() {
+        bulkhead.release();
+        circuitBreaker.releasePermission();
+    }
+
+    private void takeToken(String merchantId) {
+        if (rateLimiters == null) {
+            return;
+        }
+        long waitNanos;
+        try {
+            waitNanos = rateLimiters.apply(merchantId).acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentException(
+                "Interrupted while waiting for payment gateway " + delegate.gatewayProvider(), THROTTLED_CODE);
+        }
+        checkToken(waitNanos);
+    }
+
+    private long reserveToken(String merchantId) {
+        if (rateLimiters == null) {
+            return 0;
+        }
+        long waitNanos = rateLimiters.apply(merchantId).reserve();
+        checkToken(waitNanos);
+        return waitNanos;
+    }
+
+    private void checkToken(long waitNanos) {
+        if (waitNanos == GatewayRateLimiter.REJECTED) {
+            rejectedRateLimit.increment();
+            throw new PaymentException(
+                "Rate limit exceeded for payment gateway " + delegate.gatewayProvider(), THROTTLED_CODE);
+        }
+        queueWait.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // routedMethod != null solo en las altas de pago, las unicas llamadas que se enrutan
+    private void record(PaymentMethod routedMethod, PaymentResponse response, Throwable error, long durationNanos) {
+        boolean failed = isGatewayFailure(response, error);
+        if (failed) {
+            failedCalls.increment();
+            circuitBreaker.onFailure(durationNanos);
+        } else {
+            successCalls.increment();
+            circuitBreaker.onSuccess(durationNanos);
+        }
+        if (routedMethod != null) {
+            latencyTracker.record(delegate.gatewayProvider(), routedMethod, durationNanos, failed);
+        }
+    }
+
+    /**
+     * true si la llamada fallo por la pasarela (y no por la peticion o un rechazo de negocio)
+     */
+    public static boolean isGatewayFailure(PaymentResponse response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error.getCause() != null && !(error instanceof PaymentException) ? error.getCause() : error;
+            // errores de validacion de la propia peticion no dicen nada de la salud de la pasarela
+            return !(cause instanceof IllegalArgumentException || cause instanceof UnsupportedOperationException);
+        }
+        // Set.of no admite contains(null): las respuestas sin codigo no son fallos de infraestructura
+        return response != null && !response.success() && response.errorCode() != null
+            && INFRASTRUCTURE_ERROR_CODES.contains(response.errorCode());
+    }
+
+    private AsyncPaymentGatewayPort asyncDelegate() {
+        if (delegate instanceof AsyncPaymentGatewayPort asyncGateway) {
+            return asyncGateway;
+        }
+        throw new PaymentException(
+            "Payment gateway does not support asynchronous calls: " + delegate.gatewayProvider(), "UNSUPPORTED_GATEWAY");
+    }
+
+    private Counter retries(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payments.gateway.retries")
+            .tag("gateway", delegate.gatewayProvider())
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private Counter calls(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payments.gateway.calls")
+            .tag("gateway", delegate.gatewayProvider())
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,227 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import com.paymentgateway.domain.model.PaymentResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hedging de las consultas de estado de una pasarela
+ *
+ * Si la primera llamada no ha respondido cuando se alcanza el p95 observado se lanza una segunda en
+ * paralelo y se usa la primera respuesta valida. Solo se aplica a lecturas idempotentes: repetir una
+ * consulta de estado no cambia nada en la pasarela.
+ *
+ * Cada consulta ingresa budget-percent/100 fichas en un presupuesto acotado y cada hedge gasta una,
+ * asi que la carga extra no supera ese porcentaje aunque la pasarela se degrade entera.
+ */
+public class StatusCheckHedger {
+
+    private static final long TOKEN = 1_000;
+
+    private final int minimumSamples;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final Executor hedgeScheduler;
+
+    // ventana circular de latencias; el p95 se recalcula cada cuarto de ventana
+    private final long[] window;
+    private final AtomicLong samples = new AtomicLong();
+    private volatile long hedgeDelayNanos = -1;
+
+    private final long depositPerCall;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    private final Counter hedgeWon;
+    private final Counter primaryWon;
+    private final Counter budgetExhausted;
+    private final Counter throttled;
+
+    public StatusCheckHedger(String provider, MeterRegistry meterRegistry, int windowSize, int minimumSamples,
+                             double budgetPercent, long minDelayNanos, long maxDelayNanos) {
+        this(provider, meterRegistry, windowSize, minimumSamples, budgetPercent, minDelayNanos, maxDelayNanos, null);
+    }
+
+    StatusCheckHedger(String provider, MeterRegistry meterRegistry, int windowSize, int minimumSamples,
+                      double budgetPercent, long minDelayNanos, long maxDelayNanos, Executor hedgeScheduler) {
+        if (windowSize < 4 || minimumSamples < 1 || minimumSamples > windowSize) {
+            throw new IllegalArgumentException("payment.gateways.hedging.minimum-samples must be in [1, window-size]");
+        }
+        this.window = new long[windowSize];
+        this.minimumSamples = minimumSamples;
+        this.minDelayNanos = minDelayNanos;
+        this.maxDelayNanos = maxDelayNanos;
+        this.hedgeScheduler = hedgeScheduler;
+        this.depositPerCall = Math.round(budgetPercent / 100 * TOKEN);
+        // rafaga maxima de hedges: el presupuesto de una ventana
+        this.maxTokens = Math.max(TOKEN, depositPerCall * windowSize);
+        this.tokens = new AtomicLong(0);
+
+        this.hedgeWon = hedges(meterRegistry, provider, "hedge_won");
+        this.primaryWon = hedges(meterRegistry, provider, "primary_won");
+        this.budgetExhausted = hedges(meterRegistry, provider, "budget_exhausted");
+        this.throttled = hedges(meterRegistry, provider, "throttled");
+        Gauge.builder("payments.gateway.hedging.win_rate", this, StatusCheckHedger::winRate)
+            .description("Fraccion de hedges lanzados en los que respondio antes la segunda llamada")
+            .tag("gateway", provider)
+            .register(meterRegistry);
+        Gauge.builder("payments.gateway.hedging.delay", this, hedger -> Math.max(0, hedger.hedgeDelayNanos) / 1e6)
+            .description("Espera en milisegundos antes de lanzar el hedge (p95 observado)")
+            .tag("gateway", provider)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la consulta; call debe ser idempotente y no bloquear (devuelve un future ya lanzado)
+     */
+    public CompletableFuture<PaymentResponse> hedge(Supplier<CompletableFuture<PaymentResponse>> call) {
+        return hedge(call, () -> true);
+    }
+
+    /**
+     * Como hedge(call); la segunda llamada solo se lanza si admitHedge la admite (p. ej. hay token del
+     * rate limiter). admitHedge no debe bloquear: se evalua en el hilo del temporizador
+     */
+    public CompletableFuture<PaymentResponse> hedge(Supplier<CompletableFuture<PaymentResponse>> call,
+                                                    BooleanSupplier admitHedge) {
+        deposit();
+        long delay = hedgeDelayNanos;
+        CompletableFuture<PaymentResponse> primary = timed(call);
+        if (delay < 0) {
+            // aun sin muestras suficientes para estimar el p95
+            return primary;
+        }
+        CompletableFuture<PaymentResponse> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean hedged = new AtomicBoolean();
+        primary.whenComplete(settle(result, pending, hedged, false));
+        scheduler(delay).execute(() -> {
+            if (primary.isDone() || result.isDone()) {
+                return;
+            }
+            if (!tryAcquireToken()) {
+                budgetExhausted.increment();
+                return;
+            }
+            if (!admitHedge.getAsBoolean()) {
+                // el hedge no llega a salir: se devuelve su ficha al presupuesto
+                throttled.increment();
+                refundToken();
+                return;
+            }
+            hedged.set(true);
+            pending.incrementAndGet();
+            timed(call).whenComplete(settle(result, pending, hedged, true));
+        });
+        return result;
+    }
+
+    public long getHedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    double winRate() {
+        double won = hedgeWon.count();
+        double total = won + primaryWon.count();
+        return total == 0 ? 0 : won / total;
+    }
+
+    // la primera respuesta valida completa el resultado; un error solo si fallan todas las llamadas
+    private BiConsumer<PaymentResponse, Throwable> settle(CompletableFuture<PaymentResponse> result,
+                                                         AtomicInteger pending, AtomicBoolean hedged,
+                                                         boolean isHedge) {
+        return (response, error) -> {
+            if (!ResilientPaymentGateway.isGatewayFailure(response, error)) {
+                if (result.complete(response) && hedged.get()) {
+                    (isHedge ? hedgeWon : primaryWon).increment();
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(response);
+                }
+            }
+        };
+    }
+
+    private CompletableFuture<PaymentResponse> timed(Supplier<CompletableFuture<PaymentResponse>> call) {
+        long start = System.nanoTime();
+        return call.get().whenComplete((response, error) -> {
+            if (!ResilientPaymentGateway.isGatewayFailure(response, error)) {
+                recordLatency(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private void recordLatency(long nanos) {
+        long sample = samples.getAndIncrement();
+        window[(int) (sample % window.length)] = nanos;
+        long count = sample + 1;
+        if (count >= minimumSamples && (count == minimumSamples || count % (window.length / 4) == 0)) {
+            hedgeDelayNanos = Math.min(maxDelayNanos, Math.max(minDelayNanos, percentile95(count)));
+        }
+    }
+
+    private long percentile95(long count) {
+        // lecturas concurrentes con escrituras: un valor desfasado solo mueve ligeramente la estimacion
+        long[] sorted = Arrays.copyOf(window, (int) Math.min(count, window.length));
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+    }
+
+    private void deposit() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= maxTokens) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + depositPerCall)));
+    }
+
+    private boolean tryAcquireToken() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private void refundToken() {
+        long current;
+        do {
+            current = tokens.get();
+        } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + TOKEN)));
+    }
+
+    private Executor scheduler(long delayNanos) {
+        // el hedge solo lanza un future sobre hilos virtuales: puede ejecutarse en el hilo del temporizador
+        return hedgeScheduler != null
+            ? hedgeScheduler
+            : CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, Runnable::run);
+    }
+
+    private static Counter hedges(MeterRegistry meterRegistry, String provider, String outcome) {
+        return Counter.builder("payments.gateway.hedging")
+            .tag("gateway", provider)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,52 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Crea el hedger de consultas de estado de cada pasarela (payment.gateways.hedging.*)
+ */
+@Component
+public class StatusCheckHedgerFactory {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int windowSize;
+    private final int minimumSamples;
+    private final double budgetPercent;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+
+    public StatusCheckHedgerFactory(
+        MeterRegistry meterRegistry,
+        @Value("${payment.gateways.hedging.enabled:false}") boolean enabled,
+        @Value("${payment.gateways.hedging.window-size:256}") int windowSize,
+        @Value("${payment.gateways.hedging.minimum-samples:20}") int minimumSamples,
+        @Value("${payment.gateways.hedging.budget-percent:10}") double budgetPercent,
+        @Value("${payment.gateways.hedging.min-delay:20ms}") Duration minDelay,
+        @Value("${payment.gateways.hedging.max-delay:2s}") Duration maxDelay
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.windowSize = windowSize;
+        this.minimumSamples = minimumSamples;
+        this.budgetPercent = budgetPercent;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * null cuando el hedging esta deshabilitado
+     */
+    public StatusCheckHedger create(String provider) {
+        if (!enabled) {
+            return null;
+        }
+        return new StatusCheckHedger(provider, meterRegistry, windowSize, minimumSamples, budgetPercent,
+            minDelay.toNanos(), maxDelay.toNanos());
+    }
+}
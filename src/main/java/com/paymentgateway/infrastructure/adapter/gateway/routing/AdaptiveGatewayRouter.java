@@ -0,0 +1,183 @@
+package com.paymentgateway.infrastructure.adapter.gateway.routing;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeSchedule;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeScheduleProvider;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Enrutado adaptativo entre pasarelas compatibles segun la latencia esperada
+ *
+ * La latencia esperada de una pasarela es su EWMA dividida por su tasa de exito (cuanto tarda de
+ * media en conseguir una respuesta valida). Se elige la menor entre las pasarelas con datos
+ * suficientes; mientras no los hay manda la preferencia de negocio. Una fraccion pequena del
+ * trafico (exploration-rate) va a otra pasarela al azar para que una pasarela recuperada vuelva a
+ * medirse y recupere trafico sin intervencion manual.
+ *
+ * Cuando se conocen moneda y monto manda el coste: se elige la pasarela con menor comision entre
+ * las que cumplen el SLO de latencia (o aun no tienen datos) y la latencia solo desempata. Si
+ * ninguna tarifada cumple el SLO se vuelve a la eleccion por latencia.
+ */
+@Component
+public class AdaptiveGatewayRouter {
+
+    // tope para que una pasarela que falla siempre no produzca una latencia esperada infinita
+    private static final double MIN_SUCCESS_RATE = 0.05;
+
+    private final GatewayLatencyTracker tracker;
+    private final double explorationRate;
+    private final long minimumSamples;
+    private final boolean leastCost;
+    private final double latencySloMillis;
+    private final DoubleSupplier random;
+    private final Counter explorations;
+    private final Counter sloFallbacks;
+
+    @Autowired
+    public AdaptiveGatewayRouter(
+        GatewayLatencyTracker tracker,
+        MeterRegistry meterRegistry,
+        @Value("${payment.gateways.routing.exploration-rate:0.05}") double explorationRate,
+        @Value("${payment.gateways.routing.minimum-samples:5}") long minimumSamples,
+        @Value("${payment.gateways.routing.least-cost.enabled:true}") boolean leastCost,
+        @Value("${payment.gateways.routing.least-cost.latency-slo:2s}") Duration latencySlo
+    ) {
+        this(tracker, meterRegistry, explorationRate, minimumSamples, leastCost, latencySlo,
+            () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    AdaptiveGatewayRouter(GatewayLatencyTracker tracker, MeterRegistry meterRegistry, double explorationRate,
+                          long minimumSamples, boolean leastCost, Duration latencySlo, DoubleSupplier random) {
+        if (explorationRate < 0 || explorationRate >= 1) {
+            throw new IllegalArgumentException("payment.gateways.routing.exploration-rate must be in [0, 1)");
+        }
+        this.tracker = tracker;
+        this.explorationRate = explorationRate;
+        this.minimumSamples = minimumSamples;
+        this.leastCost = leastCost;
+        this.latencySloMillis = latencySlo.toNanos() / 1_000_000.0;
+        this.random = random;
+        this.explorations = Counter.builder("payments.gateway.routing.explorations").register(meterRegistry);
+        this.sloFallbacks = Counter.builder("payments.gateway.routing.slo_fallbacks")
+            .description("Elecciones por latencia porque ninguna pasarela tarifada cumplia el SLO")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Elige la pasarela mas barata dentro del SLO de latencia para la moneda y el monto dados
+     * Evaluar las comisiones no reserva memoria: el monto se pasa a centesimas una sola vez
+     */
+    public PaymentGatewayPort select(List<PaymentGatewayPort> candidates, PaymentMethod paymentMethod,
+                                     String currency, BigDecimal amount, PaymentGatewayPort preferred) {
+        if (!leastCost || currency == null || amount == null || candidates.size() == 1) {
+            return select(candidates, paymentMethod, preferred);
+        }
+        String normalizedCurrency = currency.toUpperCase(Locale.ROOT);
+        long amountMinor = FeeSchedule.toMinorUnits(amount);
+        PaymentGatewayPort cheapest = null;
+        long cheapestFee = FeeSchedule.UNPRICED;
+        int ties = 0;
+        for (PaymentGatewayPort candidate : candidates) {
+            if (!withinSlo(candidate, paymentMethod)) {
+                continue;
+            }
+            long fee = feeMinor(candidate, paymentMethod, normalizedCurrency, amountMinor);
+            if (fee < cheapestFee) {
+                cheapest = candidate;
+                cheapestFee = fee;
+                ties = 1;
+            } else if (fee == cheapestFee && fee != FeeSchedule.UNPRICED) {
+                ties++;
+            }
+        }
+        if (cheapest == null) {
+            sloFallbacks.increment();
+            return select(candidates, paymentMethod, preferred);
+        }
+        if (ties > 1) {
+            long fee = cheapestFee;
+            List<PaymentGatewayPort> tied = candidates.stream()
+                .filter(candidate -> withinSlo(candidate, paymentMethod))
+                .filter(candidate -> feeMinor(candidate, paymentMethod, normalizedCurrency, amountMinor) == fee)
+                .toList();
+            return select(tied, paymentMethod, preferred);
+        }
+        // la exploracion tambien aplica aqui: se paga algo mas en una fraccion pequena del trafico
+        return explore(candidates, cheapest);
+    }
+
+    /**
+     * Elige entre candidates (no vacia); preferred es la eleccion de negocio cuando faltan datos
+     */
+    public PaymentGatewayPort select(List<PaymentGatewayPort> candidates, PaymentMethod paymentMethod,
+                                     PaymentGatewayPort preferred) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        PaymentGatewayPort best = null;
+        double bestLatency = Double.MAX_VALUE;
+        for (PaymentGatewayPort candidate : candidates) {
+            double latency = expectedLatency(candidate, paymentMethod);
+            if (latency < bestLatency || (latency == bestLatency && candidate == preferred)) {
+                best = candidate;
+                bestLatency = latency;
+            }
+        }
+        if (best == null) {
+            best = candidates.contains(preferred) ? preferred : candidates.get(0);
+        }
+        return explore(candidates, best);
+    }
+
+    /**
+     * Latencia esperada en milisegundos; Double.MAX_VALUE si no hay muestras suficientes
+     */
+    public double expectedLatency(PaymentGatewayPort gateway, PaymentMethod paymentMethod) {
+        GatewayLatencyTracker.Snapshot snapshot = tracker.snapshot(gateway.gatewayProvider(), paymentMethod);
+        if (snapshot.samples() < minimumSamples) {
+            return Double.MAX_VALUE;
+        }
+        return snapshot.latencyMillis() / Math.max(MIN_SUCCESS_RATE, 1 - snapshot.errorRate());
+    }
+
+    private PaymentGatewayPort explore(List<PaymentGatewayPort> candidates, PaymentGatewayPort best) {
+        double draw = random.getAsDouble();
+        if (draw < explorationRate) {
+            // otra pasarela al azar entre las restantes, reutilizando el mismo sorteo
+            int index = (int) (draw / explorationRate * (candidates.size() - 1));
+            PaymentGatewayPort explored = others(candidates, best).get(index);
+            explorations.increment();
+            return explored;
+        }
+        return best;
+    }
+
+    private boolean withinSlo(PaymentGatewayPort gateway, PaymentMethod paymentMethod) {
+        double latency = expectedLatency(gateway, paymentMethod);
+        return latency == Double.MAX_VALUE || latency <= latencySloMillis;
+    }
+
+    private static long feeMinor(PaymentGatewayPort gateway, PaymentMethod paymentMethod, String currency,
+                                 long amountMinor) {
+        FeeSchedule schedule = gateway instanceof FeeScheduleProvider provider ? provider.feeSchedule() : null;
+        return schedule == null ? FeeSchedule.UNPRICED : schedule.feeMinor(paymentMethod, currency, amountMinor);
+    }
+
+    private static List<PaymentGatewayPort> others(List<PaymentGatewayPort> candidates, PaymentGatewayPort best) {
+        return candidates.stream().filter(candidate -> candidate != best).toList();
+    }
+}
@@ -0,0 +1,96 @@
+package com.paymentgateway.infrastructure.adapter.gateway.routing;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.paymentgateway.domain.model.PaymentMethod;
+
+/**
+ * Medias moviles exponenciales (EWMA) de latencia y tasa de error por pasarela y medio de pago
+ *
+ * Cada media es un double guardado en un AtomicLong y actualizado con CAS: registrar una llamada
+ * no toma locks ni reserva memoria despues de la primera llamada a cada pasarela.
+ */
+@Component
+public class GatewayLatencyTracker {
+
+    private static final PaymentMethod[] METHODS = PaymentMethod.values();
+
+    private final double alpha;
+    private final ConcurrentHashMap<String, MethodStats[]> stats = new ConcurrentHashMap<>();
+
+    public GatewayLatencyTracker(@Value("${payment.gateways.routing.ewma-alpha:0.2}") double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("payment.gateways.routing.ewma-alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+
+    public void record(String gatewayProvider, PaymentMethod paymentMethod, long latencyNanos, boolean failed) {
+        MethodStats methodStats = statsOf(gatewayProvider)[paymentMethod.ordinal()];
+        methodStats.latencyMillis.update(latencyNanos / 1_000_000.0, alpha);
+        methodStats.errorRate.update(failed ? 1.0 : 0.0, alpha);
+        methodStats.samples.incrementAndGet();
+    }
+
+    public Snapshot snapshot(String gatewayProvider, PaymentMethod paymentMethod) {
+        MethodStats[] gatewayStats = stats.get(gatewayProvider);
+        if (gatewayStats == null) {
+            return Snapshot.EMPTY;
+        }
+        MethodStats methodStats = gatewayStats[paymentMethod.ordinal()];
+        return new Snapshot(methodStats.latencyMillis.get(), methodStats.errorRate.get(), methodStats.samples.get());
+    }
+
+    private MethodStats[] statsOf(String gatewayProvider) {
+        MethodStats[] gatewayStats = stats.get(gatewayProvider);
+        if (gatewayStats != null) {
+            return gatewayStats;
+        }
+        return stats.computeIfAbsent(gatewayProvider, provider -> {
+            MethodStats[] created = new MethodStats[METHODS.length];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = new MethodStats();
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Vista puntual de las estadisticas; samples == 0 indica que no hay datos
+     */
+    public record Snapshot(double latencyMillis, double errorRate, long samples) {
+
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0);
+    }
+
+    private static final class MethodStats {
+        private final Ewma latencyMillis = new Ewma();
+        private final Ewma errorRate = new Ewma();
+        private final AtomicLong samples = new AtomicLong();
+    }
+
+    private static final class Ewma {
+        private static final long UNSET = Double.doubleToRawLongBits(Double.NaN);
+
+        private final AtomicLong bits = new AtomicLong(UNSET);
+
+        void update(double sample, double alpha) {
+            long current;
+            long next;
+            do {
+                current = bits.get();
+                double previous = Double.longBitsToDouble(current);
+                next = Double.doubleToRawLongBits(current == UNSET ? sample : previous + alpha * (sample - previous));
+            } while (!bits.compareAndSet(current, next));
+        }
+
+        double get() {
+            long current = bits.get();
+            return current == UNSET ? 0 : Double.longBitsToDouble(current);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.paymentgateway.infrastructure.adapter.gateway.simulator;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribucion de la latencia de una pasarela simulada
+ */
+public sealed interface LatencyDistribution {
+
+    // cuantil 0.99 de la normal estandar
+    double Z_99 = 2.3263478740;
+
+    long sampleNanos(RandomGenerator random);
+
+    /**
+     * siempre la misma latencia
+     */
+    record Fixed(Duration latency) implements LatencyDistribution {
+
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            return latency.toNanos();
+        }
+    }
+
+    /**
+     * lognormal dada por su mediana y su p99: cola larga a la derecha como la de una API real
+     */
+    record LogNormal(Duration median, Duration p99) implements LatencyDistribution {
+
+        public LogNormal {
+            if (p99.compareTo(median) < 0) {
+                throw new IllegalArgumentException("Latency p99 must not be below the median");
+            }
+        }
+
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            double sigma = Math.log((double) p99.toNanos() / Math.max(1, median.toNanos())) / Z_99;
+            return (long) (median.toNanos() * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    /**
+     * dos modos: la mayoria de llamadas tarda fast y una fraccion slowFraction tarda slow
+     * (p. ej. una instancia degradada detras del balanceador del proveedor)
+     */
+    record Bimodal(Duration fast, Duration slow, double slowFraction) implements LatencyDistribution {
+
+        public Bimodal {
+            if (slowFraction < 0 || slowFraction > 1) {
+                throw new IllegalArgumentException("Slow fraction must be between 0 and 1");
+            }
+        }
+
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            return (random.nextDouble() < slowFraction ? slow : fast).toNanos();
+        }
+    }
+}
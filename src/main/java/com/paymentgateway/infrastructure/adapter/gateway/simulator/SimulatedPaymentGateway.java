@@ -0,0 +1,294 @@
+package com.paymentgateway.infrastructure.adapter.gateway.simulator;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.random.RandomGenerator;
+
+import com.paymentgateway.application.port.AsyncPaymentGatewayPort;
+import com.paymentgateway.application.port.BatchPaymentStatusPort;
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.GatewaySpecificData;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequest;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayStrategy;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeSchedule;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeScheduleProvider;
+import com.paymentgateway.shared.exception.PaymentException;
+
+/**
+ * Pasarela simulada para pruebas de carga sin red (perfil simulator)
+ *
+ * Toma de la pasarela real el nombre, los medios de pago, monedas, limites y tarifario, asi que el
+ * enrutado y la resiliencia se comportan igual; las llamadas no salen del proceso. Cada llamada
+ * tarda lo que marca la distribucion de latencia y puede fallar con un error transitorio
+ * (GATEWAY_ERROR), un rechazo (CARD_DECLINED, solo en cobros) o un 429 (RATE_LIMITED) durante las
+ * rafagas periodicas. Con capacity > 0 la pasarela atiende como mucho capacity llamadas a la vez y
+ * el resto espera en cola: bajo sobrecarga la cola se vacia despacio y la latencia crece.
+ */
+public class SimulatedPaymentGateway
+    implements PaymentGatewayPort, AsyncPaymentGatewayPort, FeeScheduleProvider, BatchPaymentStatusPort {
+
+    private static final Executor SIMULATOR_EXECUTOR =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gateway-sim-", 0).factory());
+
+    /**
+     * comportamiento de la pasarela simulada; rateLimitBurstEvery cero desactiva las rafagas de 429
+     * y capacity cero la cola
+     */
+    public record Behavior(
+        LatencyDistribution latency,
+        double errorRate,
+        double declineRate,
+        Duration rateLimitBurstEvery,
+        Duration rateLimitBurstDuration,
+        int capacity
+    ) {
+        public Behavior {
+            if (errorRate < 0 || declineRate < 0 || errorRate + declineRate > 1) {
+                throw new IllegalArgumentException("Error and decline rates must add up to at most 1");
+            }
+        }
+    }
+
+    private final PaymentGatewayStrategy template;
+    private final Behavior behavior;
+    private final Random random;
+    private final LongSupplier clock;
+    private final long startNanos;
+    private final Semaphore capacity;
+    private final String transactionPrefix;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // solo las transacciones canceladas o reembolsadas; el resto figura como COMPLETED
+    private final Map<String, PaymentStatus> changedStatuses = new ConcurrentHashMap<>();
+
+    /**
+     * seed cero: aleatoriedad no reproducible sin contencion entre hilos
+     */
+    public SimulatedPaymentGateway(PaymentGatewayStrategy template, Behavior behavior, long seed) {
+        this(template, behavior, seed == 0 ? null : new Random(seed), System::nanoTime);
+    }
+
+    SimulatedPaymentGateway(PaymentGatewayStrategy template, Behavior behavior, Random random, LongSupplier clock) {
+        this.template = template;
+        this.behavior = behavior;
+        this.random = random;
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        this.capacity = behavior.capacity() > 0 ? new Semaphore(behavior.capacity(), true) : null;
+        this.transactionPrefix = template.gatewayProvider().toLowerCase() + "_sim_" + System.currentTimeMillis() + "_";
+    }
+
+    @Override
+    public PaymentResponse processPayment(PaymentRequest request) {
+        if (!template.canProcess(request.paymentMethod(), request.currency(), request.amount())) {
+            return PaymentResponse.failure(
+                request.paymentReference(),
+                "Payment not supported by simulated " + gatewayProvider(),
+                "INVALID_REQUEST"
+            );
+        }
+        try {
+            simulateCall(true);
+        } catch (PaymentException e) {
+            return PaymentResponse.failure(
+                request.paymentReference(),
+                "Payment processing failed: " + e.getMessage(),
+                e.getCode()
+            );
+        }
+        GatewaySpecificData gatewayData = new GatewaySpecificData(
+            gatewayProvider().toLowerCase(),
+            "{\"simulated\": true}",
+            String.valueOf(feeSchedule().fee(request.paymentMethod(), request.currency(), request.amount())),
+            "Simulated payment processed successfully"
+        );
+        return PaymentResponse.success(
+            transactionPrefix + sequence.incrementAndGet(),
+            request.paymentReference(),
+            request.amount(),
+            request.currency(),
+            gatewayData
+        );
+    }
+
+    @Override
+    public PaymentResponse checkPaymentStatus(String gatewayTransactionId) {
+        simulateCall(false);
+        return statusOf(gatewayTransactionId);
+    }
+
+    @Override
+    public PaymentResponse cancelPayment(String gatewayTransactionId) {
+        return changeStatus(gatewayTransactionId, PaymentStatus.CANCELLED, "CANCEL_ERROR");
+    }
+
+    @Override
+    public PaymentResponse refundPayment(String gatewayTransactionId, String reason) {
+        return changeStatus(gatewayTransactionId, PaymentStatus.REFUNDED, "REFUND_FAILED");
+    }
+
+    /**
+     * una sola llamada simulada para todo el lote, como el listado por fechas de la pasarela real
+     */
+    @Override
+    public Map<String, PaymentResponse> checkPaymentStatuses(
+        String merchantId,
+        Collection<String> gatewayTransactionIds,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo
+    ) {
+        simulateCall(false);
+        Map<String, PaymentResponse> statuses = new LinkedHashMap<>();
+        for (String gatewayTransactionId : gatewayTransactionIds) {
+            statuses.put(gatewayTransactionId, statusOf(gatewayTransactionId));
+        }
+        return statuses;
+    }
+
+    @Override
+    public boolean supportsBatchStatusLookup() {
+        return template instanceof BatchPaymentStatusPort batchGateway && batchGateway.supportsBatchStatusLookup();
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+        return CompletableFuture.supplyAsync(() -> processPayment(request), SIMULATOR_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> checkPaymentStatusAsync(String gatewayTransactionId) {
+        return CompletableFuture.supplyAsync(() -> checkPaymentStatus(gatewayTransactionId), SIMULATOR_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> cancelPaymentAsync(String gatewayTransactionId) {
+        return CompletableFuture.supplyAsync(() -> cancelPayment(gatewayTransactionId), SIMULATOR_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> refundPaymentAsync(String gatewayTransactionId, String reason) {
+        return CompletableFuture.supplyAsync(() -> refundPayment(gatewayTransactionId, reason), SIMULATOR_EXECUTOR);
+    }
+
+    @Override
+    public boolean supportsPaymentMethod(PaymentMethod paymentMethod) {
+        return template.supportsPaymentMethod(paymentMethod);
+    }
+
+    @Override
+    public boolean canProcess(PaymentMethod paymentMethod, String currency, BigDecimal amount) {
+        return template.canProcess(paymentMethod, currency, amount);
+    }
+
+    @Override
+    public String gatewayProvider() {
+        return template.gatewayProvider();
+    }
+
+    @Override
+    public FeeSchedule feeSchedule() {
+        return template.feeSchedule();
+    }
+
+    public Behavior getBehavior() {
+        return behavior;
+    }
+
+    private PaymentResponse changeStatus(String gatewayTransactionId, PaymentStatus status, String errorCode) {
+        try {
+            simulateCall(false);
+        } catch (PaymentException e) {
+            return PaymentResponse.failure(null, "Simulated " + gatewayProvider() + " call failed: " + e.getMessage(), errorCode);
+        }
+        changedStatuses.put(gatewayTransactionId, status);
+        return statusOf(gatewayTransactionId);
+    }
+
+    private PaymentResponse statusOf(String gatewayTransactionId) {
+        PaymentStatus status = changedStatuses.getOrDefault(gatewayTransactionId, PaymentStatus.COMPLETED);
+        return new PaymentResponse(
+            true,
+            gatewayTransactionId,
+            null,
+            null,
+            null,
+            status,
+            "Simulated payment status: " + status,
+            null,
+            LocalDateTime.now(),
+            null
+        );
+    }
+
+    /**
+     * la llamada remota simulada: rafaga de 429, cola si hay capacidad limitada, latencia y fallo
+     */
+    private void simulateCall(boolean payment) {
+        if (inRateLimitBurst()) {
+            throw new PaymentException("Simulated " + gatewayProvider() + " rate limit: too many requests", "RATE_LIMITED");
+        }
+        RandomGenerator generator = random();
+        long latencyNanos = behavior.latency().sampleNanos(generator);
+        try {
+            if (capacity == null) {
+                sleep(latencyNanos);
+            } else {
+                capacity.acquire();
+                try {
+                    sleep(latencyNanos);
+                } finally {
+                    capacity.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentException("Simulated " + gatewayProvider() + " call interrupted", "CONNECTION_ERROR", e);
+        }
+
+        double roll = generator.nextDouble();
+        if (roll < behavior.errorRate()) {
+            throw new PaymentException("Simulated " + gatewayProvider() + " server error", "GATEWAY_ERROR");
+        }
+        if (payment && roll < behavior.errorRate() + behavior.declineRate()) {
+            throw new PaymentException("Simulated card decline", "CARD_DECLINED");
+        }
+    }
+
+    /**
+     * la rafaga ocupa el final de cada periodo, asi que el arranque no empieza con 429
+     */
+    private boolean inRateLimitBurst() {
+        long periodNanos = behavior.rateLimitBurstEvery().toNanos();
+        if (periodNanos <= 0) {
+            return false;
+        }
+        long phase = Math.floorMod(clock.getAsLong() - startNanos, periodNanos);
+        return phase >= periodNanos - behavior.rateLimitBurstDuration().toNanos();
+    }
+
+    private RandomGenerator random() {
+        return random != null ? random : ThreadLocalRandom.current();
+    }
+
+    private static void sleep(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            Thread.sleep(Duration.ofNanos(nanos));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.paymentgateway.infrastructure.adapter.gateway.stripe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpContent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import com.stripe.net.StripeResponseStream;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Transporte del SDK de Stripe sobre java.net.http.HttpClient
+ *
+ * A diferencia de HttpURLConnectionClient el cliente mantiene su propio pool de conexiones keep-alive,
+ * negocia HTTP/2 por ALPN cuando el servidor lo admite (todas las llamadas comparten una conexion
+ * multiplexada) y no depende de la configuracion global de Stripe. Los reintentos de red del SDK
+ * quedan desactivados: los hace ResilientPaymentGateway con su presupuesto.
+ */
+public class PooledStripeHttpClient extends com.stripe.net.HttpClient {
+
+    // cabeceras que gestiona el propio HttpClient y no se pueden fijar en la peticion
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(List.of("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+    }
+
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final MeterRegistry meterRegistry;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder openedConnections;
+
+    /**
+     * openedConnections: conexiones TLS abiertas por httpClient (ver ConnectionCountingSslContext)
+     */
+    public PooledStripeHttpClient(HttpClient httpClient, Duration readTimeout, MeterRegistry meterRegistry,
+                                  LongAdder openedConnections) {
+        this.httpClient = httpClient;
+        this.readTimeout = readTimeout;
+        this.meterRegistry = meterRegistry;
+        this.openedConnections = openedConnections;
+        FunctionCounter.builder("payments.stripe.http.connections.opened", openedConnections, LongAdder::sum)
+            .description("Conexiones TLS nuevas hacia Stripe")
+            .register(meterRegistry);
+        Gauge.builder("payments.stripe.http.connection_reuse", this, PooledStripeHttpClient::connectionReuse)
+            .description("Fraccion de peticiones servidas sobre una conexion ya abierta")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws ApiConnectionException {
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        return new StripeResponse(response.statusCode(), HttpHeaders.of(response.headers().map()), response.body());
+    }
+
+    @Override
+    public StripeResponseStream requestStream(StripeRequest request) throws ApiConnectionException {
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        return new StripeResponseStream(
+            response.statusCode(), HttpHeaders.of(response.headers().map()), response.body());
+    }
+
+    /**
+     * Abre (o reutiliza) una conexion con el host sin credenciales: la respuesta se descarta y la
+     * conexion queda en el pool del HttpClient. Devuelve el codigo HTTP de la respuesta
+     */
+    public int preconnect(URI uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .timeout(readTimeout)
+            .setHeader("User-Agent", buildUserAgentString())
+            .GET()
+            .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    double connectionReuse() {
+        long total = requests.sum();
+        return total == 0 ? 0 : Math.max(0, 1 - (double) openedConnections.sum() / total);
+    }
+
+    private <T> HttpResponse<T> send(StripeRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+        throws ApiConnectionException {
+        long start = System.nanoTime();
+        String outcome = "IO_ERROR";
+        String version = "UNKNOWN";
+        try {
+            HttpResponse<T> response = httpClient.send(toHttpRequest(request), bodyHandler);
+            outcome = response.statusCode() / 100 + "xx";
+            version = response.version().name();
+            return response;
+        } catch (IOException e) {
+            throw new ApiConnectionException(
+                String.format("IOException during API request to Stripe (%s): %s", request.url(), e.getMessage()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Interrupted during API request to Stripe (" + request.url() + ")", e);
+        } finally {
+            requests.increment();
+            Timer.builder("payments.stripe.http.requests")
+                .tag("method", request.method().name())
+                .tag("outcome", outcome)
+                .tag("version", version)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private HttpRequest toHttpRequest(StripeRequest request) throws ApiConnectionException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("Invalid Stripe URL: " + request.url(), e);
+        }
+        Integer requestReadTimeout = request.options().getReadTimeout();
+        builder.timeout(requestReadTimeout != null && requestReadTimeout > 0
+            ? Duration.ofMillis(requestReadTimeout)
+            : readTimeout);
+
+        builder.setHeader("User-Agent", buildUserAgentString());
+        builder.setHeader("X-Stripe-Client-User-Agent", buildXStripeClientUserAgentString());
+        for (Map.Entry<String, List<String>> header : request.headers().map().entrySet()) {
+            if (!RESTRICTED_HEADERS.contains(header.getKey())) {
+                builder.setHeader(header.getKey(), String.join(",", header.getValue()));
+            }
+        }
+
+        HttpContent content = request.content();
+        if (content == null) {
+            builder.method(request.method().name(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.setHeader("Content-Type", content.contentType());
+            builder.method(request.method().name(), HttpRequest.BodyPublishers.ofByteArray(content.byteArrayContent()));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.paymentgateway.infrastructure.adapter.gateway.stripe;
+
+import java.io.IOException;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLContext;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.StripeResponseGetterOptions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Clientes de Stripe por API key sobre un unico transporte con pool (stripe.api.*, stripe.http.*)
+ *
+ * Cada StripeClient lleva su clave en sus opciones en lugar de la global Stripe.apiKey, asi que
+ * conviven claves de distintos comercios (stripe.api.merchant-keys.<merchantId>). Todos comparten
+ * el mismo HttpClient y por tanto sus conexiones abiertas.
+ */
+@Component
+public class StripeClientRegistry {
+
+    private static final String MERCHANT_KEY_PREFIX = "stripe.api.merchant-keys.";
+
+    private final Environment environment;
+    private final String defaultApiKey;
+    private final String apiBase;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final PooledStripeHttpClient httpClient;
+
+    private final Map<String, StripeClient> clients = new ConcurrentHashMap<>();
+
+    public StripeClientRegistry(
+        MeterRegistry meterRegistry,
+        Environment environment,
+        @Value("${stripe.api.secret-key}") String defaultApiKey,
+        @Value("${stripe.api.base:}") String apiBase,
+        @Value("${stripe.http.connect-timeout:2s}") Duration connectTimeout,
+        @Value("${stripe.http.read-timeout:10s}") Duration readTimeout,
+        @Value("${stripe.http.http2:true}") boolean http2
+    ) {
+        this.environment = environment;
+        this.defaultApiKey = defaultApiKey;
+        this.apiBase = apiBase == null || apiBase.isBlank() ? Stripe.LIVE_API_BASE : apiBase;
+        this.connectTimeoutMillis = (int) connectTimeout.toMillis();
+        this.readTimeoutMillis = (int) readTimeout.toMillis();
+
+        LongAdder openedConnections = new LongAdder();
+        HttpClient client = HttpClient.newBuilder()
+            // HTTP/2 se negocia por ALPN; si el servidor no lo admite se usa HTTP/1.1 con keep-alive
+            .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .connectTimeout(connectTimeout)
+            .sslContext(new ConnectionCountingSslContext(defaultSslContext(), openedConnections))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stripe-http-", 0).factory()))
+            .build();
+        this.httpClient = new PooledStripeHttpClient(client, readTimeout, meterRegistry, openedConnections);
+    }
+
+    public StripeClient defaultClient() {
+        return forApiKey(defaultApiKey);
+    }
+
+    /**
+     * cliente con la clave propia del comercio si la tiene configurada, si no el de la clave por defecto
+     */
+    public StripeClient forMerchant(String merchantId) {
+        return forApiKey(apiKeyFor(merchantId));
+    }
+
+    /**
+     * clave con la que se llama por cuenta del comercio; null o sin clave propia, la clave por defecto
+     */
+    public String apiKeyFor(String merchantId) {
+        String apiKey = merchantId == null ? null : environment.getProperty(MERCHANT_KEY_PREFIX + merchantId);
+        return apiKey == null || apiKey.isBlank() ? defaultApiKey : apiKey;
+    }
+
+    /**
+     * abre la conexion con stripe.api.base antes de la primera llamada (handshake TLS y ALPN)
+     */
+    public int preconnect() throws IOException, InterruptedException {
+        return httpClient.preconnect(URI.create(apiBase + "/v1"));
+    }
+
+    public String getDefaultApiKey() {
+        return defaultApiKey;
+    }
+
+    private StripeClient forApiKey(String apiKey) {
+        return clients.computeIfAbsent(apiKey, key -> new StripeClient(
+            new LiveStripeResponseGetter(new ClientOptions(key), httpClient)));
+    }
+
+    private static SSLContext defaultSslContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No default SSL context available for the Stripe client", e);
+        }
+    }
+
+    /**
+     * opciones de un cliente; sin reintentos de red del SDK (los hace ResilientPaymentGateway)
+     */
+    private final class ClientOptions extends StripeResponseGetterOptions {
+
+        private final String apiKey;
+
+        private ClientOptions(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        @Override
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        @Override
+        public String getClientId() {
+            return null;
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return connectTimeoutMillis;
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return readTimeoutMillis;
+        }
+
+        @Override
+        public int getMaxNetworkRetries() {
+            return 0;
+        }
+
+        @Override
+        public Proxy getConnectionProxy() {
+            return null;
+        }
+
+        @Override
+        public PasswordAuthentication getProxyCredential() {
+            return null;
+        }
+
+        @Override
+        public String getApiBase() {
+            return apiBase;
+        }
+
+        @Override
+        public String getFilesBase() {
+            return Stripe.UPLOAD_API_BASE;
+        }
+
+        @Override
+        public String getConnectBase() {
+            return Stripe.CONNECT_API_BASE;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.paymentgateway.infrastructure.adapter.gateway.stripe;
 
+import com.paymentgateway.application.port.BatchPaymentStatusPort;
 import com.paymentgateway.domain.model.CreditCardDetails;
 import com.paymentgateway.domain.model.GatewaySpecificData;
 import com.paymentgateway.domain.model.PaymentDetails;
@@ -8,28 +9,50 @@ import com.paymentgateway.domain.model.PaymentRequest;
 import com.paymentgateway.domain.model.PaymentResponse;
 import com.paymentgateway.domain.model.PaymentStatus;
 import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayStrategy;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeSchedule;
 import com.paymentgateway.shared.exception.PaymentException;
-import com.stripe.Stripe;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeCollection;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentListParams;
 import com.stripe.param.RefundCreateParams;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 /**
  * Implementacion del Stripe para el patron STRATEGY
+ * Las llamadas usan los StripeClient de StripeClientRegistry con la clave del comercio; las consultas,
+ * cancelaciones y reembolsos reciben el merchantId guardado en el pago para llamar con la misma clave
+ * que el alta (un PaymentIntent solo es visible para la cuenta que lo creo). Sin comercio se usa la
+ * clave por defecto
  */
 
 @Service("stripeGateway")
-public class StripePaymentGateway extends PaymentGatewayStrategy {
+@Profile("!simulator")
+public class StripePaymentGateway extends PaymentGatewayStrategy implements BatchPaymentStatusPort {
 
     private static final Logger log = LoggerFactory.getLogger(StripePaymentGateway.class);
 
-    private final String apiKey;
+    // el PaymentIntent se crea despues de registrar el pago: se amplia el rango del listado
+    private static final Duration LIST_MARGIN = Duration.ofMinutes(5);
+    private static final long LIST_PAGE_SIZE = 100;
+    // tope de paginas por llamada: con mucho trafico el rango puede tener miles de PaymentIntent
+    static final int LIST_MAX_PAGES = 5;
+
+    private final StripeClientRegistry clients;
     private final BigDecimal minAmount = new BigDecimal("0.50"); // $0.50
     private final BigDecimal maxAmount = new BigDecimal("999999.99"); // $999,999.99
     private static final Set<String> SUPPORTED_CURRENCIES = Set.of(
@@ -52,9 +75,16 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
         PaymentMethod.GOOGLE_PAY
     );
 
-    public StripePaymentGateway(@Value("${stripe.api.secret-key}") String apiKey) {
-        this.apiKey = apiKey;
-        Stripe.apiKey = this.apiKey;
+    // Stripe cobra 2.9% + $0.30 por transacción; tarifa reducida por volumen y tarjetas europeas
+    private static final FeeSchedule FEE_SCHEDULE = FeeSchedule.builder("STRIPE")
+        .rate("0.029", "0.30")
+        .rule(null, null, "5000.00", "0.025", "0.30")
+        .rule(null, "EUR", "0", "0.015", "0.25")
+        .rule(null, "GBP", "0", "0.015", "0.20")
+        .build();
+
+    public StripePaymentGateway(StripeClientRegistry clients) {
+        this.clients = clients;
     }
 
     @Override
@@ -62,7 +92,10 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
         try {
             validatePaymentRequest(request);
             PaymentIntentCreateParams params = buildPaymentIntentParams(request);
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            PaymentIntent paymentIntent = clients.forMerchant(request.merchantId()).paymentIntents().create(
+                params,
+                idempotent(idempotencyKey("payment", request.paymentReference()))
+            );
             return mapStripeResponseToPaymentResponse(paymentIntent, request.paymentReference());
         } catch (Exception e) {
             log.error("Stripe payment processing failed for reference:{}", request.paymentReference(), e);
@@ -72,20 +105,106 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
 
     @Override
     public PaymentResponse checkPaymentStatus(String gatewayTransactionId) {
+        return checkPaymentStatus(null, gatewayTransactionId);
+    }
+
+    @Override
+    public PaymentResponse checkPaymentStatus(String merchantId, String gatewayTransactionId) {
         try {
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(gatewayTransactionId);
+            PaymentIntent paymentIntent =
+                clients.forMerchant(merchantId).paymentIntents().retrieve(gatewayTransactionId);
             return mapStripeResponseToPaymentResponse(paymentIntent, null);
         } catch (Exception e) {
             log.error("Failed to check payment status for transaction: {}", gatewayTransactionId, e);
-            throw new PaymentException("Failed to retrieve payment status", e);
+            // el codigo permite distinguir un fallo transitorio (reintentable) de un id inexistente
+            throw new PaymentException("Failed to retrieve payment status", determineErrorCode(e), e);
         }
     }
 
+    /**
+     * Lista los PaymentIntent del rango de fechas (paginas de 100, como mucho LIST_MAX_PAGES) en lugar
+     * de un retrieve por id; lo que no aparezca en esas paginas se consulta por id
+     */
+    @Override
+    public Map<String, PaymentResponse> checkPaymentStatuses(
+        String merchantId,
+        Collection<String> gatewayTransactionIds,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo
+    ) {
+        return checkPaymentStatuses(merchantId, gatewayTransactionIds, createdFrom, createdTo, () -> { });
+    }
+
+    @Override
+    public Map<String, PaymentResponse> checkPaymentStatuses(
+        String merchantId,
+        Collection<String> gatewayTransactionIds,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo,
+        Runnable beforeRequest
+    ) {
+        Set<String> remaining = new HashSet<>(gatewayTransactionIds);
+        Map<String, PaymentResponse> statuses = new HashMap<>();
+        try {
+            String startingAfter = null;
+            for (int page = 0; page < LIST_MAX_PAGES && !remaining.isEmpty(); page++) {
+                beforeRequest.run();
+                StripeCollection<PaymentIntent> paymentIntents = clients.forMerchant(merchantId).paymentIntents()
+                    .list(listParams(createdFrom, createdTo, startingAfter));
+                List<PaymentIntent> data = paymentIntents.getData();
+                for (PaymentIntent paymentIntent : data) {
+                    if (remaining.remove(paymentIntent.getId())) {
+                        String paymentReference = paymentIntent.getMetadata() == null
+                            ? null
+                            : paymentIntent.getMetadata().get("payment_reference");
+                        statuses.put(
+                            paymentIntent.getId(),
+                            mapStripeResponseToPaymentResponse(paymentIntent, paymentReference)
+                        );
+                    }
+                }
+                if (!Boolean.TRUE.equals(paymentIntents.getHasMore()) || data.isEmpty()) {
+                    break;
+                }
+                startingAfter = data.get(data.size() - 1).getId();
+            }
+        } catch (PaymentException e) {
+            // rechazo de beforeRequest (p. ej. sin token del rate limiter): se conserva su codigo
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to list payment statuses between {} and {}", createdFrom, createdTo, e);
+            throw new PaymentException("Failed to list payment statuses", e);
+        }
+        return statuses;
+    }
+
+    private PaymentIntentListParams listParams(LocalDateTime createdFrom, LocalDateTime createdTo,
+                                               String startingAfter) {
+        PaymentIntentListParams.Builder params = PaymentIntentListParams.builder()
+            .setCreated(
+                PaymentIntentListParams.Created.builder()
+                    .setGte(epochSeconds(createdFrom.minus(LIST_MARGIN)))
+                    .setLte(epochSeconds(createdTo.plus(LIST_MARGIN)))
+                    .build()
+            )
+            .setLimit(LIST_PAGE_SIZE);
+        if (startingAfter != null) {
+            params.setStartingAfter(startingAfter);
+        }
+        return params.build();
+    }
+
     @Override
     public PaymentResponse cancelPayment(String gatewayTransactionId) {
+        return cancelPayment(null, gatewayTransactionId);
+    }
+
+    @Override
+    public PaymentResponse cancelPayment(String merchantId, String gatewayTransactionId) {
         try {
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(gatewayTransactionId);
-            PaymentIntent cancelledIntent = paymentIntent.cancel();
+            // una sola llamada: cancelar por id no necesita recuperar antes el PaymentIntent
+            PaymentIntent cancelledIntent =
+                clients.forMerchant(merchantId).paymentIntents().cancel(gatewayTransactionId);
 
             return mapStripeResponseToPaymentResponse(cancelledIntent, null);
         } catch (Exception e) {
@@ -96,13 +215,21 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
 
     @Override
     public PaymentResponse refundPayment(String gatewayTransactionId, String reason) {
+        return refundPayment(null, gatewayTransactionId, reason);
+    }
+
+    @Override
+    public PaymentResponse refundPayment(String merchantId, String gatewayTransactionId, String reason) {
         try {
             RefundCreateParams params = RefundCreateParams.builder()
                 .setPaymentIntent(gatewayTransactionId)
                 .setReason(RefundCreateParams.Reason.REQUESTED_BY_CUSTOMER)
                 .putMetadata("reason", reason)
                 .build();
-            com.stripe.model.Refund refund = com.stripe.model.Refund.create(params);
+            com.stripe.model.Refund refund = clients.forMerchant(merchantId).refunds().create(
+                params,
+                idempotent(idempotencyKey("refund", gatewayTransactionId))
+            );
             return PaymentResponse.success(
                 refund.getId(),
                 null,
@@ -116,6 +243,10 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
         }
     }
 
+    private static RequestOptions idempotent(String idempotencyKey) {
+        return RequestOptions.builder().setIdempotencyKey(idempotencyKey).build();
+    }
+
     @Override
     public boolean supportsPaymentMethod(PaymentMethod paymentMethod) {
         return SUPPORTED_PAYMENT_METHODS.contains(paymentMethod);
@@ -126,6 +257,16 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
         return "STRIPE";
     }
 
+    /**
+     * crea el cliente por defecto y abre la conexion con Stripe sin autenticarse
+     */
+    @Override
+    public void warmUp() throws Exception {
+        clients.defaultClient();
+        int status = clients.preconnect();
+        log.debug("Stripe connection warmed up (HTTP {})", status);
+    }
+
     @Override
     protected void validatePaymentDetails(PaymentDetails paymentDetails) {
         switch (paymentDetails) {
@@ -144,21 +285,45 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
         return minAmount;
     }
 
+    @Override
+    public FeeSchedule feeSchedule() {
+        return FEE_SCHEDULE;
+    }
+
     @Override
     protected Set<String> getSupportedCurrencies() {
         return SUPPORTED_CURRENCIES;
     }
 
+    /**
+     * huella de la clave secreta: el limite de Stripe es por cuenta y la clave no debe salir de aqui
+     */
+    @Override
+    public String credentialId() {
+        return credentialId(null);
+    }
+
+    @Override
+    public String credentialId(String merchantId) {
+        String apiKey = clients.apiKeyFor(merchantId);
+        return apiKey == null ? "default" : Integer.toHexString(apiKey.hashCode());
+    }
+
     @Override
     protected String determineErrorCode(Exception e) {
         if (e instanceof com.stripe.exception.CardException) {
             return "CARD_ERROR";
+        } else if (e instanceof com.stripe.exception.RateLimitException) {
+            // subclase de InvalidRequestException: se comprueba antes
+            return "RATE_LIMITED";
         } else if (e instanceof com.stripe.exception.InvalidRequestException) {
             return "INVALID_REQUEST";
         } else if (e instanceof com.stripe.exception.AuthenticationException) {
             return "AUTHENTICATION_ERROR";
         } else if (e instanceof com.stripe.exception.ApiConnectionException) {
             return "CONNECTION_ERROR";
+        } else if (e instanceof com.stripe.exception.ApiException) {
+            return "GATEWAY_ERROR";
         } else {
             return "UNKNOWN_ERROR";
         }
@@ -183,7 +348,7 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
         GatewaySpecificData gatewayData = new GatewaySpecificData(
             "stripe",
             paymentIntent.toJson(),
-            calculateStripeFees(amount).toString(),
+            calculateStripeFees(amount, paymentIntent.getCurrency()),
             "Stripe payment: " + paymentIntent.getStatus()
         );
 
@@ -196,14 +361,26 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
                 gatewayData
             );
         } else {
-            return PaymentResponse.failure(
+            // se conserva el estado real: requires_action o processing no son un fallo definitivo
+            return new PaymentResponse(
+                false,
+                paymentIntent.getId(),
                 paymentReference,
+                amount,
+                paymentIntent.getCurrency().toUpperCase(),
+                status,
                 "Payment " + paymentIntent.getStatus(),
-                determineErrorCodeFromStatus(paymentIntent.getStatus())
+                determineErrorCodeFromStatus(paymentIntent.getStatus()),
+                LocalDateTime.now(),
+                gatewayData
             );
         }
     }
 
+    private static long epochSeconds(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
     private PaymentStatus mapStripeStatus(String stripeStatus) {
         return switch (stripeStatus) {
             case "succeeded" -> PaymentStatus.COMPLETED;
@@ -223,11 +400,9 @@ public class StripePaymentGateway extends PaymentGatewayStrategy {
         };
     }
 
-    private BigDecimal calculateStripeFees(BigDecimal amount) {
-        // Stripe cobra 2.9% + $0.30 por transacción
-        BigDecimal feePercentage = new BigDecimal("0.029");
-        BigDecimal fixedFee = new BigDecimal("0.30");
-        return amount.multiply(feePercentage).add(fixedFee);
+    private String calculateStripeFees(BigDecimal amount, String currency) {
+        // el PaymentIntent no informa del medio de pago: se aplica la tarifa de tarjeta
+        return String.valueOf(FEE_SCHEDULE.fee(PaymentMethod.CREDIT_CARD, currency, amount));
     }
 
     private void validateCreditCardDetails(CreditCardDetails cardDetails) {
@@ -0,0 +1,44 @@
+package com.paymentgateway.infrastructure.adapter.gateway.stripe.webhook;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ventana deslizante de ids de evento ya vistos
+ *
+ * Los ids se guardan por orden de llegada, asi que los que salen de la ventana (por antiguedad o por
+ * superar maxEntries) siempre estan al principio y se expulsan sin recorrer el resto. Un duplicado
+ * fuera de la ventana se vuelve a aplicar, lo que es inocuo: las transiciones estan condicionadas
+ * al estado actual.
+ */
+final class EventDeduplicator {
+
+    private final long windowNanos;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Long> seen = new LinkedHashMap<>();
+
+    EventDeduplicator(long windowNanos, int maxEntries) {
+        this.windowNanos = windowNanos;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * true la primera vez que se ve el id dentro de la ventana
+     */
+    synchronized boolean firstSeen(String eventId, long nowNanos) {
+        Iterator<Map.Entry<String, Long>> oldest = seen.entrySet().iterator();
+        while (oldest.hasNext()) {
+            Map.Entry<String, Long> entry = oldest.next();
+            if (seen.size() < maxEntries && nowNanos - entry.getValue() < windowNanos) {
+                break;
+            }
+            oldest.remove();
+        }
+        return seen.putIfAbsent(eventId, nowNanos) == null;
+    }
+
+    synchronized int size() {
+        return seen.size();
+    }
+}
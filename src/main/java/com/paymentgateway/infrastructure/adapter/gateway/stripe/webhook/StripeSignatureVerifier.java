@@ -0,0 +1,145 @@
+package com.paymentgateway.infrastructure.adapter.gateway.stripe.webhook;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.LongSupplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifica la cabecera Stripe-Signature de los webhooks (stripe.webhook.*)
+ *
+ * La firma es HMAC-SHA256 de "timestamp.payload" con el secreto del endpoint. El Mac se inicializa una
+ * vez como prototipo y cada verificacion usa un clone(), que copia el estado ya preparado con la clave
+ * sin volver a buscar el proveedor ni a procesar la clave. No se usa ThreadLocal: en un hilo virtual
+ * (un hilo por tarea) la cache no se reutilizaria nunca. Se rechazan las firmas fuera de la tolerancia
+ * para evitar replays.
+ */
+@Component
+public class StripeSignatureVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeSignatureVerifier.class);
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final long toleranceSeconds;
+    private final LongSupplier epochSeconds;
+    private final Mac prototype;
+
+    @Autowired
+    public StripeSignatureVerifier(
+        @Value("${stripe.webhook.secret:}") String secret,
+        @Value("${stripe.webhook.tolerance:5m}") Duration tolerance
+    ) {
+        this(secret, tolerance, () -> System.currentTimeMillis() / 1000);
+    }
+
+    StripeSignatureVerifier(String secret, Duration tolerance, LongSupplier epochSeconds) {
+        this.key = secret == null || secret.isBlank()
+            ? null
+            : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.toleranceSeconds = tolerance.toSeconds();
+        this.epochSeconds = epochSeconds;
+        this.prototype = key == null ? null : newMac();
+        if (key == null) {
+            log.warn("stripe.webhook.secret is not set: Stripe webhooks will be rejected");
+        }
+    }
+
+    public boolean isConfigured() {
+        return key != null;
+    }
+
+    /**
+     * true si alguna firma v1 de la cabecera corresponde al payload y su timestamp esta dentro de la tolerancia
+     */
+    public boolean verify(byte[] payload, String signatureHeader) {
+        if (key == null || signatureHeader == null) {
+            return false;
+        }
+        String timestamp = null;
+        for (String element : signatureHeader.split(",")) {
+            element = element.trim();
+            if (element.startsWith("t=")) {
+                timestamp = element.substring(2);
+            }
+        }
+        if (timestamp == null || !withinTolerance(timestamp)) {
+            return false;
+        }
+        Mac mac = mac();
+        mac.update(timestamp.getBytes(StandardCharsets.US_ASCII));
+        mac.update((byte) '.');
+        byte[] expected = mac.doFinal(payload);
+        for (String element : signatureHeader.split(",")) {
+            element = element.trim();
+            if (element.startsWith("v1=") && matches(expected, element.substring(3))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * cabecera Stripe-Signature para un payload (pruebas y generadores de carga)
+     */
+    public String sign(byte[] payload, long timestamp) {
+        Mac mac = mac();
+        mac.update(Long.toString(timestamp).getBytes(StandardCharsets.US_ASCII));
+        mac.update((byte) '.');
+        return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(mac.doFinal(payload));
+    }
+
+    private boolean withinTolerance(String timestamp) {
+        try {
+            return Math.abs(epochSeconds.getAsLong() - Long.parseLong(timestamp)) <= toleranceSeconds;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean matches(byte[] expected, String hexSignature) {
+        if (hexSignature.length() != expected.length * 2) {
+            return false;
+        }
+        try {
+            // comparacion en tiempo constante
+            return MessageDigest.isEqual(expected, HexFormat.of().parseHex(hexSignature));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // el prototipo no se usa directamente: solo se clona, asi que es seguro compartirlo entre hilos
+    private Mac mac() {
+        if (prototype == null) {
+            throw new IllegalStateException("stripe.webhook.secret is not set");
+        }
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            // proveedor sin soporte de clone: se inicializa uno nuevo
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + ALGORITHM + " for Stripe webhooks", e);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.paymentgateway.infrastructure.adapter.gateway.stripe.webhook;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.repository.PaymentRepository;
+import com.paymentgateway.infrastructure.adapter.gateway.sync.PaymentStatusApplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Procesa en segundo plano los webhooks de Stripe ya verificados (payment.webhooks.*)
+ *
+ * El endpoint solo encola el cuerpo en una cola acotada y responde; si la cola esta llena responde
+ * 503 y Stripe reintenta mas tarde. Cada lote se parsea, se deduplica por id de evento, se queda con
+ * el evento mas reciente de cada PaymentIntent y se aplica con una sola busqueda por
+ * gateway_transaction_id y un UPDATE en bloque por estado destino (PaymentStatusApplier).
+ * La cola vive en memoria: lo encolado se pierde si el nodo cae antes de aplicarlo, y
+ * GatewayStatusSynchronizer lo recoge en su siguiente pasada.
+ */
+@Component
+public class StripeWebhookProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookProcessor.class);
+
+    private final PaymentRepository paymentRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final PaymentStatusApplier statusApplier;
+    private final BlockingQueue<byte[]> queue;
+    private final EventDeduplicator deduplicator;
+    private final int batchSize;
+    private final LongSupplier clock;
+
+    private final Counter rejectedCounter;
+    private final Timer batchTimer;
+
+    @Autowired
+    public StripeWebhookProcessor(
+        PaymentRepository paymentRepository,
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry,
+        @Value("${payment.webhooks.queue-capacity:10000}") int queueCapacity,
+        @Value("${payment.webhooks.batch-size:500}") int batchSize,
+        @Value("${payment.webhooks.dedupe-window:1h}") Duration dedupeWindow,
+        @Value("${payment.webhooks.dedupe-max-entries:200000}") int dedupeMaxEntries
+    ) {
+        this(paymentRepository, objectMapper, meterRegistry, queueCapacity, batchSize, dedupeWindow, dedupeMaxEntries,
+            System::nanoTime);
+    }
+
+    StripeWebhookProcessor(PaymentRepository paymentRepository, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           int queueCapacity, int batchSize, Duration dedupeWindow, int dedupeMaxEntries,
+                           LongSupplier clock) {
+        if (queueCapacity < 1 || batchSize < 1 || dedupeMaxEntries < 1) {
+            throw new IllegalArgumentException(
+                "payment.webhooks queue-capacity, batch-size and dedupe-max-entries must be at least 1");
+        }
+        this.paymentRepository = paymentRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.statusApplier = new PaymentStatusApplier(paymentRepository, meterRegistry, "payments.webhooks.updated");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.deduplicator = new EventDeduplicator(dedupeWindow.toNanos(), dedupeMaxEntries);
+        this.batchSize = batchSize;
+        this.clock = clock;
+
+        this.rejectedCounter = events("rejected_queue_full");
+        this.batchTimer = Timer.builder("payments.webhooks.batch").register(meterRegistry);
+        Gauge.builder("payments.webhooks.queue", queue, BlockingQueue::size)
+            .description("Webhooks aceptados pendientes de aplicar")
+            .register(meterRegistry);
+    }
+
+    /**
+     * no bloquea: false si la cola esta llena
+     */
+    public boolean enqueue(byte[] payload) {
+        if (queue.offer(payload)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    @Scheduled(
+        fixedDelayString = "${payment.webhooks.poll-interval:PT0.1S}",
+        initialDelayString = "${payment.webhooks.poll-interval:PT0.1S}"
+    )
+    public void drain() {
+        List<byte[]> batch = new ArrayList<>(batchSize);
+        try {
+            while (queue.drainTo(batch, batchSize) > 0) {
+                process(batch);
+                batch.clear();
+            }
+        } catch (RuntimeException e) {
+            // los eventos del lote ya se confirmaron a Stripe: la sincronizacion periodica los recupera
+            log.error("Failed to apply a batch of {} Stripe webhook events", batch.size(), e);
+        }
+    }
+
+    /**
+     * Aplica un lote de eventos; devuelve cuantos pagos cambiaron de estado
+     */
+    int process(List<byte[]> payloads) {
+        long now = clock.getAsLong();
+        Map<String, WebhookEvent> latest = new HashMap<>();
+        for (byte[] payload : payloads) {
+            WebhookEvent event = parse(payload);
+            if (event == null) {
+                events("invalid").increment();
+            } else if (!deduplicator.firstSeen(event.eventId(), now)) {
+                events("duplicate").increment();
+            } else if (event.status() == null) {
+                events("ignored").increment();
+            } else {
+                // Stripe no garantiza el orden de entrega: manda el evento creado mas tarde
+                latest.merge(event.paymentIntentId(), event,
+                    (current, candidate) -> candidate.created() >= current.created() ? candidate : current);
+            }
+        }
+        if (latest.isEmpty()) {
+            return 0;
+        }
+        return batchTimer.record(() -> {
+            List<Payment> payments = paymentRepository.findByGatewayTransactionIds(latest.keySet());
+            Map<String, PaymentResponse> statuses = new HashMap<>();
+            latest.forEach((paymentIntentId, event) -> statuses.put(paymentIntentId, event.toPaymentResponse()));
+            events("matched").increment(payments.size());
+            // pagos que aun no tienen el id de Stripe guardado o de otra cuenta
+            events("unknown_payment").increment(Math.max(0, latest.size() - payments.size()));
+            return statusApplier.apply(payments, statuses);
+        });
+    }
+
+    private WebhookEvent parse(byte[] payload) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            return null;
+        }
+        String eventId = root.path("id").asText(null);
+        if (root.isMissingNode() || eventId == null) {
+            return null;
+        }
+        JsonNode object = root.path("data").path("object");
+        String type = root.path("type").asText("");
+        PaymentStatus status = switch (type) {
+            case "payment_intent.succeeded" -> PaymentStatus.COMPLETED;
+            case "payment_intent.processing" -> PaymentStatus.PROCESSING;
+            case "payment_intent.canceled" -> PaymentStatus.CANCELLED;
+            // fallo un intento: el intent vuelve a requires_payment_method y el cliente puede reintentar,
+            // asi que el pago sigue pendiente (como en StripePaymentGateway.mapStripeStatus); solo
+            // canceled cierra el pago sin completarlo
+            case "payment_intent.payment_failed" -> PaymentStatus.PENDING;
+            default -> null;
+        };
+        String paymentIntentId = object.path("id").asText(null);
+        return new WebhookEvent(
+            eventId,
+            type,
+            root.path("created").asLong(),
+            paymentIntentId,
+            paymentIntentId == null ? null : status
+        );
+    }
+
+    private Counter events(String outcome) {
+        return Counter.builder("payments.webhooks.events").tag("outcome", outcome).register(meterRegistry);
+    }
+
+    private record WebhookEvent(
+        String eventId,
+        String type,
+        long created,
+        String paymentIntentId,
+        PaymentStatus status
+    ) {
+        PaymentResponse toPaymentResponse() {
+            return new PaymentResponse(
+                status == PaymentStatus.COMPLETED,
+                paymentIntentId,
+                null,
+                null,
+                null,
+                status,
+                "Stripe webhook: " + type,
+                null,
+                LocalDateTime.now(),
+                null
+            );
+        }
+    }
+}
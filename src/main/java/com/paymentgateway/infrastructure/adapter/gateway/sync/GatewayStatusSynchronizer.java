@@ -0,0 +1,322 @@
+package com.paymentgateway.infrastructure.adapter.gateway.sync;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.paymentgateway.application.port.BatchPaymentStatusPort;
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentCursor;
+import com.paymentgateway.domain.model.PaymentPage;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.repository.PaymentRepository;
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayFactory;
+import com.paymentgateway.infrastructure.persistence.lock.AdvisoryLock;
+import com.paymentgateway.shared.exception.PaymentException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Sincroniza con la pasarela los pagos que se quedaron en PENDING o PROCESSING
+ *
+ * Recorre los pagos no terminales con paginacion keyset y agrupa cada pagina por pasarela. Las
+ * pasarelas con listado por rango (BatchPaymentStatusPort) se consultan con una llamada por comercio
+ * (cada uno con su credencial) y ventana de creacion de como mucho batch-window; el resto, las ventanas con un solo pago y lo que el
+ * listado no devuelva, con un pool de hilos virtuales de concurrencia acotada y ritmo maximo por
+ * pasarela. Los pagos creados hace mas de max-age salen de la sincronizacion: el recorrido empieza
+ * en ese instante y no vuelve a consultarlos en cada pasada. Los cambios se aplican con una transicion en bloque por
+ * estado destino, condicionada al estado actual (PaymentStatusApplier), asi que una carrera con el
+ * flujo normal no pisa nada. Cada pasada toma un advisory lock de PostgreSQL (AdvisoryLock): si otro
+ * nodo ya esta sincronizando, la pasada se omite en vez de repetir las mismas consultas a la pasarela.
+ * Los pagos sin gateway_transaction_id no se pueden consultar y se omiten.
+ */
+@Component
+public class GatewayStatusSynchronizer {
+
+    private static final Logger log = LoggerFactory.getLogger(GatewayStatusSynchronizer.class);
+    private static final List<PaymentStatus> NON_TERMINAL = List.of(PaymentStatus.PENDING, PaymentStatus.PROCESSING);
+    // menor id posible: el cursor inicial incluye todos los pagos creados justo en el limite de max-age
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+    static final String LOCK_NAME = "payments.status_sync";
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentGatewayFactory gatewayFactory;
+    private final AdvisoryLock advisoryLock;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int pageSize;
+    private final Duration minAge;
+    private final Duration maxAge;
+    private final Duration batchWindow;
+    private final int concurrency;
+    private final double callsPerSecond;
+
+    private final PaymentStatusApplier statusApplier;
+    private final Map<String, CallPacer> pacers = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Timer runTimer;
+
+    public GatewayStatusSynchronizer(
+        PaymentRepository paymentRepository,
+        PaymentGatewayFactory gatewayFactory,
+        AdvisoryLock advisoryLock,
+        MeterRegistry meterRegistry,
+        @Value("${payment.status-sync.enabled:true}") boolean enabled,
+        @Value("${payment.status-sync.page-size:200}") int pageSize,
+        @Value("${payment.status-sync.min-age:2m}") Duration minAge,
+        @Value("${payment.status-sync.max-age:7d}") Duration maxAge,
+        @Value("${payment.status-sync.batch-window:1h}") Duration batchWindow,
+        @Value("${payment.status-sync.concurrency:8}") int concurrency,
+        @Value("${payment.status-sync.calls-per-second:20}") double callsPerSecond
+    ) {
+        if (pageSize <= 0 || concurrency <= 0 || callsPerSecond <= 0) {
+            throw new IllegalArgumentException(
+                "payment.status-sync page-size, concurrency and calls-per-second must be positive");
+        }
+        if (batchWindow.isNegative() || batchWindow.isZero() || maxAge.compareTo(minAge) <= 0) {
+            throw new IllegalArgumentException(
+                "payment.status-sync batch-window must be positive and max-age greater than min-age");
+        }
+        this.paymentRepository = paymentRepository;
+        this.gatewayFactory = gatewayFactory;
+        this.advisoryLock = advisoryLock;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.batchWindow = batchWindow;
+        this.concurrency = concurrency;
+        this.callsPerSecond = callsPerSecond;
+        this.statusApplier = new PaymentStatusApplier(paymentRepository, meterRegistry, "payments.status_sync.updated");
+        this.runTimer = Timer.builder("payments.status_sync.run").register(meterRegistry);
+    }
+
+    @Scheduled(
+        fixedDelayString = "${payment.status-sync.interval:PT1M}",
+        initialDelayString = "${payment.status-sync.interval:PT1M}"
+    )
+    public void scheduledSync() {
+        if (enabled) {
+            synchronize();
+        }
+    }
+
+    /**
+     * Una pasada completa; devuelve cuantos pagos cambiaron de estado
+     * Devuelve 0 sin consultar nada si hay otra pasada en curso en este nodo o en otro
+     */
+    public int synchronize() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        AtomicInteger changed = new AtomicInteger();
+        try {
+            if (!advisoryLock.runExclusively(LOCK_NAME, () -> synchronizeAll(changed))) {
+                log.debug("Payment status sync skipped, another node holds the lock");
+            } else if (changed.get() > 0) {
+                log.info("Payment status sync updated {} payments", changed.get());
+            }
+        } catch (RuntimeException e) {
+            log.error("Payment status sync failed after updating {} payments", changed.get(), e);
+        } finally {
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+        return changed.get();
+    }
+
+    private void synchronizeAll(AtomicInteger changed) {
+        // los pagos recientes pueden estar aun en curso en el flujo normal
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(minAge);
+        PaymentCursor oldest = new PaymentCursor(now.minus(maxAge), MIN_ID);
+        for (PaymentStatus status : NON_TERMINAL) {
+            changed.addAndGet(synchronize(status, oldest, cutoff));
+        }
+    }
+
+    private int synchronize(PaymentStatus status, PaymentCursor oldest, LocalDateTime cutoff) {
+        int changed = 0;
+        PaymentCursor cursor = oldest;
+        do {
+            // el cursor es (created_at, id): los pagos que cambian de estado no desplazan las paginas
+            PaymentPage page = paymentRepository.findByStatus(status, cursor, pageSize);
+            Map<String, List<Payment>> byGateway = new LinkedHashMap<>();
+            boolean reachedCutoff = false;
+            for (Payment payment : page.payments()) {
+                if (!payment.getCreatedAt().isBefore(cutoff)) {
+                    reachedCutoff = true;
+                    break;
+                }
+                if (payment.getGatewayTransactionId() != null && payment.getGatewayProvider() != null) {
+                    byGateway.computeIfAbsent(payment.getGatewayProvider(), provider -> new ArrayList<>()).add(payment);
+                }
+            }
+            for (Map.Entry<String, List<Payment>> group : byGateway.entrySet()) {
+                changed += synchronizeGateway(group.getKey(), group.getValue());
+            }
+            cursor = reachedCutoff ? null : page.nextCursor();
+        } while (cursor != null);
+        return changed;
+    }
+
+    private int synchronizeGateway(String provider, List<Payment> payments) {
+        PaymentGatewayPort gateway;
+        try {
+            gateway = gatewayFactory.getGateway(provider);
+        } catch (PaymentException e) {
+            log.warn("Skipping status sync of {} payments for unknown gateway {}", payments.size(), provider);
+            return 0;
+        }
+        Map<String, PaymentResponse> statuses = new HashMap<>();
+        if (gateway instanceof BatchPaymentStatusPort batchGateway && batchGateway.supportsBatchStatusLookup()) {
+            statuses.putAll(checkInBatch(provider, batchGateway, payments));
+        }
+        List<Payment> remaining = payments.stream()
+            .filter(payment -> !statuses.containsKey(payment.getGatewayTransactionId()))
+            .toList();
+        if (!remaining.isEmpty()) {
+            statuses.putAll(checkIndividually(provider, gateway, remaining));
+        }
+        return statusApplier.apply(payments, statuses);
+    }
+
+    /**
+     * Una llamada de listado por comercio y ventana de creacion de como mucho batch-window
+     * Un grupo disperso en el tiempo no se lista de una vez: el rango abarcaria todo el trafico de la
+     * pasarela en ese periodo. Las ventanas con un solo pago se dejan para la consulta por id
+     */
+    private Map<String, PaymentResponse> checkInBatch(String provider, BatchPaymentStatusPort gateway,
+                                                      List<Payment> payments) {
+        Map<String, List<Payment>> byMerchant = new LinkedHashMap<>();
+        for (Payment payment : payments) {
+            byMerchant.computeIfAbsent(payment.getMerchantId(), merchantId -> new ArrayList<>()).add(payment);
+        }
+        Map<String, PaymentResponse> statuses = new HashMap<>();
+        for (List<Payment> merchantPayments : byMerchant.values()) {
+            List<Payment> sorted = merchantPayments.stream()
+                .sorted(Comparator.comparing(Payment::getCreatedAt))
+                .toList();
+            int start = 0;
+            for (int i = 1; i <= sorted.size(); i++) {
+                LocalDateTime windowEnd = sorted.get(start).getCreatedAt().plus(batchWindow);
+                if (i == sorted.size() || sorted.get(i).getCreatedAt().isAfter(windowEnd)) {
+                    if (i - start > 1) {
+                        statuses.putAll(checkWindow(provider, gateway, sorted.subList(start, i)));
+                    }
+                    start = i;
+                }
+            }
+        }
+        return statuses;
+    }
+
+    private Map<String, PaymentResponse> checkWindow(String provider, BatchPaymentStatusPort gateway,
+                                                     List<Payment> window) {
+        String merchantId = window.get(0).getMerchantId();
+        LocalDateTime from = window.get(0).getCreatedAt();
+        LocalDateTime to = window.get(window.size() - 1).getCreatedAt();
+        List<String> ids = window.stream().map(Payment::getGatewayTransactionId).toList();
+        try {
+            Map<String, PaymentResponse> statuses = gateway.checkPaymentStatuses(merchantId, ids, from, to);
+            checked(provider, "batch").increment(statuses.size());
+            return statuses;
+        } catch (RuntimeException e) {
+            errors(provider).increment();
+            log.warn("Batch status lookup failed for {}, falling back to single lookups", provider, e);
+            return Map.of();
+        }
+    }
+
+    private Map<String, PaymentResponse> checkIndividually(String provider, PaymentGatewayPort gateway,
+                                                           List<Payment> payments) {
+        CallPacer pacer = pacers.computeIfAbsent(provider, key -> new CallPacer(callsPerSecond));
+        Counter checkedCounter = checked(provider, "single");
+        Counter errorCounter = errors(provider);
+        Map<String, PaymentResponse> statuses = new ConcurrentHashMap<>();
+        Semaphore inFlight = new Semaphore(concurrency);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Payment payment : payments) {
+                inFlight.acquireUninterruptibly();
+                String transactionId = payment.getGatewayTransactionId();
+                String merchantId = payment.getMerchantId();
+                workers.execute(() -> {
+                    try {
+                        pacer.await();
+                        statuses.put(transactionId, gateway.checkPaymentStatus(merchantId, transactionId));
+                        checkedCounter.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        errorCounter.increment();
+                        log.debug("Status check failed for transaction {} on {}", transactionId, provider, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return statuses;
+    }
+
+    private Counter checked(String provider, String mode) {
+        return Counter.builder("payments.status_sync.checked")
+            .tag("gateway", provider)
+            .tag("mode", mode)
+            .register(meterRegistry);
+    }
+
+    private Counter errors(String provider) {
+        return Counter.builder("payments.status_sync.errors").tag("gateway", provider).register(meterRegistry);
+    }
+
+    /**
+     * Reparte las llamadas de una pasarela a intervalos regulares
+     * Cada llamada reserva el siguiente hueco con una sola operacion atomica y espera hasta el; tras
+     * un periodo inactivo no se acumulan huecos, asi que no hay rafagas
+     */
+    private static final class CallPacer {
+
+        private final long intervalNanos;
+        private final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+
+        private CallPacer(double callsPerSecond) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / callsPerSecond);
+        }
+
+        private void await() throws InterruptedException {
+            long now = System.nanoTime();
+            long previous = nextSlot.getAndAccumulate(now, (next, current) -> Math.max(next, current) + intervalNanos);
+            long waitNanos = Math.max(previous, now) - now;
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
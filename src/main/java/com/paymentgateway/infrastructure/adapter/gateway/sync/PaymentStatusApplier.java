@@ -0,0 +1,103 @@
+package com.paymentgateway.infrastructure.adapter.gateway.sync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.model.PaymentTransition;
+import com.paymentgateway.domain.repository.PaymentRepository;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.ResilientPaymentGateway;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Aplica a los pagos el estado que informa la pasarela (sincronizacion periodica y webhooks)
+ *
+ * Agrupa los resultados por transicion y aplica cada grupo con un UPDATE en bloque condicionado al
+ * estado actual, asi que una carrera con el flujo normal o con otro nodo no pisa nada.
+ */
+public class PaymentStatusApplier {
+
+    private final PaymentRepository paymentRepository;
+    private final MeterRegistry meterRegistry;
+    private final String updatedMetric;
+
+    /**
+     * updatedMetric: contador de pagos actualizados, etiquetado por estado destino
+     */
+    public PaymentStatusApplier(PaymentRepository paymentRepository, MeterRegistry meterRegistry, String updatedMetric) {
+        this.paymentRepository = paymentRepository;
+        this.meterRegistry = meterRegistry;
+        this.updatedMetric = updatedMetric;
+    }
+
+    /**
+     * statuses por gateway_transaction_id; devuelve cuantos pagos cambiaron de estado
+     */
+    public int apply(Collection<Payment> payments, Map<String, PaymentResponse> statuses) {
+        List<UUID> toProcessing = new ArrayList<>();
+        List<UUID> toComplete = new ArrayList<>();
+        List<UUID> toCancel = new ArrayList<>();
+        Map<String, List<UUID>> toFail = new LinkedHashMap<>();
+        for (Payment payment : payments) {
+            PaymentResponse response = statuses.get(payment.getGatewayTransactionId());
+            if (response == null || response.status() == null
+                || ResilientPaymentGateway.isGatewayFailure(response, null)) {
+                continue;
+            }
+            boolean pending = payment.getStatus() == PaymentStatus.PENDING;
+            switch (response.status()) {
+                case COMPLETED -> {
+                    // COMPLETE solo admite PROCESSING: los pendientes pasan antes por PROCESSING
+                    if (pending) {
+                        toProcessing.add(payment.getId());
+                    }
+                    toComplete.add(payment.getId());
+                }
+                case PROCESSING -> {
+                    if (pending) {
+                        toProcessing.add(payment.getId());
+                    }
+                }
+                case FAILED -> toFail.computeIfAbsent(failureReason(response), reason -> new ArrayList<>())
+                    .add(payment.getId());
+                case CANCELLED -> toCancel.add(payment.getId());
+                default -> {
+                    // sigue pendiente en la pasarela (p. ej. requires_action)
+                }
+            }
+        }
+        Set<UUID> changed = new HashSet<>();
+        changed.addAll(transition(toProcessing, PaymentTransition.START_PROCESSING, null));
+        changed.addAll(transition(toComplete, PaymentTransition.COMPLETE, null));
+        changed.addAll(transition(toCancel, PaymentTransition.CANCEL, null));
+        toFail.forEach((reason, ids) -> changed.addAll(transition(ids, PaymentTransition.FAIL, reason)));
+        return changed.size();
+    }
+
+    private List<UUID> transition(List<UUID> paymentIds, PaymentTransition transition, String failureReason) {
+        if (paymentIds.isEmpty()) {
+            return List.of();
+        }
+        List<UUID> changed = paymentRepository.transitionAll(paymentIds, transition, failureReason);
+        Counter.builder(updatedMetric)
+            .tag("status", transition.target().name())
+            .register(meterRegistry)
+            .increment(changed.size());
+        return changed;
+    }
+
+    private static String failureReason(PaymentResponse response) {
+        String message = response.message() != null ? response.message() : "Payment failed at gateway";
+        return response.errorCode() != null ? message + " (" + response.errorCode() + ")" : message;
+    }
+}
@@ -1,11 +1,15 @@
 package com.paymentgateway.infrastructure.config;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.Properties;
 
 import javax.sql.DataSource;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -14,22 +18,27 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import com.paymentgateway.infrastructure.persistence.routing.ReplicaLagMonitor;
+import com.paymentgateway.infrastructure.persistence.routing.ReplicaRoutingDataSource;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import jakarta.persistence.EntityManagerFactory;
 
 /**
  * Configuración completa de base de datos y JPA para Payment Gateway Service
  * 
  * Esta clase centraliza toda la configuración relacionada con:
- * - Pool de conexiones (HikariCP)
+ * - Pool de conexiones (HikariCP) y replica de lectura opcional
  * - Repositorios JPA y escaneo de entidades
  * - Gestión de transacciones
  * - Auditoria de entidades
@@ -91,12 +100,76 @@ public class DatabaseConfig {
     }
 
     /**
-     * DataSource principal usando HikariCP
+     * Pool del primario usando HikariCP; recibe todas las escrituras
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource() {
+        return new HikariDataSource(hikariConfig());
+    }
+
+    /**
+     * DataSource principal
+     * Con payment.datasource.replica.enabled las transacciones de solo lectura van a la replica
      */
     @Bean
     @Primary
-    public DataSource dataSource() {
-        return new HikariDataSource(hikariConfig());
+    public DataSource dataSource(ObjectProvider<ReplicaRoutingDataSource> replicaRouting) {
+        ReplicaRoutingDataSource routing = replicaRouting.getIfAvailable();
+        if (routing == null) {
+            return primaryDataSource();
+        }
+        // la ruta se decide en la primera sentencia, cuando el flag de solo lectura ya esta publicado
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Pool de la replica de lectura, con la misma configuración base que el primario
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "payment.datasource.replica.enabled", havingValue = "true")
+    public HikariDataSource replicaDataSource(
+            @Value("${payment.datasource.replica.url}") String url,
+            @Value("${payment.datasource.replica.username}") String username,
+            @Value("${payment.datasource.replica.password}") String password,
+            @Value("${payment.datasource.replica.driver-class-name:${spring.datasource.driver-class-name}}")
+            String driverClassName,
+            @Value("${payment.datasource.replica.maximum-pool-size:20}") int maximumPoolSize) {
+        HikariConfig config = new HikariConfig();
+        hikariConfig().copyStateTo(config);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setDriverClassName(driverClassName);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setPoolName("PaymentGatewayReplicaPool");
+        config.setReadOnly(true);
+        // una replica caida no debe impedir el arranque: las lecturas vuelven al primario
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "payment.datasource.replica.enabled", havingValue = "true")
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${payment.datasource.replica.lag-query:}") String lagQuery,
+            @Value("${payment.datasource.replica.max-lag:2s}") Duration maxLag,
+            MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(
+            replicaDataSource,
+            lagQuery.isBlank() ? ReplicaLagMonitor.POSTGRES_LAG_QUERY : lagQuery,
+            maxLag,
+            meterRegistry
+        );
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "payment.datasource.replica.enabled", havingValue = "true")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ReplicaLagMonitor replicaLagMonitor,
+            MeterRegistry meterRegistry) {
+        return new ReplicaRoutingDataSource(primaryDataSource(), replicaDataSource, replicaLagMonitor, meterRegistry);
     }
 
     /**
@@ -104,9 +177,9 @@ public class DatabaseConfig {
      */
     @Bean
     @Primary
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
-        em.setDataSource(dataSource());
+        em.setDataSource(dataSource);
         em.setPackagesToScan("com.paymentgateway.infrastructure.persistence");
 
         HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
@@ -191,8 +264,8 @@ public class DatabaseConfig {
      * Importante para aplicaciones críticas como pagos
      */
     @Bean
-    public DatabaseHealthIndicator databaseHealthIndicator() {
-        return new DatabaseHealthIndicator(dataSource());
+    public DatabaseHealthIndicator databaseHealthIndicator(DataSource dataSource) {
+        return new DatabaseHealthIndicator(dataSource);
     }
 }
 
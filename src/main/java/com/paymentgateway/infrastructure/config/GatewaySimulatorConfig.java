@@ -0,0 +1,77 @@
+package com.paymentgateway.infrastructure.config;
+
+import java.time.Duration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayStrategy;
+import com.paymentgateway.infrastructure.adapter.gateway.paypal.PayPalPaymentGateway;
+import com.paymentgateway.infrastructure.adapter.gateway.simulator.LatencyDistribution;
+import com.paymentgateway.infrastructure.adapter.gateway.simulator.SimulatedPaymentGateway;
+import com.paymentgateway.infrastructure.adapter.gateway.stripe.StripeClientRegistry;
+import com.paymentgateway.infrastructure.adapter.gateway.stripe.StripePaymentGateway;
+
+/**
+ * Perfil simulator: las pasarelas se sustituyen por simuladas (payment.gateways.simulator.*)
+ *
+ * Los valores generales se pueden sobrescribir por pasarela en
+ * payment.gateways.simulator.providers.<pasarela>.*. Las pasarelas reales solo se crean como
+ * plantilla de medios de pago, limites y tarifario; nunca se les llama.
+ */
+@Configuration
+@Profile("simulator")
+public class GatewaySimulatorConfig {
+
+    private static final String PREFIX = "payment.gateways.simulator.";
+
+    @Bean("paypalGateway")
+    public PaymentGatewayPort simulatedPaypalGateway(Environment environment) {
+        return simulated(new PayPalPaymentGateway("simulator", "simulator", "sandbox"), environment);
+    }
+
+    @Bean("stripeGateway")
+    public PaymentGatewayPort simulatedStripeGateway(StripeClientRegistry stripeClients, Environment environment) {
+        return simulated(new StripePaymentGateway(stripeClients), environment);
+    }
+
+    private SimulatedPaymentGateway simulated(PaymentGatewayStrategy template, Environment environment) {
+        String provider = template.gatewayProvider().toLowerCase();
+        SimulatedPaymentGateway.Behavior behavior = new SimulatedPaymentGateway.Behavior(
+            latency(provider, environment),
+            property(environment, provider, "error-rate", Double.class, 0.0),
+            property(environment, provider, "decline-rate", Double.class, 0.0),
+            property(environment, provider, "rate-limit-burst.every", Duration.class, Duration.ZERO),
+            property(environment, provider, "rate-limit-burst.duration", Duration.class, Duration.ZERO),
+            property(environment, provider, "slow-drain.capacity", Integer.class, 0)
+        );
+        long seed = environment.getProperty(PREFIX + "seed", Long.class, 0L);
+        // misma semilla para ambas pasarelas daria secuencias identicas
+        return new SimulatedPaymentGateway(template, behavior, seed == 0 ? 0 : seed + provider.hashCode());
+    }
+
+    private LatencyDistribution latency(String provider, Environment environment) {
+        String type = property(environment, provider, "latency.type", String.class, "fixed");
+        return switch (type.toLowerCase()) {
+            case "fixed" -> new LatencyDistribution.Fixed(
+                property(environment, provider, "latency.value", Duration.class, Duration.ofMillis(100)));
+            case "lognormal" -> new LatencyDistribution.LogNormal(
+                property(environment, provider, "latency.median", Duration.class, Duration.ofMillis(100)),
+                property(environment, provider, "latency.p99", Duration.class, Duration.ofMillis(800)));
+            case "bimodal" -> new LatencyDistribution.Bimodal(
+                property(environment, provider, "latency.fast", Duration.class, Duration.ofMillis(80)),
+                property(environment, provider, "latency.slow", Duration.class, Duration.ofMillis(1500)),
+                property(environment, provider, "latency.slow-fraction", Double.class, 0.05));
+            default -> throw new IllegalArgumentException("Unknown simulated latency type for " + provider + ": " + type);
+        };
+    }
+
+    // primero el valor de la pasarela, despues el general
+    private static <T> T property(Environment environment, String provider, String name, Class<T> type, T defaultValue) {
+        T general = environment.getProperty(PREFIX + name, type, defaultValue);
+        return environment.getProperty(PREFIX + "providers." + provider + "." + name, type, general);
+    }
+}
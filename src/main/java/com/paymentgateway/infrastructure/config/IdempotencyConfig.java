@@ -0,0 +1,63 @@
+package com.paymentgateway.infrastructure.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentgateway.infrastructure.web.idempotency.IdempotencyFilter;
+import com.paymentgateway.infrastructure.web.idempotency.IdempotencyStore;
+import com.paymentgateway.infrastructure.web.idempotency.LocalIdempotencyStore;
+import com.paymentgateway.infrastructure.web.idempotency.RedisIdempotencyStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Idempotency-Key para el alta de pagos: almacen local (un nodo) o Redis (cluster)
+ */
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public LocalIdempotencyStore localIdempotencyStore(
+        @Value("${payment.idempotency.in-flight-ttl:60s}") Duration inFlightTtl,
+        @Value("${payment.idempotency.completed-ttl:24h}") Duration completedTtl
+    ) {
+        return new LocalIdempotencyStore(inFlightTtl, completedTtl);
+    }
+
+    // sin Redis configurado se usa el almacen local aunque se pida redis
+    @Bean
+    @Primary
+    public IdempotencyStore idempotencyStore(
+        LocalIdempotencyStore localIdempotencyStore,
+        ObjectProvider<StringRedisTemplate> redisTemplate,
+        @Value("${payment.idempotency.store:redis}") String store,
+        @Value("${payment.idempotency.in-flight-ttl:60s}") Duration inFlightTtl,
+        @Value("${payment.idempotency.completed-ttl:24h}") Duration completedTtl
+    ) {
+        StringRedisTemplate redis = "redis".equalsIgnoreCase(store) ? redisTemplate.getIfAvailable() : null;
+        return redis == null
+            ? localIdempotencyStore
+            : new RedisIdempotencyStore(redis, localIdempotencyStore, inFlightTtl, completedTtl);
+    }
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+        IdempotencyStore idempotencyStore,
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry,
+        @Value("${payment.idempotency.wait-timeout:30s}") Duration waitTimeout
+    ) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+            new IdempotencyFilter(idempotencyStore, objectMapper, meterRegistry, waitTimeout));
+        registration.addUrlPatterns("/api/v1/payments");
+        return registration;
+    }
+}
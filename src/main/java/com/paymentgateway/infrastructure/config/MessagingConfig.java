@@ -0,0 +1,19 @@
+package com.paymentgateway.infrastructure.config;
+
+import org.springframework.amqp.core.ExchangeBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exchange de eventos de pago; las routing keys son payment.<estado> (ver PaymentOutbox)
+ */
+@Configuration
+public class MessagingConfig {
+
+    @Bean
+    public TopicExchange paymentEventsExchange(@Value("${payment.outbox.exchange:payments.events}") String name) {
+        return ExchangeBuilder.topicExchange(name).durable(true).build();
+    }
+}
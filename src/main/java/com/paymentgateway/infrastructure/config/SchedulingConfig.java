@@ -0,0 +1,12 @@
+package com.paymentgateway.infrastructure.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas de mantenimiento (filtros, contadores, particiones)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
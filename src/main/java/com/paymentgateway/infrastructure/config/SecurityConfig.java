@@ -1,18 +1,44 @@
 package com.paymentgateway.infrastructure.config;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
 
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayResilienceEndpoint;
+
+/**
+ * La API y la lectura de actuator son publicas; las escrituras de /actuator/gateways (sacar una pasarela
+ * del enrutado) piden HTTP Basic con rol ADMIN (spring.security.user.*). No se crean sesiones ni cookies;
+ * CSRF sigue desactivado porque esas escrituras las hacen herramientas de operacion, no un navegador
+ */
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        http.csrf(csrf -> csrf.disable()).authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+        http.csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .httpBasic(Customizer.withDefaults())
+            .authorizeHttpRequests(auth -> auth
+                .requestMatchers(gatewayWrites()).hasRole("ADMIN")
+                .anyRequest().permitAll());
         return http.build();
     }
+
+    private static AndRequestMatcher gatewayWrites() {
+        return new AndRequestMatcher(
+            EndpointRequest.to(GatewayResilienceEndpoint.class),
+            new NegatedRequestMatcher(new AntPathRequestMatcher("/**", HttpMethod.GET.name()))
+        );
+    }
 }
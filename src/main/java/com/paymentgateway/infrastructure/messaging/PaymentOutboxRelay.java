@@ -0,0 +1,177 @@
+package com.paymentgateway.infrastructure.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Relay de la outbox de pagos hacia RabbitMQ
+ *
+ * Cada lote se toma con FOR UPDATE SKIP LOCKED (varios nodos pueden drenar en paralelo sin
+ * pisarse), se publica entero en un solo canal y se espera una unica confirmacion del broker
+ * antes de borrar las filas con un DELETE en bloque. Si la publicacion o la confirmacion fallan
+ * la transaccion se revierte y el lote se reintenta: la entrega es al menos una vez y los
+ * consumidores deduplican por messageId (eventId) o por la version del pago.
+ */
+@Component
+public class PaymentOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentOutboxRelay.class);
+
+    static final String SELECT_BATCH = """
+        SELECT id, event_id, event_type, routing_key, payload, created_at
+        FROM payment_outbox
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """;
+    static final String DELETE_BATCH = "DELETE FROM payment_outbox WHERE id IN (:ids)";
+
+    private static final RowMapper<OutboxRow> ROW_MAPPER = (rs, rowNum) -> new OutboxRow(
+        rs.getLong("id"),
+        rs.getString("event_id"),
+        rs.getString("event_type"),
+        rs.getString("routing_key"),
+        rs.getString("payload"),
+        rs.getTimestamp("created_at")
+    );
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<RabbitTemplate> rabbitTemplate;
+    private final boolean enabled;
+    private final String exchange;
+    private final int batchSize;
+    private final Duration confirmTimeout;
+
+    private final Counter publishedCounter;
+    private final Timer batchTimer;
+    private final Timer eventLag;
+
+    public PaymentOutboxRelay(
+        NamedParameterJdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        ObjectProvider<RabbitTemplate> rabbitTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${payment.outbox.relay.enabled:true}") boolean enabled,
+        @Value("${payment.outbox.exchange:payments.events}") String exchange,
+        @Value("${payment.outbox.relay.batch-size:200}") int batchSize,
+        @Value("${payment.outbox.relay.confirm-timeout:5s}") Duration confirmTimeout
+    ) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("payment.outbox.relay.batch-size must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rabbitTemplate = rabbitTemplate;
+        this.enabled = enabled;
+        this.exchange = exchange;
+        this.batchSize = batchSize;
+        this.confirmTimeout = confirmTimeout;
+
+        this.publishedCounter = Counter.builder("payments.outbox.published").register(meterRegistry);
+        this.batchTimer = Timer.builder("payments.outbox.relay.batch").register(meterRegistry);
+        this.eventLag = Timer.builder("payments.outbox.lag")
+            .description("Tiempo desde que el evento se escribe hasta que el broker lo confirma")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(
+        fixedDelayString = "${payment.outbox.relay.poll-interval:PT0.5S}",
+        initialDelayString = "${payment.outbox.relay.poll-interval:PT0.5S}"
+    )
+    public void relay() {
+        RabbitTemplate template = rabbitTemplate.getIfAvailable();
+        if (!enabled || template == null) {
+            return;
+        }
+        try {
+            // mientras los lotes salen llenos queda trabajo pendiente: se sigue sin esperar al siguiente tick
+            int published;
+            do {
+                published = relayBatch(template);
+            } while (published == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Payment outbox relay failed, batch will be retried", e);
+        }
+    }
+
+    /**
+     * Publica un lote y lo borra en la misma transaccion; devuelve el numero de eventos publicados
+     */
+    int relayBatch(RabbitTemplate template) {
+        Integer published = transactionTemplate.execute(status -> batchTimer.record(() -> {
+            List<OutboxRow> rows = jdbcTemplate.query(
+                SELECT_BATCH, new MapSqlParameterSource("limit", batchSize), ROW_MAPPER);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            template.invoke(operations -> {
+                for (OutboxRow row : rows) {
+                    operations.send(exchange, row.routingKey(), toMessage(row));
+                }
+                operations.waitForConfirmsOrDie(confirmTimeout.toMillis());
+                return null;
+            });
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (OutboxRow row : rows) {
+                ids.add(row.id());
+            }
+            jdbcTemplate.update(DELETE_BATCH, new MapSqlParameterSource("ids", ids));
+            recordLag(rows);
+            return rows.size();
+        }));
+        int count = published == null ? 0 : published;
+        publishedCounter.increment(count);
+        return count;
+    }
+
+    private static Message toMessage(OutboxRow row) {
+        return MessageBuilder.withBody(row.payload().getBytes(StandardCharsets.UTF_8))
+            .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+            .setContentEncoding(StandardCharsets.UTF_8.name())
+            .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+            .setMessageId(row.eventId())
+            .setType(row.eventType())
+            .setTimestamp(row.createdAt())
+            .build();
+    }
+
+    private void recordLag(List<OutboxRow> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxRow row : rows) {
+            Duration lag = Duration.between(row.createdAt().toLocalDateTime(), now);
+            if (!lag.isNegative()) {
+                eventLag.record(lag);
+            }
+        }
+    }
+
+    record OutboxRow(long id, String eventId, String eventType, String routingKey, String payload,
+                     Timestamp createdAt) {
+    }
+}
@@ -11,8 +11,6 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
@@ -31,8 +29,11 @@ import lombok.NoArgsConstructor;
 @Builder
 public class PaymentEntity {
 
+    // el id lo asigna el dominio al crear el pago (ver Payment y PaymentRepositoryImpl.save)
+    // En la base la clave primaria es (id, created_at) porque payments esta particionada por created_at
+    // (V4); el id es un UUID aleatorio y unico por si solo, asi que Hibernate identifica la fila solo con el.
+    // Las busquedas por id consultan el indice de la clave en cada particion
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
     @Column(nullable = false, unique = true)
@@ -65,7 +66,8 @@ public class PaymentEntity {
     @Column(name = "failure_reason")
     private String failureReason;
 
-    @Column(name = "created_at", nullable = false)
+    // no se actualiza nunca: un cambio de created_at moveria la fila de particion y la clave (id, created_at)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
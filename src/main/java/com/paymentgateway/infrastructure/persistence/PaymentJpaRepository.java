@@ -1,38 +1,301 @@
 package com.paymentgateway.infrastructure.persistence;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.paymentgateway.domain.model.PaymentStatus;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface PaymentJpaRepository extends JpaRepository<PaymentEntity, UUID> {
-    
+
+    // Filas que el driver trae por viaje cuando se recorre un cursor
+    String STREAM_FETCH_SIZE = "500";
+
     // Buscar por referencia de pago
     Optional<PaymentEntity> findByPaymentReference(String paymentReference);
-    
+
     // Buscar por ID de merchant
     List<PaymentEntity> findByMerchantId(String merchantId);
-    
+
     // Buscar por ID de cliente
     List<PaymentEntity> findByCustomerId(String customerId);
-    
+
     // Buscar por estado
     List<PaymentEntity> findByStatus(PaymentStatus status);
-    
+
     // Buscar por proveedor de pasarela
     List<PaymentEntity> findByGateWayProvider(String gateWayProvider);
-    
+
     // Buscar por ID de transacción de la pasarela
     Optional<PaymentEntity> findByGatewayTransactionId(String gatewayTransactionId);
-    
+
+    // Buscar por varios IDs de transacción de la pasarela
+    List<PaymentEntity> findByGatewayTransactionIdIn(Collection<String> gatewayTransactionIds);
+
     // Verificar si existe por referencia de pago
     boolean existsByPaymentReference(String paymentReference);
-    
+
     // Contar por estado
     long countByStatus(PaymentStatus status);
+
+    // Conteo de todos los estados en una sola consulta agrupada
+    @Query("SELECT p.status AS status, COUNT(p) AS total FROM PaymentEntity p GROUP BY p.status")
+    List<PaymentStatusCount> countGroupedByStatus();
+
+    // Primera pagina keyset ordenada por (created_at, id)
+    List<PaymentEntity> findByMerchantIdOrderByCreatedAtAscIdAsc(String merchantId, Pageable pageable);
+
+    List<PaymentEntity> findByCustomerIdOrderByCreatedAtAscIdAsc(String customerId, Pageable pageable);
+
+    List<PaymentEntity> findByStatusOrderByCreatedAtAscIdAsc(PaymentStatus status, Pageable pageable);
+
+    List<PaymentEntity> findByGateWayProviderOrderByCreatedAtAscIdAsc(String gateWayProvider, Pageable pageable);
+
+    // Paginas siguientes: seek sobre (created_at, id) del ultimo elemento entregado. La comparacion de
+    // filas es una condicion de indice sobre (..., created_at, id); la cota redundante sobre created_at
+    // deja descartar las particiones anteriores
+    @Query("""
+        SELECT p FROM PaymentEntity p
+        WHERE p.merchantId = :merchantId
+          AND (p.createdAt, p.id) > (:createdAt, :id) AND p.createdAt >= :createdAt
+        ORDER BY p.createdAt ASC, p.id ASC
+        """)
+    List<PaymentEntity> findByMerchantIdAfter(
+        @Param("merchantId") String merchantId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") UUID id,
+        Pageable pageable
+    );
+
+    @Query("""
+        SELECT p FROM PaymentEntity p
+        WHERE p.customerId = :customerId
+          AND (p.createdAt, p.id) > (:createdAt, :id) AND p.createdAt >= :createdAt
+        ORDER BY p.createdAt ASC, p.id ASC
+        """)
+    List<PaymentEntity> findByCustomerIdAfter(
+        @Param("customerId") String customerId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") UUID id,
+        Pageable pageable
+    );
+
+    @Query("""
+        SELECT p FROM PaymentEntity p
+        WHERE p.status = :status
+          AND (p.createdAt, p.id) > (:createdAt, :id) AND p.createdAt >= :createdAt
+        ORDER BY p.createdAt ASC, p.id ASC
+        """)
+    List<PaymentEntity> findByStatusAfter(
+        @Param("status") PaymentStatus status,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") UUID id,
+        Pageable pageable
+    );
+
+    @Query("""
+        SELECT p FROM PaymentEntity p
+        WHERE p.gateWayProvider = :gateWayProvider
+          AND (p.createdAt, p.id) > (:createdAt, :id) AND p.createdAt >= :createdAt
+        ORDER BY p.createdAt ASC, p.id ASC
+        """)
+    List<PaymentEntity> findByGateWayProviderAfter(
+        @Param("gateWayProvider") String gateWayProvider,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") UUID id,
+        Pageable pageable
+    );
+
+    // Consultas acotadas por created_at en [from, to): permiten descartar particiones mensuales
+    @Query("""
+        SELECT p FROM PaymentEntity p
+        WHERE p.merchantId = :merchantId
+          AND p.createdAt >= :from AND p.createdAt < :to
+        ORDER BY p.createdAt ASC, p.id ASC
+        """)
+    List<PaymentEntity> findByMerchantIdCreatedBetween(
+        @Param("merchantId") String merchantId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to
+    );
+
+    @Query("""
+        SELECT p FROM PaymentEntity p
+        WHERE p.customerId = :customerId
+          AND p.createdAt >= :from AND p.createdAt < :to
+        ORDER BY p.createdAt ASC, p.id ASC
+        """)
+    List<PaymentEntity> findByCustomerIdCreatedBetween(
+        @Param("customerId") String customerId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to
+    );
+
+    @Query("""
+        SELECT p FROM PaymentEntity p
+        WHERE p.status = :status
+          AND p.createdAt >= :from AND p.createdAt < :to
+        ORDER BY p.createdAt ASC, p.id ASC
+        """)
+    List<PaymentEntity> findByStatusCreatedBetween(
+        @Param("status") PaymentStatus status,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to
+    );
+
+    @Query("""
+        SELECT p FROM PaymentEntity p
+        WHERE p.gateWayProvider = :gateWayProvider
+          AND p.createdAt >= :from AND p.createdAt < :to
+        ORDER BY p.createdAt ASC, p.id ASC
+        """)
+    List<PaymentEntity> findByGateWayProviderCreatedBetween(
+        @Param("gateWayProvider") String gateWayProvider,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to
+    );
+
+    // Transiciones atomicas: un solo UPDATE condicionado al estado actual que devuelve el estado
+    // anterior y la fila ya actualizada (cero o una fila). La CTE bloquea la fila para que el estado
+    // devuelto sea el vigente.
+    // No refrescan entidades ya cargadas en el contexto de persistencia de la transaccion en curso
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        WITH previous AS (
+            SELECT id, created_at, status FROM payments WHERE id = :id FOR UPDATE
+        )
+        UPDATE payments p
+        SET status = :target, updated_at = :now, version = COALESCE(p.version, 0) + 1
+        FROM previous
+        WHERE p.id = previous.id AND p.created_at = previous.created_at
+          AND previous.status IN (:sources)
+        RETURNING previous.status AS "previousStatus", p.payment_reference AS "paymentReference",
+                  p.merchant_id AS "merchantId", p.amount AS "amount", p.currency AS "currency",
+                  p.gateway_transaction_id AS "gatewayTransactionId", p.version AS "version"
+        """)
+    List<PaymentTransitionRow> transitionStatus(
+        @Param("id") UUID id,
+        @Param("sources") Collection<String> sources,
+        @Param("target") String target,
+        @Param("now") LocalDateTime now
+    );
+
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        WITH previous AS (
+            SELECT id, created_at, status FROM payments WHERE id = :id FOR UPDATE
+        )
+        UPDATE payments p
+        SET status = 'COMPLETED', gateway_transaction_id = :gatewayTransactionId,
+            completed_at = :now, updated_at = :now, version = COALESCE(p.version, 0) + 1
+        FROM previous
+        WHERE p.id = previous.id AND p.created_at = previous.created_at
+          AND previous.status IN (:sources)
+        RETURNING previous.status AS "previousStatus", p.payment_reference AS "paymentReference",
+                  p.merchant_id AS "merchantId", p.amount AS "amount", p.currency AS "currency",
+                  p.gateway_transaction_id AS "gatewayTransactionId", p.version AS "version"
+        """)
+    List<PaymentTransitionRow> completeTransition(
+        @Param("id") UUID id,
+        @Param("sources") Collection<String> sources,
+        @Param("gatewayTransactionId") String gatewayTransactionId,
+        @Param("now") LocalDateTime now
+    );
+
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        WITH previous AS (
+            SELECT id, created_at, status FROM payments WHERE id = :id FOR UPDATE
+        )
+        UPDATE payments p
+        SET status = 'FAILED', failure_reason = :failureReason,
+            updated_at = :now, version = COALESCE(p.version, 0) + 1
+        FROM previous
+        WHERE p.id = previous.id AND p.created_at = previous.created_at
+          AND previous.status IN (:sources)
+        RETURNING previous.status AS "previousStatus", p.payment_reference AS "paymentReference",
+                  p.merchant_id AS "merchantId", p.amount AS "amount", p.currency AS "currency",
+                  p.gateway_transaction_id AS "gatewayTransactionId", p.version AS "version"
+        """)
+    List<PaymentTransitionRow> failTransition(
+        @Param("id") UUID id,
+        @Param("sources") Collection<String> sources,
+        @Param("failureReason") String failureReason,
+        @Param("now") LocalDateTime now
+    );
+
+    // Transicion en bloque: bloquea las filas en orden de id (sin interbloqueos entre lotes) y las
+    // actualiza con un unico UPDATE condicionado al estado actual. completed_at y failure_reason solo
+    // se tocan al completar o fallar; el gateway_transaction_id existente se conserva
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        WITH previous AS (
+            SELECT id, created_at, status FROM payments WHERE id IN (:ids) ORDER BY id FOR UPDATE
+        )
+        UPDATE payments p
+        SET status = :target, updated_at = :now, version = COALESCE(p.version, 0) + 1,
+            completed_at = CASE WHEN :target = 'COMPLETED' THEN :now ELSE p.completed_at END,
+            failure_reason = CASE WHEN :target = 'FAILED' THEN :failureReason ELSE p.failure_reason END
+        FROM previous
+        WHERE p.id = previous.id AND p.created_at = previous.created_at
+          AND previous.status IN (:sources)
+        RETURNING p.id AS "id", previous.status AS "previousStatus", p.payment_reference AS "paymentReference",
+                  p.merchant_id AS "merchantId", p.amount AS "amount", p.currency AS "currency",
+                  p.gateway_transaction_id AS "gatewayTransactionId", p.version AS "version"
+        """)
+    List<PaymentTransitionRow> transitionAll(
+        @Param("ids") Collection<UUID> ids,
+        @Param("sources") Collection<String> sources,
+        @Param("target") String target,
+        @Param("failureReason") String failureReason,
+        @Param("now") LocalDateTime now
+    );
+
+    // Recorridos con cursor JDBC; deben consumirse dentro de una transaccion y cerrarse
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<PaymentEntity> streamByMerchantId(String merchantId);
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<PaymentEntity> streamByCustomerId(String customerId);
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<PaymentEntity> streamByStatus(PaymentStatus status);
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<PaymentEntity> streamByGateWayProvider(String gateWayProvider);
+
+    // Recorre solo la columna payment_reference (index-only scan sobre idx_payments_payment_reference)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.paymentReference FROM PaymentEntity p")
+    Stream<String> streamAllPaymentReferences();
 }
@@ -1,50 +1,38 @@
 package com.paymentgateway.infrastructure.persistence;
 
-import org.springframework.stereotype.Component;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 
 import com.paymentgateway.domain.model.Payment;
 
-@Component
-public class PaymentMapper {
-    public PaymentEntity toEntity(Payment payment) {
-        return PaymentEntity.builder()
-                .id(payment.getId())
-                .paymentReference(payment.getPaymentReference())
-                .amount(payment.getAmount())
-                .currency(payment.getCurrency())
-                .status(payment.getStatus())
-                .paymentMethod(payment.getPaymentMethod())
-                .gateWayProvider(payment.getGatewayProvider())
-                .gatewayTransactionId(payment.getGatewayTransactionId())
-                .customerId(payment.getCustomerId())
-                .merchantId(payment.getMerchantId())
-                .description(payment.getDescription())
-                .failureReason(payment.getFailureReason())
-                .createdAt(payment.getCreatedAt())
-                .updatedAt(payment.getUpdatedAt())
-                .completedAt(payment.getCompletedAt())
-                .version(payment.getVersion())
-                .build();
-    }
+/**
+ * Mapeo entre el modelo de dominio y la entidad JPA, generado por MapStruct en compilacion
+ *
+ * La entidad se construye con su constructor vacio y setters (sin builder intermedio) y,
+ * en las actualizaciones, el estado del dominio se copia sobre la entidad ya gestionada
+ * por el contexto de persistencia en lugar de crear una copia desacoplada para merge.
+ */
+@Mapper(componentModel = "spring", builder = @Builder(disableBuilder = true))
+public interface PaymentMapper {
 
-    public Payment toDomain(PaymentEntity entity) {
-        return Payment.builder()
-                .id(entity.getId())
-                .paymentReference(entity.getPaymentReference())
-                .amount(entity.getAmount())
-                .currency(entity.getCurrency())
-                .status(entity.getStatus())
-                .paymentMethod(entity.getPaymentMethod())
-                .gatewayProvider(entity.getGateWayProvider())
-                .gatewayTransactionId(entity.getGatewayTransactionId())
-                .customerId(entity.getCustomerId())
-                .merchantId(entity.getMerchantId())
-                .description(entity.getDescription())
-                .failureReason(entity.getFailureReason())
-                .createdAt(entity.getCreatedAt())
-                .updatedAt(entity.getUpdatedAt())
-                .completedAt(entity.getCompletedAt())
-                .version(entity.getVersion())
-                .build();
-    }
+    @Mapping(target = "gateWayProvider", source = "gatewayProvider")
+    PaymentEntity toEntity(Payment payment);
+
+    // Payment no tiene setters: el dominio se construye con su builder
+    @BeanMapping(builder = @Builder(disableBuilder = false))
+    @Mapping(target = "gatewayProvider", source = "gateWayProvider")
+    Payment toDomain(PaymentEntity entity);
+
+    /**
+     * Copia el estado mutable del pago sobre una entidad gestionada
+     * id, created_at y version los controla JPA y no se sobrescriben
+     */
+    @Mapping(target = "gateWayProvider", source = "gatewayProvider")
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    void updateEntity(Payment payment, @MappingTarget PaymentEntity entity);
 }
@@ -1,16 +1,39 @@
 package com.paymentgateway.infrastructure.persistence;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentCursor;
+import com.paymentgateway.domain.model.PaymentEvent;
+import com.paymentgateway.domain.model.PaymentPage;
+import com.paymentgateway.domain.model.PaymentPeriod;
 import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.model.PaymentTransition;
 import com.paymentgateway.domain.repository.PaymentRepository;
+import com.paymentgateway.infrastructure.persistence.bloom.PaymentReferenceFilter;
+import com.paymentgateway.infrastructure.persistence.counter.PaymentStatusCounters;
+import com.paymentgateway.infrastructure.persistence.outbox.PaymentOutbox;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 
 @Repository
@@ -19,12 +42,48 @@ public class PaymentRepositoryImpl implements PaymentRepository {
 
     private final PaymentJpaRepository paymentJpaRepository;
     private final PaymentMapper mapper;
+    private final EntityManager entityManager;
+    private final PaymentReferenceFilter referenceFilter;
+    private final PaymentStatusCounters statusCounters;
+    private final PaymentOutbox outbox;
 
+    /**
+     * Un pago nuevo se mapea una vez y se persiste directamente; uno existente se copia
+     * sobre la entidad gestionada, sin crear una copia desacoplada ni pasar por merge.
+     * Las altas y los cambios de estado dejan su evento en la outbox dentro de la misma transaccion
+     */
     @Override
+    @Transactional
     public Payment save(Payment payment) {
-        PaymentEntity entity = mapper.toEntity(payment);
-        PaymentEntity saved = paymentJpaRepository.save(entity);
-        return mapper.toDomain(saved);
+        PaymentEntity managed = managedEntityOf(payment);
+        PaymentStatus previousStatus;
+        PaymentEntity saved;
+        if (managed == null) {
+            previousStatus = null;
+            saved = mapper.toEntity(payment);
+            if (saved.getId() == null) {
+                saved.setId(UUID.randomUUID());
+            }
+            entityManager.persist(saved);
+        } else {
+            previousStatus = managed.getStatus();
+            mapper.updateEntity(payment, managed);
+            saved = managed;
+        }
+        recordReference(saved.getPaymentReference());
+        PaymentStatus newStatus = saved.getStatus();
+        afterCommit(() -> statusCounters.recordTransition(previousStatus, newStatus));
+        if (managed != null) {
+            // el resultado (y el evento) llevan la version y updatedAt que deja el UPDATE; sin esto
+            // la cache guardaria la version anterior y el siguiente save fallaria por bloqueo optimista
+            entityManager.flush();
+        }
+        if (previousStatus == newStatus) {
+            return mapper.toDomain(saved);
+        }
+        Payment result = mapper.toDomain(saved);
+        outbox.append(PaymentEvent.of(result, previousStatus));
+        return result;
     }
 
     @Override
@@ -42,8 +101,9 @@ public class PaymentRepositoryImpl implements PaymentRepository {
 
     // buscar pagos por id del cliente
     @Override
+    @Transactional(readOnly = true)
     public List<Payment> findByCustomerId(String customerId) {
-        return paymentJpaRepository.findByMerchantId(customerId)
+        return paymentJpaRepository.findByCustomerId(customerId)
                 .stream()
                 .map(mapper::toDomain)
                 .collect(Collectors.toList());
@@ -51,6 +111,7 @@ public class PaymentRepositoryImpl implements PaymentRepository {
 
     //busca pagos por estado
     @Override
+    @Transactional(readOnly = true)
     public List<Payment> findByStatus(PaymentStatus status) {
         return paymentJpaRepository.findByStatus(status)
                 .stream()
@@ -60,6 +121,7 @@ public class PaymentRepositoryImpl implements PaymentRepository {
 
     //busca pagos por merchant
     @Override
+    @Transactional(readOnly = true)
     public List<Payment> findByMerchanId(String merchantId) {
         return paymentJpaRepository.findByMerchantId(merchantId)
                 .stream()
@@ -69,6 +131,7 @@ public class PaymentRepositoryImpl implements PaymentRepository {
 
     //busca pagos por proveedor de pasarela
     @Override
+    @Transactional(readOnly = true)
     public List<Payment> findByGatewayProvider(String gatewayProvider) {
 
         return paymentJpaRepository.findByGateWayProvider(gatewayProvider)
@@ -84,22 +147,338 @@ public class PaymentRepositoryImpl implements PaymentRepository {
                 .map(mapper::toDomain);
     }
 
+    //busca pagos por varios ids de transaccion de la pasarela
+    @Override
+    @Transactional(readOnly = true)
+    public List<Payment> findByGatewayTransactionIds(Collection<String> gatewayTransactionIds) {
+        if (gatewayTransactionIds.isEmpty()) {
+            return List.of();
+        }
+        return paymentJpaRepository.findByGatewayTransactionIdIn(gatewayTransactionIds)
+                .stream()
+                .map(mapper::toDomain)
+                .collect(Collectors.toList());
+    }
+
     //verifica si existe el pago con la referencia dada
     @Override
     public boolean existsByPaymentReference(String paymentReference) {
-        return paymentJpaRepository.existsByPaymentReference(paymentReference);
+        // un "no" del filtro solo evita el viaje a la base de datos si ningun otro nodo inserta referencias
+        boolean mightExist = referenceFilter.mightExist(paymentReference);
+        if (!mightExist && referenceFilter.isAuthoritative()) {
+            return false;
+        }
+        boolean exists = paymentJpaRepository.existsByPaymentReference(paymentReference);
+        if (mightExist && !exists) {
+            referenceFilter.recordFalsePositive();
+        } else if (!mightExist && exists) {
+            referenceFilter.recordStaleMiss(paymentReference);
+        }
+        return exists;
     }
 
     //elimina un pago
     @Override
     public void delete(Payment payment) {
         paymentJpaRepository.delete(mapper.toEntity(payment));
+        PaymentStatus deletedStatus = payment.getStatus();
+        afterCommit(() -> statusCounters.recordTransition(deletedStatus, null));
     }
 
     //cuenta el total de pagos por estado
     @Override
     public long countByStatus(PaymentStatus status) {
+        // O(1) desde los contadores en memoria; COUNT(*) solo hasta la primera reconciliacion
+        if (statusCounters.isReady()) {
+            return statusCounters.count(status);
+        }
         return paymentJpaRepository.countByStatus(status);
     }
 
+    // transicion atomica PENDING -> PROCESSING
+    @Override
+    @Transactional
+    public boolean markAsProcessing(UUID paymentId) {
+        return transition(paymentId, PaymentTransition.START_PROCESSING, null).isPresent();
+    }
+
+    // transicion atomica PROCESSING -> COMPLETED
+    @Override
+    @Transactional
+    public boolean markAsCompleted(UUID paymentId, String gatewayTransactionId) {
+        return transition(paymentId, PaymentTransition.COMPLETE, gatewayTransactionId).isPresent();
+    }
+
+    // transicion atomica a FAILED desde cualquier estado salvo COMPLETED
+    @Override
+    @Transactional
+    public boolean markAsFailed(UUID paymentId, String failureReason) {
+        return transition(paymentId, PaymentTransition.FAIL, failureReason).isPresent();
+    }
+
+    // transicion atomica a CANCELLED desde cualquier estado salvo COMPLETED
+    @Override
+    @Transactional
+    public boolean cancel(UUID paymentId) {
+        return transition(paymentId, PaymentTransition.CANCEL, null).isPresent();
+    }
+
+    /**
+     * Transicion atomica que devuelve la version de la fila tras el UPDATE (vacio si la guarda no se
+     * cumplio); la cache la usa como suelo para descartar copias leidas antes de la transicion
+     * detail es el id de transaccion con COMPLETE y el motivo con FAIL
+     */
+    @Transactional
+    public OptionalLong transition(UUID paymentId, PaymentTransition transition, String detail) {
+        List<String> sources = sourcesOf(transition);
+        LocalDateTime now = LocalDateTime.now();
+        List<PaymentTransitionRow> rows = switch (transition) {
+            case COMPLETE -> paymentJpaRepository.completeTransition(paymentId, sources, detail, now);
+            case FAIL -> paymentJpaRepository.failTransition(paymentId, sources, detail, now);
+            case START_PROCESSING, CANCEL ->
+                    paymentJpaRepository.transitionStatus(paymentId, sources, transition.target().name(), now);
+        };
+        // sin filas la guarda no se cumplio
+        if (rows.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        PaymentTransitionRow row = rows.get(0);
+        recordTransition(paymentId, transition, row);
+        return OptionalLong.of(row.getVersion());
+    }
+
+    // transicion en bloque con un unico UPDATE; un evento de outbox por pago que cambia
+    @Override
+    @Transactional
+    public List<UUID> transitionAll(Collection<UUID> paymentIds, PaymentTransition transition, String failureReason) {
+        return new ArrayList<>(transitionAllVersions(paymentIds, transition, failureReason).keySet());
+    }
+
+    /**
+     * Como transitionAll, con la version de cada fila que cambio (en el orden devuelto por el UPDATE)
+     */
+    @Transactional
+    public Map<UUID, Long> transitionAllVersions(Collection<UUID> paymentIds, PaymentTransition transition,
+                                                 String failureReason) {
+        if (paymentIds.isEmpty()) {
+            return Map.of();
+        }
+        List<PaymentTransitionRow> rows = paymentJpaRepository.transitionAll(
+                paymentIds, sourcesOf(transition), transition.target().name(), failureReason, LocalDateTime.now());
+        Map<UUID, Long> changed = new LinkedHashMap<>();
+        for (PaymentTransitionRow row : rows) {
+            recordTransition(row.getId(), transition, row);
+            changed.put(row.getId(), row.getVersion());
+        }
+        return changed;
+    }
+
+    // paginacion keyset por merchant
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentPage findByMerchantId(String merchantId, PaymentCursor after, int limit) {
+        Pageable pageable = keysetPageable(limit);
+        List<PaymentEntity> entities = after == null
+                ? paymentJpaRepository.findByMerchantIdOrderByCreatedAtAscIdAsc(merchantId, pageable)
+                : paymentJpaRepository.findByMerchantIdAfter(merchantId, after.createdAt(), after.id(), pageable);
+        return toPage(entities, limit);
+    }
+
+    // paginacion keyset por cliente
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentPage findByCustomerId(String customerId, PaymentCursor after, int limit) {
+        Pageable pageable = keysetPageable(limit);
+        List<PaymentEntity> entities = after == null
+                ? paymentJpaRepository.findByCustomerIdOrderByCreatedAtAscIdAsc(customerId, pageable)
+                : paymentJpaRepository.findByCustomerIdAfter(customerId, after.createdAt(), after.id(), pageable);
+        return toPage(entities, limit);
+    }
+
+    // paginacion keyset por estado
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentPage findByStatus(PaymentStatus status, PaymentCursor after, int limit) {
+        Pageable pageable = keysetPageable(limit);
+        List<PaymentEntity> entities = after == null
+                ? paymentJpaRepository.findByStatusOrderByCreatedAtAscIdAsc(status, pageable)
+                : paymentJpaRepository.findByStatusAfter(status, after.createdAt(), after.id(), pageable);
+        return toPage(entities, limit);
+    }
+
+    // paginacion keyset por proveedor de pasarela
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentPage findByGatewayProvider(String gatewayProvider, PaymentCursor after, int limit) {
+        Pageable pageable = keysetPageable(limit);
+        List<PaymentEntity> entities = after == null
+                ? paymentJpaRepository.findByGateWayProviderOrderByCreatedAtAscIdAsc(gatewayProvider, pageable)
+                : paymentJpaRepository.findByGateWayProviderAfter(gatewayProvider, after.createdAt(), after.id(),
+                        pageable);
+        return toPage(entities, limit);
+    }
+
+    // pagos de un merchant dentro de un periodo de creacion
+    @Override
+    @Transactional(readOnly = true)
+    public List<Payment> findByMerchantId(String merchantId, PaymentPeriod period) {
+        return toDomain(paymentJpaRepository.findByMerchantIdCreatedBetween(
+                merchantId, period.fromOrMin(), period.toOrMax()));
+    }
+
+    // pagos de un cliente dentro de un periodo de creacion
+    @Override
+    @Transactional(readOnly = true)
+    public List<Payment> findByCustomerId(String customerId, PaymentPeriod period) {
+        return toDomain(paymentJpaRepository.findByCustomerIdCreatedBetween(
+                customerId, period.fromOrMin(), period.toOrMax()));
+    }
+
+    // pagos en un estado dentro de un periodo de creacion
+    @Override
+    @Transactional(readOnly = true)
+    public List<Payment> findByStatus(PaymentStatus status, PaymentPeriod period) {
+        return toDomain(paymentJpaRepository.findByStatusCreatedBetween(
+                status, period.fromOrMin(), period.toOrMax()));
+    }
+
+    // pagos de una pasarela dentro de un periodo de creacion
+    @Override
+    @Transactional(readOnly = true)
+    public List<Payment> findByGatewayProvider(String gatewayProvider, PaymentPeriod period) {
+        return toDomain(paymentJpaRepository.findByGateWayProviderCreatedBetween(
+                gatewayProvider, period.fromOrMin(), period.toOrMax()));
+    }
+
+    // recorrido con cursor por merchant
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachByMerchantId(String merchantId, Consumer<Payment> consumer) {
+        try (Stream<PaymentEntity> entities = paymentJpaRepository.streamByMerchantId(merchantId)) {
+            forEachDetached(entities, consumer);
+        }
+    }
+
+    // recorrido con cursor por cliente
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachByCustomerId(String customerId, Consumer<Payment> consumer) {
+        try (Stream<PaymentEntity> entities = paymentJpaRepository.streamByCustomerId(customerId)) {
+            forEachDetached(entities, consumer);
+        }
+    }
+
+    // recorrido con cursor por estado
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachByStatus(PaymentStatus status, Consumer<Payment> consumer) {
+        try (Stream<PaymentEntity> entities = paymentJpaRepository.streamByStatus(status)) {
+            forEachDetached(entities, consumer);
+        }
+    }
+
+    // recorrido con cursor por proveedor de pasarela
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachByGatewayProvider(String gatewayProvider, Consumer<Payment> consumer) {
+        try (Stream<PaymentEntity> entities = paymentJpaRepository.streamByGateWayProvider(gatewayProvider)) {
+            forEachDetached(entities, consumer);
+        }
+    }
+
+    // se registra antes y despues del commit para no perderla si el filtro se reconstruye en medio
+    private void recordReference(String paymentReference) {
+        referenceFilter.recordInserted(paymentReference);
+        afterCommit(() -> referenceFilter.recordInserted(paymentReference));
+    }
+
+    // entidad gestionada de un pago ya persistido (version != null); null si el pago es nuevo
+    private PaymentEntity managedEntityOf(Payment payment) {
+        if (payment.getId() == null || payment.getVersion() == null) {
+            return null;
+        }
+        PaymentEntity current = entityManager.find(PaymentEntity.class, payment.getId());
+        // la misma comprobacion de @Version que haria merge con una copia desacoplada
+        if (current == null || !payment.getVersion().equals(current.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(PaymentEntity.class, payment.getId());
+        }
+        return current;
+    }
+
+    private static List<String> sourcesOf(PaymentTransition transition) {
+        List<String> sources = new ArrayList<>(transition.sources().size());
+        for (PaymentStatus status : transition.sources()) {
+            sources.add(status.name());
+        }
+        return sources;
+    }
+
+    // evento de outbox en la misma transaccion y contadores tras el commit
+    private void recordTransition(UUID paymentId, PaymentTransition transition, PaymentTransitionRow row) {
+        PaymentStatus from = PaymentStatus.valueOf(row.getPreviousStatus());
+        outbox.append(new PaymentEvent(
+                UUID.randomUUID(),
+                PaymentEvent.Type.PAYMENT_STATUS_CHANGED,
+                paymentId,
+                row.getPaymentReference(),
+                row.getMerchantId(),
+                row.getAmount(),
+                row.getCurrency(),
+                from,
+                transition.target(),
+                row.getGatewayTransactionId(),
+                row.getVersion(),
+                LocalDateTime.now()));
+        afterCommit(() -> statusCounters.recordTransition(from, transition.target()));
+    }
+
+    // sin transaccion activa la escritura ya esta confirmada
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // se pide un elemento extra para saber si existe una pagina siguiente sin hacer COUNT
+    private Pageable keysetPageable(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        return PageRequest.of(0, limit + 1);
+    }
+
+    private PaymentPage toPage(List<PaymentEntity> entities, int limit) {
+        int size = Math.min(entities.size(), limit);
+        List<Payment> payments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            payments.add(mapper.toDomain(entities.get(i)));
+        }
+        PaymentCursor nextCursor = entities.size() > limit
+                ? PaymentCursor.from(payments.get(size - 1))
+                : null;
+        return new PaymentPage(payments, nextCursor);
+    }
+
+    private List<Payment> toDomain(List<PaymentEntity> entities) {
+        List<Payment> payments = new ArrayList<>(entities.size());
+        for (PaymentEntity entity : entities) {
+            payments.add(mapper.toDomain(entity));
+        }
+        return payments;
+    }
+
+    // se desacopla cada entidad del contexto de persistencia para que no crezca con el recorrido
+    private void forEachDetached(Stream<PaymentEntity> entities, Consumer<Payment> consumer) {
+        entities.forEach(entity -> {
+            consumer.accept(mapper.toDomain(entity));
+            entityManager.detach(entity);
+        });
+    }
 }
@@ -0,0 +1,12 @@
+package com.paymentgateway.infrastructure.persistence;
+
+import com.paymentgateway.domain.model.PaymentStatus;
+
+/**
+ * Proyeccion del conteo agrupado por estado
+ */
+public interface PaymentStatusCount {
+    PaymentStatus getStatus();
+
+    long getTotal();
+}
@@ -0,0 +1,26 @@
+package com.paymentgateway.infrastructure.persistence;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Proyeccion devuelta por las transiciones atomicas: estado anterior y fila ya actualizada
+ */
+public interface PaymentTransitionRow {
+    // solo en las transiciones en bloque
+    UUID getId();
+
+    String getPreviousStatus();
+
+    String getPaymentReference();
+
+    String getMerchantId();
+
+    BigDecimal getAmount();
+
+    String getCurrency();
+
+    String getGatewayTransactionId();
+
+    Long getVersion();
+}
@@ -0,0 +1,214 @@
+package com.paymentgateway.infrastructure.persistence.bloom;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.paymentgateway.infrastructure.persistence.PaymentJpaRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Filtro de Bloom sobre payment_reference para la deteccion de duplicados
+ *
+ * Un "quizas existe" se confirma con PaymentJpaRepository.existsByPaymentReference. Un "no existe"
+ * solo es definitivo para las referencias que ha visto este nodo: las insertadas por otros nodos
+ * entran al filtro en la siguiente reconstruccion. Por eso el fallo del filtro solo evita la consulta
+ * con payment.reference-filter.authoritative (una sola instancia); si no, se consulta igualmente y
+ * los fallos que la base de datos desmiente se cuentan como stale_miss.
+ * Mientras el filtro no se ha calentado todas las consultas van a la base de datos.
+ *
+ * La tabla payment_references (unicidad global) sigue siendo la garantia final.
+ */
+@Component
+public class PaymentReferenceFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentReferenceFilter.class);
+
+    private final PaymentJpaRepository paymentJpaRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final boolean authoritative;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final Counter definiteMissCounter;
+    private final Counter probableHitCounter;
+    private final Counter falsePositiveCounter;
+    private final Counter staleMissCounter;
+
+    public PaymentReferenceFilter(
+        PaymentJpaRepository paymentJpaRepository,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        @Value("${payment.reference-filter.expected-insertions:1000000}") long expectedInsertions,
+        @Value("${payment.reference-filter.false-positive-rate:0.001}") double falsePositiveRate,
+        @Value("${payment.reference-filter.authoritative:false}") boolean authoritative
+    ) {
+        this.paymentJpaRepository = paymentJpaRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.authoritative = authoritative;
+
+        this.definiteMissCounter = checks(meterRegistry, "definite_miss");
+        this.probableHitCounter = checks(meterRegistry, "probable_hit");
+        this.falsePositiveCounter = checks(meterRegistry, "false_positive");
+        this.staleMissCounter = checks(meterRegistry, "stale_miss");
+        Gauge.builder("payments.reference_filter.expected_fpp", this, PaymentReferenceFilter::expectedFalsePositiveRate)
+            .description("Tasa de falsos positivos esperada segun el llenado del filtro")
+            .register(meterRegistry);
+        Gauge.builder("payments.reference_filter.observed_fpp", this, PaymentReferenceFilter::observedFalsePositiveRate)
+            .description("Falsos positivos / referencias que no existian")
+            .register(meterRegistry);
+        Gauge.builder("payments.reference_filter.insertions", this, PaymentReferenceFilter::approximateInsertions)
+            .register(meterRegistry);
+    }
+
+    /**
+     * false solo cuando la referencia definitivamente no existe
+     */
+    public boolean mightExist(String paymentReference) {
+        BloomFilter filter = current;
+        if (filter == null) {
+            return true;
+        }
+        if (filter.mightContain(paymentReference)) {
+            probableHitCounter.increment();
+            return true;
+        }
+        definiteMisses.increment();
+        definiteMissCounter.increment();
+        return false;
+    }
+
+    public void recordInserted(String paymentReference) {
+        // primero el filtro en construccion y luego el vigente: ver rebuild()
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(paymentReference);
+        }
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(paymentReference);
+            if (filter.isSaturated() && !rebuilding.get()) {
+                Thread.ofVirtual().name("payment-reference-filter-rebuild").start(this::rebuild);
+            }
+        }
+    }
+
+    /**
+     * true si un fallo de mightExist basta para no consultar la base de datos
+     */
+    public boolean isAuthoritative() {
+        return authoritative;
+    }
+
+    public void recordFalsePositive() {
+        falsePositives.increment();
+        falsePositiveCounter.increment();
+    }
+
+    /**
+     * El filtro dijo "no existe" y la base de datos la tiene: la inserto otro nodo
+     */
+    public void recordStaleMiss(String paymentReference) {
+        staleMissCounter.increment();
+        recordInserted(paymentReference);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread.ofVirtual().name("payment-reference-filter-warmup").start(this::rebuild);
+    }
+
+    @Scheduled(
+        fixedDelayString = "${payment.reference-filter.rebuild-interval:PT6H}",
+        initialDelayString = "${payment.reference-filter.rebuild-interval:PT6H}"
+    )
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Reconstruye el filtro recorriendo la columna payment_reference con un cursor
+     * y lo publica de forma atomica. El tamaño crece con el volumen real (variante escalable).
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            BloomFilter previous = current;
+            long capacity = previous == null
+                ? expectedInsertions
+                : Math.max(expectedInsertions, previous.approximateInsertions() * 2);
+            BloomFilter next = BloomFilter.create(capacity, falsePositiveRate);
+            // las inserciones concurrentes se registran en ambos filtros mientras se recorre la tabla
+            building = next;
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> references = paymentJpaRepository.streamAllPaymentReferences()) {
+                    references.forEach(next::put);
+                }
+            });
+            current = next;
+            definiteMisses.reset();
+            falsePositives.reset();
+            log.info(
+                "Payment reference filter rebuilt with {} references ({} bits, {} hashes) in {} ms",
+                next.approximateInsertions(),
+                next.bitSize(),
+                next.hashFunctions(),
+                (System.nanoTime() - start) / 1_000_000
+            );
+        } catch (RuntimeException e) {
+            log.error("Payment reference filter rebuild failed, keeping previous filter", e);
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    double expectedFalsePositiveRate() {
+        BloomFilter filter = current;
+        return filter == null ? 0 : filter.expectedFalsePositiveRate();
+    }
+
+    double observedFalsePositiveRate() {
+        long fp = falsePositives.sum();
+        long negatives = fp + definiteMisses.sum();
+        return negatives == 0 ? 0 : (double) fp / negatives;
+    }
+
+    double approximateInsertions() {
+        BloomFilter filter = current;
+        return filter == null ? 0 : filter.approximateInsertions();
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("payments.reference_filter.checks").tag("result", result).register(meterRegistry);
+    }
+}
@@ -0,0 +1,372 @@
+package com.paymentgateway.infrastructure.persistence.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentCursor;
+import com.paymentgateway.domain.model.PaymentPage;
+import com.paymentgateway.domain.model.PaymentPeriod;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.model.PaymentTransition;
+import com.paymentgateway.domain.repository.PaymentRepository;
+import com.paymentgateway.infrastructure.persistence.PaymentRepositoryImpl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Decorador read-through de dos niveles sobre el repositorio de pagos
+ *
+ * L1: cache en proceso acotada por tamaño y TTL
+ * L2: Redis compartido entre nodos ({@link RedisPaymentCache})
+ *
+ * Solo se cachean las busquedas puntuales (id, referencia, id de transaccion).
+ * Las entradas se comparan por @Version: una version antigua nunca reemplaza a una nueva,
+ * y cada escritura confirmada publica una invalidacion para las L1 de los demas nodos.
+ * Las transiciones atomicas no materializan el pago: dejan en ambos niveles un suelo con la version
+ * de la fila actualizada, asi una lectura hecha antes de la transicion no puede volver a cachearse.
+ */
+@Repository
+@Primary
+public class CachingPaymentRepository implements PaymentRepository {
+
+    private final PaymentRepositoryImpl delegate;
+    private final RedisPaymentCache redisCache;
+    private final Cache<UUID, PaymentSnapshot> paymentsById;
+    private final Cache<String, UUID> idsByReference;
+    private final Cache<String, UUID> idsByGatewayTransactionId;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public CachingPaymentRepository(
+        PaymentRepositoryImpl delegate,
+        RedisPaymentCache redisCache,
+        MeterRegistry meterRegistry,
+        @Value("${payment.cache.local.maximum-size:10000}") long maximumSize,
+        @Value("${payment.cache.local.ttl:30s}") Duration ttl
+    ) {
+        this.delegate = delegate;
+        this.redisCache = redisCache;
+        this.paymentsById = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.idsByReference = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build();
+        this.idsByGatewayTransactionId = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, paymentsById, "payments");
+        this.redisHits = Counter.builder("payments.cache.redis").tag("result", "hit").register(meterRegistry);
+        this.redisMisses = Counter.builder("payments.cache.redis").tag("result", "miss").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribeToInvalidations() {
+        redisCache.subscribeInvalidations(this::evictLocalOlderThan);
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        Payment saved = delegate.save(payment);
+        PaymentSnapshot snapshot = PaymentSnapshot.from(saved);
+        afterCommit(() -> {
+            putLocal(snapshot);
+            redisCache.putIfNewer(snapshot);
+            redisCache.publishInvalidation(snapshot.id(), snapshot.versionOrZero());
+        });
+        return saved;
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID paymentId) {
+        return findSnapshot(paymentId, () -> delegate.findById(paymentId)).map(PaymentSnapshot::toPayment);
+    }
+
+    @Override
+    public Optional<Payment> findByPaymentReference(String paymentReference) {
+        UUID id = idsByReference.getIfPresent(paymentReference);
+        if (id == null) {
+            id = redisCache.getIdByReference(paymentReference).orElse(null);
+        }
+        if (id != null) {
+            Optional<PaymentSnapshot> cached = findCachedSnapshot(id);
+            if (cached.isPresent() && paymentReference.equals(cached.get().paymentReference())) {
+                return cached.map(PaymentSnapshot::toPayment);
+            }
+        }
+        return load(() -> delegate.findByPaymentReference(paymentReference)).map(PaymentSnapshot::toPayment);
+    }
+
+    @Override
+    public Optional<Payment> findByGatewayTransactionId(String gatewayTransactionId) {
+        UUID id = idsByGatewayTransactionId.getIfPresent(gatewayTransactionId);
+        if (id == null) {
+            id = redisCache.getIdByGatewayTransactionId(gatewayTransactionId).orElse(null);
+        }
+        if (id != null) {
+            Optional<PaymentSnapshot> cached = findCachedSnapshot(id);
+            if (cached.isPresent() && gatewayTransactionId.equals(cached.get().gatewayTransactionId())) {
+                return cached.map(PaymentSnapshot::toPayment);
+            }
+        }
+        return load(() -> delegate.findByGatewayTransactionId(gatewayTransactionId)).map(PaymentSnapshot::toPayment);
+    }
+
+    @Override
+    public void delete(Payment payment) {
+        delegate.delete(payment);
+        PaymentSnapshot snapshot = PaymentSnapshot.from(payment);
+        afterCommit(() -> {
+            // un pago borrado no tiene version valida: el suelo maximo rechaza cualquier copia
+            evictLocal(snapshot);
+            putLocal(PaymentSnapshot.tombstone(snapshot.id(), Long.MAX_VALUE));
+            redisCache.evict(snapshot);
+            redisCache.putVersionFloor(snapshot.id(), Long.MAX_VALUE);
+            redisCache.publishInvalidation(snapshot.id(), Long.MAX_VALUE);
+        });
+    }
+
+    @Override
+    public boolean markAsProcessing(UUID paymentId) {
+        return floorOnTransition(
+            paymentId, delegate.transition(paymentId, PaymentTransition.START_PROCESSING, null));
+    }
+
+    @Override
+    public boolean markAsCompleted(UUID paymentId, String gatewayTransactionId) {
+        return floorOnTransition(
+            paymentId, delegate.transition(paymentId, PaymentTransition.COMPLETE, gatewayTransactionId));
+    }
+
+    @Override
+    public boolean markAsFailed(UUID paymentId, String failureReason) {
+        return floorOnTransition(
+            paymentId, delegate.transition(paymentId, PaymentTransition.FAIL, failureReason));
+    }
+
+    @Override
+    public boolean cancel(UUID paymentId) {
+        return floorOnTransition(
+            paymentId, delegate.transition(paymentId, PaymentTransition.CANCEL, null));
+    }
+
+    @Override
+    public List<UUID> transitionAll(Collection<UUID> paymentIds, PaymentTransition transition, String failureReason) {
+        Map<UUID, Long> changed = delegate.transitionAllVersions(paymentIds, transition, failureReason);
+        changed.forEach((paymentId, version) -> afterCommit(() -> putVersionFloor(paymentId, version)));
+        return new ArrayList<>(changed.keySet());
+    }
+
+    @Override
+    public List<Payment> findByCustomerId(String customerId) {
+        return delegate.findByCustomerId(customerId);
+    }
+
+    @Override
+    public List<Payment> findByGatewayTransactionIds(Collection<String> gatewayTransactionIds) {
+        return delegate.findByGatewayTransactionIds(gatewayTransactionIds);
+    }
+
+    @Override
+    public List<Payment> findByStatus(PaymentStatus status) {
+        return delegate.findByStatus(status);
+    }
+
+    @Override
+    public List<Payment> findByMerchanId(String merchantId) {
+        return delegate.findByMerchanId(merchantId);
+    }
+
+    @Override
+    public List<Payment> findByGatewayProvider(String gatewayProvider) {
+        return delegate.findByGatewayProvider(gatewayProvider);
+    }
+
+    @Override
+    public boolean existsByPaymentReference(String paymentReference) {
+        return delegate.existsByPaymentReference(paymentReference);
+    }
+
+    @Override
+    public long countByStatus(PaymentStatus status) {
+        return delegate.countByStatus(status);
+    }
+
+    @Override
+    public PaymentPage findByMerchantId(String merchantId, PaymentCursor after, int limit) {
+        return delegate.findByMerchantId(merchantId, after, limit);
+    }
+
+    @Override
+    public PaymentPage findByCustomerId(String customerId, PaymentCursor after, int limit) {
+        return delegate.findByCustomerId(customerId, after, limit);
+    }
+
+    @Override
+    public PaymentPage findByStatus(PaymentStatus status, PaymentCursor after, int limit) {
+        return delegate.findByStatus(status, after, limit);
+    }
+
+    @Override
+    public PaymentPage findByGatewayProvider(String gatewayProvider, PaymentCursor after, int limit) {
+        return delegate.findByGatewayProvider(gatewayProvider, after, limit);
+    }
+
+    @Override
+    public List<Payment> findByMerchantId(String merchantId, PaymentPeriod period) {
+        return delegate.findByMerchantId(merchantId, period);
+    }
+
+    @Override
+    public List<Payment> findByCustomerId(String customerId, PaymentPeriod period) {
+        return delegate.findByCustomerId(customerId, period);
+    }
+
+    @Override
+    public List<Payment> findByStatus(PaymentStatus status, PaymentPeriod period) {
+        return delegate.findByStatus(status, period);
+    }
+
+    @Override
+    public List<Payment> findByGatewayProvider(String gatewayProvider, PaymentPeriod period) {
+        return delegate.findByGatewayProvider(gatewayProvider, period);
+    }
+
+    @Override
+    public void forEachByMerchantId(String merchantId, Consumer<Payment> consumer) {
+        delegate.forEachByMerchantId(merchantId, consumer);
+    }
+
+    @Override
+    public void forEachByCustomerId(String customerId, Consumer<Payment> consumer) {
+        delegate.forEachByCustomerId(customerId, consumer);
+    }
+
+    @Override
+    public void forEachByStatus(PaymentStatus status, Consumer<Payment> consumer) {
+        delegate.forEachByStatus(status, consumer);
+    }
+
+    @Override
+    public void forEachByGatewayProvider(String gatewayProvider, Consumer<Payment> consumer) {
+        delegate.forEachByGatewayProvider(gatewayProvider, consumer);
+    }
+
+    // la transicion no materializa el pago: las copias anteriores se descartan y se relee bajo demanda
+    private boolean floorOnTransition(UUID paymentId, OptionalLong version) {
+        version.ifPresent(applied -> afterCommit(() -> putVersionFloor(paymentId, applied)));
+        return version.isPresent();
+    }
+
+    private void putVersionFloor(UUID paymentId, long version) {
+        evictLocalOlderThan(paymentId, version);
+        redisCache.putVersionFloor(paymentId, version);
+        redisCache.publishInvalidation(paymentId, version);
+    }
+
+    private Optional<PaymentSnapshot> findSnapshot(UUID paymentId, Supplier<Optional<Payment>> loader) {
+        Optional<PaymentSnapshot> cached = findCachedSnapshot(paymentId);
+        return cached.isPresent() ? cached : load(loader);
+    }
+
+    private Optional<PaymentSnapshot> findCachedSnapshot(UUID paymentId) {
+        PaymentSnapshot local = paymentsById.getIfPresent(paymentId);
+        if (local != null && !local.isTombstone()) {
+            return Optional.of(local);
+        }
+        // con una marca en L1 solo vale una copia de Redis igual o posterior a ella
+        Optional<PaymentSnapshot> remote = redisCache.get(paymentId)
+            .filter(snapshot -> snapshot.isNewerOrSameAs(local));
+        if (remote.isPresent()) {
+            redisHits.increment();
+            putLocal(remote.get());
+        } else if (redisCache.isAvailable()) {
+            redisMisses.increment();
+        }
+        return remote;
+    }
+
+    // las lecturas de base de datos pueblan ambos niveles, siempre con comparacion de version; dentro de
+    // una transaccion de escritura la fila puede llevar cambios propios sin confirmar y se espera al commit
+    private Optional<PaymentSnapshot> load(Supplier<Optional<Payment>> loader) {
+        Optional<PaymentSnapshot> loaded = loader.get().map(PaymentSnapshot::from);
+        loaded.ifPresent(snapshot -> {
+            Runnable populate = () -> {
+                putLocal(snapshot);
+                redisCache.putIfNewer(snapshot);
+            };
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                afterCommit(populate);
+            } else {
+                populate.run();
+            }
+        });
+        return loaded;
+    }
+
+    private void putLocal(PaymentSnapshot snapshot) {
+        paymentsById.asMap().merge(snapshot.id(), snapshot, CachingPaymentRepository::newest);
+        if (snapshot.isTombstone()) {
+            return;
+        }
+        idsByReference.put(snapshot.paymentReference(), snapshot.id());
+        if (snapshot.gatewayTransactionId() != null) {
+            idsByGatewayTransactionId.put(snapshot.gatewayTransactionId(), snapshot.id());
+        }
+    }
+
+    // una copia igual o mas reciente reemplaza a la actual; una marca solo a las anteriores a ella
+    private static PaymentSnapshot newest(PaymentSnapshot current, PaymentSnapshot candidate) {
+        if (candidate.isTombstone()) {
+            return current.versionOrZero() < candidate.versionOrZero() ? candidate : current;
+        }
+        return candidate.isNewerOrSameAs(current) ? candidate : current;
+    }
+
+    private void evictLocal(PaymentSnapshot snapshot) {
+        paymentsById.invalidate(snapshot.id());
+        idsByReference.invalidate(snapshot.paymentReference());
+        if (snapshot.gatewayTransactionId() != null) {
+            idsByGatewayTransactionId.invalidate(snapshot.gatewayTransactionId());
+        }
+    }
+
+    // la marca queda aunque no haya copia: una lectura en curso en este nodo puede ser anterior
+    private void evictLocalOlderThan(UUID paymentId, long version) {
+        putLocal(PaymentSnapshot.tombstone(paymentId, version));
+    }
+
+    // la cache solo refleja datos confirmados; sin transaccion activa la escritura ya esta confirmada
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
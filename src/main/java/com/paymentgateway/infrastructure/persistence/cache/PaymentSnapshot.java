@@ -0,0 +1,99 @@
+package com.paymentgateway.infrastructure.persistence.cache;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentStatus;
+
+/**
+ * Copia inmutable de un pago tal como se guarda en cache
+ * Payment es mutable, por eso cada lectura de cache construye una instancia nueva
+ */
+public record PaymentSnapshot(
+    UUID id,
+    String paymentReference,
+    BigDecimal amount,
+    String currency,
+    PaymentStatus status,
+    PaymentMethod paymentMethod,
+    String gatewayProvider,
+    String gatewayTransactionId,
+    String customerId,
+    String merchantId,
+    String description,
+    String failureReason,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt,
+    LocalDateTime completedAt,
+    Long version
+) {
+    public static PaymentSnapshot from(Payment payment) {
+        return new PaymentSnapshot(
+            payment.getId(),
+            payment.getPaymentReference(),
+            payment.getAmount(),
+            payment.getCurrency(),
+            payment.getStatus(),
+            payment.getPaymentMethod(),
+            payment.getGatewayProvider(),
+            payment.getGatewayTransactionId(),
+            payment.getCustomerId(),
+            payment.getMerchantId(),
+            payment.getDescription(),
+            payment.getFailureReason(),
+            payment.getCreatedAt(),
+            payment.getUpdatedAt(),
+            payment.getCompletedAt(),
+            payment.getVersion()
+        );
+    }
+
+    public Payment toPayment() {
+        return Payment.builder()
+            .id(id)
+            .paymentReference(paymentReference)
+            .amount(amount)
+            .currency(currency)
+            .status(status)
+            .paymentMethod(paymentMethod)
+            .gatewayProvider(gatewayProvider)
+            .gatewayTransactionId(gatewayTransactionId)
+            .customerId(customerId)
+            .merchantId(merchantId)
+            .description(description)
+            .failureReason(failureReason)
+            .createdAt(createdAt)
+            .updatedAt(updatedAt)
+            .completedAt(completedAt)
+            .version(version)
+            .build();
+    }
+
+    /**
+     * Marca en L1 de que toda copia anterior a version es obsoleta; no es un pago y cuenta como fallo
+     * de cache. Un pago siempre tiene referencia, una marca no
+     */
+    static PaymentSnapshot tombstone(UUID id, long version) {
+        return new PaymentSnapshot(id, null, null, null, null, null, null, null, null, null, null, null, null,
+            null, null, version);
+    }
+
+    // sin public: no es una propiedad del JSON que se guarda en Redis
+    boolean isTombstone() {
+        return paymentReference == null;
+    }
+
+    /**
+     * Un snapshot solo reemplaza a otro si su version es igual o mas reciente
+     */
+    public boolean isNewerOrSameAs(PaymentSnapshot other) {
+        return other == null || versionOrZero() >= other.versionOrZero();
+    }
+
+    long versionOrZero() {
+        return version == null ? 0L : version;
+    }
+}
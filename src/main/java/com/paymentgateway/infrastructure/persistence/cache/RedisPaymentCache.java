@@ -0,0 +1,231 @@
+package com.paymentgateway.infrastructure.persistence.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Nivel L2 compartido de la cache de pagos sobre Redis
+ *
+ * Cada pago se guarda en un hash {v: version, d: json}; la escritura es un script atomico
+ * que rechaza versiones mas antiguas, asi una lectura lenta nunca pisa una escritura posterior.
+ * Las transiciones y borrados que no materializan el pago dejan solo {v: version} como suelo:
+ * cuenta como fallo de cache y rechaza cualquier copia anterior.
+ * Si Redis no esta configurado o falla, todas las operaciones se degradan a "miss" y se
+ * deja de consultar Redis durante un periodo de enfriamiento.
+ */
+@Component
+public class RedisPaymentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisPaymentCache.class);
+
+    static final String INVALIDATION_CHANNEL = "payments:cache:invalidate";
+    private static final String PAYMENT_KEY = "payments:id:";
+    private static final String REFERENCE_KEY = "payments:ref:";
+    private static final String TRANSACTION_KEY = "payments:txn:";
+    private static final long FAILURE_COOLDOWN_MS = 30_000;
+
+    private static final RedisScript<Long> PUT_IF_NEWER = new DefaultRedisScript<>("""
+        local current = redis.call('HGET', KEYS[1], 'v')
+        if current and tonumber(current) > tonumber(ARGV[1]) then
+            return 0
+        end
+        redis.call('HSET', KEYS[1], 'v', ARGV[1], 'd', ARGV[2])
+        redis.call('PEXPIRE', KEYS[1], ARGV[3])
+        return 1
+        """, Long.class);
+
+    // borra la copia si es anterior al suelo y deja solo la version
+    private static final RedisScript<Long> PUT_VERSION_FLOOR = new DefaultRedisScript<>("""
+        local current = redis.call('HGET', KEYS[1], 'v')
+        if current and tonumber(current) >= tonumber(ARGV[1]) then
+            return 0
+        end
+        redis.call('HDEL', KEYS[1], 'd')
+        redis.call('HSET', KEYS[1], 'v', ARGV[1])
+        redis.call('PEXPIRE', KEYS[1], ARGV[2])
+        return 1
+        """, Long.class);
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private volatile long unavailableUntil;
+    private RedisMessageListenerContainer listenerContainer;
+
+    public RedisPaymentCache(
+        ObjectProvider<StringRedisTemplate> redisTemplate,
+        ObjectMapper objectMapper,
+        @Value("${payment.cache.redis.enabled:true}") boolean enabled,
+        @Value("${payment.cache.redis.ttl:5m}") Duration ttl
+    ) {
+        this.redis = enabled ? redisTemplate.getIfAvailable() : null;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+    }
+
+    public boolean isAvailable() {
+        return redis != null && System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    public Optional<PaymentSnapshot> get(UUID paymentId) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+        try {
+            Object json = redis.opsForHash().get(PAYMENT_KEY + paymentId, "d");
+            return json == null
+                ? Optional.empty()
+                : Optional.of(objectMapper.readValue(json.toString(), PaymentSnapshot.class));
+        } catch (Exception e) {
+            markUnavailable(e);
+            return Optional.empty();
+        }
+    }
+
+    public Optional<UUID> getIdByReference(String paymentReference) {
+        return getId(REFERENCE_KEY + paymentReference);
+    }
+
+    public Optional<UUID> getIdByGatewayTransactionId(String gatewayTransactionId) {
+        return getId(TRANSACTION_KEY + gatewayTransactionId);
+    }
+
+    public void putIfNewer(PaymentSnapshot snapshot) {
+        if (!isAvailable()) {
+            return;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(snapshot);
+            redis.execute(
+                PUT_IF_NEWER,
+                List.of(PAYMENT_KEY + snapshot.id()),
+                String.valueOf(snapshot.versionOrZero()),
+                json,
+                String.valueOf(ttl.toMillis())
+            );
+            redis.opsForValue().set(REFERENCE_KEY + snapshot.paymentReference(), snapshot.id().toString(), ttl);
+            if (snapshot.gatewayTransactionId() != null) {
+                redis.opsForValue().set(TRANSACTION_KEY + snapshot.gatewayTransactionId(), snapshot.id().toString(), ttl);
+            }
+        } catch (Exception e) {
+            markUnavailable(e);
+        }
+    }
+
+    public void evict(PaymentSnapshot snapshot) {
+        if (!isAvailable()) {
+            return;
+        }
+        try {
+            redis.delete(PAYMENT_KEY + snapshot.id());
+            redis.delete(REFERENCE_KEY + snapshot.paymentReference());
+            if (snapshot.gatewayTransactionId() != null) {
+                redis.delete(TRANSACTION_KEY + snapshot.gatewayTransactionId());
+            }
+        } catch (Exception e) {
+            markUnavailable(e);
+        }
+    }
+
+    /**
+     * Descarta la copia del pago si es anterior a version y rechaza las que lleguen despues con una
+     * version menor; referencia e id de transaccion siguen apuntando al mismo id
+     */
+    public void putVersionFloor(UUID paymentId, long version) {
+        if (!isAvailable()) {
+            return;
+        }
+        try {
+            redis.execute(
+                PUT_VERSION_FLOOR,
+                List.of(PAYMENT_KEY + paymentId),
+                String.valueOf(version),
+                String.valueOf(ttl.toMillis())
+            );
+        } catch (Exception e) {
+            markUnavailable(e);
+        }
+    }
+
+    /**
+     * Avisa al resto de nodos que cualquier copia L1 anterior a esta version es obsoleta
+     */
+    public void publishInvalidation(UUID paymentId, long version) {
+        if (!isAvailable()) {
+            return;
+        }
+        try {
+            redis.convertAndSend(INVALIDATION_CHANNEL, paymentId + ":" + version);
+        } catch (Exception e) {
+            markUnavailable(e);
+        }
+    }
+
+    public void subscribeInvalidations(BiConsumer<UUID, Long> listener) {
+        if (redis == null || redis.getConnectionFactory() == null) {
+            return;
+        }
+        try {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(redis.getConnectionFactory());
+            container.addMessageListener((message, pattern) -> {
+                String body = new String(message.getBody());
+                int separator = body.lastIndexOf(':');
+                if (separator > 0) {
+                    listener.accept(
+                        UUID.fromString(body.substring(0, separator)),
+                        Long.parseLong(body.substring(separator + 1))
+                    );
+                }
+            }, new ChannelTopic(INVALIDATION_CHANNEL));
+            container.afterPropertiesSet();
+            container.start();
+            this.listenerContainer = container;
+        } catch (Exception e) {
+            log.warn("Could not subscribe to payment cache invalidations, L1 entries will expire by TTL", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    private Optional<UUID> getId(String key) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+        try {
+            String id = redis.opsForValue().get(key);
+            return id == null ? Optional.empty() : Optional.of(UUID.fromString(id));
+        } catch (Exception e) {
+            markUnavailable(e);
+            return Optional.empty();
+        }
+    }
+
+    private void markUnavailable(Exception e) {
+        unavailableUntil = System.currentTimeMillis() + FAILURE_COOLDOWN_MS;
+        log.warn("Redis payment cache unavailable, bypassing L2 for {} ms: {}", FAILURE_COOLDOWN_MS, e.getMessage());
+    }
+}
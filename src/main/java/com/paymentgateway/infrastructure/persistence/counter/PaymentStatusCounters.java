@@ -0,0 +1,127 @@
+package com.paymentgateway.infrastructure.persistence.counter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.infrastructure.persistence.PaymentJpaRepository;
+import com.paymentgateway.infrastructure.persistence.PaymentStatusCount;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Contadores en memoria de pagos por estado
+ *
+ * Cada estado tiene un LongAdder (indexado por ordinal) con las transiciones confirmadas
+ * desde la ultima reconciliacion, sumado a la base obtenida con un unico GROUP BY.
+ * Las lecturas son O(1) y no tocan la base de datos; la reconciliacion periodica corrige
+ * la deriva que puedan dejar transiciones concurrentes con la propia consulta o cambios
+ * hechos por otros nodos.
+ */
+@Component
+public class PaymentStatusCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentStatusCounters.class);
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+
+    private final PaymentJpaRepository paymentJpaRepository;
+
+    // base y deltas se publican juntos para que una lectura nunca mezcle generaciones
+    private volatile Generation generation;
+
+    public PaymentStatusCounters(PaymentJpaRepository paymentJpaRepository, MeterRegistry meterRegistry) {
+        this.paymentJpaRepository = paymentJpaRepository;
+        for (PaymentStatus status : STATUSES) {
+            Gauge.builder("payments.status.count", this, counters -> counters.isReady() ? counters.count(status) : 0)
+                .tag("status", status.name())
+                .register(meterRegistry);
+        }
+    }
+
+    public boolean isReady() {
+        return generation != null;
+    }
+
+    /**
+     * Numero de pagos en el estado dado; solo valido cuando isReady()
+     */
+    public long count(PaymentStatus status) {
+        Generation current = generation;
+        if (current == null) {
+            throw new IllegalStateException("Payment status counters are not initialized");
+        }
+        int index = status.ordinal();
+        return Math.max(0, current.base[index] + current.deltas[index].sum());
+    }
+
+    /**
+     * Registra una transicion confirmada; from == null es un alta y to == null una baja
+     */
+    public void recordTransition(PaymentStatus from, PaymentStatus to) {
+        if (from == to) {
+            return;
+        }
+        Generation current = generation;
+        if (current == null) {
+            return;
+        }
+        if (from != null) {
+            current.deltas[from.ordinal()].decrement();
+        }
+        if (to != null) {
+            current.deltas[to.ordinal()].increment();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reconcile();
+    }
+
+    @Scheduled(
+        fixedDelayString = "${payment.status-counters.reconcile-interval:PT1M}",
+        initialDelayString = "${payment.status-counters.reconcile-interval:PT1M}"
+    )
+    public void reconcile() {
+        try {
+            long[] base = new long[STATUSES.length];
+            for (PaymentStatusCount row : paymentJpaRepository.countGroupedByStatus()) {
+                base[row.getStatus().ordinal()] = row.getTotal();
+            }
+            Generation previous = generation;
+            Generation next = new Generation(base);
+            generation = next;
+            if (previous != null && log.isDebugEnabled()) {
+                for (PaymentStatus status : STATUSES) {
+                    long drift = previous.base[status.ordinal()] + previous.deltas[status.ordinal()].sum()
+                        - base[status.ordinal()];
+                    if (drift != 0) {
+                        log.debug("Payment status counter {} drifted by {} since last reconciliation", status, drift);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Payment status counters reconciliation failed, keeping previous values", e);
+        }
+    }
+
+    private static final class Generation {
+        private final long[] base;
+        private final LongAdder[] deltas;
+
+        private Generation(long[] base) {
+            this.base = base;
+            this.deltas = new LongAdder[base.length];
+            for (int i = 0; i < deltas.length; i++) {
+                deltas[i] = new LongAdder();
+            }
+        }
+    }
+}
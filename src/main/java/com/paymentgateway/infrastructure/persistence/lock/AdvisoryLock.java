@@ -0,0 +1,71 @@
+package com.paymentgateway.infrastructure.persistence.lock;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exclusion entre nodos para tareas programadas con un advisory lock de sesion de PostgreSQL
+ *
+ * El lock se toma con pg_try_advisory_lock sobre una conexion propia, fuera de cualquier transaccion
+ * de Spring, y se mantiene mientras dura la tarea: las escrituras de la tarea siguen yendo cada una en
+ * su transaccion. Si el nodo cae, la sesion se cierra y PostgreSQL libera el lock; no hay plazos que
+ * renovar. Fuera de PostgreSQL (H2 en local) no hay otros nodos y la tarea se ejecuta sin lock
+ */
+@Component
+public class AdvisoryLock {
+
+    private static final Logger log = LoggerFactory.getLogger(AdvisoryLock.class);
+
+    private final DataSource dataSource;
+
+    public AdvisoryLock(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Ejecuta la tarea si ningun otro nodo tiene el lock con ese nombre; devuelve si se ejecuto
+     */
+    public boolean runExclusively(String name, Runnable task) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!isPostgres(connection)) {
+                task.run();
+                return true;
+            }
+            if (!call(connection, "SELECT pg_try_advisory_lock(hashtext(?))", name)) {
+                return false;
+            }
+            try {
+                task.run();
+            } finally {
+                // la conexion vuelve al pool: el lock de sesion no debe quedarse en ella
+                if (!call(connection, "SELECT pg_advisory_unlock(hashtext(?))", name)) {
+                    log.warn("Advisory lock {} was not held when releasing it", name);
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not use advisory lock " + name, e);
+        }
+    }
+
+    private static boolean isPostgres(Connection connection) throws SQLException {
+        return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+    }
+
+    private static boolean call(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.paymentgateway.infrastructure.persistence.outbox;
+
+import java.util.Locale;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentgateway.domain.model.PaymentEvent;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Escritura en la outbox de eventos de pago
+ * Solo se puede usar dentro de la transaccion que produce el cambio: el evento se confirma
+ * o se descarta junto con el
+ */
+@Component
+public class PaymentOutbox {
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public PaymentOutbox(EntityManager entityManager, ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(PaymentEvent event) {
+        entityManager.persist(PaymentOutboxEntity.builder()
+            .eventId(event.eventId())
+            .aggregateId(event.paymentId())
+            .eventType(event.type().name())
+            .routingKey(routingKey(event))
+            .payload(serialize(event))
+            .createdAt(event.occurredAt())
+            .build());
+    }
+
+    // payment.<estado>, p. ej. payment.completed: los consumidores se suscriben por estado
+    static String routingKey(PaymentEvent event) {
+        return "payment." + event.status().name().toLowerCase(Locale.ROOT);
+    }
+
+    private String serialize(PaymentEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize payment event " + event.eventId(), e);
+        }
+    }
+}
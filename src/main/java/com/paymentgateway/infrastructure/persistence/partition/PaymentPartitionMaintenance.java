@@ -0,0 +1,164 @@
+package com.paymentgateway.infrastructure.persistence.partition;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mantenimiento de las particiones mensuales de payments (ver V4__Partition_payments_by_month)
+ *
+ * Crea por adelantado las particiones de los proximos meses para que ninguna fila caiga en
+ * payments_default, y desengancha (DETACH) las que superan la retencion. Las particiones
+ * desenganchadas quedan como tablas sueltas para archivarlas o borrarlas fuera de linea.
+ * Cada CREATE y cada DETACH se intenta por separado: un mes que falla se registra y no impide
+ * preparar los siguientes ni retirar los antiguos.
+ */
+@Component
+public class PaymentPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentPartitionMaintenance.class);
+
+    static final String PARENT_TABLE = "payments";
+    static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'uuuu'm'MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    @Autowired
+    public PaymentPartitionMaintenance(
+        JdbcTemplate jdbcTemplate,
+        @Value("${payment.partitions.enabled:false}") boolean enabled,
+        @Value("${payment.partitions.months-ahead:3}") int monthsAhead,
+        @Value("${payment.partitions.retention-months:24}") int retentionMonths
+    ) {
+        // created_at se guarda con LocalDateTime.now() en la zona por defecto: los meses se cuentan en la misma
+        this(jdbcTemplate, Clock.systemDefaultZone(), enabled, monthsAhead, retentionMonths);
+    }
+
+    PaymentPartitionMaintenance(JdbcTemplate jdbcTemplate, Clock clock, boolean enabled, int monthsAhead,
+                                int retentionMonths) {
+        if (monthsAhead < 1) {
+            throw new IllegalArgumentException("payment.partitions.months-ahead must be at least 1");
+        }
+        if (retentionMonths < 1) {
+            throw new IllegalArgumentException("payment.partitions.retention-months must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${payment.partitions.cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!isPartitioned()) {
+                log.warn("Table {} is not partitioned, skipping partition maintenance", PARENT_TABLE);
+                return;
+            }
+            YearMonth current = YearMonth.now(clock);
+            for (int i = 0; i <= monthsAhead; i++) {
+                YearMonth month = current.plusMonths(i);
+                try {
+                    createPartition(month);
+                } catch (RuntimeException e) {
+                    log.error("Could not create payments partition {}", partitionName(month), e);
+                }
+            }
+            detachOlderThan(current.minusMonths(retentionMonths));
+            warnIfDefaultPartitionInUse();
+        } catch (RuntimeException e) {
+            log.error("Payment partition maintenance failed", e);
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARENT_TABLE + "_" + PARTITION_SUFFIX.format(month);
+    }
+
+    void createPartition(YearMonth month) {
+        // IF NOT EXISTS hace la operacion idempotente entre nodos y ejecuciones
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+            + " PARTITION OF " + PARENT_TABLE
+            + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    void detachOlderThan(YearMonth oldestRetained) {
+        for (String partition : attachedPartitions()) {
+            YearMonth month = monthOf(partition);
+            if (month != null && month.isBefore(oldestRetained)) {
+                try {
+                    jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition);
+                    log.info("Detached payments partition {} (older than {})", partition, oldestRetained);
+                } catch (RuntimeException e) {
+                    log.error("Could not detach payments partition {}", partition, e);
+                }
+            }
+        }
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+            Boolean.class,
+            PARENT_TABLE
+        );
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private List<String> attachedPartitions() {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+                + " WHERE i.inhparent = to_regclass(?)",
+            String.class,
+            PARENT_TABLE
+        );
+    }
+
+    // una particion mensual no puede crearse si payments_default ya tiene filas de ese mes
+    private void warnIfDefaultPartitionInUse() {
+        Boolean used = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM " + PARENT_TABLE + "_default)", Boolean.class);
+        if (Boolean.TRUE.equals(used)) {
+            log.warn("Rows found in {}_default; move them before creating the matching monthly partitions",
+                PARENT_TABLE);
+        }
+    }
+
+    // null para particiones que no siguen la convencion mensual (p. ej. payments_default)
+    private static YearMonth monthOf(String partition) {
+        String prefix = PARENT_TABLE + "_";
+        if (!partition.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(prefix.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.paymentgateway.infrastructure.persistence.routing;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Vigila el retraso de replicacion de la replica de lectura
+ *
+ * La replica solo se considera utilizable si la ultima comprobacion tuvo exito y el
+ * retraso no supera max-lag. Un fallo al obtener conexion la marca como no disponible
+ * hasta la siguiente comprobacion correcta; mientras tanto las lecturas van al primario.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // retraso en segundos; 0 si la replica ya reprodujo todo lo recibido (primario sin escrituras)
+    public static final String POSTGRES_LAG_QUERY = """
+        SELECT CASE
+            WHEN NOT pg_is_in_recovery() THEN 0
+            WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+            ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+        END
+        """;
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    private volatile boolean usable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.replicaJdbcTemplate.setQueryTimeout(2);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        Gauge.builder("payments.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("payments.datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+            .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    public void markUnavailable(Exception cause) {
+        if (usable) {
+            log.warn("Read replica unavailable, routing reads to the primary until the next lag check", cause);
+        }
+        usable = false;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.datasource.replica.lag-check-interval:PT5S}")
+    public void check() {
+        try {
+            Double lag = replicaJdbcTemplate.queryForObject(lagQuery, Double.class);
+            lagSeconds = lag == null ? 0 : lag;
+            boolean withinBudget = lagSeconds <= maxLagSeconds;
+            if (withinBudget != usable) {
+                log.info("Read replica {} (lag {} s, max {} s)",
+                    withinBudget ? "enabled" : "disabled", lagSeconds, maxLagSeconds);
+            }
+            usable = withinBudget;
+        } catch (RuntimeException e) {
+            lagSeconds = Double.NaN;
+            markUnavailable(e);
+        }
+    }
+}
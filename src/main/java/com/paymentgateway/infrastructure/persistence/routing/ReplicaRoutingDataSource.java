@@ -0,0 +1,76 @@
+package com.paymentgateway.infrastructure.persistence.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * DataSource que envia las transacciones de solo lectura a la replica
+ *
+ * Escrituras, transacciones de lectura/escritura y accesos sin transaccion van siempre al
+ * primario. Las de solo lectura van a la replica mientras ReplicaLagMonitor la considere
+ * al dia; si esta retrasada o no entrega conexion se usa el primario.
+ *
+ * Debe envolverse en un LazyConnectionDataSourceProxy: el flag de solo lectura de la
+ * transaccion se publica despues de que el gestor de transacciones pide la conexion.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter fallbackRoutes;
+
+    public ReplicaRoutingDataSource(
+        DataSource primary,
+        DataSource replica,
+        ReplicaLagMonitor lagMonitor,
+        MeterRegistry meterRegistry
+    ) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        this.primaryRoutes = routes(meterRegistry, "primary");
+        this.replicaRoutes = routes(meterRegistry, "replica");
+        this.fallbackRoutes = routes(meterRegistry, "fallback");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return primary.getConnection();
+        }
+        if (lagMonitor.isReplicaUsable()) {
+            try {
+                Connection connection = replica.getConnection();
+                replicaRoutes.increment();
+                return connection;
+            } catch (SQLException e) {
+                lagMonitor.markUnavailable(e);
+            }
+        }
+        fallbackRoutes.increment();
+        return primary.getConnection();
+    }
+
+    // credenciales explicitas: no aplican a la replica
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        primaryRoutes.increment();
+        return primary.getConnection(username, password);
+    }
+
+    private static Counter routes(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("payments.datasource.routes").tag("target", target).register(meterRegistry);
+    }
+}
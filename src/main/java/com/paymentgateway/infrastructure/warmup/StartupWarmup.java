@@ -0,0 +1,317 @@
+package com.paymentgateway.infrastructure.warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.application.port.in.ValidateCreditCardUseCase;
+import com.paymentgateway.domain.model.CreditCardDetails;
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequestDTO;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayFactory;
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayStrategy;
+import com.paymentgateway.infrastructure.persistence.PaymentMapper;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.validation.Validator;
+
+/**
+ * Warm-up de arranque (payment.warmup.*): se ejecuta antes de que readiness pase a ACCEPTING_TRAFFIC
+ *
+ * Spring Boot publica la readiness despues de los ApplicationRunner, asi que mientras dura el
+ * warm-up el pod no recibe trafico. Por etapas: llena los pools de Hikari hasta minimum-idle,
+ * construye los serializadores de Jackson, la validacion y el mapeo con datos sinteticos durante
+ * `iterations` vueltas (para que el JIT compile esos caminos) y abre las conexiones de las
+ * pasarelas. Una etapa que falla se registra y no detiene el arranque; las que no caben en
+ * max-duration se saltan. El estado y los tiempos por etapa se ven en el health "warmup"
+ * (grupo readiness) y en payments.warmup.stage.
+ */
+@Component("warmup")
+public class StartupWarmup implements ApplicationRunner, HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private static final String[] CARD_NUMBERS = {
+        "4242424242424242", "5555555555554444", "378282246310005", "6011111111111117", "4242424242424241"
+    };
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ValidateCreditCardUseCase validateCreditCardUseCase;
+    private final PaymentMapper paymentMapper;
+    private final PaymentGatewayFactory gatewayFactory;
+    private final List<PaymentGatewayPort> gateways;
+    private final List<HikariDataSource> dataSources;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int iterations;
+    private final Duration maxDuration;
+    private final boolean gatewayConnections;
+
+    private volatile String currentStage;
+    private volatile boolean finished;
+    private volatile long durationMillis;
+    private final Map<String, String> stageResults = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    // evita que el JIT descarte como codigo muerto el trabajo de las vueltas
+    private long sink;
+
+    @Autowired
+    public StartupWarmup(
+        ObjectMapper objectMapper,
+        Validator validator,
+        ValidateCreditCardUseCase validateCreditCardUseCase,
+        PaymentMapper paymentMapper,
+        PaymentGatewayFactory gatewayFactory,
+        List<PaymentGatewayPort> gateways,
+        ObjectProvider<HikariDataSource> dataSources,
+        MeterRegistry meterRegistry,
+        @Value("${payment.warmup.enabled:true}") boolean enabled,
+        @Value("${payment.warmup.iterations:5000}") int iterations,
+        @Value("${payment.warmup.max-duration:30s}") Duration maxDuration,
+        @Value("${payment.warmup.gateway-connections:true}") boolean gatewayConnections
+    ) {
+        this(objectMapper, validator, validateCreditCardUseCase, paymentMapper, gatewayFactory, gateways,
+            dataSources.orderedStream().toList(), meterRegistry, enabled, iterations, maxDuration, gatewayConnections);
+    }
+
+    StartupWarmup(ObjectMapper objectMapper, Validator validator, ValidateCreditCardUseCase validateCreditCardUseCase,
+                  PaymentMapper paymentMapper, PaymentGatewayFactory gatewayFactory, List<PaymentGatewayPort> gateways,
+                  List<HikariDataSource> dataSources, MeterRegistry meterRegistry, boolean enabled, int iterations,
+                  Duration maxDuration, boolean gatewayConnections) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.validateCreditCardUseCase = validateCreditCardUseCase;
+        this.paymentMapper = paymentMapper;
+        this.gatewayFactory = gatewayFactory;
+        this.gateways = gateways;
+        this.dataSources = dataSources;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.maxDuration = maxDuration;
+        this.gatewayConnections = gatewayConnections;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        run();
+    }
+
+    void run() {
+        if (!enabled) {
+            finished = true;
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        try {
+            stage("database", deadline, this::fillConnectionPools);
+            stage("serialization", deadline, () -> repeat(deadline, this::serialize));
+            stage("validation", deadline, () -> repeat(deadline, this::validate));
+            stage("mapping", deadline, () -> repeat(deadline, this::map));
+            stage("gateways", deadline, this::warmGateways);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            durationMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            Timer.builder("payments.warmup.duration").register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+            currentStage = null;
+            finished = true;
+            log.info("Startup warm-up completed in {} ms: {}", durationMillis, stageResults);
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (!finished) {
+            return Health.outOfService().withDetail("stage", currentStage == null ? "pending" : currentStage).build();
+        }
+        if (!enabled) {
+            return Health.up().withDetail("enabled", false).build();
+        }
+        synchronized (stageResults) {
+            return Health.up()
+                .withDetail("durationMs", durationMillis)
+                .withDetail("stages", new LinkedHashMap<>(stageResults))
+                .build();
+        }
+    }
+
+    private void stage(String name, long deadline, WarmupStage stage) {
+        if (System.nanoTime() >= deadline) {
+            stageResults.put(name, "skipped");
+            return;
+        }
+        currentStage = name;
+        long start = System.nanoTime();
+        String outcome = "ok";
+        try {
+            stage.run();
+        } catch (Exception e) {
+            outcome = "failed";
+            log.warn("Startup warm-up stage {} failed: {}", name, e.toString());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            stageResults.put(name, outcome.equals("ok")
+                ? TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms"
+                : outcome + " after " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms");
+            Timer.builder("payments.warmup.stage")
+                .tag("stage", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void repeat(long deadline, IterationStep step) throws Exception {
+        for (int i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+            step.run(i);
+        }
+    }
+
+    /**
+     * toma a la vez minimum-idle conexiones de cada pool para que Hikari las cree antes del trafico
+     */
+    private void fillConnectionPools() throws SQLException {
+        for (HikariDataSource dataSource : dataSources) {
+            List<Connection> connections = new ArrayList<>();
+            try {
+                for (int i = 0; i < Math.max(1, dataSource.getMinimumIdle()); i++) {
+                    Connection connection = dataSource.getConnection();
+                    connections.add(connection);
+                    connection.isValid((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(
+                        dataSource.getValidationTimeout())));
+                }
+            } finally {
+                for (Connection connection : connections) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private void serialize(int i) throws Exception {
+        Payment payment = samplePayment(i);
+        PaymentRequestDTO request = sampleRequest(i);
+        byte[] requestJson = objectMapper.writeValueAsBytes(request);
+        sink += objectMapper.readValue(requestJson, PaymentRequestDTO.class).amount().scale();
+        sink += objectMapper.writeValueAsBytes(payment).length;
+        sink += objectMapper.writeValueAsBytes(PaymentResponse.success(
+            payment.getGatewayTransactionId(), payment.getPaymentReference(), payment.getAmount(),
+            payment.getCurrency(), null)).length;
+    }
+
+    private void validate(int i) {
+        PaymentRequestDTO request = sampleRequest(i);
+        sink += validator.validate(request).size();
+        sink += validateCreditCardUseCase.validateCreditCard((CreditCardDetails) request.paymentDetails()).hashCode();
+    }
+
+    private void map(int i) {
+        Payment payment = paymentMapper.toDomain(paymentMapper.toEntity(samplePayment(i)));
+        sink += payment.getAmount().scale() + sampleRequest(i).toPaymentRequest().hashCode();
+    }
+
+    /**
+     * prepara cada pasarela (sin llamadas con efectos) y recorre el enrutado de cada medio de pago
+     */
+    private void warmGateways() throws Exception {
+        Exception failure = null;
+        if (gatewayConnections) {
+            for (PaymentGatewayPort gateway : gateways) {
+                if (gateway instanceof PaymentGatewayStrategy strategy) {
+                    try {
+                        strategy.warmUp();
+                    } catch (Exception e) {
+                        // una pasarela inaccesible no impide preparar las demas
+                        log.warn("Could not warm up gateway {}: {}", gateway.gatewayProvider(), e.toString());
+                        failure = e;
+                    }
+                }
+            }
+        }
+        for (PaymentMethod method : PaymentMethod.values()) {
+            if (gateways.stream().anyMatch(gateway -> gateway.supportsPaymentMethod(method))) {
+                for (int i = 0; i < Math.min(iterations, 1_000); i++) {
+                    sink += gatewayFactory.getBestGatewayForPaymentMethod(method).hashCode();
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static Payment samplePayment(int i) {
+        LocalDateTime now = LocalDateTime.now();
+        return Payment.builder()
+            .id(UUID.randomUUID())
+            .paymentReference("warmup-" + i)
+            .amount(BigDecimal.valueOf(1_000 + i, 2))
+            .currency(i % 2 == 0 ? "USD" : "EUR")
+            .status(PaymentStatus.values()[i % PaymentStatus.values().length])
+            .paymentMethod(PaymentMethod.CREDIT_CARD)
+            .gatewayProvider("STRIPE")
+            .gatewayTransactionId("pi_warmup_" + i)
+            .customerId("warmup-customer")
+            .merchantId("warmup-merchant")
+            .description("warm-up")
+            .createdAt(now)
+            .updatedAt(now)
+            .version(0L)
+            .build();
+    }
+
+    private static PaymentRequestDTO sampleRequest(int i) {
+        return new PaymentRequestDTO(
+            "warmup-" + i,
+            BigDecimal.valueOf(1_000 + i, 2),
+            i % 2 == 0 ? "USD" : "EUR",
+            PaymentMethod.CREDIT_CARD,
+            "warmup-customer",
+            "warmup-merchant",
+            "warm-up",
+            new CreditCardDetails(CARD_NUMBERS[i % CARD_NUMBERS.length], "12",
+                String.valueOf(Year.now().getValue() + 3), "123", "Warm Up")
+        );
+    }
+
+    @FunctionalInterface
+    private interface WarmupStage {
+        void run() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface IterationStep {
+        void run(int iteration) throws Exception;
+    }
+}
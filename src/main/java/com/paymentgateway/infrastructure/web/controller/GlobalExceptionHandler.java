@@ -15,6 +15,7 @@ import org.springframework.web.context.request.WebRequest;
 
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.ResilientPaymentGateway;
 import com.paymentgateway.shared.exception.PaymentException;
 
 /**
@@ -113,14 +114,25 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, Object>> handlePaymentException(
             PaymentException ex, WebRequest request) {
         
+        // pasarela con el breaker abierto, sin capacidad o por encima de su limite de velocidad:
+        // el cliente puede reintentar mas tarde
+        HttpStatus status;
+        if (ResilientPaymentGateway.UNAVAILABLE_CODE.equals(ex.getCode())) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+        } else if (ResilientPaymentGateway.THROTTLED_CODE.equals(ex.getCode())) {
+            status = HttpStatus.TOO_MANY_REQUESTS;
+        } else {
+            status = HttpStatus.BAD_REQUEST;
+        }
+
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("timestamp", LocalDateTime.now().toString());
-        errorResponse.put("status", 400);
-        errorResponse.put("error", "Bad Request");
+        errorResponse.put("status", status.value());
+        errorResponse.put("error", status.getReasonPhrase());
         errorResponse.put("message", ex.getMessage());
         errorResponse.put("path", request.getDescription(false).replace("uri=", ""));
         
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        return ResponseEntity.status(status).body(errorResponse);
     }
 
     /**
@@ -10,8 +10,11 @@ import org.springframework.web.bind.annotation.RestController;
 import com.paymentgateway.application.port.in.ProcessPaymentUseCase;
 import com.paymentgateway.domain.model.Payment;
 import com.paymentgateway.domain.model.PaymentRequestDTO;
+import com.paymentgateway.infrastructure.web.idempotency.IdempotencyFilter;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -34,6 +37,12 @@ public class PaymentController {
         summary = "Procesar un nuevo pago",
         description = "Procesa un pago usando la pasarela configurada y retorna el resultado del procesamiento"
     )
+    @Parameter(
+        name = IdempotencyFilter.IDEMPOTENCY_KEY_HEADER,
+        in = ParameterIn.HEADER,
+        required = false,
+        description = "Clave unica por intento de pago; los reintentos con la misma clave devuelven la respuesta original"
+    )
     @ApiResponses(
         value = {
             @ApiResponse(
@@ -0,0 +1,54 @@
+package com.paymentgateway.infrastructure.web.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.paymentgateway.infrastructure.adapter.gateway.stripe.webhook.StripeSignatureVerifier;
+import com.paymentgateway.infrastructure.adapter.gateway.stripe.webhook.StripeWebhookProcessor;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Webhooks de Stripe: se verifica la firma, se encola el evento y se responde sin esperar a aplicarlo
+ */
+@RestController
+@RequestMapping("/api/v1/webhooks")
+@RequiredArgsConstructor
+@Tag(name = "Webhooks", description = "Notificaciones de estado de las pasarelas")
+public class StripeWebhookController {
+
+    private final StripeSignatureVerifier signatureVerifier;
+    private final StripeWebhookProcessor webhookProcessor;
+
+    @PostMapping("/stripe")
+    @Operation(
+        summary = "Recibir un evento de Stripe",
+        description = "Verifica Stripe-Signature y encola el evento; el estado del pago se actualiza en segundo plano"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Evento aceptado"),
+        @ApiResponse(responseCode = "400", description = "Firma ausente, invalida o caducada"),
+        @ApiResponse(responseCode = "503", description = "Cola llena: Stripe reintenta el envio mas tarde")
+    })
+    public ResponseEntity<Void> receive(
+        @RequestBody byte[] payload,
+        @RequestHeader(value = "Stripe-Signature", required = false) String signature
+    ) {
+        if (!signatureVerifier.verify(payload, signature)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!webhookProcessor.enqueue(payload)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,288 @@
+package com.paymentgateway.infrastructure.web.idempotency;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Idempotencia de POST /api/v1/payments mediante la cabecera Idempotency-Key
+ *
+ * La primera peticion con una clave reserva la clave, se ejecuta y guarda los bytes de su
+ * respuesta; los reintentos reciben esos mismos bytes sin volver a llamar a la pasarela y los
+ * duplicados concurrentes esperan al resultado de la primera. Las respuestas 5xx y 429 no se
+ * guardan: la clave se libera y el siguiente reintento vuelve a ejecutarse. Reutilizar una clave con otro
+ * cuerpo es un error 422. Las peticiones sin cabecera se procesan como siempre. Las claves son
+ * por cliente: el usuario autenticado o, sin autenticacion, el merchantId del cuerpo, para que dos
+ * comercios que envien la misma clave no se respondan el uno al otro.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final String PAYMENTS_PATH = "/api/v1/payments";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter waited;
+    private final Counter rejected;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                             Duration waitTimeout) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+        this.executed = requests(meterRegistry, "executed");
+        this.replayed = requests(meterRegistry, "replayed");
+        this.waited = requests(meterRegistry, "waited");
+        this.rejected = requests(meterRegistry, "rejected");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+            || !PAYMENTS_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))
+            || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            rejected.increment();
+            writeError(request, response, HttpStatus.BAD_REQUEST,
+                IDEMPOTENCY_KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        String fingerprint = fingerprint(body);
+        key = scopedKey(request, body, key);
+
+        IdempotencyStore.Reservation reservation = store.reserve(key, fingerprint);
+        switch (reservation) {
+            case IdempotencyStore.Acquired acquired ->
+                execute(key, acquired.token(), fingerprint, new CachedBodyRequest(request, body), response, chain);
+            case IdempotencyStore.Completed completed -> replay(request, response, fingerprint, completed.response());
+            case IdempotencyStore.InFlight inFlight -> awaitFirst(request, response, key, fingerprint, inFlight);
+        }
+    }
+
+    private void execute(String key, String token, String fingerprint, HttpServletRequest request,
+                         HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        executed.increment();
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(request, captured);
+            if (isFinal(captured.getStatus())) {
+                store.complete(key, token, new StoredResponse(
+                    fingerprint, captured.getStatus(), captured.getContentType(), captured.getContentAsByteArray()));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                store.release(key, token);
+            }
+            captured.copyBodyToResponse();
+        }
+    }
+
+    // un 429 (GATEWAY_THROTTLED) es un rechazo transitorio, como un 5xx: guardarlo lo repetiria hasta que caduque
+    private static boolean isFinal(int status) {
+        return status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    private void awaitFirst(HttpServletRequest request, HttpServletResponse response, String key, String fingerprint,
+                            IdempotencyStore.InFlight inFlight) throws IOException {
+        if (!fingerprint.equals(inFlight.fingerprint())) {
+            rejectMismatch(request, response);
+            return;
+        }
+        waited.increment();
+        Optional<StoredResponse> result;
+        try {
+            result = store.await(key, waitTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = Optional.empty();
+        }
+        if (result.isPresent()) {
+            replay(request, response, fingerprint, result.get());
+        } else {
+            // la primera peticion sigue en curso o fallo sin resultado: el cliente debe reintentar
+            writeError(request, response, HttpStatus.CONFLICT,
+                "A request with this " + IDEMPOTENCY_KEY_HEADER + " is still in progress");
+        }
+    }
+
+    private void replay(HttpServletRequest request, HttpServletResponse response, String fingerprint,
+                        StoredResponse stored) throws IOException {
+        if (!fingerprint.equals(stored.fingerprint())) {
+            rejectMismatch(request, response);
+            return;
+        }
+        replayed.increment();
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void rejectMismatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        rejected.increment();
+        log.warn("{} reused with a different request body on {}", IDEMPOTENCY_KEY_HEADER, request.getRequestURI());
+        writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+            IDEMPOTENCY_KEY_HEADER + " was already used with a different request");
+    }
+
+    // mismo formato que GlobalExceptionHandler
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                            String message) throws IOException {
+        Map<String, Object> errorResponse = new LinkedHashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now().toString());
+        errorResponse.put("status", status.value());
+        errorResponse.put("error", status.getReasonPhrase());
+        errorResponse.put("message", message);
+        errorResponse.put("path", request.getRequestURI());
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    /**
+     * Clave prefijada con su ambito; la longitud del ambito evita colisiones entre ambitos y claves
+     * que contengan el separador
+     */
+    private String scopedKey(HttpServletRequest request, byte[] body, String key) {
+        Principal principal = request.getUserPrincipal();
+        String scope;
+        if (principal != null) {
+            scope = "principal:" + principal.getName();
+        } else {
+            String merchantId = merchantId(body);
+            scope = merchantId != null ? "merchant:" + merchantId : "anonymous";
+        }
+        return scope.length() + ":" + scope + ":" + key;
+    }
+
+    private String merchantId(byte[] body) {
+        try {
+            JsonNode merchantId = objectMapper.readTree(body).path("merchantId");
+            return merchantId.isTextual() ? merchantId.asText() : null;
+        } catch (IOException e) {
+            // un cuerpo invalido lo rechaza la validacion del controlador
+            return null;
+        }
+    }
+
+    static String fingerprint(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payments.idempotency.requests").tag("outcome", outcome).register(meterRegistry);
+    }
+
+    /**
+     * Peticion con el cuerpo ya leido para poder calcular el fingerprint antes de procesarla
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException("Asynchronous reads are not supported");
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.paymentgateway.infrastructure.web.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Registro de claves Idempotency-Key en curso y completadas
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Reserva la clave para ejecutar la peticion; si ya existe devuelve su estado actual
+     * La reserva obtenida lleva un token que identifica a su propietario en complete y release
+     */
+    Reservation reserve(String key, String fingerprint);
+
+    /**
+     * Espera el resultado de una peticion en curso; vacio si se libera la clave o vence el plazo
+     */
+    Optional<StoredResponse> await(String key, Duration timeout) throws InterruptedException;
+
+    /**
+     * Guarda el resultado solo si la reserva sigue siendo la del token; si caduco y otra peticion
+     * reservo la clave, no se pisa
+     */
+    void complete(String key, String token, StoredResponse response);
+
+    /**
+     * Libera una reserva sin resultado para que un reintento pueda ejecutarse; igual que complete,
+     * solo si la reserva sigue siendo la del token
+     */
+    void release(String key, String token);
+
+    sealed interface Reservation {
+    }
+
+    record Acquired(String token) implements Reservation {
+    }
+
+    record InFlight(String fingerprint) implements Reservation {
+    }
+
+    record Completed(StoredResponse response) implements Reservation {
+    }
+}
@@ -0,0 +1,114 @@
+package com.paymentgateway.infrastructure.web.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Almacen de idempotencia en proceso para un solo nodo
+ *
+ * ConcurrentHashMap bloquea por cubeta, asi que claves distintas no compiten entre si; cada
+ * entrada lleva un CompletableFuture en el que esperan los duplicados concurrentes hasta que
+ * la primera peticion completa o libera la clave. Solo el propietario de la reserva (su token)
+ * puede completarla o liberarla.
+ */
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long inFlightTtlNanos;
+    private final long completedTtlNanos;
+
+    public LocalIdempotencyStore(Duration inFlightTtl, Duration completedTtl) {
+        this.inFlightTtlNanos = inFlightTtl.toNanos();
+        this.completedTtlNanos = completedTtl.toNanos();
+    }
+
+    @Override
+    public Reservation reserve(String key, String fingerprint) {
+        long now = System.nanoTime();
+        Entry candidate = new Entry(UUID.randomUUID().toString(), fingerprint, now + inFlightTtlNanos);
+        Entry current = entries.compute(key, (k, existing) ->
+            existing == null || existing.isExpired(now) ? candidate : existing);
+        if (current == candidate) {
+            return new Acquired(candidate.token);
+        }
+        StoredResponse response = current.resultNow();
+        return response != null ? new Completed(response) : new InFlight(current.fingerprint);
+    }
+
+    @Override
+    public Optional<StoredResponse> await(String key, Duration timeout) throws InterruptedException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(entry.result.get(timeout.toNanos(), TimeUnit.NANOSECONDS));
+        } catch (CancellationException | ExecutionException | TimeoutException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void complete(String key, String token, StoredResponse response) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.token.equals(token)) {
+            entry.expiresAt = System.nanoTime() + completedTtlNanos;
+            entry.result.complete(response);
+        }
+    }
+
+    @Override
+    public void release(String key, String token) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.token.equals(token) && entries.remove(key, entry)) {
+            entry.result.cancel(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.idempotency.purge-interval:PT1M}")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> {
+            if (!entry.isExpired(now)) {
+                return false;
+            }
+            // una ejecucion que supero su plazo deja de bloquear a los duplicados
+            entry.result.cancel(false);
+            return true;
+        });
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final String token;
+        private final String fingerprint;
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        private Entry(String token, String fingerprint, long expiresAt) {
+            this.token = token;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+
+        private StoredResponse resultNow() {
+            return result.isDone() && !result.isCompletedExceptionally() ? result.join() : null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.paymentgateway.infrastructure.web.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+/**
+ * Almacen de idempotencia compartido entre nodos sobre Redis
+ *
+ * La reserva es un SET NX con un plazo corto (si el nodo que ejecuta cae, la clave se libera sola)
+ * y el resultado sustituye a la reserva con los bytes de la respuesta. La marca de reserva lleva un
+ * token propio de cada reserva: completar y liberar son scripts que comparan la marca antes de
+ * escribir, asi una peticion cuya reserva caduco no pisa ni borra la de la peticion que la sustituyo. Los duplicados en otros
+ * nodos esperan sondeando con espera creciente. Si Redis falla se usa el almacen local durante
+ * un periodo de enfriamiento: se pierde la deduplicacion entre nodos, no la del propio nodo.
+ */
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisIdempotencyStore.class);
+
+    private static final String KEY_PREFIX = "payments:idempotency:";
+    private static final byte IN_FLIGHT = 'P';
+    // UUID en texto, justo despues de IN_FLIGHT y antes del fingerprint
+    private static final int TOKEN_LENGTH = 36;
+    // ARGV[1] es IN_FLIGHT seguido del token: el prefijo de la marca del propietario
+    private static final byte[] COMPLETE_IF_OWNER = """
+        local current = redis.call('GET', KEYS[1])
+        if not current or string.sub(current, 1, #ARGV[1]) ~= ARGV[1] then
+            return 0
+        end
+        redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+        return 1
+        """.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RELEASE_IF_OWNER = """
+        local current = redis.call('GET', KEYS[1])
+        if not current or string.sub(current, 1, #ARGV[1]) ~= ARGV[1] then
+            return 0
+        end
+        return redis.call('DEL', KEYS[1])
+        """.getBytes(StandardCharsets.UTF_8);
+    private static final long FAILURE_COOLDOWN_MS = 30_000;
+    private static final long MIN_POLL_MS = 10;
+    private static final long MAX_POLL_MS = 250;
+
+    private final StringRedisTemplate redis;
+    private final LocalIdempotencyStore fallback;
+    private final Expiration inFlightTtl;
+    private final byte[] completedTtlMillis;
+    private volatile long unavailableUntil;
+
+    public RedisIdempotencyStore(StringRedisTemplate redis, LocalIdempotencyStore fallback, Duration inFlightTtl,
+                                 Duration completedTtl) {
+        this.redis = redis;
+        this.fallback = fallback;
+        this.inFlightTtl = Expiration.from(inFlightTtl);
+        this.completedTtlMillis = String.valueOf(completedTtl.toMillis()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Reservation reserve(String key, String fingerprint) {
+        if (!isAvailable()) {
+            return fallback.reserve(key, fingerprint);
+        }
+        byte[] redisKey = redisKey(key);
+        String token = UUID.randomUUID().toString();
+        byte[] marker = inFlightMarker(token, fingerprint);
+        try {
+            // la reserva puede caducar entre el SET y el GET: se reintenta una vez
+            for (int attempt = 0; attempt < 2; attempt++) {
+                Boolean acquired = redis.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().set(redisKey, marker, inFlightTtl, SetOption.ifAbsent()));
+                if (Boolean.TRUE.equals(acquired)) {
+                    return new Acquired(token);
+                }
+                byte[] current = get(redisKey);
+                if (current != null) {
+                    return current[0] == IN_FLIGHT
+                        ? new InFlight(new String(current, 1 + TOKEN_LENGTH, current.length - 1 - TOKEN_LENGTH,
+                            StandardCharsets.UTF_8))
+                        : new Completed(StoredResponse.fromBytes(current));
+                }
+            }
+            return new InFlight(fingerprint);
+        } catch (RuntimeException e) {
+            markUnavailable(e);
+            return fallback.reserve(key, fingerprint);
+        }
+    }
+
+    @Override
+    public Optional<StoredResponse> await(String key, Duration timeout) throws InterruptedException {
+        if (!isAvailable()) {
+            return fallback.await(key, timeout);
+        }
+        byte[] redisKey = redisKey(key);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long pause = MIN_POLL_MS;
+        try {
+            while (System.nanoTime() - deadline < 0) {
+                byte[] current = get(redisKey);
+                if (current == null) {
+                    return Optional.empty();
+                }
+                if (current[0] != IN_FLIGHT) {
+                    return Optional.of(StoredResponse.fromBytes(current));
+                }
+                Thread.sleep(pause);
+                pause = Math.min(pause * 2, MAX_POLL_MS);
+            }
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            markUnavailable(e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void complete(String key, String token, StoredResponse response) {
+        // la reserva pudo hacerse en el almacen local si Redis fallo a mitad de la peticion
+        fallback.complete(key, token, response);
+        if (!isAvailable()) {
+            return;
+        }
+        byte[] owner = ownerPrefix(token);
+        byte[] value = response.toBytes();
+        try {
+            Long written = redis.execute((RedisCallback<Long>) connection -> connection.scriptingCommands().eval(
+                COMPLETE_IF_OWNER, ReturnType.INTEGER, 1, redisKey(key), owner, value, completedTtlMillis));
+            if (written == null || written == 0) {
+                log.debug("Idempotency reservation for key {} expired before completing", key);
+            }
+        } catch (RuntimeException e) {
+            markUnavailable(e);
+        }
+    }
+
+    @Override
+    public void release(String key, String token) {
+        fallback.release(key, token);
+        if (!isAvailable()) {
+            return;
+        }
+        byte[] owner = ownerPrefix(token);
+        try {
+            redis.execute((RedisCallback<Long>) connection -> connection.scriptingCommands().eval(
+                RELEASE_IF_OWNER, ReturnType.INTEGER, 1, redisKey(key), owner));
+        } catch (RuntimeException e) {
+            markUnavailable(e);
+        }
+    }
+
+    private boolean isAvailable() {
+        return System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    private byte[] get(byte[] redisKey) {
+        return redis.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(redisKey));
+    }
+
+    private void markUnavailable(Exception e) {
+        unavailableUntil = System.currentTimeMillis() + FAILURE_COOLDOWN_MS;
+        log.warn("Redis idempotency store unavailable, using the local store for {} ms: {}",
+            FAILURE_COOLDOWN_MS, e.getMessage());
+    }
+
+    private static byte[] redisKey(String key) {
+        return (KEY_PREFIX + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] inFlightMarker(String token, String fingerprint) {
+        return ((char) IN_FLIGHT + token + fingerprint).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ownerPrefix(String token) {
+        return ((char) IN_FLIGHT + token).getBytes(StandardCharsets.UTF_8);
+    }
+}
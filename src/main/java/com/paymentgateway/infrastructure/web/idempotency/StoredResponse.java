@@ -0,0 +1,51 @@
+package com.paymentgateway.infrastructure.web.idempotency;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Respuesta ya serializada de una peticion idempotente completada
+ * fingerprint identifica el cuerpo de la peticion original para detectar claves reutilizadas
+ */
+public record StoredResponse(String fingerprint, int status, String contentType, byte[] body) {
+
+    static final byte COMPLETED = 'C';
+
+    /**
+     * Formato binario usado por los almacenes externos: marca, fingerprint, estado, tipo y cuerpo
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length + 128);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(COMPLETED);
+            out.writeUTF(fingerprint);
+            out.writeShort(status);
+            out.writeUTF(contentType == null ? "" : contentType);
+            out.writeInt(body.length);
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static StoredResponse fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readByte() != COMPLETED) {
+                throw new IllegalArgumentException("Not a completed idempotent response");
+            }
+            String fingerprint = in.readUTF();
+            int status = in.readShort();
+            String contentType = in.readUTF();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new StoredResponse(fingerprint, status, contentType.isEmpty() ? null : contentType, body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
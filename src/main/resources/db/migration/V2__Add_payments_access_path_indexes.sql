@@ -0,0 +1,16 @@
+-- Indices compuestos para los finders de PaymentJpaRepository
+-- (filtro, created_at, id) sirve tanto al filtro como al orden de la paginacion keyset
+
+CREATE INDEX IF NOT EXISTS idx_payments_merchant_created
+    ON payments (merchant_id, created_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_payments_customer_created
+    ON payments (customer_id, created_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_payments_gateway_provider_created
+    ON payments (gateway_provider, created_at, id);
+
+-- El id de transaccion solo existe una vez la pasarela respondio
+CREATE INDEX IF NOT EXISTS idx_payments_gateway_transaction_id
+    ON payments (gateway_transaction_id)
+    WHERE gateway_transaction_id IS NOT NULL;
@@ -0,0 +1,3 @@
+-- findByStatus / countByStatus: index-only scan para los conteos por estado
+CREATE INDEX IF NOT EXISTS idx_payments_status_created
+    ON payments (status, created_at, id);
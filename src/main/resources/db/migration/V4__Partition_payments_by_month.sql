@@ -0,0 +1,129 @@
+-- Convierte payments en una tabla particionada por rango mensual de created_at
+-- La clave primaria de una tabla particionada debe incluir la clave de particion: (id, created_at)
+
+ALTER TABLE payments RENAME TO payments_legacy;
+
+CREATE TABLE payments (
+    id UUID NOT NULL,
+    payment_reference VARCHAR(255) NOT NULL,
+    amount NUMERIC(19, 2) NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    payment_method VARCHAR(255) NOT NULL,
+    gateway_provider VARCHAR(255) NOT NULL,
+    gateway_transaction_id VARCHAR(255),
+    customer_id VARCHAR(255) NOT NULL,
+    merchant_id VARCHAR(255) NOT NULL,
+    description TEXT,
+    failure_reason VARCHAR(255),
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    completed_at TIMESTAMP,
+    version BIGINT,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Red de seguridad para filas fuera de las particiones creadas; el mantenimiento la mantiene vacia
+CREATE TABLE payments_default PARTITION OF payments DEFAULT;
+
+-- Particiones mensuales desde el dato mas antiguo hasta tres meses en el futuro
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := date_trunc('month', now() + INTERVAL '3 months')::DATE;
+BEGIN
+    SELECT date_trunc('month', COALESCE(min(created_at), now()))::DATE INTO month_start FROM payments_legacy;
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF payments FOR VALUES FROM (%L) TO (%L)',
+            'payments_' || to_char(month_start, '"y"YYYY"m"MM'),
+            month_start,
+            (month_start + INTERVAL '1 month')::DATE
+        );
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO payments SELECT * FROM payments_legacy;
+
+-- La unicidad global de payment_reference ya no puede expresarse con un indice de la tabla particionada
+CREATE TABLE payment_references (
+    payment_reference VARCHAR(255) PRIMARY KEY,
+    payment_id UUID NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO payment_references (payment_reference, payment_id, created_at)
+SELECT payment_reference, id, created_at FROM payments_legacy;
+
+DROP TABLE payments_legacy;
+
+-- Los triggers mantienen payment_references. Un UPDATE que cambia created_at de mes se ejecuta como
+-- DELETE + INSERT entre particiones: los triggers de INSERT y DELETE ven el mismo pago y no deben
+-- rechazarlo ni liberar su referencia
+
+-- Registrar: la referencia ya reservada por el mismo pago (movimiento entre particiones) no es un duplicado
+CREATE FUNCTION payments_register_reference() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO payment_references (payment_reference, payment_id, created_at)
+    VALUES (NEW.payment_reference, NEW.id, NEW.created_at)
+    ON CONFLICT (payment_reference) DO UPDATE SET created_at = EXCLUDED.created_at
+        WHERE payment_references.payment_id = EXCLUDED.payment_id;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'duplicate payment_reference %', NEW.payment_reference
+            USING ERRCODE = 'unique_violation', CONSTRAINT = 'payment_references_pkey';
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Liberar: solo si el pago ya no existe (en un movimiento la fila sigue en la particion de destino)
+CREATE FUNCTION payments_release_reference() RETURNS trigger AS $$
+BEGIN
+    DELETE FROM payment_references r
+    WHERE r.payment_reference = OLD.payment_reference
+      AND r.payment_id = OLD.id
+      AND NOT EXISTS (SELECT 1 FROM payments p WHERE p.id = OLD.id AND p.payment_reference = OLD.payment_reference);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Cambio de referencia: reserva la nueva (falla si es de otro pago) y libera la anterior
+CREATE FUNCTION payments_change_reference() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO payment_references (payment_reference, payment_id, created_at)
+    VALUES (NEW.payment_reference, NEW.id, NEW.created_at)
+    ON CONFLICT (payment_reference) DO UPDATE SET created_at = EXCLUDED.created_at
+        WHERE payment_references.payment_id = EXCLUDED.payment_id;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'duplicate payment_reference %', NEW.payment_reference
+            USING ERRCODE = 'unique_violation', CONSTRAINT = 'payment_references_pkey';
+    END IF;
+    DELETE FROM payment_references
+    WHERE payment_reference = OLD.payment_reference AND payment_id = OLD.id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_payments_register_reference
+    BEFORE INSERT ON payments
+    FOR EACH ROW EXECUTE FUNCTION payments_register_reference();
+
+CREATE TRIGGER trg_payments_release_reference
+    AFTER DELETE ON payments
+    FOR EACH ROW EXECUTE FUNCTION payments_release_reference();
+
+CREATE TRIGGER trg_payments_change_reference
+    BEFORE UPDATE OF payment_reference ON payments
+    FOR EACH ROW
+    WHEN (OLD.payment_reference IS DISTINCT FROM NEW.payment_reference)
+    EXECUTE FUNCTION payments_change_reference();
+
+-- Indices particionados (se propagan a cada particion, tambien a las futuras)
+CREATE INDEX idx_payments_payment_reference ON payments (payment_reference);
+CREATE INDEX idx_payments_merchant_created ON payments (merchant_id, created_at, id);
+CREATE INDEX idx_payments_customer_created ON payments (customer_id, created_at, id);
+CREATE INDEX idx_payments_gateway_provider_created ON payments (gateway_provider, created_at, id);
+CREATE INDEX idx_payments_gateway_transaction_id ON payments (gateway_transaction_id)
+    WHERE gateway_transaction_id IS NOT NULL;
+CREATE INDEX idx_payments_status_created ON payments (status, created_at, id);
@@ -0,0 +1,12 @@
+-- Outbox transaccional de eventos de pago
+-- Las filas se escriben en la misma transaccion que el cambio de estado y el relay las borra
+-- en bloque una vez confirmadas por RabbitMQ, por lo que la tabla se mantiene casi vacia
+CREATE TABLE payment_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_id UUID NOT NULL,
+    aggregate_id UUID NOT NULL,
+    event_type VARCHAR(64) NOT NULL,
+    routing_key VARCHAR(128) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
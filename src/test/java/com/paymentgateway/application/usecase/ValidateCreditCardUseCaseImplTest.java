@@ -2,6 +2,13 @@ package com.paymentgateway.application.usecase;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -130,6 +137,55 @@ class ValidateCreditCardUseCaseImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("Escaneo en una pasada")
+    class EscaneoUnaPasada {
+
+        @Test
+        @DisplayName("✅ Debe ignorar espacios y guiones al detectar la red y enmascarar")
+        void debeIgnorarSeparadores() {
+            assertThat(useCase.determineCardType("3782-822463-10005")).isEqualTo("AMEX");
+            assertThat(useCase.determineCardType("6011 1111 1111 1117")).isEqualTo("DISCOVER");
+            assertThat(useCase.determineCardType("4222222222222")).isEqualTo("VISA");
+            assertThat(useCase.determineCardType("42424242424242")).isEqualTo("UNKNOWN");
+
+            CreditCardValidationResult resultado = useCase.validateCreditCard(
+                new CreditCardDetails("5555 5555-5555 0046", "12", "2028", "123", "Maria Garcia"));
+
+            assertThat(resultado.cardType()).isEqualTo("MASTERCARD");
+            assertThat(resultado.maskedCardNumber()).isEqualTo("****-****-****-0046");
+        }
+
+        @Test
+        @DisplayName("❌ Debe rechazar números con caracteres que no son dígitos")
+        void debeRechazarCaracteresNoNumericos() {
+            CreditCardValidationResult resultado = useCase.validateCreditCard(
+                new CreditCardDetails("4242424242424a42", "12", "2028", "123", "Test User"));
+
+            verificarTarjetaInvalida(resultado);
+            assertThat(useCase.determineCardType("4242424242424a42")).isEqualTo("UNKNOWN");
+        }
+
+        @Test
+        @DisplayName("✅ Debe calcular expiración y días restantes con el reloj inyectado")
+        void debeUsarRelojInyectado() {
+            Instant ahora = Instant.parse("2028-11-15T10:00:00Z");
+            ValidateCreditCardUseCaseImpl conReloj = new ValidateCreditCardUseCaseImpl(Clock.fixed(ahora, ZoneOffset.UTC));
+            CreditCardDetails tarjeta = new CreditCardDetails("4242424242424242", "12", "2030", "123", "Juan Perez");
+
+            assertThat(conReloj.validateCreditCard(tarjeta).daysUntilExpiry())
+                .isEqualTo(ChronoUnit.DAYS.between(LocalDate.of(2028, 11, 15), LocalDate.of(2030, 12, 31)));
+            assertThat(new ValidateCreditCardUseCaseImpl(Clock.fixed(Instant.parse("2031-01-01T00:00:00Z"),
+                ZoneOffset.UTC)).validateCreditCard(tarjeta).isExpired()).isTrue();
+            for (int year = 1999; year <= 2104; year++) {
+                for (int month = 1; month <= 12; month++) {
+                    assertThat(CachedCalendar.epochDayOfMonthEnd(year, month))
+                        .isEqualTo(YearMonth.of(year, month).atEndOfMonth().toEpochDay());
+                }
+            }
+        }
+    }
+
     // Métodos auxiliares (factories)
     private CreditCardDetails crearTarjetaVisa() {
         return new CreditCardDetails("4242424242424242", "12", "2028", "123", "Juan Perez");
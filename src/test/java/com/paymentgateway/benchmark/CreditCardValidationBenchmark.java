@@ -0,0 +1,158 @@
+package com.paymentgateway.benchmark;
+
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.paymentgateway.application.usecase.ValidateCreditCardUseCaseImpl;
+import com.paymentgateway.domain.model.CreditCardDetails;
+import com.paymentgateway.domain.model.CreditCardValidationResult;
+
+/**
+ * Coste por validacion: implementacion anterior con expresiones regulares frente al escaneo en una pasada
+ *
+ * cardNumber cubre un numero sin separadores, uno con espacios y uno que no pasa Luhn.
+ * El perfil benchmark activa -prof gc: comparar gc.alloc.rate.norm (bytes/op).
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CreditCardValidationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreditCardValidationBenchmark {
+
+    @Param({"4242424242424242", "5555 5555 5555 4444", "4242-4242-4242-4241"})
+    private String cardNumber;
+
+    private final ValidateCreditCardUseCaseImpl singlePass = new ValidateCreditCardUseCaseImpl();
+
+    private CreditCardDetails card;
+
+    @Setup
+    public void setUp() {
+        card = new CreditCardDetails(cardNumber, "12", String.valueOf(YearMonth.now().getYear() + 3), "123",
+            "Benchmark User");
+    }
+
+    @Benchmark
+    public CreditCardValidationResult regexValidate() {
+        return RegexCardValidator.validateCreditCard(card);
+    }
+
+    @Benchmark
+    public CreditCardValidationResult singlePassValidate() {
+        return singlePass.validateCreditCard(card);
+    }
+
+    @Benchmark
+    public String regexCardType() {
+        return RegexCardValidator.determineCardType(cardNumber);
+    }
+
+    @Benchmark
+    public String singlePassCardType() {
+        return singlePass.determineCardType(cardNumber);
+    }
+
+    // implementacion anterior de ValidateCreditCardUseCaseImpl, conservada como referencia
+    private static final class RegexCardValidator {
+
+        private static final Pattern VISA_PATTERN = Pattern.compile("^4[0-9]{12}(?:[0-9]{3})?$");
+        private static final Pattern MASTERCARD_PATTERN = Pattern.compile("^5[1-5][0-9]{14}$");
+        private static final Pattern AMEX_PATTERN = Pattern.compile("^3[47][0-9]{13}$");
+        private static final Pattern DISCOVER_PATTERN = Pattern.compile("^6(?:011|5[0-9]{2})[0-9]{12}$");
+
+        static CreditCardValidationResult validateCreditCard(CreditCardDetails creditCardDetails) {
+            try {
+                if (isExpired(creditCardDetails.expiryMonth(), creditCardDetails.expiryYear())) {
+                    return CreditCardValidationResult.expired(determineCardType(creditCardDetails.cardNumber()),
+                        maskCardNumber(creditCardDetails.cardNumber()));
+                }
+                if (!isValidLuhn(creditCardDetails.cardNumber())) {
+                    return CreditCardValidationResult.invalid("Numero de tarjeta invalido");
+                }
+                String cardType = determineCardType(creditCardDetails.cardNumber());
+                String maskedNumber = maskCardNumber(creditCardDetails.cardNumber());
+                long daysUntilExpiry = calculateDaysUntilExpiry(creditCardDetails.expiryMonth(),
+                    creditCardDetails.expiryYear());
+                return CreditCardValidationResult.valid(cardType, maskedNumber, daysUntilExpiry);
+            } catch (Exception e) {
+                return CreditCardValidationResult.invalid("Error al validar la tarjeta: " + e.getMessage());
+            }
+        }
+
+        static String determineCardType(String cardNumber) {
+            String cleanCardNumber = cardNumber.replaceAll("[\\s-]+", "");
+            if (VISA_PATTERN.matcher(cleanCardNumber).matches()) {
+                return "VISA";
+            } else if (MASTERCARD_PATTERN.matcher(cleanCardNumber).matches()) {
+                return "MASTERCARD";
+            } else if (AMEX_PATTERN.matcher(cleanCardNumber).matches()) {
+                return "AMEX";
+            } else if (DISCOVER_PATTERN.matcher(cleanCardNumber).matches()) {
+                return "DISCOVER";
+            }
+            return "UNKNOWN";
+        }
+
+        private static boolean isValidLuhn(String cardNumber) {
+            String cleanCardNumber = cardNumber.replaceAll("[\\s-]+", "");
+            int suma = 0;
+            boolean alternar = false;
+            for (int i = cleanCardNumber.length() - 1; i >= 0; i--) {
+                int digit = Character.getNumericValue(cleanCardNumber.charAt(i));
+                if (alternar) {
+                    digit *= 2;
+                    if (digit > 9) {
+                        digit -= 9;
+                    }
+                }
+                suma += digit;
+                alternar = !alternar;
+            }
+            return suma % 10 == 0;
+        }
+
+        private static String maskCardNumber(String cardNumber) {
+            String cleanCardNumber = cardNumber.replaceAll("[\\s-]+", "");
+            if (cleanCardNumber.length() < 4) {
+                return "****-****-****-****";
+            }
+            return "****-****-****-" + cleanCardNumber.substring(cleanCardNumber.length() - 4);
+        }
+
+        private static boolean isExpired(String expiryMonth, String expiryYear) {
+            try {
+                YearMonth expiryDate = YearMonth.of(Integer.parseInt(expiryYear), Integer.parseInt(expiryMonth));
+                return expiryDate.isBefore(YearMonth.now());
+            } catch (Exception e) {
+                return true;
+            }
+        }
+
+        private static long calculateDaysUntilExpiry(String expiryMonth, String expiryYear) {
+            try {
+                YearMonth expiryYearMonth = YearMonth.of(Integer.parseInt(expiryYear), Integer.parseInt(expiryMonth));
+                return ChronoUnit.DAYS.between(java.time.LocalDate.now(), expiryYearMonth.atEndOfMonth());
+            } catch (Exception e) {
+                return 0;
+            }
+        }
+    }
+}
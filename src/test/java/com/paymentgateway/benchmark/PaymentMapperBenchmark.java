@@ -0,0 +1,199 @@
+package com.paymentgateway.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.infrastructure.persistence.PaymentEntity;
+import com.paymentgateway.infrastructure.persistence.PaymentMapper;
+import com.paymentgateway.infrastructure.persistence.PaymentMapperImpl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Coste por save: mapper anterior con builders frente al mapper generado
+ *
+ * Los *RoundTrip miden solo el mapeo. saveByMerge y saveInPlace miden una actualizacion
+ * completa contra H2 en memoria: el camino anterior (find + merge de una copia desacoplada)
+ * frente al actual (find + copia sobre la entidad gestionada).
+ * El perfil benchmark activa -prof gc: comparar gc.alloc.rate.norm (bytes/op).
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PaymentMapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentMapperBenchmark {
+
+    private final PaymentMapper mapper = new PaymentMapperImpl();
+
+    private Payment payment;
+    private PaymentEntity managed;
+
+    private EntityManagerFactory entityManagerFactory;
+    private UUID persistedId;
+    private long revision;
+
+    @Setup
+    public void setUp() {
+        Payment created = new Payment("order-1", new BigDecimal("99.95"), "USD", PaymentMethod.CREDIT_CARD,
+            "STRIPE", "cust-1", "merch-1", "Benchmark payment");
+        managed = mapper.toEntity(created);
+        managed.setVersion(0L);
+        payment = mapper.toDomain(managed);
+        payment.markAsProcessing();
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new SingleConnectionDataSource("jdbc:h2:mem:mapper-benchmark", "sa", "", true));
+        factoryBean.setPackagesToScan("com.paymentgateway.infrastructure.persistence");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        entityManager.persist(mapper.toEntity(created));
+        entityManager.getTransaction().commit();
+        entityManager.close();
+        persistedId = created.getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Benchmark
+    public Payment builderRoundTrip() {
+        return BuilderPaymentMapper.toDomain(BuilderPaymentMapper.toEntity(payment));
+    }
+
+    @Benchmark
+    public Payment generatedRoundTrip() {
+        return mapper.toDomain(mapper.toEntity(payment));
+    }
+
+    @Benchmark
+    public Payment generatedUpdateInPlace() {
+        mapper.updateEntity(payment, managed);
+        return mapper.toDomain(managed);
+    }
+
+    @Benchmark
+    public Payment saveByMerge() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            Payment changed = nextRevision(entityManager.find(PaymentEntity.class, persistedId));
+            PaymentEntity merged = entityManager.merge(BuilderPaymentMapper.toEntity(changed));
+            Payment result = BuilderPaymentMapper.toDomain(merged);
+            entityManager.getTransaction().commit();
+            return result;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public Payment saveInPlace() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            PaymentEntity current = entityManager.find(PaymentEntity.class, persistedId);
+            Payment changed = nextRevision(current);
+            mapper.updateEntity(changed, current);
+            Payment result = mapper.toDomain(current);
+            entityManager.getTransaction().commit();
+            return result;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    // el mismo pago con la version vigente y un cambio para que el UPDATE no se omita
+    private Payment nextRevision(PaymentEntity current) {
+        return Payment.builder()
+            .id(current.getId())
+            .paymentReference(current.getPaymentReference())
+            .amount(current.getAmount())
+            .currency(current.getCurrency())
+            .status(current.getStatus())
+            .paymentMethod(current.getPaymentMethod())
+            .gatewayProvider(current.getGateWayProvider())
+            .customerId(current.getCustomerId())
+            .merchantId(current.getMerchantId())
+            .description("revision-" + revision++)
+            .createdAt(current.getCreatedAt())
+            .version(current.getVersion())
+            .build();
+    }
+
+    // implementacion anterior de PaymentMapper, conservada como referencia
+    private static final class BuilderPaymentMapper {
+
+        static PaymentEntity toEntity(Payment payment) {
+            return PaymentEntity.builder()
+                .id(payment.getId())
+                .paymentReference(payment.getPaymentReference())
+                .amount(payment.getAmount())
+                .currency(payment.getCurrency())
+                .status(payment.getStatus())
+                .paymentMethod(payment.getPaymentMethod())
+                .gateWayProvider(payment.getGatewayProvider())
+                .gatewayTransactionId(payment.getGatewayTransactionId())
+                .customerId(payment.getCustomerId())
+                .merchantId(payment.getMerchantId())
+                .description(payment.getDescription())
+                .failureReason(payment.getFailureReason())
+                .createdAt(payment.getCreatedAt())
+                .updatedAt(payment.getUpdatedAt())
+                .completedAt(payment.getCompletedAt())
+                .version(payment.getVersion())
+                .build();
+        }
+
+        static Payment toDomain(PaymentEntity entity) {
+            return Payment.builder()
+                .id(entity.getId())
+                .paymentReference(entity.getPaymentReference())
+                .amount(entity.getAmount())
+                .currency(entity.getCurrency())
+                .status(entity.getStatus())
+                .paymentMethod(entity.getPaymentMethod())
+                .gatewayProvider(entity.getGateWayProvider())
+                .gatewayTransactionId(entity.getGatewayTransactionId())
+                .customerId(entity.getCustomerId())
+                .merchantId(entity.getMerchantId())
+                .description(entity.getDescription())
+                .failureReason(entity.getFailureReason())
+                .createdAt(entity.getCreatedAt())
+                .updatedAt(entity.getUpdatedAt())
+                .completedAt(entity.getCompletedAt())
+                .version(entity.getVersion())
+                .build();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.paymentgateway.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.paymentgateway.infrastructure.persistence.bloom.BloomFilter;
+
+/**
+ * Coste de la comprobacion de referencias duplicadas con el filtro de Bloom
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PaymentReferenceFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentReferenceFilterBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000000"})
+    private int references;
+
+    private BloomFilter filter;
+    private String[] existing;
+    private String[] fresh;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        filter = BloomFilter.create(references, 0.001);
+        for (int i = 0; i < references; i++) {
+            filter.put("order-" + i);
+        }
+        existing = new String[PROBES];
+        fresh = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            existing[i] = "order-" + (i * 977 % references);
+            fresh[i] = "order-new-" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean definiteMiss() {
+        return filter.mightContain(fresh[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public boolean probableHit() {
+        return filter.mightContain(existing[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public void insert() {
+        filter.put(fresh[next++ & (PROBES - 1)]);
+    }
+}
@@ -0,0 +1,246 @@
+package com.paymentgateway.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.paymentgateway.infrastructure.adapter.gateway.stripe.PooledStripeHttpClient;
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.HttpURLConnectionClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.StripeResponseGetterOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Transporte del SDK de Stripe: HttpURLConnection (por defecto del SDK) frente al cliente con pool
+ * contra un servidor local que imita GET /v1/payment_intents/{id}. Al terminar cada iteracion se
+ * imprime el numero de conexiones distintas que ha visto el servidor.
+ *
+ * Con scheme=https el servidor usa un certificado autofirmado para localhost generado con keytool
+ * al arrancar, y los dos transportes confian en el: el coste del handshake TLS de cada conexion
+ * nueva entra en la medida, como contra api.stripe.com. El servidor local solo habla HTTP/1.1.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=StripeTransportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 6, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class StripeTransportBenchmark {
+
+    private static final byte[] PAYMENT_INTENT = """
+        {"id": "pi_bench", "object": "payment_intent", "amount": 2000, "currency": "usd", "status": "succeeded"}
+        """.getBytes(StandardCharsets.UTF_8);
+
+    @Param({"urlconnection", "pooled"})
+    private String transport;
+
+    @Param({"https", "http"})
+    private String scheme;
+
+    private HttpServer server;
+    private StripeClient client;
+    private final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder served = new LongAdder();
+
+    @Setup
+    public void setUp() throws Exception {
+        // sin TCP_NODELAY cabeceras y cuerpo van en dos segmentos y el ACK retardado domina la latencia
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        boolean https = "https".equals(scheme);
+        SSLContext sslContext = https ? selfSignedContext() : null;
+        if (https) {
+            HttpsServer httpsServer = HttpsServer.create(new InetSocketAddress("localhost", 0), 1024);
+            httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+            server = httpsServer;
+            // HttpURLConnectionClient usa la fabrica de sockets por defecto de HttpsURLConnection
+            HttpsURLConnection.setDefaultSSLSocketFactory(sslContext.getSocketFactory());
+        } else {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        }
+        // SSLStreams del HttpsServer lee del socket dentro de un synchronized: en hilos virtuales fija los
+        // carriers y deja sin CPU a los hilos virtuales del cliente hasta que salta el connect timeout
+        server.setExecutor(https ? Executors.newCachedThreadPool() : Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/payment_intents", this::respond);
+        server.start();
+
+        String apiBase = scheme + "://localhost:" + server.getAddress().getPort();
+        com.stripe.net.HttpClient httpClient = switch (transport) {
+            case "urlconnection" -> new HttpURLConnectionClient();
+            case "pooled" -> {
+                // en claro sin h2c (el upgrade no compensa); con TLS se ofrece h2 por ALPN como en produccion
+                HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(https ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(2))
+                    .executor(Executors.newVirtualThreadPerTaskExecutor());
+                if (https) {
+                    builder.sslContext(sslContext);
+                }
+                yield new PooledStripeHttpClient(builder.build(), Duration.ofSeconds(5), new SimpleMeterRegistry(),
+                    new LongAdder());
+            }
+            default -> throw new IllegalArgumentException(transport);
+        };
+        client = new StripeClient(new LiveStripeResponseGetter(options(apiBase), httpClient));
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportConnections() {
+        System.out.printf("%n%s over %s: %d requests over %d connections%n", transport, scheme, served.sumThenReset(),
+            connections.size());
+        connections.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public PaymentIntent retrievePaymentIntent() throws StripeException {
+        return client.paymentIntents().retrieve("pi_bench");
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress().getPort());
+        served.increment();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, PAYMENT_INTENT.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(PAYMENT_INTENT);
+        }
+    }
+
+    /**
+     * certificado autofirmado para localhost en un almacen temporal; el mismo almacen sirve de
+     * clave al servidor y de confianza a los clientes
+     */
+    private static SSLContext selfSignedContext() throws Exception {
+        Path keyStoreFile = Files.createTempFile("stripe-benchmark", ".p12");
+        Files.delete(keyStoreFile);
+        char[] password = "benchmark".toCharArray();
+        String keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "localhost", "-keyalg", "EC",
+            "-groupname", "secp256r1", "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+            "-validity", "1", "-storetype", "PKCS12", "-keystore", keyStoreFile.toString(),
+            "-storepass", new String(password))
+            .redirectErrorStream(true)
+            .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("keytool failed: " + output);
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStoreFile)) {
+            keyStore.load(in, password);
+        } finally {
+            Files.deleteIfExists(keyStoreFile);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, password);
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    private static StripeResponseGetterOptions options(String apiBase) {
+        return new StripeResponseGetterOptions() {
+            @Override
+            public String getApiKey() {
+                return "sk_test_benchmark";
+            }
+
+            @Override
+            public String getClientId() {
+                return null;
+            }
+
+            @Override
+            public int getConnectTimeout() {
+                return 2_000;
+            }
+
+            @Override
+            public int getReadTimeout() {
+                return 5_000;
+            }
+
+            @Override
+            public int getMaxNetworkRetries() {
+                return 0;
+            }
+
+            @Override
+            public Proxy getConnectionProxy() {
+                return null;
+            }
+
+            @Override
+            public PasswordAuthentication getProxyCredential() {
+                return null;
+            }
+
+            @Override
+            public String getApiBase() {
+                return apiBase;
+            }
+
+            @Override
+            public String getFilesBase() {
+                return Stripe.UPLOAD_API_BASE;
+            }
+
+            @Override
+            public String getConnectBase() {
+                return Stripe.CONNECT_API_BASE;
+            }
+        };
+    }
+}
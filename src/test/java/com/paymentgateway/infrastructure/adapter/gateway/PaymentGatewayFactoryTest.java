@@ -0,0 +1,217 @@
+package com.paymentgateway.infrastructure.adapter.gateway;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.paymentgateway.application.port.AsyncPaymentGatewayPort;
+import com.paymentgateway.domain.model.PayPalDetails;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequest;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.infrastructure.adapter.gateway.paypal.PayPalPaymentGateway;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayCircuitBreaker;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayRateLimiterFactory;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayResilienceRegistry;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayRetryPolicy;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.ResilientPaymentGateway;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.StatusCheckHedgerFactory;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.AdaptiveGatewayRouter;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.GatewayLatencyTracker;
+import com.paymentgateway.infrastructure.adapter.gateway.stripe.StripeClientRegistry;
+import com.paymentgateway.infrastructure.adapter.gateway.stripe.StripePaymentGateway;
+import com.paymentgateway.shared.exception.PaymentException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests de la seleccion de pasarelas y de su variante asincrona
+ */
+@DisplayName("PaymentGatewayFactory Tests")
+class PaymentGatewayFactoryTest {
+
+    private GatewayResilienceRegistry resilienceRegistry;
+    private PaymentGatewayFactory factory;
+    private volatile Boolean paypalCalledOnVirtualThread;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GatewayLatencyTracker latencyTracker = new GatewayLatencyTracker(0.2);
+        StatusCheckHedgerFactory hedgerFactory = new StatusCheckHedgerFactory(meterRegistry, false, 256, 20, 10,
+            Duration.ofMillis(20), Duration.ofSeconds(2));
+        GatewayRateLimiterFactory rateLimiterFactory = new GatewayRateLimiterFactory(meterRegistry,
+            new MockEnvironment(), false, 50, 25, Duration.ofMillis(250));
+        resilienceRegistry = new GatewayResilienceRegistry(meterRegistry, latencyTracker, hedgerFactory,
+            rateLimiterFactory,
+            new GatewayRetryPolicy(meterRegistry, false, 3, Duration.ofMillis(50), Duration.ofSeconds(1), 25, 50),
+            4, 2, 50, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 1, 10, Duration.ZERO);
+        factory = new PaymentGatewayFactory(List.of(
+            new PayPalPaymentGateway("client", "secret", "sandbox") {
+                @Override
+                public PaymentResponse processPayment(PaymentRequest request) {
+                    paypalCalledOnVirtualThread = Thread.currentThread().isVirtual();
+                    return super.processPayment(request);
+                }
+            },
+            new StripePaymentGateway(new StripeClientRegistry(meterRegistry, new MockEnvironment(), "sk_test_dummy", "",
+                Duration.ofSeconds(2), Duration.ofSeconds(10), true))),
+            resilienceRegistry,
+            new AdaptiveGatewayRouter(latencyTracker, meterRegistry, 0, 5, true, Duration.ofSeconds(2))
+        );
+    }
+
+    @Test
+    @DisplayName("Should prefer Stripe for cards and PayPal for PayPal payments")
+    void shouldSelectGatewayByPaymentMethod() {
+        assertThat(factory.getBestGatewayForPaymentMethod(PaymentMethod.CREDIT_CARD).gatewayProvider())
+            .isEqualTo("STRIPE");
+        assertThat(factory.getBestGatewayForPaymentMethod(PaymentMethod.PAYPAL).gatewayProvider())
+            .isEqualTo("PAYPAL");
+    }
+
+    @Test
+    @DisplayName("Should only consider gateways that accept the currency and amount")
+    void shouldFilterByCurrencyAndAmount() {
+        PaymentRequest sekPayment = cardRequest("SEK", new BigDecimal("20.00"));
+        PaymentRequest largePayment = cardRequest("USD", new BigDecimal("20000.00"));
+
+        assertThat(factory.getBestGatewayFor(sekPayment).gatewayProvider()).isEqualTo("STRIPE");
+        assertThat(factory.getBestGatewayFor(largePayment).gatewayProvider()).isEqualTo("STRIPE");
+        assertThatThrownBy(() -> factory.getBestGatewayFor(cardRequest("MXN", new BigDecimal("20.00"))))
+            .isInstanceOf(PaymentException.class);
+    }
+
+    @Nested
+    @DisplayName("Circuit breaker failover")
+    class FailoverTests {
+
+        @Test
+        @DisplayName("Should fail over to the next compatible gateway while the preferred breaker is open")
+        void shouldFailOverWhenBreakerIsOpen() {
+            GatewayCircuitBreaker stripeBreaker = resilienceRegistry.getGateways().get("STRIPE").getCircuitBreaker();
+            stripeBreaker.onFailure(0);
+            stripeBreaker.onFailure(0);
+
+            assertThat(stripeBreaker.getState()).isEqualTo(GatewayCircuitBreaker.State.OPEN);
+            assertThat(factory.getBestGatewayForPaymentMethod(PaymentMethod.CREDIT_CARD).gatewayProvider())
+                .isEqualTo("PAYPAL");
+        }
+
+        @Test
+        @DisplayName("Should reject calls to an open gateway without reaching it")
+        void shouldRejectCallsWhileOpen() {
+            GatewayCircuitBreaker stripeBreaker = resilienceRegistry.getGateways().get("STRIPE").getCircuitBreaker();
+            stripeBreaker.onFailure(0);
+            stripeBreaker.onFailure(0);
+
+            assertThatThrownBy(() -> factory.getGateway("STRIPE").checkPaymentStatus("pi_1"))
+                .isInstanceOf(PaymentException.class)
+                .extracting("code")
+                .isEqualTo(ResilientPaymentGateway.UNAVAILABLE_CODE);
+        }
+    }
+
+    @Nested
+    @DisplayName("Runtime enable / disable")
+    class RoutingTableTests {
+
+        @Test
+        @DisplayName("Should stop routing to a disabled gateway but keep it reachable by name")
+        void shouldRebuildRoutingWhenGatewayIsDisabled() {
+            factory.setEnabled("stripe", false);
+
+            assertThat(factory.isEnabled("STRIPE")).isFalse();
+            assertThat(factory.getBestGatewayForPaymentMethod(PaymentMethod.CREDIT_CARD).gatewayProvider())
+                .isEqualTo("PAYPAL");
+            assertThatThrownBy(() -> factory.getBestGatewayFor(cardRequest("SEK", new BigDecimal("20.00"))))
+                .isInstanceOf(PaymentException.class)
+                .extracting("code")
+                .isEqualTo("NO_GATEWAY_AVAILABLE");
+            assertThat(factory.getGateway("STRIPE").gatewayProvider()).isEqualTo("STRIPE");
+
+            factory.setEnabled("STRIPE", true);
+
+            assertThat(factory.getBestGatewayFor(cardRequest("SEK", new BigDecimal("20.00"))).gatewayProvider())
+                .isEqualTo("STRIPE");
+        }
+    }
+
+    @Nested
+    @DisplayName("Asynchronous gateways")
+    class AsyncGatewayTests {
+
+        @Test
+        @DisplayName("Should run the gateway call on a virtual thread")
+        void shouldProcessOnVirtualThread() throws Exception {
+            AsyncPaymentGatewayPort gateway = factory.getBestAsyncGatewayForPaymentMethod(PaymentMethod.PAYPAL);
+            PaymentRequest request = new PaymentRequest("ref-1", new BigDecimal("20.00"), "USD", PaymentMethod.PAYPAL,
+                "cust-1", "merch-1", "Test",
+                new PayPalDetails("user@example.com", "https://merchant.com/ok", "https://merchant.com/ko"));
+
+            PaymentResponse response = gateway.processPaymentAsync(request).get(5, TimeUnit.SECONDS);
+
+            assertThat(response.success()).isTrue();
+            assertThat(response.paymentReference()).isEqualTo("ref-1");
+            assertThat(paypalCalledOnVirtualThread).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should complete with the same response as the blocking call")
+        void shouldMatchBlockingResult() throws Exception {
+            PaymentResponse response = factory.getAsyncGateway("paypal")
+                .checkPaymentStatusAsync("PAYPAL_TXN_1")
+                .get(5, TimeUnit.SECONDS);
+
+            assertThat(response.status()).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(response.gatewayTransactionId()).isEqualTo("PAYPAL_TXN_1");
+        }
+
+        @Test
+        @DisplayName("Should surface gateway failures through the future")
+        void shouldCompleteExceptionally() {
+            AsyncPaymentGatewayPort gateway = new PayPalPaymentGateway("client", "secret", "sandbox") {
+                @Override
+                public PaymentResponse checkPaymentStatus(String gatewayTransactionId) {
+                    throw new PaymentException("Failed to retrieve PayPal payment status");
+                }
+            };
+
+            assertThatThrownBy(() -> gateway.checkPaymentStatusAsync("PAYPAL_TXN_1").join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(PaymentException.class);
+        }
+
+        @Test
+        @DisplayName("Should reject unknown gateways")
+        void shouldRejectUnknownGateway() {
+            assertThatThrownBy(() -> factory.getAsyncGateway("ADYEN")).isInstanceOf(PaymentException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Should route each payment to the cheapest compatible gateway")
+    void shouldRouteToCheapestGateway() {
+        // Stripe 2.9% + 0.30 frente a PayPal 2.99% + 0.49; desde 3000 PayPal baja a 2.19%
+        assertThat(factory.getBestGatewayFor(cardRequest("USD", new BigDecimal("100.00"))).gatewayProvider())
+            .isEqualTo("STRIPE");
+        assertThat(factory.getBestGatewayFor(cardRequest("USD", new BigDecimal("4000.00"))).gatewayProvider())
+            .isEqualTo("PAYPAL");
+    }
+
+    private static PaymentRequest cardRequest(String currency, BigDecimal amount) {
+        return new PaymentRequest("ref-1", amount, currency, PaymentMethod.CREDIT_CARD, "cust-1", "merch-1", "Test",
+            null);
+    }
+}
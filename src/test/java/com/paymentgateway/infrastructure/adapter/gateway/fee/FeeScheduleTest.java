@@ -0,0 +1,59 @@
+package com.paymentgateway.infrastructure.adapter.gateway.fee;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.domain.model.PaymentMethod;
+
+/**
+ * Tests del tarifario precompilado
+ */
+@DisplayName("FeeSchedule Tests")
+class FeeScheduleTest {
+
+    private final FeeSchedule schedule = FeeSchedule.builder("TEST")
+        .rate("0.029", "0.30")
+        .rule(null, null, "1000.00", "0.025", "0.30")
+        .rule(PaymentMethod.PAYPAL, null, "0", "0.0349", "0.49")
+        .rule(null, "EUR", "0", "0.015", "0.25")
+        .rule(PaymentMethod.PAYPAL, "EUR", "0", "0.034", "0.35")
+        .build();
+
+    @Test
+    @DisplayName("Should apply percentage plus fixed fee with half-up rounding")
+    void shouldApplyGeneralRate() {
+        assertThat(schedule.feeMinor(PaymentMethod.CREDIT_CARD, "USD", 10_000)).isEqualTo(320);
+        assertThat(schedule.fee(PaymentMethod.CREDIT_CARD, "usd", new BigDecimal("19.99")))
+            .isEqualByComparingTo("0.88");
+    }
+
+    @Test
+    @DisplayName("Should pick the tier for the amount")
+    void shouldApplyAmountTiers() {
+        assertThat(schedule.feeMinor(PaymentMethod.CREDIT_CARD, "USD", 99_999)).isEqualTo(2_930);
+        assertThat(schedule.feeMinor(PaymentMethod.CREDIT_CARD, "USD", 100_000)).isEqualTo(2_530);
+    }
+
+    @Test
+    @DisplayName("Should resolve the most specific rule: method and currency, method, currency, general")
+    void shouldResolveMostSpecificRule() {
+        assertThat(schedule.feeMinor(PaymentMethod.PAYPAL, "EUR", 10_000)).isEqualTo(375);
+        assertThat(schedule.feeMinor(PaymentMethod.PAYPAL, "GBP", 10_000)).isEqualTo(398);
+        assertThat(schedule.feeMinor(PaymentMethod.CREDIT_CARD, "EUR", 10_000)).isEqualTo(175);
+    }
+
+    @Test
+    @DisplayName("Should report unpriced combinations")
+    void shouldReportUnpriced() {
+        FeeSchedule cardsOnly = FeeSchedule.builder("CARDS")
+            .rule(PaymentMethod.CREDIT_CARD, null, "0", "0.029", "0.30")
+            .build();
+
+        assertThat(cardsOnly.feeMinor(PaymentMethod.PAYPAL, "USD", 10_000)).isEqualTo(FeeSchedule.UNPRICED);
+        assertThat(cardsOnly.fee(PaymentMethod.PAYPAL, "USD", BigDecimal.TEN)).isNull();
+    }
+}
@@ -0,0 +1,98 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayCircuitBreaker.State;
+
+/**
+ * Tests de la maquina de estados del circuit breaker con reloj controlado
+ */
+@DisplayName("GatewayCircuitBreaker Tests")
+class GatewayCircuitBreakerTest {
+
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(
+        4, 4, 50, 75, Duration.ofSeconds(1), Duration.ofSeconds(30), 2, clock::get);
+
+    @Test
+    @DisplayName("Should stay closed until the minimum number of calls is recorded")
+    void shouldWaitForMinimumCalls() {
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        breaker.onSuccess(0);
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should open when the slow call rate crosses its threshold")
+    void shouldOpenOnSlowCalls() {
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(0);
+        breaker.onSuccess(SLOW);
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    @DisplayName("Should only count the calls inside the sliding window")
+    void shouldSlideWindow() {
+        breaker.onFailure(0);
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(0);
+        }
+        breaker.onSuccess(0);
+
+        assertThat(breaker.getFailureRate()).isZero();
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Should let trial calls through after the open duration and close when they succeed")
+    void shouldCloseAfterSuccessfulTrialCalls() {
+        open();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.getBufferedCalls()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reopen when a trial call fails")
+    void shouldReopenOnFailedTrialCall() {
+        open();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        breaker.onFailure(0);
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.isCallPermitted()).isFalse();
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(0);
+        }
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+}
@@ -0,0 +1,250 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.application.port.AsyncPaymentGatewayPort;
+import com.paymentgateway.application.port.BatchPaymentStatusPort;
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.GatewayLatencyTracker;
+import com.paymentgateway.shared.exception.PaymentException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests del token bucket de llamadas salientes con reloj controlado
+ */
+@DisplayName("GatewayRateLimiter Tests")
+class GatewayRateLimiterTest {
+
+    private static final long MILLIS = Duration.ofMillis(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Should admit a full burst without waiting")
+    void shouldAdmitBurst() {
+        GatewayRateLimiter limiter = new GatewayRateLimiter(10, 3, 0, clock::get);
+
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isEqualTo(GatewayRateLimiter.REJECTED);
+        assertThat(limiter.getAvailablePermits()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should queue calls up to the maximum wait and shed the rest")
+    void shouldQueueThenShed() {
+        GatewayRateLimiter limiter = new GatewayRateLimiter(10, 1, 250 * MILLIS, clock::get);
+
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isEqualTo(100 * MILLIS);
+        assertThat(limiter.reserve()).isEqualTo(200 * MILLIS);
+        assertThat(limiter.reserve()).isEqualTo(GatewayRateLimiter.REJECTED);
+        // un rechazo no consume token: el siguiente turno sigue siendo el mismo
+        clock.addAndGet(50 * MILLIS);
+        assertThat(limiter.reserve()).isEqualTo(250 * MILLIS);
+    }
+
+    @Test
+    @DisplayName("Should only hand out a free token without queueing on tryAcquire")
+    void shouldTryAcquireWithoutQueue() {
+        GatewayRateLimiter limiter = new GatewayRateLimiter(10, 1, 250 * MILLIS, clock::get);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        // el intento fallido no reserva turno en la cola
+        assertThat(limiter.reserve()).isEqualTo(100 * MILLIS);
+    }
+
+    @Test
+    @DisplayName("Should refill tokens with the passage of time")
+    void shouldRefill() {
+        GatewayRateLimiter limiter = new GatewayRateLimiter(10, 2, 0, clock::get);
+        limiter.reserve();
+        limiter.reserve();
+
+        clock.addAndGet(100 * MILLIS);
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1.0);
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isEqualTo(GatewayRateLimiter.REJECTED);
+
+        // un periodo largo de inactividad no acumula mas tokens que la rafaga
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertThat(limiter.getAvailablePermits()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should never hand out more tokens than the burst under contention")
+    void shouldNotOverIssueConcurrently() throws Exception {
+        GatewayRateLimiter limiter = new GatewayRateLimiter(1, 100, 0, clock::get);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    int admitted = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.reserve() != GatewayRateLimiter.REJECTED) {
+                            admitted++;
+                        }
+                    }
+                    return admitted;
+                }));
+            }
+            int admitted = 0;
+            for (Future<Integer> worker : workers) {
+                admitted += worker.get();
+            }
+            assertThat(admitted).isEqualTo(100);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should shed calls with GATEWAY_THROTTLED without counting them as gateway failures")
+    void shouldShedWithDistinctCode() {
+        PaymentGatewayPort delegate = mock(PaymentGatewayPort.class);
+        when(delegate.gatewayProvider()).thenReturn("STRIPE");
+        when(delegate.checkPaymentStatus("pi_1")).thenReturn(PaymentResponse.failure("pi_1", "pending", null));
+        GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(
+            4, 1, 50, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GatewayRateLimiter limiter = new GatewayRateLimiter(1, 1, 0, clock::get);
+        ResilientPaymentGateway gateway = new ResilientPaymentGateway(delegate, breaker,
+            new GatewayBulkhead(10, Duration.ZERO), new GatewayLatencyTracker(0.2), null,
+            merchantId -> limiter, null, meterRegistry);
+
+        gateway.checkPaymentStatus("pi_1");
+
+        assertThatThrownBy(() -> gateway.checkPaymentStatus("pi_1"))
+            .isInstanceOf(PaymentException.class)
+            .extracting(e -> ((PaymentException) e).getCode())
+            .isEqualTo(ResilientPaymentGateway.THROTTLED_CODE);
+        verify(delegate, times(1)).checkPaymentStatus("pi_1");
+        assertThat(breaker.getState()).isEqualTo(GatewayCircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("payments.gateway.calls").tag("outcome", "rejected_rate_limit").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("payments.gateway.rate_limit.wait").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should take tokens from the bucket of the merchant credential")
+    void shouldThrottlePerMerchantCredential() {
+        PaymentGatewayPort delegate = mock(PaymentGatewayPort.class);
+        when(delegate.gatewayProvider()).thenReturn("STRIPE");
+        when(delegate.checkPaymentStatus(anyString(), eq("pi_1")))
+            .thenReturn(PaymentResponse.failure("pi_1", "pending", null));
+        Map<String, GatewayRateLimiter> limiters = new ConcurrentHashMap<>();
+        ResilientPaymentGateway gateway = new ResilientPaymentGateway(delegate,
+            new GatewayCircuitBreaker(4, 1, 50, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 1),
+            new GatewayBulkhead(10, Duration.ZERO), new GatewayLatencyTracker(0.2), null,
+            merchantId -> limiters.computeIfAbsent(merchantId, key -> new GatewayRateLimiter(1, 1, 0, clock::get)),
+            null, new SimpleMeterRegistry());
+
+        gateway.checkPaymentStatus("merch-1", "pi_1");
+        gateway.checkPaymentStatus("merch-2", "pi_1");
+
+        assertThatThrownBy(() -> gateway.checkPaymentStatus("merch-1", "pi_1"))
+            .isInstanceOf(PaymentException.class)
+            .extracting(e -> ((PaymentException) e).getCode())
+            .isEqualTo(ResilientPaymentGateway.THROTTLED_CODE);
+        verify(delegate).checkPaymentStatus("merch-2", "pi_1");
+        assertThat(limiters).containsOnlyKeys("merch-1", "merch-2");
+    }
+
+    @Test
+    @DisplayName("Should not spend a token on a call the bulkhead rejects")
+    void shouldTakeTokenAfterBulkhead() {
+        PaymentGatewayPort delegate = mock(PaymentGatewayPort.class);
+        when(delegate.gatewayProvider()).thenReturn("STRIPE");
+        GatewayRateLimiter limiter = new GatewayRateLimiter(1, 1, 0, clock::get);
+        GatewayBulkhead bulkhead = new GatewayBulkhead(1, Duration.ZERO);
+        ResilientPaymentGateway gateway = new ResilientPaymentGateway(delegate,
+            new GatewayCircuitBreaker(4, 1, 50, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 1),
+            bulkhead, new GatewayLatencyTracker(0.2), null, merchantId -> limiter, null, new SimpleMeterRegistry());
+        bulkhead.tryAcquire();
+
+        assertThatThrownBy(() -> gateway.checkPaymentStatus("pi_1"))
+            .isInstanceOf(PaymentException.class)
+            .extracting(e -> ((PaymentException) e).getCode())
+            .isEqualTo(ResilientPaymentGateway.UNAVAILABLE_CODE);
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should not block async callers while their call waits for its token")
+    void shouldWaitForTokenWithoutBlocking() {
+        PaymentGatewayPort delegate =
+            mock(PaymentGatewayPort.class, withSettings().extraInterfaces(AsyncPaymentGatewayPort.class));
+        AsyncPaymentGatewayPort asyncDelegate = (AsyncPaymentGatewayPort) delegate;
+        PaymentResponse pending = PaymentResponse.failure("pi_1", "pending", null);
+        when(delegate.gatewayProvider()).thenReturn("STRIPE");
+        when(asyncDelegate.checkPaymentStatusAsync("pi_1"))
+            .thenAnswer(invocation -> CompletableFuture.completedFuture(pending));
+        // un token por segundo: la segunda llamada tiene turno dentro de un segundo
+        GatewayRateLimiter limiter = new GatewayRateLimiter(1, 1, Duration.ofSeconds(2).toNanos());
+        ResilientPaymentGateway gateway = new ResilientPaymentGateway(delegate,
+            new GatewayCircuitBreaker(4, 1, 50, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 1),
+            new GatewayBulkhead(10, Duration.ZERO), new GatewayLatencyTracker(0.2), null, merchantId -> limiter,
+            null, new SimpleMeterRegistry());
+
+        assertThat(gateway.checkPaymentStatusAsync("pi_1")).isCompleted();
+        CompletableFuture<PaymentResponse> queued = gateway.checkPaymentStatusAsync("pi_1");
+
+        assertThat(queued).isNotDone();
+        verify(asyncDelegate, times(1)).checkPaymentStatusAsync("pi_1");
+        assertThat(queued.join()).isSameAs(pending);
+        verify(asyncDelegate, times(2)).checkPaymentStatusAsync("pi_1");
+    }
+
+    @Test
+    @DisplayName("Should take a token for every page of a batch listing")
+    void shouldThrottleEveryListingPage() {
+        PaymentGatewayPort delegate =
+            mock(PaymentGatewayPort.class, withSettings().extraInterfaces(BatchPaymentStatusPort.class));
+        when(delegate.gatewayProvider()).thenReturn("STRIPE");
+        // tres paginas: el cubo solo tiene dos tokens
+        when(((BatchPaymentStatusPort) delegate).checkPaymentStatuses(any(), anyCollection(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                Runnable beforeRequest = invocation.getArgument(4);
+                for (int page = 0; page < 3; page++) {
+                    beforeRequest.run();
+                }
+                return Map.of();
+            });
+        GatewayRateLimiter limiter = new GatewayRateLimiter(1, 2, 0, clock::get);
+        GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(
+            4, 1, 50, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 1);
+        GatewayBulkhead bulkhead = new GatewayBulkhead(10, Duration.ZERO);
+        ResilientPaymentGateway gateway = new ResilientPaymentGateway(delegate, breaker, bulkhead,
+            new GatewayLatencyTracker(0.2), null, merchantId -> limiter, null, new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> gateway.checkPaymentStatuses("merch-1", Set.of("pi_1"), null, null))
+            .isInstanceOf(PaymentException.class)
+            .extracting(e -> ((PaymentException) e).getCode())
+            .isEqualTo(ResilientPaymentGateway.THROTTLED_CODE);
+        assertThat(limiter.getAvailablePermits()).isZero();
+        assertThat(breaker.getBufferedCalls()).isZero();
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(10);
+    }
+}
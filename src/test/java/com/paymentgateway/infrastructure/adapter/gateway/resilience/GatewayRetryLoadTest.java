@@ -0,0 +1,182 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequest;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.GatewayLatencyTracker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Prueba de carga de los reintentos contra una pasarela simulada con fallos transitorios inyectados
+ *
+ * Los fallos siguen un patron fijo por referencia y el backoff no tiene jitter, asi que el numero de
+ * intentos y de reintentos no depende del orden de los hilos: se compara con el presupuesto, no con
+ * el reloj.
+ */
+@DisplayName("Gateway retry load Tests")
+class GatewayRetryLoadTest {
+
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS_PER_CLIENT = 500;
+    private static final int REQUESTS = CLIENTS * REQUESTS_PER_CLIENT;
+    // una de cada FAILING_EVERY referencias falla su primer intento (20%)
+    private static final int FAILING_EVERY = 5;
+    private static final double BUDGET_PERCENT = 25;
+    private static final int BUDGET_MAX_RETRIES = 50;
+
+    @Test
+    @DisplayName("Should retry each transient failure exactly once while the budget covers them")
+    void shouldAbsorbTransientFailures() throws Exception {
+        FlakyGateway flaky = new FlakyGateway((paymentReference, attempt) ->
+            attempt == 1 && index(paymentReference) % FAILING_EVERY == 0);
+        LoadResult result = run(flaky);
+
+        int failing = REQUESTS / FAILING_EVERY;
+        assertThat(result.succeeded()).isEqualTo(REQUESTS);
+        assertThat(result.retried()).isEqualTo(failing);
+        assertThat(result.budgetExhausted()).isZero();
+        assertThat(flaky.totalAttempts()).isEqualTo(REQUESTS + failing);
+        assertThat(flaky.attempts).allSatisfy((paymentReference, attempts) -> assertThat(attempts.get())
+            .isEqualTo(index(paymentReference) % FAILING_EVERY == 0 ? 2 : 1));
+    }
+
+    @Test
+    @DisplayName("Should not amplify load beyond the retry budget during an outage")
+    void shouldNotAmplifyDuringOutage() throws Exception {
+        FlakyGateway down = new FlakyGateway((paymentReference, attempt) -> true);
+        LoadResult outage = run(down);
+
+        // lo ingresado por las peticiones mas el presupuesto inicial; las primeras de cada cliente
+        // pueden encontrar el presupuesto lleno y no ingresar, y al final queda menos de una ficha
+        double deposited = REQUESTS * BUDGET_PERCENT / 100;
+        double lostAtCap = CLIENTS * BUDGET_PERCENT / 100;
+        assertThat(outage.succeeded()).isZero();
+        assertThat(outage.retried()).isBetween(
+            (long) (BUDGET_MAX_RETRIES + deposited - lostAtCap - 1), (long) (BUDGET_MAX_RETRIES + deposited));
+        assertThat(outage.budgetExhausted()).isPositive();
+        assertThat(down.totalAttempts()).isEqualTo(REQUESTS + outage.retried());
+    }
+
+    private static LoadResult run(FlakyGateway flakyGateway) throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // sin jitter ni esperas: el resultado solo depende del patron de fallos
+        GatewayRetryPolicy retryPolicy = new GatewayRetryPolicy(meterRegistry, true, 3, Duration.ofMillis(1),
+            Duration.ofMillis(10), BUDGET_PERCENT, BUDGET_MAX_RETRIES, () -> 0);
+        // breaker que no abre nunca: se mide solo el efecto de los reintentos y su presupuesto
+        GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(
+            100, 100, 101, 101, Duration.ofSeconds(5), Duration.ofMinutes(1), 1);
+        ResilientPaymentGateway gateway = new ResilientPaymentGateway(flakyGateway, breaker,
+            new GatewayBulkhead(CLIENTS, Duration.ZERO), new GatewayLatencyTracker(0.2), null, null, retryPolicy,
+            meterRegistry);
+
+        int succeeded = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                int client = c;
+                clients.add(executor.submit(() -> {
+                    int ok = 0;
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        if (gateway.processPayment(request("ref-" + client + "-" + i)).success()) {
+                            ok++;
+                        }
+                    }
+                    return ok;
+                }));
+            }
+            for (Future<Integer> client : clients) {
+                succeeded += client.get();
+            }
+        }
+        return new LoadResult(succeeded, retries(meterRegistry, "retried"), retries(meterRegistry, "budget_exhausted"));
+    }
+
+    private static long retries(SimpleMeterRegistry meterRegistry, String outcome) {
+        return (long) meterRegistry.get("payments.gateway.retries").tag("outcome", outcome).counter().count();
+    }
+
+    // ref-<cliente>-<i>: i es el numero de peticion dentro del cliente
+    private static int index(String paymentReference) {
+        return Integer.parseInt(paymentReference.substring(paymentReference.lastIndexOf('-') + 1));
+    }
+
+    private static PaymentRequest request(String paymentReference) {
+        return new PaymentRequest(paymentReference, new BigDecimal("10.00"), "USD", PaymentMethod.CREDIT_CARD,
+            "cust-1", "merch-1", "Load test", null);
+    }
+
+    private record LoadResult(int succeeded, long retried, long budgetExhausted) {
+    }
+
+    /**
+     * Pasarela que falla con CONNECTION_ERROR segun un patron fijo de (referencia, numero de intento)
+     */
+    private static final class FlakyGateway implements PaymentGatewayPort {
+
+        private final BiPredicate<String, Integer> failure;
+        private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        private FlakyGateway(BiPredicate<String, Integer> failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public PaymentResponse processPayment(PaymentRequest request) {
+            String paymentReference = request.paymentReference();
+            int attempt = attempts.computeIfAbsent(paymentReference, key -> new AtomicInteger()).incrementAndGet();
+            if (failure.test(paymentReference, attempt)) {
+                return PaymentResponse.failure(paymentReference, "connection reset", "CONNECTION_ERROR");
+            }
+            return PaymentResponse.success("txn_" + paymentReference, paymentReference, request.amount(),
+                request.currency(), null);
+        }
+
+        private int totalAttempts() {
+            return attempts.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+
+        @Override
+        public PaymentResponse checkPaymentStatus(String gatewayTransactionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PaymentResponse cancelPayment(String gatewayTransactionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PaymentResponse refundPayment(String gatewayTransactionId, String reason) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean supportsPaymentMethod(PaymentMethod paymentMethod) {
+            return true;
+        }
+
+        @Override
+        public String gatewayProvider() {
+            return "FLAKY";
+        }
+    }
+}
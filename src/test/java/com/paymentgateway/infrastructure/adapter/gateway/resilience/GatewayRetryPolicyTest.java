@@ -0,0 +1,135 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.function.DoubleSupplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.GatewayLatencyTracker;
+import com.paymentgateway.shared.exception.PaymentException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests del backoff, del presupuesto de reintentos y de su aplicacion en ResilientPaymentGateway
+ */
+@DisplayName("GatewayRetryPolicy Tests")
+class GatewayRetryPolicyTest {
+
+    private static final PaymentResponse CONNECTION_FAILURE =
+        PaymentResponse.failure("ref-1", "connection reset", "CONNECTION_ERROR");
+    private static final PaymentResponse DECLINED = PaymentResponse.failure("ref-1", "declined", "CARD_ERROR");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Nested
+    @DisplayName("Backoff and budget")
+    class BackoffAndBudgetTests {
+
+        @Test
+        @DisplayName("Should draw the delay uniformly below an exponentially growing ceiling")
+        void shouldUseFullJitter() {
+            GatewayRetryPolicy policy = policy(10, 50, () -> 0.5);
+
+            assertThat(policy.backoffNanos(1)).isEqualTo(Duration.ofMillis(50).toNanos());
+            assertThat(policy.backoffNanos(2)).isEqualTo(Duration.ofMillis(100).toNanos());
+            assertThat(policy.backoffNanos(3)).isEqualTo(Duration.ofMillis(200).toNanos());
+            // el techo se satura en max-delay aunque el exponente crezca
+            assertThat(policy.backoffNanos(40)).isEqualTo(Duration.ofMillis(500).toNanos());
+            assertThat(policy(10, 50, () -> 0).backoffNanos(3)).isZero();
+        }
+
+        @Test
+        @DisplayName("Should allow retries only while the budget has tokens")
+        void shouldBoundRetriesByBudget() {
+            GatewayRetryPolicy policy = policy(50, 1, () -> 0);
+
+            assertThat(policy.tryAcquireRetry()).isTrue();
+            assertThat(policy.tryAcquireRetry()).isFalse();
+            policy.onRequest();
+            assertThat(policy.tryAcquireRetry()).isFalse();
+            policy.onRequest();
+            assertThat(policy.tryAcquireRetry()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should only treat infrastructure errors as transient")
+        void shouldClassifyTransientFailures() {
+            assertThat(GatewayRetryPolicy.isTransient(CONNECTION_FAILURE, null)).isTrue();
+            assertThat(GatewayRetryPolicy.isTransient(DECLINED, null)).isFalse();
+            assertThat(GatewayRetryPolicy.isTransient(null, new PaymentException("down", "GATEWAY_ERROR"))).isTrue();
+            assertThat(GatewayRetryPolicy.isTransient(
+                null, new PaymentException("open", ResilientPaymentGateway.UNAVAILABLE_CODE))).isFalse();
+            assertThat(GatewayRetryPolicy.isTransient(null, new IllegalStateException("bug"))).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Retries through the resilient gateway")
+    class ResilientGatewayTests {
+
+        @Test
+        @DisplayName("Should retry transient failures until the gateway answers")
+        void shouldRetryTransientFailures() {
+            PaymentGatewayPort delegate = delegate();
+            PaymentResponse completed = PaymentResponse.success("pi_1", "ref-1", null, "USD", null);
+            when(delegate.refundPayment("pi_1", "dup")).thenReturn(CONNECTION_FAILURE, CONNECTION_FAILURE, completed);
+
+            PaymentResponse response = gateway(delegate, policy(10, 50, () -> 0)).refundPayment("pi_1", "dup");
+
+            assertThat(response).isSameAs(completed);
+            verify(delegate, times(3)).refundPayment("pi_1", "dup");
+            assertThat(meterRegistry.get("payments.gateway.retries").tag("outcome", "retried").counter().count())
+                .isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should not retry business rejections")
+        void shouldNotRetryDeclines() {
+            PaymentGatewayPort delegate = delegate();
+            when(delegate.refundPayment("pi_1", "dup")).thenReturn(DECLINED);
+
+            assertThat(gateway(delegate, policy(10, 50, () -> 0)).refundPayment("pi_1", "dup")).isSameAs(DECLINED);
+            verify(delegate, times(1)).refundPayment("pi_1", "dup");
+        }
+
+        @Test
+        @DisplayName("Should return the last failure once the budget is exhausted")
+        void shouldStopWhenBudgetIsExhausted() {
+            PaymentGatewayPort delegate = delegate();
+            when(delegate.refundPayment("pi_1", "dup")).thenReturn(CONNECTION_FAILURE);
+
+            PaymentResponse response = gateway(delegate, policy(0, 1, () -> 0)).refundPayment("pi_1", "dup");
+
+            assertThat(response).isSameAs(CONNECTION_FAILURE);
+            verify(delegate, times(2)).refundPayment("pi_1", "dup");
+            assertThat(meterRegistry.get("payments.gateway.retries").tag("outcome", "budget_exhausted").counter()
+                .count()).isEqualTo(1);
+        }
+    }
+
+    private GatewayRetryPolicy policy(double budgetPercent, int budgetMaxRetries, DoubleSupplier random) {
+        return new GatewayRetryPolicy(meterRegistry, true, 3, Duration.ofMillis(100), Duration.ofSeconds(1),
+            budgetPercent, budgetMaxRetries, random);
+    }
+
+    private static PaymentGatewayPort delegate() {
+        PaymentGatewayPort delegate = mock(PaymentGatewayPort.class);
+        when(delegate.gatewayProvider()).thenReturn("STRIPE");
+        return delegate;
+    }
+
+    private ResilientPaymentGateway gateway(PaymentGatewayPort delegate, GatewayRetryPolicy policy) {
+        GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(
+            20, 10, 50, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 1);
+        return new ResilientPaymentGateway(delegate, breaker, new GatewayBulkhead(10, Duration.ZERO),
+            new GatewayLatencyTracker(0.2), null, null, policy, meterRegistry);
+    }
+}
@@ -0,0 +1,84 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.application.port.AsyncPaymentGatewayPort;
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.infrastructure.adapter.gateway.routing.GatewayLatencyTracker;
+import com.paymentgateway.shared.exception.PaymentException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests de los rechazos locales en la variante asincrona de ResilientPaymentGateway
+ */
+@DisplayName("ResilientPaymentGateway Tests")
+class ResilientPaymentGatewayTest {
+
+    private final PaymentGatewayPort delegate =
+        mock(PaymentGatewayPort.class, withSettings().extraInterfaces(AsyncPaymentGatewayPort.class));
+    private final GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(
+        4, 1, 50, 100, Duration.ofSeconds(5), Duration.ofMinutes(1), 1);
+    private final GatewayBulkhead bulkhead = new GatewayBulkhead(1, Duration.ZERO);
+
+    @Test
+    @DisplayName("Should fail the future instead of throwing when the bulkhead is full")
+    void shouldFailFutureWhenBulkheadIsFull() {
+        ResilientPaymentGateway gateway = gateway();
+        assertThat(bulkhead.tryAcquire()).isTrue();
+
+        CompletableFuture<PaymentResponse> future = gateway.checkPaymentStatusAsync("pi_1");
+
+        assertRejected(future);
+        verify((AsyncPaymentGatewayPort) delegate, never()).checkPaymentStatusAsync("pi_1");
+    }
+
+    @Test
+    @DisplayName("Should fail the future instead of throwing when the circuit breaker is open")
+    void shouldFailFutureWhenBreakerIsOpen() {
+        ResilientPaymentGateway gateway = gateway();
+        breaker.onFailure(0);
+        assertThat(breaker.getState()).isEqualTo(GatewayCircuitBreaker.State.OPEN);
+
+        CompletableFuture<PaymentResponse> future = gateway.checkPaymentStatusAsync("merch-1", "pi_1");
+
+        assertRejected(future);
+        verify((AsyncPaymentGatewayPort) delegate, never()).checkPaymentStatusAsync("merch-1", "pi_1");
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should fail the future when the delegate throws while starting the call")
+    void shouldFailFutureWhenDelegateThrows() {
+        ResilientPaymentGateway gateway = gateway();
+        when(((AsyncPaymentGatewayPort) delegate).checkPaymentStatusAsync("pi_1"))
+            .thenThrow(new PaymentException("down", "GATEWAY_ERROR"));
+
+        CompletableFuture<PaymentResponse> future = gateway.checkPaymentStatusAsync("pi_1");
+
+        assertThat(future).isCompletedExceptionally();
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(1);
+    }
+
+    private ResilientPaymentGateway gateway() {
+        when(delegate.gatewayProvider()).thenReturn("STRIPE");
+        return new ResilientPaymentGateway(delegate, breaker, bulkhead, new GatewayLatencyTracker(0.2), null,
+            null, null, new SimpleMeterRegistry());
+    }
+
+    private static void assertRejected(CompletableFuture<PaymentResponse> future) {
+        assertThat(future).isCompletedExceptionally();
+        assertThatThrownBy(future::join)
+            .hasCauseInstanceOf(PaymentException.class)
+            .extracting(e -> ((PaymentException) e.getCause()).getCode())
+            .isEqualTo(ResilientPaymentGateway.UNAVAILABLE_CODE);
+    }
+}
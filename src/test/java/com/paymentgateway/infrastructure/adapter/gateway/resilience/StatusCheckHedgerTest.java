@@ -0,0 +1,141 @@
+package com.paymentgateway.infrastructure.adapter.gateway.resilience;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.domain.model.PaymentResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests del hedging de consultas de estado con el temporizador controlado por el test
+ */
+@DisplayName("StatusCheckHedger Tests")
+class StatusCheckHedgerTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Deque<Runnable> timers = new ArrayDeque<>();
+    private final Deque<CompletableFuture<PaymentResponse>> calls = new ArrayDeque<>();
+    private int callCount;
+
+    @Test
+    @DisplayName("Should not hedge until the p95 can be estimated")
+    void shouldNotHedgeWhileCold() {
+        StatusCheckHedger hedger = hedger(100);
+
+        CompletableFuture<PaymentResponse> result = hedger.hedge(this::nextCall);
+
+        assertThat(timers).isEmpty();
+        assertThat(hedger.getHedgeDelayNanos()).isNegative();
+        calls.peekLast().complete(response("TXN_1"));
+        assertThat(result.join().gatewayTransactionId()).isEqualTo("TXN_1");
+    }
+
+    @Test
+    @DisplayName("Should take the hedge when it answers before the slow first call")
+    void shouldUseFirstAnswer() {
+        StatusCheckHedger hedger = hedger(100);
+        warmUp(hedger);
+
+        CompletableFuture<PaymentResponse> result = hedger.hedge(this::nextCall);
+        CompletableFuture<PaymentResponse> primary = calls.peekLast();
+        timers.poll().run();
+        CompletableFuture<PaymentResponse> hedge = calls.peekLast();
+
+        assertThat(hedge).isNotSameAs(primary);
+        hedge.complete(response("TXN_HEDGE"));
+        primary.complete(response("TXN_PRIMARY"));
+
+        assertThat(result.join().gatewayTransactionId()).isEqualTo("TXN_HEDGE");
+        assertThat(hedger.winRate()).isEqualTo(1.0);
+        assertThat(outcome("hedge_won")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should wait for the hedge when the first call fails")
+    void shouldSurviveOneFailure() {
+        StatusCheckHedger hedger = hedger(100);
+        warmUp(hedger);
+
+        CompletableFuture<PaymentResponse> result = hedger.hedge(this::nextCall);
+        CompletableFuture<PaymentResponse> primary = calls.peekLast();
+        timers.poll().run();
+        primary.completeExceptionally(new IllegalStateException("connection reset"));
+
+        assertThat(result).isNotDone();
+        calls.peekLast().complete(response("TXN_HEDGE"));
+        assertThat(result.join().gatewayTransactionId()).isEqualTo("TXN_HEDGE");
+    }
+
+    @Test
+    @DisplayName("Should cap the extra calls with the hedge budget")
+    void shouldRespectBudget() {
+        StatusCheckHedger hedger = hedger(10);
+        warmUp(hedger);
+
+        // cada consulta aporta un 10% de ficha: las 4 del calentamiento no alcanzan para un hedge
+        hedger.hedge(this::nextCall);
+        int before = callCount;
+        timers.poll().run();
+
+        assertThat(callCount).isEqualTo(before);
+        assertThat(outcome("budget_exhausted")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should not send the hedge when it is not admitted and keep its budget")
+    void shouldSkipUnadmittedHedge() {
+        StatusCheckHedger hedger = hedger(100);
+        warmUp(hedger);
+
+        hedger.hedge(this::nextCall, () -> false);
+        int before = callCount;
+        timers.poll().run();
+
+        assertThat(callCount).isEqualTo(before);
+        assertThat(outcome("throttled")).isEqualTo(1.0);
+        // la ficha devuelta paga el hedge de la siguiente consulta
+        hedger.hedge(this::nextCall);
+        timers.poll().run();
+        assertThat(callCount).isEqualTo(before + 2);
+    }
+
+    private StatusCheckHedger hedger(double budgetPercent) {
+        return new StatusCheckHedger("STRIPE", meterRegistry, 8, 4, budgetPercent, MILLIS, 1_000 * MILLIS,
+            timers::add);
+    }
+
+    private void warmUp(StatusCheckHedger hedger) {
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<PaymentResponse> result = hedger.hedge(this::nextCall);
+            calls.peekLast().complete(response("TXN_WARMUP"));
+            result.join();
+        }
+        timers.clear();
+        assertThat(hedger.getHedgeDelayNanos()).isPositive();
+    }
+
+    private CompletableFuture<PaymentResponse> nextCall() {
+        callCount++;
+        CompletableFuture<PaymentResponse> call = new CompletableFuture<>();
+        calls.add(call);
+        return call;
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("payments.gateway.hedging").tag("outcome", outcome).counter().count();
+    }
+
+    private static PaymentResponse response(String transactionId) {
+        return PaymentResponse.success(transactionId, "ref-1", new BigDecimal("10.00"), "USD", null);
+    }
+}
@@ -0,0 +1,151 @@
+package com.paymentgateway.infrastructure.adapter.gateway.routing;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeSchedule;
+import com.paymentgateway.infrastructure.adapter.gateway.fee.FeeScheduleProvider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests del enrutado por latencia esperada (EWMA / tasa de exito)
+ */
+@DisplayName("AdaptiveGatewayRouter Tests")
+class AdaptiveGatewayRouterTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private final GatewayLatencyTracker tracker = new GatewayLatencyTracker(0.5);
+    private PaymentGatewayPort stripe;
+    private PaymentGatewayPort paypal;
+
+    @BeforeEach
+    void setUp() {
+        stripe = gateway("STRIPE");
+        paypal = gateway("PAYPAL");
+    }
+
+    @Test
+    @DisplayName("Should keep the business preference until there are enough samples")
+    void shouldUsePreferenceWhenCold() {
+        AdaptiveGatewayRouter router = router(0, 0.5);
+        record("PAYPAL", 50, false, 2);
+
+        assertThat(router.select(List.of(paypal, stripe), PaymentMethod.CREDIT_CARD, stripe)).isSameAs(stripe);
+    }
+
+    @Test
+    @DisplayName("Should route to the gateway with the lowest expected latency")
+    void shouldPreferFasterGateway() {
+        AdaptiveGatewayRouter router = router(0, 0.5);
+        record("STRIPE", 900, false, 5);
+        record("PAYPAL", 120, false, 5);
+
+        assertThat(router.select(List.of(stripe, paypal), PaymentMethod.CREDIT_CARD, stripe)).isSameAs(paypal);
+    }
+
+    @Test
+    @DisplayName("Should penalise a fast gateway that keeps failing")
+    void shouldPenaliseErrors() {
+        AdaptiveGatewayRouter router = router(0, 0.5);
+        record("STRIPE", 300, false, 5);
+        record("PAYPAL", 100, true, 5);
+
+        assertThat(router.select(List.of(stripe, paypal), PaymentMethod.CREDIT_CARD, stripe)).isSameAs(stripe);
+    }
+
+    @Test
+    @DisplayName("Should send the exploration share to another gateway")
+    void shouldExplore() {
+        record("STRIPE", 900, false, 5);
+        record("PAYPAL", 120, false, 5);
+
+        assertThat(router(0.1, 0.05).select(List.of(stripe, paypal), PaymentMethod.CREDIT_CARD, stripe))
+            .isSameAs(stripe);
+        assertThat(router(0.1, 0.5).select(List.of(stripe, paypal), PaymentMethod.CREDIT_CARD, stripe))
+            .isSameAs(paypal);
+    }
+
+    @Test
+    @DisplayName("Should pick the cheapest gateway within the latency SLO")
+    void shouldPickCheapestWithinSlo() {
+        PaymentGatewayPort cheap = pricedGateway("CHEAP", "0.019");
+        PaymentGatewayPort expensive = pricedGateway("EXPENSIVE", "0.029");
+        AdaptiveGatewayRouter router = router(0, 0.5);
+
+        assertThat(select(router, cheap, expensive)).isSameAs(cheap);
+
+        // la barata supera el SLO de 1s: gana la que lo cumple aunque cueste mas
+        record("CHEAP", 1500, false, 5);
+        record("EXPENSIVE", 200, false, 5);
+        assertThat(select(router, cheap, expensive)).isSameAs(expensive);
+
+        // ninguna cumple el SLO: decide la latencia
+        record("EXPENSIVE", 4000, false, 5);
+        assertThat(select(router, cheap, expensive)).isSameAs(cheap);
+    }
+
+    @Test
+    @DisplayName("Should fall back to latency when fees tie or gateways are unpriced")
+    void shouldBreakTiesByLatency() {
+        PaymentGatewayPort slow = pricedGateway("STRIPE", "0.029");
+        PaymentGatewayPort fast = pricedGateway("PAYPAL", "0.029");
+        record("STRIPE", 800, false, 5);
+        record("PAYPAL", 100, false, 5);
+
+        assertThat(select(router(0, 0.5), slow, fast)).isSameAs(fast);
+        assertThat(select(router(0, 0.5), stripe, paypal)).isSameAs(paypal);
+    }
+
+    @Test
+    @DisplayName("Should keep statistics per payment method")
+    void shouldTrackPerMethod() {
+        record("STRIPE", 400, false, 5);
+
+        assertThat(tracker.snapshot("STRIPE", PaymentMethod.CREDIT_CARD).latencyMillis()).isEqualTo(400.0);
+        assertThat(tracker.snapshot("STRIPE", PaymentMethod.APPLE_PAY).samples()).isZero();
+    }
+
+    private AdaptiveGatewayRouter router(double explorationRate, double draw) {
+        return new AdaptiveGatewayRouter(tracker, new SimpleMeterRegistry(), explorationRate, 5, true,
+            Duration.ofSeconds(1), () -> draw);
+    }
+
+    private static PaymentGatewayPort select(AdaptiveGatewayRouter router, PaymentGatewayPort first,
+                                             PaymentGatewayPort second) {
+        return router.select(List.of(first, second), PaymentMethod.CREDIT_CARD, "usd", new BigDecimal("100.00"),
+            first);
+    }
+
+    private void record(String provider, long latencyMillis, boolean failed, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(provider, PaymentMethod.CREDIT_CARD, latencyMillis * MILLIS, failed);
+        }
+    }
+
+    private static PaymentGatewayPort pricedGateway(String provider, String percentage) {
+        PaymentGatewayPort gateway = mock(PaymentGatewayPort.class,
+            withSettings().extraInterfaces(FeeScheduleProvider.class));
+        when(gateway.gatewayProvider()).thenReturn(provider);
+        when(((FeeScheduleProvider) gateway).feeSchedule())
+            .thenReturn(FeeSchedule.builder(provider).rate(percentage, "0.30").build());
+        return gateway;
+    }
+
+    private static PaymentGatewayPort gateway(String provider) {
+        PaymentGatewayPort gateway = mock(PaymentGatewayPort.class);
+        when(gateway.gatewayProvider()).thenReturn(provider);
+        return gateway;
+    }
+}
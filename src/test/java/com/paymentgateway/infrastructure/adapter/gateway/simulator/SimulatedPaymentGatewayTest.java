@@ -0,0 +1,111 @@
+package com.paymentgateway.infrastructure.adapter.gateway.simulator;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.paymentgateway.domain.model.PayPalDetails;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequest;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.infrastructure.adapter.gateway.paypal.PayPalPaymentGateway;
+import com.paymentgateway.shared.exception.PaymentException;
+
+/**
+ * Tests de la pasarela simulada con semilla y reloj controlados
+ */
+@DisplayName("SimulatedPaymentGateway Tests")
+class SimulatedPaymentGatewayTest {
+
+    private static final LatencyDistribution NO_LATENCY = new LatencyDistribution.Fixed(Duration.ZERO);
+
+    private final PayPalPaymentGateway template = new PayPalPaymentGateway("client", "secret", "sandbox");
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Should sample lognormal latencies around the configured median and p99")
+    void shouldSampleLogNormal() {
+        LatencyDistribution distribution =
+            new LatencyDistribution.LogNormal(Duration.ofMillis(100), Duration.ofMillis(800));
+        Random random = new Random(42);
+        long[] samples = new long[50_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = distribution.sampleNanos(random);
+        }
+        Arrays.sort(samples);
+
+        assertThat(Duration.ofNanos(samples[samples.length / 2]).toMillis()).isBetween(95L, 105L);
+        assertThat(Duration.ofNanos(samples[(int) (samples.length * 0.99)]).toMillis()).isBetween(720L, 880L);
+    }
+
+    @Test
+    @DisplayName("Should answer with 429 only during the end of each burst period")
+    void shouldRateLimitDuringBursts() {
+        SimulatedPaymentGateway gateway = gateway(new SimulatedPaymentGateway.Behavior(
+            NO_LATENCY, 0, 0, Duration.ofSeconds(10), Duration.ofSeconds(2), 0));
+
+        assertThat(gateway.processPayment(request()).success()).isTrue();
+        clock.addAndGet(Duration.ofSeconds(8).toNanos());
+        PaymentResponse throttled = gateway.processPayment(request());
+        assertThatThrownBy(() -> gateway.checkPaymentStatus("txn-1"))
+            .isInstanceOf(PaymentException.class)
+            .extracting(e -> ((PaymentException) e).getCode())
+            .isEqualTo("RATE_LIMITED");
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertThat(throttled.success()).isFalse();
+        assertThat(throttled.errorCode()).isEqualTo("RATE_LIMITED");
+        assertThat(gateway.processPayment(request()).success()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should queue calls beyond the simulated capacity")
+    void shouldQueueBeyondCapacity() {
+        SimulatedPaymentGateway gateway = gateway(new SimulatedPaymentGateway.Behavior(
+            new LatencyDistribution.Fixed(Duration.ofMillis(100)), 0, 0, Duration.ZERO, Duration.ZERO, 1));
+
+        long start = System.nanoTime();
+        List<CompletableFuture<PaymentResponse>> calls = List.of(
+            gateway.checkPaymentStatusAsync("txn-1"),
+            gateway.checkPaymentStatusAsync("txn-2"),
+            gateway.checkPaymentStatusAsync("txn-3"));
+        calls.forEach(CompletableFuture::join);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(300));
+    }
+
+    @Test
+    @DisplayName("Should report cancelled and refunded transactions in later status checks")
+    void shouldTrackStatusChanges() {
+        SimulatedPaymentGateway gateway = gateway(new SimulatedPaymentGateway.Behavior(
+            NO_LATENCY, 0, 0, Duration.ZERO, Duration.ZERO, 0));
+
+        PaymentResponse payment = gateway.processPayment(request());
+        gateway.refundPayment(payment.gatewayTransactionId(), "customer request");
+
+        assertThat(payment.gatewayTransactionId()).startsWith("paypal_sim_");
+        assertThat(payment.gatewayData().fees()).isNotNull();
+        assertThat(gateway.checkPaymentStatus(payment.gatewayTransactionId()).status())
+            .isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(gateway.checkPaymentStatus("other").status()).isEqualTo(PaymentStatus.COMPLETED);
+    }
+
+    private SimulatedPaymentGateway gateway(SimulatedPaymentGateway.Behavior behavior) {
+        return new SimulatedPaymentGateway(template, behavior, new Random(7), clock::get);
+    }
+
+    private static PaymentRequest request() {
+        return new PaymentRequest("ref-1", new BigDecimal("25.00"), "USD", PaymentMethod.PAYPAL, "cust-1", "merch-1",
+            "Test", new PayPalDetails("buyer@example.com", "https://shop/return", "https://shop/cancel"));
+    }
+}
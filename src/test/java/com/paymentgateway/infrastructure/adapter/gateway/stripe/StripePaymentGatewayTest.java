@@ -0,0 +1,149 @@
+package com.paymentgateway.infrastructure.adapter.gateway.stripe;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.paymentgateway.domain.model.CreditCardDetails;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentRequest;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests del adaptador de Stripe contra un servidor HTTP local que imita la API
+ */
+@DisplayName("StripePaymentGateway Tests")
+class StripePaymentGatewayTest {
+
+    private static final String PAYMENT_INTENT = """
+        {"id": "pi_1", "object": "payment_intent", "amount": 2000, "currency": "usd",
+         "status": "succeeded", "metadata": {"payment_reference": "ref-1"}}
+        """;
+
+    // pagina de listado que nunca contiene los ids buscados y siempre anuncia mas resultados
+    private static final String UNRELATED_PAGE = """
+        {"object": "list", "url": "/v1/payment_intents", "has_more": true,
+         "data": [{"id": "pi_other", "object": "payment_intent", "amount": 100, "currency": "usd",
+                   "status": "succeeded", "metadata": {}}]}
+        """;
+
+    private final List<Headers> requests = new CopyOnWriteArrayList<>();
+    private final List<String> listQueries = new CopyOnWriteArrayList<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+    private StripePaymentGateway gateway;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/payment_intents", this::respond);
+        server.start();
+
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("stripe.api.merchant-keys.merch-1", "sk_test_merchant");
+        gateway = new StripePaymentGateway(new StripeClientRegistry(meterRegistry, environment, "sk_test_default",
+            "http://localhost:" + server.getAddress().getPort(), Duration.ofSeconds(2), Duration.ofSeconds(5), true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should create payment intents with the merchant key and an idempotency key")
+    void shouldUseMerchantKeyAndIdempotencyKey() {
+        PaymentResponse response = gateway.processPayment(new PaymentRequest("ref-1", new BigDecimal("20.00"), "USD",
+            PaymentMethod.CREDIT_CARD, "cust-1", "merch-1", "Test", new CreditCardDetails(
+                "4242424242424242", "12", String.valueOf(Year.now().getValue() + 2), "123", "Test Holder")));
+
+        assertThat(response.success()).isTrue();
+        assertThat(response.gatewayTransactionId()).isEqualTo("pi_1");
+        Headers headers = requests.get(0);
+        assertThat(headers.getFirst("Authorization")).isEqualTo("Bearer sk_test_merchant");
+        assertThat(headers.getFirst("Idempotency-Key")).isEqualTo("stripe-payment-ref-1");
+    }
+
+    @Test
+    @DisplayName("Should reuse pooled connections with the default key for follow-up calls")
+    void shouldReuseConnections() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(gateway.checkPaymentStatus("pi_1").success()).isTrue();
+        }
+
+        assertThat(requests).allSatisfy(headers ->
+            assertThat(headers.getFirst("Authorization")).isEqualTo("Bearer sk_test_default"));
+        assertThat(clientPorts).hasSize(1);
+        assertThat(meterRegistry.get("payments.stripe.http.requests").tag("outcome", "2xx").timer().count())
+            .isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Should send follow-up calls with the key of the merchant that created the payment")
+    void shouldUseMerchantKeyForFollowUpCalls() {
+        assertThat(gateway.checkPaymentStatus("merch-1", "pi_1").success()).isTrue();
+        gateway.cancelPayment("merch-1", "pi_1");
+        gateway.checkPaymentStatus("merch-without-key", "pi_1");
+
+        assertThat(requests).extracting(headers -> headers.getFirst("Authorization"))
+            .containsExactly("Bearer sk_test_merchant", "Bearer sk_test_merchant", "Bearer sk_test_default");
+        assertThat(gateway.credentialId("merch-1")).isNotEqualTo(gateway.credentialId(null));
+        assertThat(gateway.credentialId("merch-without-key")).isEqualTo(gateway.credentialId(null));
+    }
+
+    @Test
+    @DisplayName("Should stop listing after the page cap and leave unmatched ids for single lookups")
+    void shouldCapListedPages() {
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(1);
+
+        Map<String, PaymentResponse> statuses = gateway.checkPaymentStatuses(null, Set.of("pi_1", "pi_2"), createdAt,
+            createdAt.plusMinutes(30));
+
+        assertThat(statuses).isEmpty();
+        assertThat(listQueries).hasSize(StripePaymentGateway.LIST_MAX_PAGES);
+        assertThat(listQueries.get(0)).doesNotContain("starting_after");
+        assertThat(listQueries.get(1)).contains("starting_after=pi_other");
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requests.add(exchange.getRequestHeaders());
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestBody().readAllBytes();
+        boolean list = "/v1/payment_intents".equals(exchange.getRequestURI().getPath())
+            && "GET".equals(exchange.getRequestMethod());
+        if (list) {
+            listQueries.add(String.valueOf(exchange.getRequestURI().getRawQuery()));
+        }
+        byte[] body = (list ? UNRELATED_PAGE : PAYMENT_INTENT).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
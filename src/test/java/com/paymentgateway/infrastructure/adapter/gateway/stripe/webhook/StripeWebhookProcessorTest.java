@@ -0,0 +1,181 @@
+package com.paymentgateway.infrastructure.adapter.gateway.stripe.webhook;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.model.PaymentTransition;
+import com.paymentgateway.domain.repository.PaymentRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests del procesado por lotes de webhooks de Stripe y de la verificacion de firmas
+ */
+@DisplayName("StripeWebhookProcessor Tests")
+class StripeWebhookProcessorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PaymentRepository paymentRepository;
+    private StripeWebhookProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = mock(PaymentRepository.class);
+        when(paymentRepository.transitionAll(anyCollection(), any(), any()))
+            .thenAnswer(invocation -> List.copyOf(invocation.<Collection<UUID>>getArgument(0)));
+        processor = new StripeWebhookProcessor(paymentRepository, new ObjectMapper(), meterRegistry,
+            2, 500, Duration.ofMinutes(10), 1_000, clock::get);
+    }
+
+    @Test
+    @DisplayName("Should dedupe events, keep the latest per intent and leave failed attempts pending")
+    void shouldApplyLatestEventPerIntent() {
+        Payment pending = payment(PaymentStatus.PENDING, "pi_1");
+        Payment processing = payment(PaymentStatus.PROCESSING, "pi_2");
+        when(paymentRepository.findByGatewayTransactionIds(Set.of("pi_1", "pi_2")))
+            .thenReturn(List.of(pending, processing));
+
+        int changed = processor.process(List.of(
+            event("evt_2", "payment_intent.succeeded", 200, "pi_1", ""),
+            event("evt_1", "payment_intent.processing", 100, "pi_1", ""),
+            event("evt_2", "payment_intent.succeeded", 200, "pi_1", ""),
+            event("evt_3", "payment_intent.payment_failed", 150, "pi_2",
+                ", \"last_payment_error\": {\"code\": \"card_declined\", \"message\": \"Your card was declined.\"}"),
+            event("evt_4", "customer.created", 300, "cus_1", ""),
+            "not json".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(changed).isEqualTo(1);
+        verify(paymentRepository).findByGatewayTransactionIds(Set.of("pi_1", "pi_2"));
+        verify(paymentRepository).transitionAll(List.of(pending.getId()), PaymentTransition.START_PROCESSING, null);
+        verify(paymentRepository).transitionAll(List.of(pending.getId()), PaymentTransition.COMPLETE, null);
+        // un intento fallido no cierra el pago: el cliente puede reintentar con otro medio de pago
+        verify(paymentRepository, never()).transitionAll(anyCollection(), eq(PaymentTransition.FAIL), any());
+        assertThat(meterRegistry.get("payments.webhooks.events").tag("outcome", "duplicate").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("payments.webhooks.events").tag("outcome", "invalid").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should complete a payment that succeeds after a failed attempt")
+    void shouldCompleteAfterFailedAttempt() {
+        Payment pending = payment(PaymentStatus.PENDING, "pi_1");
+        when(paymentRepository.findByGatewayTransactionIds(Set.of("pi_1"))).thenReturn(List.of(pending));
+
+        processor.process(List.of(event("evt_1", "payment_intent.payment_failed", 100, "pi_1", "")));
+        processor.process(List.of(event("evt_2", "payment_intent.succeeded", 200, "pi_1", "")));
+
+        verify(paymentRepository, never()).transitionAll(anyCollection(), eq(PaymentTransition.FAIL), any());
+        verify(paymentRepository).transitionAll(List.of(pending.getId()), PaymentTransition.COMPLETE, null);
+    }
+
+    @Test
+    @DisplayName("Should accept a redelivered event once it has left the dedupe window")
+    void shouldForgetEventsAfterWindow() {
+        when(paymentRepository.findByGatewayTransactionIds(anyCollection())).thenReturn(List.of());
+        byte[] succeeded = event("evt_1", "payment_intent.succeeded", 100, "pi_1", "");
+
+        processor.process(List.of(succeeded));
+        processor.process(List.of(succeeded));
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+        processor.process(List.of(succeeded));
+
+        verify(paymentRepository, times(2)).findByGatewayTransactionIds(Set.of("pi_1"));
+    }
+
+    @Test
+    @DisplayName("Should refuse events when the queue is full instead of blocking")
+    void shouldRejectWhenQueueIsFull() {
+        byte[] payload = event("evt_1", "payment_intent.succeeded", 100, "pi_1", "");
+
+        assertThat(processor.enqueue(payload)).isTrue();
+        assertThat(processor.enqueue(payload)).isTrue();
+        assertThat(processor.enqueue(payload)).isFalse();
+        assertThat(meterRegistry.get("payments.webhooks.queue").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should verify Stripe signatures within the tolerance only")
+    void shouldVerifySignatures() {
+        AtomicLong now = new AtomicLong(1_700_000_000L);
+        StripeSignatureVerifier verifier = new StripeSignatureVerifier("whsec_test", Duration.ofMinutes(5), now::get);
+        byte[] payload = event("evt_1", "payment_intent.succeeded", 100, "pi_1", "");
+        String signature = verifier.sign(payload, now.get());
+
+        assertThat(verifier.verify(payload, signature)).isTrue();
+        assertThat(verifier.verify(payload, "v1=00," + signature.replace(",", " , "))).isTrue();
+        assertThat(verifier.verify("{}".getBytes(StandardCharsets.UTF_8), signature)).isFalse();
+        assertThat(verifier.verify(payload, null)).isFalse();
+        assertThat(new StripeSignatureVerifier("whsec_other", Duration.ofMinutes(5), now::get)
+            .verify(payload, signature)).isFalse();
+        now.addAndGet(Duration.ofMinutes(6).toSeconds());
+        assertThat(verifier.verify(payload, signature)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should verify concurrently on virtual threads without sharing Mac state")
+    void shouldVerifyConcurrently() throws Exception {
+        AtomicLong now = new AtomicLong(1_700_000_000L);
+        StripeSignatureVerifier verifier = new StripeSignatureVerifier("whsec_test", Duration.ofMinutes(5), now::get);
+        List<Callable<Boolean>> checks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            byte[] payload = event("evt_" + i, "payment_intent.succeeded", 100, "pi_" + i, "");
+            String signature = verifier.sign(payload, now.get());
+            checks.add(() -> verifier.verify(payload, signature));
+            checks.add(() -> !verifier.verify("{}".getBytes(StandardCharsets.UTF_8), signature));
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Boolean> result : executor.invokeAll(checks)) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+    }
+
+    private static byte[] event(String id, String type, long created, String objectId, String extraFields) {
+        return ("{\"id\": \"" + id + "\", \"type\": \"" + type + "\", \"created\": " + created
+            + ", \"data\": {\"object\": {\"id\": \"" + objectId + "\"" + extraFields + "}}}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Payment payment(PaymentStatus status, String transactionId) {
+        return Payment.builder()
+            .id(UUID.randomUUID())
+            .paymentReference("ref-" + UUID.randomUUID())
+            .amount(new BigDecimal("10.00"))
+            .currency("USD")
+            .status(status)
+            .paymentMethod(PaymentMethod.CREDIT_CARD)
+            .gatewayProvider("STRIPE")
+            .gatewayTransactionId(transactionId)
+            .customerId("cust-1")
+            .merchantId("merch-1")
+            .createdAt(LocalDateTime.now())
+            .build();
+    }
+}
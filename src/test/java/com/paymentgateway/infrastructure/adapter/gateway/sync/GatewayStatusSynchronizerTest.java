@@ -0,0 +1,215 @@
+package com.paymentgateway.infrastructure.adapter.gateway.sync;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.paymentgateway.application.port.BatchPaymentStatusPort;
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentCursor;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentPage;
+import com.paymentgateway.domain.model.PaymentResponse;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.model.PaymentTransition;
+import com.paymentgateway.domain.repository.PaymentRepository;
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayFactory;
+import com.paymentgateway.infrastructure.persistence.lock.AdvisoryLock;
+import com.paymentgateway.shared.exception.PaymentException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests de la sincronizacion por lotes de pagos no terminales
+ */
+@DisplayName("GatewayStatusSynchronizer Tests")
+class GatewayStatusSynchronizerTest {
+
+    private PaymentRepository paymentRepository;
+    private PaymentGatewayFactory gatewayFactory;
+    private AdvisoryLock advisoryLock;
+    private GatewayStatusSynchronizer synchronizer;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = mock(PaymentRepository.class);
+        gatewayFactory = mock(PaymentGatewayFactory.class);
+        advisoryLock = mock(AdvisoryLock.class);
+        when(advisoryLock.runExclusively(eq(GatewayStatusSynchronizer.LOCK_NAME), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+        when(paymentRepository.findByStatus(any(PaymentStatus.class), any(), anyInt()))
+            .thenReturn(new PaymentPage(List.of(), null));
+        when(paymentRepository.transitionAll(anyCollection(), any(), any()))
+            .thenAnswer(invocation -> List.copyOf(invocation.<java.util.Collection<UUID>>getArgument(0)));
+        synchronizer = new GatewayStatusSynchronizer(paymentRepository, gatewayFactory, advisoryLock,
+            new SimpleMeterRegistry(), true, 50, Duration.ofMinutes(2), Duration.ofDays(7), Duration.ofHours(1), 4, 1_000);
+    }
+
+    @Test
+    @DisplayName("Should use one list call for gateways with batch lookups and apply bulk transitions")
+    void shouldSyncInBatch() {
+        Payment completed = stale(PaymentStatus.PENDING, "pi_completed");
+        Payment failed = stale(PaymentStatus.PROCESSING, "pi_failed");
+        Payment actionRequired = stale(PaymentStatus.PENDING, "pi_action");
+        Payment stillProcessing = stale(PaymentStatus.PROCESSING, "pi_processing");
+        pendingPage(completed, actionRequired);
+        processingPage(failed, stillProcessing);
+        PaymentGatewayPort stripe = batchGateway();
+        when(((BatchPaymentStatusPort) stripe).checkPaymentStatuses(eq("merch-1"), anyCollection(), any(), any())).thenReturn(Map.of(
+            "pi_completed", status("pi_completed", PaymentStatus.COMPLETED, null),
+            "pi_action", status("pi_action", PaymentStatus.PENDING, "ACTION_REQUIRED"),
+            "pi_failed", status("pi_failed", PaymentStatus.FAILED, "INVALID_PAYMENT_METHOD"),
+            "pi_processing", status("pi_processing", PaymentStatus.PROCESSING, null)
+        ));
+        when(gatewayFactory.getGateway("STRIPE")).thenReturn(stripe);
+
+        int changed = synchronizer.synchronize();
+
+        assertThat(changed).isEqualTo(2);
+        verify(stripe, never()).checkPaymentStatus(any(), any());
+        verify(paymentRepository).transitionAll(List.of(completed.getId()), PaymentTransition.START_PROCESSING, null);
+        verify(paymentRepository).transitionAll(List.of(completed.getId()), PaymentTransition.COMPLETE, null);
+        verify(paymentRepository).transitionAll(eq(List.of(failed.getId())), eq(PaymentTransition.FAIL),
+            contains("INVALID_PAYMENT_METHOD"));
+        verify(paymentRepository, never()).transitionAll(anyCollection(), eq(PaymentTransition.CANCEL), any());
+    }
+
+    @Test
+    @DisplayName("Should check one by one when there is no batch lookup and skip failed checks")
+    void shouldSyncIndividually() {
+        Payment cancelled = stale(PaymentStatus.PROCESSING, "PAYPAL_1");
+        Payment unreachable = stale(PaymentStatus.PROCESSING, "PAYPAL_2");
+        processingPage(cancelled, unreachable);
+        PaymentGatewayPort paypal = mock(PaymentGatewayPort.class);
+        when(paypal.checkPaymentStatus("merch-1", "PAYPAL_1")).thenReturn(status("PAYPAL_1", PaymentStatus.CANCELLED, null));
+        when(paypal.checkPaymentStatus("merch-1", "PAYPAL_2")).thenThrow(new PaymentException("timeout", "GATEWAY_UNAVAILABLE"));
+        when(gatewayFactory.getGateway("PAYPAL")).thenReturn(paypal);
+
+        int changed = synchronizer.synchronize();
+
+        assertThat(changed).isEqualTo(1);
+        verify(paymentRepository).transitionAll(List.of(cancelled.getId()), PaymentTransition.CANCEL, null);
+    }
+
+    @Test
+    @DisplayName("Should leave recent payments and payments without a gateway transaction alone")
+    void shouldSkipRecentAndUntrackedPayments() {
+        Payment recent = payment(PaymentStatus.PENDING, "pi_recent", "STRIPE", LocalDateTime.now());
+        Payment untracked = stale(PaymentStatus.PENDING, null);
+        pendingPage(untracked, recent);
+
+        assertThat(synchronizer.synchronize()).isZero();
+        verifyNoInteractions(gatewayFactory);
+    }
+
+    @Test
+    @DisplayName("Should skip the pass while another node holds the sync lock")
+    void shouldSkipWhenAnotherNodeSyncs() {
+        pendingPage(stale(PaymentStatus.PENDING, "pi_completed"));
+        when(advisoryLock.runExclusively(eq(GatewayStatusSynchronizer.LOCK_NAME), any())).thenReturn(false);
+
+        assertThat(synchronizer.synchronize()).isZero();
+        verify(paymentRepository, never()).findByStatus(any(PaymentStatus.class), any(), anyInt());
+        verifyNoInteractions(gatewayFactory);
+    }
+
+    @Test
+    @DisplayName("Should start each pass at max-age so older payments leave the sync")
+    void shouldStartAtMaxAge() {
+        LocalDateTime before = LocalDateTime.now().minusDays(7);
+
+        synchronizer.synchronize();
+
+        ArgumentCaptor<PaymentCursor> cursor = ArgumentCaptor.forClass(PaymentCursor.class);
+        verify(paymentRepository, times(2)).findByStatus(any(PaymentStatus.class), cursor.capture(), eq(50));
+        assertThat(cursor.getAllValues()).allSatisfy(start -> {
+            assertThat(start.createdAt()).isBetween(before, LocalDateTime.now().minusDays(7));
+            assertThat(start.id()).isEqualTo(new UUID(0L, 0L));
+        });
+    }
+
+    @Test
+    @DisplayName("Should list each batch window separately and check lone payments by id")
+    void shouldSplitBatchIntoWindows() {
+        LocalDateTime base = LocalDateTime.now().minusHours(6);
+        Payment first = payment(PaymentStatus.PENDING, "pi_a", "STRIPE", base);
+        Payment second = payment(PaymentStatus.PENDING, "pi_b", "STRIPE", base.plusMinutes(40));
+        Payment lone = payment(PaymentStatus.PENDING, "pi_c", "STRIPE", base.plusHours(3));
+        Payment third = payment(PaymentStatus.PENDING, "pi_d", "STRIPE", base.plusHours(5));
+        Payment fourth = payment(PaymentStatus.PENDING, "pi_e", "STRIPE", base.plusHours(5).plusMinutes(5));
+        pendingPage(first, second, lone, third, fourth);
+        PaymentGatewayPort stripe = batchGateway();
+        when(((BatchPaymentStatusPort) stripe).checkPaymentStatuses(eq("merch-1"), anyCollection(), any(), any())).thenReturn(Map.of());
+        when(stripe.checkPaymentStatus(eq("merch-1"), anyString())).thenAnswer(invocation ->
+            status(invocation.getArgument(1), PaymentStatus.PENDING, null));
+        when(gatewayFactory.getGateway("STRIPE")).thenReturn(stripe);
+
+        synchronizer.synchronize();
+
+        BatchPaymentStatusPort batch = (BatchPaymentStatusPort) stripe;
+        verify(batch).checkPaymentStatuses("merch-1", List.of("pi_a", "pi_b"), first.getCreatedAt(), second.getCreatedAt());
+        verify(batch).checkPaymentStatuses("merch-1", List.of("pi_d", "pi_e"), third.getCreatedAt(), fourth.getCreatedAt());
+        verify(batch, times(2)).checkPaymentStatuses(eq("merch-1"), anyCollection(), any(), any());
+        // el listado no devolvio nada: todos se consultan por id, el pago aislado sin listado previo
+        verify(stripe, times(5)).checkPaymentStatus(eq("merch-1"), anyString());
+    }
+
+    private void pendingPage(Payment... payments) {
+        when(paymentRepository.findByStatus(eq(PaymentStatus.PENDING), any(), anyInt()))
+            .thenReturn(new PaymentPage(List.of(payments), null));
+    }
+
+    private void processingPage(Payment... payments) {
+        when(paymentRepository.findByStatus(eq(PaymentStatus.PROCESSING), any(), anyInt()))
+            .thenReturn(new PaymentPage(List.of(payments), null));
+    }
+
+    private static PaymentGatewayPort batchGateway() {
+        PaymentGatewayPort gateway = mock(PaymentGatewayPort.class,
+            withSettings().extraInterfaces(BatchPaymentStatusPort.class));
+        when(((BatchPaymentStatusPort) gateway).supportsBatchStatusLookup()).thenReturn(true);
+        return gateway;
+    }
+
+    private static Payment stale(PaymentStatus status, String transactionId) {
+        String provider = transactionId != null && transactionId.startsWith("PAYPAL") ? "PAYPAL" : "STRIPE";
+        return payment(status, transactionId, provider, LocalDateTime.now().minusMinutes(30));
+    }
+
+    private static Payment payment(PaymentStatus status, String transactionId, String provider,
+                                   LocalDateTime createdAt) {
+        return Payment.builder()
+            .id(UUID.randomUUID())
+            .paymentReference("ref-" + UUID.randomUUID())
+            .amount(new BigDecimal("10.00"))
+            .currency("USD")
+            .status(status)
+            .paymentMethod(PaymentMethod.CREDIT_CARD)
+            .gatewayProvider(provider)
+            .gatewayTransactionId(transactionId)
+            .customerId("cust-1")
+            .merchantId("merch-1")
+            .createdAt(createdAt)
+            .build();
+    }
+
+    private static PaymentResponse status(String transactionId, PaymentStatus status, String errorCode) {
+        return new PaymentResponse(status == PaymentStatus.COMPLETED, transactionId, null, null, null, status,
+            "Payment " + status, errorCode, LocalDateTime.now(), null);
+    }
+}
@@ -0,0 +1,115 @@
+package com.paymentgateway.infrastructure.config;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.actuate.autoconfigure.endpoint.EndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.endpoint.web.WebEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.endpoint.web.servlet.WebMvcEndpointManagementContextConfiguration;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementContextAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayFactory;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayResilienceEndpoint;
+import com.paymentgateway.infrastructure.adapter.gateway.resilience.GatewayResilienceRegistry;
+
+/**
+ * Tests de las reglas de acceso: escrituras de /actuator/gateways solo con rol ADMIN
+ */
+@SpringBootTest(
+    classes = SecurityConfigTest.Application.class,
+    properties = {
+        "management.endpoints.web.exposure.include=gateways",
+        "spring.security.user.name=admin",
+        "spring.security.user.password=secret",
+        "spring.security.user.roles=ADMIN"
+    }
+)
+@AutoConfigureMockMvc
+@DisplayName("SecurityConfig Tests")
+class SecurityConfigTest {
+
+    private static final String ENABLE_BODY = "{\"enabled\": false}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private GatewayResilienceRegistry registry;
+
+    @MockBean
+    private PaymentGatewayFactory gatewayFactory;
+
+    @Test
+    @DisplayName("Should keep gateway state readable without credentials")
+    void shouldAllowAnonymousReads() throws Exception {
+        when(registry.getGateways()).thenReturn(Map.of());
+
+        mockMvc.perform(get("/actuator/gateways")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should reject gateway writes without an admin")
+    void shouldRejectWritesWithoutAdmin() throws Exception {
+        mockMvc.perform(post("/actuator/gateways/stripe").contentType(MediaType.APPLICATION_JSON).content(ENABLE_BODY))
+            .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/actuator/gateways/stripe").with(httpBasic("admin", "wrong"))
+                .contentType(MediaType.APPLICATION_JSON).content(ENABLE_BODY))
+            .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/actuator/gateways/stripe").with(user("viewer").roles("USER"))
+                .contentType(MediaType.APPLICATION_JSON).content(ENABLE_BODY))
+            .andExpect(status().isForbidden());
+
+        verify(gatewayFactory, never()).setEnabled(anyString(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Should apply gateway writes for an admin")
+    void shouldAllowAdminWrites() throws Exception {
+        when(registry.getGateways()).thenReturn(Map.of());
+
+        mockMvc.perform(post("/actuator/gateways/stripe").with(httpBasic("admin", "secret"))
+                .contentType(MediaType.APPLICATION_JSON).content(ENABLE_BODY))
+            .andExpect(status().isOk());
+
+        verify(gatewayFactory).setEnabled("stripe", false);
+    }
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        JacksonAutoConfiguration.class,
+        SecurityAutoConfiguration.class,
+        UserDetailsServiceAutoConfiguration.class,
+        EndpointAutoConfiguration.class,
+        WebEndpointAutoConfiguration.class,
+        ManagementContextAutoConfiguration.class,
+        WebMvcEndpointManagementContextConfiguration.class
+    })
+    @Import({SecurityConfig.class, GatewayResilienceEndpoint.class})
+    static class Application {
+    }
+}
@@ -0,0 +1,137 @@
+package com.paymentgateway.infrastructure.messaging;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests unitarios del relay de la outbox
+ * Un lote se publica con una sola espera de confirmaciones y se borra con un unico DELETE
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentOutboxRelay Tests")
+class PaymentOutboxRelayTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ObjectProvider<RabbitTemplate> rabbitTemplateProvider;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations channel;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PaymentOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new PaymentOutboxRelay(jdbcTemplate, transactionManager, rabbitTemplateProvider, meterRegistry,
+            true, "payments.events", 2, Duration.ofSeconds(1));
+        lenient().when(rabbitTemplateProvider.getIfAvailable()).thenReturn(rabbitTemplate);
+        lenient().when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+            invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(channel));
+    }
+
+    @Test
+    @DisplayName("Should publish a batch, wait for confirms once and delete it in bulk")
+    void shouldPublishAndDeleteBatch() {
+        OutboxBatches batches = new OutboxBatches(List.of(row(1), row(2)), List.of(row(3)));
+        when(jdbcTemplate.query(eq(PaymentOutboxRelay.SELECT_BATCH), any(MapSqlParameterSource.class),
+            any(RowMapper.class))).thenAnswer(invocation -> batches.next());
+
+        relay.relay();
+
+        // el primer lote sale lleno, asi que se drena el siguiente en la misma pasada
+        ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+        verify(channel, times(3)).send(eq("payments.events"), eq("payment.completed"), messages.capture());
+        verify(channel, times(2)).waitForConfirmsOrDie(1000L);
+        assertThat(messages.getAllValues()).extracting(message -> message.getMessageProperties().getMessageId())
+            .containsExactly(eventId(1), eventId(2), eventId(3));
+        verify(jdbcTemplate).update(eq(PaymentOutboxRelay.DELETE_BATCH),
+            argThat((MapSqlParameterSource params) -> List.of(1L, 2L).equals(params.getValue("ids"))));
+        verify(jdbcTemplate).update(eq(PaymentOutboxRelay.DELETE_BATCH),
+            argThat((MapSqlParameterSource params) -> List.of(3L).equals(params.getValue("ids"))));
+        assertThat(meterRegistry.counter("payments.outbox.published").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should keep the rows when the broker does not confirm")
+    void shouldKeepRowsWhenConfirmFails() {
+        when(jdbcTemplate.query(eq(PaymentOutboxRelay.SELECT_BATCH), any(MapSqlParameterSource.class),
+            any(RowMapper.class))).thenReturn(new ArrayList<>(List.of(row(1))));
+        doThrow(new AmqpException("nack")).when(channel).waitForConfirmsOrDie(anyLong());
+
+        relay.relay();
+
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+        verify(transactionManager).rollback(any());
+        assertThat(meterRegistry.counter("payments.outbox.published").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should do nothing when RabbitMQ is not configured")
+    void shouldSkipWithoutRabbit() {
+        when(rabbitTemplateProvider.getIfAvailable()).thenReturn(null);
+
+        relay.relay();
+
+        verifyNoInteractions(jdbcTemplate, transactionManager);
+    }
+
+    private static PaymentOutboxRelay.OutboxRow row(long id) {
+        return new PaymentOutboxRelay.OutboxRow(id, eventId(id), "PAYMENT_STATUS_CHANGED", "payment.completed",
+            "{\"id\":" + id + "}", Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+    }
+
+    private static String eventId(long id) {
+        return new UUID(0, id).toString();
+    }
+
+    private static final class OutboxBatches {
+        private final List<List<PaymentOutboxRelay.OutboxRow>> batches;
+        private int next;
+
+        @SafeVarargs
+        private OutboxBatches(List<PaymentOutboxRelay.OutboxRow>... batches) {
+            this.batches = List.of(batches);
+        }
+
+        private List<PaymentOutboxRelay.OutboxRow> next() {
+            return next < batches.size() ? batches.get(next++) : List.of();
+        }
+    }
+}
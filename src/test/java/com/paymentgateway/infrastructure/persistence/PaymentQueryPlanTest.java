@@ -0,0 +1,305 @@
+package com.paymentgateway.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.paymentgateway.domain.model.PaymentStatus;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Tests de regresion de planes de consulta sobre la tabla payments
+ * Captura el SQL real que genera cada metodo de PaymentJpaRepository junto con los valores enlazados y
+ * lo pasa por EXPLAIN con la configuracion por defecto del planificador, sobre datos con la forma de
+ * produccion: particiones mensuales, casi todo COMPLETED y pocos pagos en vuelo. Los metodos que por
+ * diseno leen toda la tabla o un porcentaje alto de ella (conteo agrupado, listado de referencias,
+ * filtros sin paginar por pasarela) no se comprueban: ahi un seq scan es el plan correcto
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Payments query plan regression Tests")
+class PaymentQueryPlanTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final List<CapturedStatement> CAPTURED = new CopyOnWriteArrayList<>();
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+    // el seek de las paginas siguientes debe resolverse en el indice, no como filtro posterior
+    private static final Pattern SEEK_INDEX_COND = Pattern.compile("Index Cond: .*ROW\\(created_at, id\\) >");
+
+    private static DataSource dataSource;
+    private static EntityManagerFactory entityManagerFactory;
+    private static Set<String> populatedPartitions;
+
+    @BeforeAll
+    static void setUpDatabase() throws Exception {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        seedPayments();
+        populatedPartitions = populatedPartitions();
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(capturing(dataSource));
+        factoryBean.setPackagesToScan("com.paymentgateway.infrastructure.persistence");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+            "hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect",
+            "hibernate.hbm2ddl.auto", "none",
+            // la misma estrategia de nombres que aplica Spring Boot (paymentMethod -> payment_method)
+            "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName()
+        ));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+    }
+
+    @BeforeEach
+    void clearCapturedSql() {
+        CAPTURED.clear();
+    }
+
+    static Stream<Arguments> repositoryMethods() {
+        // dentro del rango sembrado: dos meses antes del inicio del mes actual
+        LocalDateTime after = LocalDate.now().withDayOfMonth(1).atStartOfDay().minusMonths(2);
+        UUID afterId = UUID.randomUUID();
+        PageRequest page = PageRequest.of(0, 51);
+        return Stream.of(
+            call("findByPaymentReference", repo -> repo.findByPaymentReference("ref-1")),
+            call("findByMerchantId", repo -> repo.findByMerchantId("merch-1")),
+            call("findByCustomerId", repo -> repo.findByCustomerId("cust-1")),
+            call("findByStatus", repo -> repo.findByStatus(PaymentStatus.PENDING)),
+            call("findByGatewayTransactionId", repo -> repo.findByGatewayTransactionId("txn_1")),
+            call("existsByPaymentReference", repo -> repo.existsByPaymentReference("ref-1")),
+            call("countByStatus", repo -> repo.countByStatus(PaymentStatus.PENDING)),
+            call("findByMerchantIdOrderByCreatedAtAscIdAsc",
+                repo -> repo.findByMerchantIdOrderByCreatedAtAscIdAsc("merch-1", page)),
+            call("findByMerchantIdAfter", repo -> repo.findByMerchantIdAfter("merch-1", after, afterId, page)),
+            call("findByCustomerIdAfter", repo -> repo.findByCustomerIdAfter("cust-1", after, afterId, page)),
+            call("findByStatusAfter", repo -> repo.findByStatusAfter(PaymentStatus.PENDING, after, afterId, page)),
+            call("findByGateWayProviderAfter",
+                repo -> repo.findByGateWayProviderAfter("STRIPE", after, afterId, page)),
+            call("findByMerchantIdCreatedBetween",
+                repo -> repo.findByMerchantIdCreatedBetween("merch-1", after, after.plusMonths(1))),
+            call("findByCustomerIdCreatedBetween",
+                repo -> repo.findByCustomerIdCreatedBetween("cust-1", after, after.plusMonths(1))),
+            call("findByStatusCreatedBetween",
+                repo -> repo.findByStatusCreatedBetween(PaymentStatus.PENDING, after, after.plusMonths(1))),
+            call("transitionStatus",
+                repo -> repo.transitionStatus(afterId, List.of("PENDING"), "PROCESSING", after)),
+            call("completeTransition",
+                repo -> repo.completeTransition(afterId, List.of("PROCESSING"), "txn_1", after)),
+            call("failTransition",
+                repo -> repo.failTransition(afterId, List.of("PENDING", "PROCESSING"), "declined", after)),
+            call("transitionAll",
+                repo -> repo.transitionAll(List.of(afterId), List.of("PENDING"), "PROCESSING", null, after)),
+            call("streamByMerchantId", repo -> {
+                try (Stream<PaymentEntity> rows = repo.streamByMerchantId("merch-1")) {
+                    rows.count();
+                }
+            })
+        );
+    }
+
+    @ParameterizedTest(name = "{0} uses an index")
+    @MethodSource("repositoryMethods")
+    void repositoryMethodShouldUseAnIndex(String method, Consumer<PaymentJpaRepository> invocation) throws Exception {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        // los metodos Stream exigen una transaccion de Spring activa; aqui la transaccion es la del EntityManager
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            entityManager.getTransaction().begin();
+            invocation.accept(new JpaRepositoryFactory(entityManager).getRepository(PaymentJpaRepository.class));
+            entityManager.getTransaction().rollback();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            entityManager.close();
+        }
+
+        assertThat(CAPTURED).as("SQL emitted by %s", method).isNotEmpty();
+        for (CapturedStatement statement : CAPTURED) {
+            String plan = explain(statement);
+            assertThat(plan).as("Plan for %s:%n%s", method, plan).contains("Index");
+            // un seq scan solo es aceptable sobre particiones vacias (meses futuros, payments_default)
+            assertThat(SEQ_SCAN.matcher(plan).results().map(scan -> scan.group(1)))
+                .as("Seq scans over populated partitions for %s:%n%s", method, plan)
+                .noneMatch(populatedPartitions::contains);
+            if (method.endsWith("After")) {
+                assertThat(SEEK_INDEX_COND.matcher(plan).find())
+                    .as("Index Cond on created_at for %s:%n%s", method, plan)
+                    .isTrue();
+            }
+        }
+    }
+
+    private static Set<String> populatedPartitions() throws Exception {
+        Set<String> partitions = new HashSet<>();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("""
+                 SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                 WHERE i.inhparent = 'payments'::regclass AND c.reltuples > 0
+                 """)) {
+            while (rs.next()) {
+                partitions.add(rs.getString(1));
+            }
+        }
+        return partitions;
+    }
+
+    private static Arguments call(String method, Consumer<PaymentJpaRepository> invocation) {
+        return Arguments.of(method, invocation);
+    }
+
+    /**
+     * EXPLAIN del SQL tal cual lo emite Hibernate, con los mismos valores enlazados (plan a medida, como
+     * las primeras ejecuciones en produccion)
+     */
+    private static String explain(CapturedStatement captured) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + captured.sql())) {
+            for (Binding binding : captured.bindings()) {
+                binding.setter().invoke(statement, binding.args());
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    /**
+     * DataSource que anota cada sentencia preparada ejecutada con las llamadas set* que recibio
+     */
+    private static DataSource capturing(DataSource target) {
+        return proxy(DataSource.class, target, (method, result, args) -> method.getName().equals("getConnection")
+            ? proxy(Connection.class, result, (connectionMethod, statement, connectionArgs) ->
+                connectionMethod.getName().equals("prepareStatement")
+                    ? recording((PreparedStatement) statement, (String) connectionArgs[0])
+                    : statement)
+            : result);
+    }
+
+    private static PreparedStatement recording(PreparedStatement target, String sql) {
+        List<Binding> bindings = new ArrayList<>();
+        return proxy(PreparedStatement.class, target, (method, result, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bindings.add(new Binding(method, args.clone()));
+            } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                CAPTURED.add(new CapturedStatement(sql, List.copyOf(bindings)));
+            } else if (name.equals("clearParameters")) {
+                bindings.clear();
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, Interceptor interceptor) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            try {
+                return interceptor.after(method, method.invoke(target, args), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Interceptor {
+        Object after(Method method, Object result, Object[] args) throws Exception;
+    }
+
+    private record Binding(Method setter, Object[] args) {
+    }
+
+    private record CapturedStatement(String sql, List<Binding> bindings) {
+    }
+
+    /**
+     * 200.000 pagos en los ultimos cinco meses, cada uno en su particion mensual: 90% COMPLETED, 2% PENDING,
+     * 1% PROCESSING, 200 comercios, 20.000 clientes y 70/30 entre pasarelas
+     */
+    private static void seedPayments() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("""
+                DO $$
+                BEGIN
+                    FOR i IN 1..5 LOOP
+                        EXECUTE format(
+                            'CREATE TABLE IF NOT EXISTS %I PARTITION OF payments FOR VALUES FROM (%L) TO (%L)',
+                            'payments_' || to_char(date_trunc('month', now()) - i * INTERVAL '1 month', '"y"YYYY"m"MM'),
+                            (date_trunc('month', now()) - i * INTERVAL '1 month')::DATE,
+                            (date_trunc('month', now()) - (i - 1) * INTERVAL '1 month')::DATE
+                        );
+                    END LOOP;
+                END $$
+                """);
+            statement.execute("""
+                INSERT INTO payments (id, payment_reference, amount, currency, status, payment_method,
+                                      gateway_provider, gateway_transaction_id, customer_id, merchant_id,
+                                      created_at, version)
+                SELECT gen_random_uuid(), 'ref-' || g, 10.00, 'USD',
+                       CASE WHEN g % 100 < 90 THEN 'COMPLETED'
+                            WHEN g % 100 < 95 THEN 'FAILED'
+                            WHEN g % 100 < 97 THEN 'CANCELLED'
+                            WHEN g % 100 < 99 THEN 'PENDING'
+                            ELSE 'PROCESSING' END,
+                       'CREDIT_CARD', CASE WHEN g % 10 < 7 THEN 'STRIPE' ELSE 'PAYPAL' END, 'txn_' || g,
+                       'cust-' || (g % 20000), 'merch-' || (g % 200),
+                       date_trunc('month', now()) - INTERVAL '5 months' + g * INTERVAL '1 minute', 0
+                FROM generate_series(1, 200000) AS g
+                """);
+            statement.execute("VACUUM ANALYZE payments");
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.paymentgateway.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentCursor;
+import com.paymentgateway.domain.model.PaymentEvent;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentPage;
+import com.paymentgateway.domain.model.PaymentPeriod;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.model.PaymentTransition;
+import com.paymentgateway.infrastructure.persistence.bloom.PaymentReferenceFilter;
+import com.paymentgateway.infrastructure.persistence.counter.PaymentStatusCounters;
+import com.paymentgateway.infrastructure.persistence.outbox.PaymentOutbox;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Tests unitarios del adaptador de persistencia
+ * Cubre la paginacion keyset y el recorrido con cursor
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentRepositoryImpl Tests")
+class PaymentRepositoryImplTest {
+
+    @Mock
+    private PaymentJpaRepository paymentJpaRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PaymentReferenceFilter referenceFilter;
+
+    @Mock
+    private PaymentStatusCounters statusCounters;
+
+    @Mock
+    private PaymentOutbox outbox;
+
+    private PaymentRepositoryImpl repository;
+
+    private final LocalDateTime baseTime = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    @BeforeEach
+    void setUp() {
+        repository = new PaymentRepositoryImpl(
+            paymentJpaRepository, new PaymentMapperImpl(), entityManager, referenceFilter, statusCounters, outbox);
+    }
+
+    @Nested
+    @DisplayName("Keyset pagination")
+    class KeysetPaginationTests {
+
+        @Test
+        @DisplayName("Should request limit + 1 rows and expose a cursor when more rows exist")
+        void shouldReturnCursorWhenMoreRowsExist() {
+            List<PaymentEntity> rows = entities(3);
+            when(paymentJpaRepository.findByMerchantIdOrderByCreatedAtAscIdAsc(eq("merch-1"), any(Pageable.class)))
+                .thenReturn(rows);
+
+            PaymentPage page = repository.findByMerchantId("merch-1", null, 2);
+
+            verify(paymentJpaRepository)
+                .findByMerchantIdOrderByCreatedAtAscIdAsc(eq("merch-1"), argThat(p -> p.getPageSize() == 3));
+            assertThat(page.payments()).hasSize(2);
+            assertThat(page.hasNext()).isTrue();
+            assertThat(page.nextCursor()).isEqualTo(new PaymentCursor(rows.get(1).getCreatedAt(), rows.get(1).getId()));
+        }
+
+        @Test
+        @DisplayName("Should seek after the cursor and close the iteration on the last page")
+        void shouldSeekAfterCursor() {
+            List<PaymentEntity> rows = entities(1);
+            PaymentCursor cursor = new PaymentCursor(baseTime, UUID.randomUUID());
+            when(paymentJpaRepository.findByStatusAfter(
+                eq(PaymentStatus.PENDING), eq(cursor.createdAt()), eq(cursor.id()), any(Pageable.class)))
+                .thenReturn(rows);
+
+            PaymentPage page = repository.findByStatus(PaymentStatus.PENDING, cursor, 2);
+
+            assertThat(page.payments()).hasSize(1);
+            assertThat(page.hasNext()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should reject non positive limits")
+        void shouldRejectInvalidLimit() {
+            assertThatThrownBy(() -> repository.findByCustomerId("cust-1", null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Cursor streaming")
+    class CursorStreamingTests {
+
+        @Test
+        @DisplayName("Should map and detach every streamed entity")
+        void shouldMapAndDetachEachEntity() {
+            List<PaymentEntity> rows = entities(3);
+            when(paymentJpaRepository.streamByGateWayProvider("STRIPE")).thenReturn(rows.stream());
+            List<Payment> received = new ArrayList<>();
+
+            repository.forEachByGatewayProvider("STRIPE", received::add);
+
+            assertThat(received).extracting(Payment::getId).containsExactlyElementsOf(
+                rows.stream().map(PaymentEntity::getId).toList());
+            rows.forEach(row -> verify(entityManager).detach(row));
+        }
+
+        @Test
+        @DisplayName("Should close the underlying stream")
+        void shouldCloseStream() {
+            boolean[] closed = {false};
+            when(paymentJpaRepository.streamByCustomerId("cust-1"))
+                .thenReturn(Stream.<PaymentEntity>empty().onClose(() -> closed[0] = true));
+
+            repository.forEachByCustomerId("cust-1", payment -> { });
+
+            assertThat(closed[0]).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("Should look up customer payments by customer id")
+    void shouldFindByCustomerId() {
+        when(paymentJpaRepository.findByCustomerId("cust-1")).thenReturn(entities(2));
+
+        assertThat(repository.findByCustomerId("cust-1")).hasSize(2);
+        verify(paymentJpaRepository, never()).findByMerchantId(anyString());
+    }
+
+    @Nested
+    @DisplayName("Save")
+    class SaveTests {
+
+        @Test
+        @DisplayName("Should persist a new payment directly keeping the domain id")
+        void shouldPersistNewPayment() {
+            Payment payment = new Payment("ref-new", new BigDecimal("25.00"), "USD", PaymentMethod.CREDIT_CARD,
+                "STRIPE", "cust-1", "merch-1", "Test payment");
+
+            Payment saved = repository.save(payment);
+
+            verify(entityManager).persist(argThat((PaymentEntity entity) -> payment.getId().equals(entity.getId())));
+            verify(entityManager, never()).find(any(), any());
+            verify(paymentJpaRepository, never()).save(any());
+            assertThat(saved.getId()).isEqualTo(payment.getId());
+            assertThat(saved.getGatewayProvider()).isEqualTo("STRIPE");
+            verify(outbox).append(argThat(event -> event.type() == PaymentEvent.Type.PAYMENT_CREATED
+                && event.paymentId().equals(payment.getId()) && event.previousStatus() == null));
+        }
+
+        @Test
+        @DisplayName("Should copy changes onto the managed entity instead of merging a detached copy")
+        void shouldUpdateManagedEntityInPlace() {
+            PaymentEntity managed = entities(1).get(0);
+            managed.setStatus(PaymentStatus.PROCESSING);
+            when(entityManager.find(PaymentEntity.class, managed.getId())).thenReturn(managed);
+            Payment payment = new PaymentMapperImpl().toDomain(managed);
+            payment.markAsCompleted("txn_1");
+
+            Payment saved = repository.save(payment);
+
+            assertThat(managed.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(managed.getGatewayTransactionId()).isEqualTo("txn_1");
+            assertThat(saved.getCompletedAt()).isNotNull();
+            verify(entityManager, never()).persist(any());
+            verify(entityManager, never()).merge(any());
+            // flush antes de leer la version que lleva el evento
+            verify(entityManager).flush();
+            verify(outbox).append(argThat(event -> event.type() == PaymentEvent.Type.PAYMENT_STATUS_CHANGED
+                && event.previousStatus() == PaymentStatus.PROCESSING && event.status() == PaymentStatus.COMPLETED));
+        }
+
+        @Test
+        @DisplayName("Should not write an outbox event when the status does not change")
+        void shouldSkipOutboxWithoutStatusChange() {
+            PaymentEntity managed = entities(1).get(0);
+            when(entityManager.find(PaymentEntity.class, managed.getId())).thenReturn(managed);
+            Payment payment = new PaymentMapperImpl().toDomain(managed);
+
+            repository.save(payment);
+
+            verifyNoInteractions(outbox);
+        }
+
+        @Test
+        @DisplayName("Should return the version left by the UPDATE on every save, with or without status change")
+        void shouldReturnFlushedVersionOnEverySave() {
+            PaymentEntity managed = entities(1).get(0);
+            when(entityManager.find(PaymentEntity.class, managed.getId())).thenReturn(managed);
+            // el UPDATE del flush incrementa @Version, como haria Hibernate
+            doAnswer(invocation -> {
+                managed.setVersion(managed.getVersion() + 1);
+                return null;
+            }).when(entityManager).flush();
+            Payment payment = new PaymentMapperImpl().toDomain(managed);
+            payment.markAsProcessing();
+
+            Payment first = repository.save(payment);
+            Payment second = repository.save(first);
+            Payment third = repository.save(second);
+
+            assertThat(first.getVersion()).isEqualTo(1L);
+            assertThat(second.getVersion()).isEqualTo(2L);
+            assertThat(third.getVersion()).isEqualTo(3L);
+            verify(entityManager, times(3)).flush();
+        }
+
+        @Test
+        @DisplayName("Should reject a stale version")
+        void shouldRejectStaleVersion() {
+            PaymentEntity managed = entities(1).get(0);
+            Payment stale = new PaymentMapperImpl().toDomain(managed);
+            managed.setVersion(1L);
+            when(entityManager.find(PaymentEntity.class, managed.getId())).thenReturn(managed);
+
+            assertThatThrownBy(() -> repository.save(stale))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Atomic status transitions")
+    class AtomicTransitionTests {
+
+        @Test
+        @DisplayName("Should guard completion on the processing status and record the transition")
+        void shouldCompleteFromProcessing() {
+            UUID id = UUID.randomUUID();
+            PaymentTransitionRow row = transitionRow("PROCESSING");
+            when(paymentJpaRepository.completeTransition(
+                eq(id), eq(List.of("PROCESSING")), eq("txn_1"), any(LocalDateTime.class)))
+                .thenReturn(List.of(row));
+
+            assertThat(repository.markAsCompleted(id, "txn_1")).isTrue();
+            verify(statusCounters).recordTransition(PaymentStatus.PROCESSING, PaymentStatus.COMPLETED);
+            verify(outbox).append(argThat(event -> event.paymentId().equals(id)
+                && event.previousStatus() == PaymentStatus.PROCESSING && event.status() == PaymentStatus.COMPLETED
+                && event.version() == 3L));
+        }
+
+        @Test
+        @DisplayName("Should return the version of the updated row so caches can discard older copies")
+        void shouldReturnVersionOfUpdatedRow() {
+            UUID id = UUID.randomUUID();
+            PaymentTransitionRow row = transitionRow("PENDING");
+            when(paymentJpaRepository.transitionStatus(eq(id), anyCollection(), eq("PROCESSING"), any()))
+                .thenReturn(List.of(row));
+            when(paymentJpaRepository.failTransition(eq(id), anyCollection(), eq("declined"), any()))
+                .thenReturn(List.of());
+
+            assertThat(repository.transition(id, PaymentTransition.START_PROCESSING, null)).hasValue(3L);
+            assertThat(repository.transition(id, PaymentTransition.FAIL, "declined")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should allow cancelling from every status except completed")
+        void shouldCancelFromAnyNonCompletedStatus() {
+            UUID id = UUID.randomUUID();
+            PaymentTransitionRow row = transitionRow("PENDING");
+            when(paymentJpaRepository.transitionStatus(eq(id), anyCollection(), eq("CANCELLED"), any()))
+                .thenReturn(List.of(row));
+
+            assertThat(repository.cancel(id)).isTrue();
+            verify(paymentJpaRepository).transitionStatus(
+                eq(id),
+                argThat(sources -> !sources.contains("COMPLETED") && sources.contains("PENDING")),
+                eq("CANCELLED"),
+                any());
+            verify(statusCounters).recordTransition(PaymentStatus.PENDING, PaymentStatus.CANCELLED);
+        }
+
+        @Test
+        @DisplayName("Should report a rejected transition without touching the counters")
+        void shouldReportRejectedTransition() {
+            UUID id = UUID.randomUUID();
+            when(paymentJpaRepository.failTransition(eq(id), anyCollection(), eq("declined"), any()))
+                .thenReturn(List.of());
+
+            assertThat(repository.markAsFailed(id, "declined")).isFalse();
+            verify(statusCounters, never()).recordTransition(any(), any());
+            verifyNoInteractions(outbox);
+        }
+
+        @Test
+        @DisplayName("Should apply a bulk transition with one update and one event per changed payment")
+        void shouldApplyBulkTransition() {
+            UUID changed = UUID.randomUUID();
+            UUID rejected = UUID.randomUUID();
+            PaymentTransitionRow row = transitionRow("PROCESSING");
+            when(row.getId()).thenReturn(changed);
+            when(paymentJpaRepository.transitionAll(
+                eq(List.of(changed, rejected)), anyCollection(), eq("FAILED"), eq("declined"), any()))
+                .thenReturn(List.of(row));
+
+            assertThat(repository.transitionAllVersions(List.of(changed, rejected), PaymentTransition.FAIL, "declined"))
+                .containsExactly(entry(changed, 3L));
+            verify(outbox).append(argThat(event -> event.paymentId().equals(changed)
+                && event.status() == PaymentStatus.FAILED));
+            verify(statusCounters).recordTransition(PaymentStatus.PROCESSING, PaymentStatus.FAILED);
+        }
+    }
+
+    @Nested
+    @DisplayName("Period bounded queries")
+    class PeriodBoundedTests {
+
+        @Test
+        @DisplayName("Should pass explicit bounds so partitions can be pruned")
+        void shouldPassExplicitBounds() {
+            PaymentPeriod period = new PaymentPeriod(baseTime, baseTime.plusDays(7));
+            when(paymentJpaRepository.findByMerchantIdCreatedBetween("merch-1", period.from(), period.to()))
+                .thenReturn(entities(2));
+
+            assertThat(repository.findByMerchantId("merch-1", period)).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("Should replace missing bounds with the open sentinels")
+        void shouldUseSentinelsForOpenBounds() {
+            repository.findByStatus(PaymentStatus.PENDING, PaymentPeriod.since(baseTime));
+
+            verify(paymentJpaRepository).findByStatusCreatedBetween(PaymentStatus.PENDING, baseTime, PaymentPeriod.MAX);
+        }
+    }
+
+    @Nested
+    @DisplayName("Duplicate reference detection")
+    class DuplicateReferenceTests {
+
+        @Test
+        @DisplayName("Should skip the database when the filter reports a definite miss")
+        void shouldSkipDatabaseOnDefiniteMiss() {
+            when(referenceFilter.mightExist("ref-new")).thenReturn(false);
+            when(referenceFilter.isAuthoritative()).thenReturn(true);
+
+            assertThat(repository.existsByPaymentReference("ref-new")).isFalse();
+            verify(paymentJpaRepository, never()).existsByPaymentReference(anyString());
+        }
+
+        @Test
+        @DisplayName("Should confirm misses against the database when other instances may insert references")
+        void shouldConfirmMissesWhenNotAuthoritative() {
+            when(referenceFilter.mightExist("ref-other-node")).thenReturn(false);
+            when(referenceFilter.isAuthoritative()).thenReturn(false);
+            when(paymentJpaRepository.existsByPaymentReference("ref-other-node")).thenReturn(true);
+
+            assertThat(repository.existsByPaymentReference("ref-other-node")).isTrue();
+            verify(referenceFilter).recordStaleMiss("ref-other-node");
+            verify(referenceFilter, never()).recordFalsePositive();
+        }
+
+        @Test
+        @DisplayName("Should confirm probable hits against the database and record false positives")
+        void shouldConfirmProbableHits() {
+            when(referenceFilter.mightExist("ref-1")).thenReturn(true);
+            when(paymentJpaRepository.existsByPaymentReference("ref-1")).thenReturn(false);
+
+            assertThat(repository.existsByPaymentReference("ref-1")).isFalse();
+            verify(referenceFilter).recordFalsePositive();
+        }
+    }
+
+    @Nested
+    @DisplayName("Status counters")
+    class StatusCounterTests {
+
+        @Test
+        @DisplayName("Should record the transition from the persisted status on save")
+        void shouldRecordTransitionOnSave() {
+            PaymentEntity persisted = entities(1).get(0);
+            persisted.setStatus(PaymentStatus.PROCESSING);
+            PaymentEntity completed = entities(1).get(0);
+            completed.setId(persisted.getId());
+            completed.setStatus(PaymentStatus.COMPLETED);
+            when(entityManager.find(PaymentEntity.class, persisted.getId())).thenReturn(persisted);
+
+            repository.save(new PaymentMapperImpl().toDomain(completed));
+
+            verify(statusCounters).recordTransition(PaymentStatus.PROCESSING, PaymentStatus.COMPLETED);
+        }
+
+        @Test
+        @DisplayName("Should answer countByStatus from memory once the counters are ready")
+        void shouldCountFromMemory() {
+            when(statusCounters.isReady()).thenReturn(true);
+            when(statusCounters.count(PaymentStatus.FAILED)).thenReturn(7L);
+
+            assertThat(repository.countByStatus(PaymentStatus.FAILED)).isEqualTo(7L);
+            verify(paymentJpaRepository, never()).countByStatus(any());
+        }
+    }
+
+    private List<PaymentEntity> entities(int count) {
+        List<PaymentEntity> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(PaymentEntity.builder()
+                .id(UUID.randomUUID())
+                .paymentReference("ref-" + i)
+                .amount(new BigDecimal("10.00"))
+                .currency("USD")
+                .status(PaymentStatus.PENDING)
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .gateWayProvider("STRIPE")
+                .customerId("cust-1")
+                .merchantId("merch-1")
+                .createdAt(baseTime.plusMinutes(i))
+                .version(0L)
+                .build());
+        }
+        return rows;
+    }
+
+    private static PaymentTransitionRow transitionRow(String previousStatus) {
+        PaymentTransitionRow row = mock(PaymentTransitionRow.class);
+        when(row.getPreviousStatus()).thenReturn(previousStatus);
+        when(row.getVersion()).thenReturn(3L);
+        return row;
+    }
+}
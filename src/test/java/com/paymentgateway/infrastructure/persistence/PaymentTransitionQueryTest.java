@@ -0,0 +1,192 @@
+package com.paymentgateway.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Tests de las transiciones atomicas nativas de PaymentJpaRepository sobre PostgreSQL real
+ * (tabla particionada, CTE con FOR UPDATE y RETURNING)
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Payments atomic transition query Tests")
+class PaymentTransitionQueryTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static DataSource dataSource;
+    private static EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.paymentgateway.infrastructure.persistence");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+            "hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect",
+            "hibernate.hbm2ddl.auto", "none",
+            "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName()
+        ));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return the previous status and the incremented version")
+    void shouldReturnPreviousStatusAndVersion() throws Exception {
+        UUID id = insertPayment("PENDING", LocalDateTime.now());
+
+        List<PaymentTransitionRow> processing = inTransaction(
+            repo -> repo.transitionStatus(id, List.of("PENDING"), "PROCESSING", LocalDateTime.now()));
+        List<PaymentTransitionRow> completed = inTransaction(
+            repo -> repo.completeTransition(id, List.of("PROCESSING"), "txn_1", LocalDateTime.now()));
+
+        assertThat(processing).singleElement().satisfies(row -> {
+            assertThat(row.getPreviousStatus()).isEqualTo("PENDING");
+            assertThat(row.getVersion()).isEqualTo(1L);
+        });
+        assertThat(completed).singleElement().satisfies(row -> {
+            assertThat(row.getPreviousStatus()).isEqualTo("PROCESSING");
+            assertThat(row.getVersion()).isEqualTo(2L);
+            assertThat(row.getGatewayTransactionId()).isEqualTo("txn_1");
+        });
+        assertThat(column(id, "status")).isEqualTo("COMPLETED");
+    }
+
+    @Test
+    @DisplayName("Should reject failing a completed payment without touching the row")
+    void shouldRejectCompletedToFailed() throws Exception {
+        UUID id = insertPayment("COMPLETED", LocalDateTime.now());
+
+        List<PaymentTransitionRow> rows = inTransaction(
+            repo -> repo.failTransition(id, List.of("PENDING", "PROCESSING", "FAILED", "CANCELLED"), "late decline",
+                LocalDateTime.now()));
+
+        assertThat(rows).isEmpty();
+        assertThat(column(id, "status")).isEqualTo("COMPLETED");
+        assertThat(column(id, "version")).isEqualTo("0");
+        assertThat(column(id, "failure_reason")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep created_at and the partition of the updated row")
+    void shouldKeepCreatedAtAndPartition() throws Exception {
+        LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        UUID id = insertPayment("PROCESSING", createdAt);
+        String partition = column(id, "tableoid::regclass");
+
+        assertThat(inTransaction(repo -> repo.failTransition(
+            id, List.of("PROCESSING"), "declined", LocalDateTime.now().plusSeconds(1)))).hasSize(1);
+
+        assertThat(partition).startsWith("payments_y");
+        assertThat(column(id, "tableoid::regclass")).isEqualTo(partition);
+        assertThat(column(id, "created_at = TIMESTAMP '" + createdAt + "'")).isEqualTo("t");
+        assertThat(column(id, "failure_reason")).isEqualTo("declined");
+    }
+
+    @Test
+    @DisplayName("Should accept a null failure reason in bulk transitions")
+    void shouldTransitionAllWithNullFailureReason() throws Exception {
+        UUID pending = insertPayment("PENDING", LocalDateTime.now());
+        UUID processing = insertPayment("PROCESSING", LocalDateTime.now());
+        UUID completed = insertPayment("COMPLETED", LocalDateTime.now());
+
+        List<PaymentTransitionRow> started = inTransaction(repo -> repo.transitionAll(
+            List.of(pending, completed), List.of("PENDING"), "PROCESSING", null, LocalDateTime.now()));
+        List<PaymentTransitionRow> failed = inTransaction(repo -> repo.transitionAll(
+            List.of(processing), List.of("PROCESSING"), "FAILED", null, LocalDateTime.now()));
+
+        assertThat(started).singleElement().satisfies(row -> {
+            assertThat(row.getId()).isEqualTo(pending);
+            assertThat(row.getPreviousStatus()).isEqualTo("PENDING");
+            assertThat(row.getVersion()).isEqualTo(1L);
+        });
+        assertThat(failed).singleElement().extracting(PaymentTransitionRow::getId).isEqualTo(processing);
+        assertThat(column(processing, "status")).isEqualTo("FAILED");
+        assertThat(column(processing, "failure_reason")).isNull();
+        assertThat(column(completed, "status")).isEqualTo("COMPLETED");
+    }
+
+    private static List<PaymentTransitionRow> inTransaction(
+        Function<PaymentJpaRepository, List<PaymentTransitionRow>> transition) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            List<PaymentTransitionRow> rows =
+                transition.apply(new JpaRepositoryFactory(entityManager).getRepository(PaymentJpaRepository.class));
+            entityManager.getTransaction().commit();
+            return rows;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static UUID insertPayment(String status, LocalDateTime createdAt) throws Exception {
+        UUID id = UUID.randomUUID();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("""
+                 INSERT INTO payments (id, payment_reference, amount, currency, status, payment_method,
+                                       gateway_provider, customer_id, merchant_id, created_at, version)
+                 VALUES (?, ?, 10.00, 'USD', ?, 'CREDIT_CARD', 'STRIPE', 'cust-1', 'merch-1', ?, 0)
+                 """)) {
+            statement.setObject(1, id);
+            statement.setString(2, "ref-" + id);
+            statement.setString(3, status);
+            statement.setTimestamp(4, Timestamp.valueOf(createdAt));
+            statement.executeUpdate();
+        }
+        return id;
+    }
+
+    private static String column(UUID id, String expression) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                 "SELECT " + expression + " FROM payments WHERE id = ?")) {
+            statement.setObject(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                assertThat(rs.next()).isTrue();
+                return rs.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.paymentgateway.infrastructure.persistence.bloom;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitarios del filtro de Bloom de referencias de pago
+ */
+@DisplayName("BloomFilter Tests")
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Should never report a false negative")
+    void shouldNeverReportFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("ref-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("ref-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the false positive rate close to the configured target")
+    void shouldRespectFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("ref-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.02);
+        assertThat(filter.isSaturated()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should report saturation once more elements than expected are inserted")
+    void shouldReportSaturation() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        for (int i = 0; i < 200; i++) {
+            filter.put("ref-" + i);
+        }
+
+        assertThat(filter.isSaturated()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject invalid sizing parameters")
+    void shouldRejectInvalidParameters() {
+        assertThatThrownBy(() -> BloomFilter.create(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BloomFilter.create(10, 1.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,239 @@
+package com.paymentgateway.infrastructure.persistence.cache;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentgateway.domain.model.Payment;
+import com.paymentgateway.domain.model.PaymentMethod;
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.domain.model.PaymentTransition;
+import com.paymentgateway.infrastructure.persistence.PaymentRepositoryImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests unitarios de la cache L1 del repositorio de pagos (sin Redis configurado)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CachingPaymentRepository Tests")
+class CachingPaymentRepositoryTest {
+
+    @Mock
+    private PaymentRepositoryImpl delegate;
+
+    @Mock
+    private ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    private CachingPaymentRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        RedisPaymentCache redisCache = new RedisPaymentCache(
+            redisTemplateProvider, new ObjectMapper().findAndRegisterModules(), true, Duration.ofMinutes(5));
+        repository = new CachingPaymentRepository(
+            delegate, redisCache, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("Should serve repeated id lookups from the local cache")
+    void shouldServeRepeatedLookupsFromCache() {
+        Payment stored = payment(UUID.randomUUID(), PaymentStatus.PROCESSING, 1L, null);
+        when(delegate.findById(stored.getId())).thenReturn(Optional.of(stored));
+
+        repository.findById(stored.getId());
+        Optional<Payment> second = repository.findById(stored.getId());
+
+        assertThat(second).isPresent();
+        assertThat(second.get()).isNotSameAs(stored);
+        assertThat(second.get().getStatus()).isEqualTo(PaymentStatus.PROCESSING);
+        verify(delegate, times(1)).findById(stored.getId());
+    }
+
+    @Test
+    @DisplayName("Should resolve reference and transaction id lookups through the id cache")
+    void shouldResolveSecondaryKeysFromCache() {
+        Payment stored = payment(UUID.randomUUID(), PaymentStatus.COMPLETED, 2L, "txn_1");
+        when(delegate.findByPaymentReference("ref-1")).thenReturn(Optional.of(stored));
+
+        repository.findByPaymentReference("ref-1");
+
+        assertThat(repository.findByPaymentReference("ref-1")).isPresent();
+        assertThat(repository.findByGatewayTransactionId("txn_1")).map(Payment::getId).contains(stored.getId());
+        verify(delegate, times(1)).findByPaymentReference("ref-1");
+        verify(delegate, never()).findByGatewayTransactionId("txn_1");
+    }
+
+    @Test
+    @DisplayName("Should replace the cached entry with the saved version")
+    void shouldUpdateCacheOnSave() {
+        UUID id = UUID.randomUUID();
+        when(delegate.findById(id)).thenReturn(Optional.of(payment(id, PaymentStatus.PROCESSING, 1L, null)));
+        repository.findById(id);
+
+        Payment completed = payment(id, PaymentStatus.COMPLETED, 2L, "txn_2");
+        when(delegate.save(completed)).thenReturn(completed);
+        repository.save(completed);
+
+        assertThat(repository.findById(id)).map(Payment::getStatus).contains(PaymentStatus.COMPLETED);
+        verify(delegate, times(1)).findById(id);
+    }
+
+    @Test
+    @DisplayName("Should never let an older version overwrite a newer cached one")
+    void shouldIgnoreOlderVersions() {
+        UUID id = UUID.randomUUID();
+        Payment newer = payment(id, PaymentStatus.COMPLETED, 3L, "txn_3");
+        when(delegate.save(newer)).thenReturn(newer);
+        repository.save(newer);
+
+        // una lectura lenta que devuelve una version anterior no debe pisar la cache
+        Payment older = payment(id, PaymentStatus.PROCESSING, 2L, "txn_old");
+        when(delegate.findByGatewayTransactionId("txn_old")).thenReturn(Optional.of(older));
+        repository.findByGatewayTransactionId("txn_old");
+
+        assertThat(repository.findById(id)).map(Payment::getVersion).contains(3L);
+    }
+
+    @Test
+    @DisplayName("Should evict the entry when the payment is deleted")
+    void shouldEvictOnDelete() {
+        UUID id = UUID.randomUUID();
+        Payment stored = payment(id, PaymentStatus.FAILED, 1L, null);
+        when(delegate.findById(id)).thenReturn(Optional.of(stored), Optional.empty());
+        repository.findById(id);
+
+        repository.delete(stored);
+
+        assertThat(repository.findById(id)).isEmpty();
+        verify(delegate, times(2)).findById(id);
+    }
+
+    @Test
+    @DisplayName("Should evict the cached copy after an applied atomic transition")
+    void shouldEvictOnAppliedTransition() {
+        UUID id = UUID.randomUUID();
+        when(delegate.findById(id)).thenReturn(
+            Optional.of(payment(id, PaymentStatus.PROCESSING, 1L, null)),
+            Optional.of(payment(id, PaymentStatus.COMPLETED, 2L, "txn_1")));
+        repository.findById(id);
+        when(delegate.transition(id, PaymentTransition.COMPLETE, "txn_1")).thenReturn(OptionalLong.of(2L));
+
+        assertThat(repository.markAsCompleted(id, "txn_1")).isTrue();
+
+        assertThat(repository.findById(id)).map(Payment::getStatus).contains(PaymentStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("Should not cache a copy read before an applied transition")
+    void shouldRejectReadsOlderThanTransition() {
+        UUID id = UUID.randomUUID();
+        when(delegate.transition(id, PaymentTransition.START_PROCESSING, null)).thenReturn(OptionalLong.of(2L));
+        repository.markAsProcessing(id);
+
+        // una lectura lenta que empezo antes de la transicion termina despues con la version anterior
+        when(delegate.findByPaymentReference("ref-1"))
+            .thenReturn(Optional.of(payment(id, PaymentStatus.PENDING, 1L, null)));
+        repository.findByPaymentReference("ref-1");
+        when(delegate.findById(id)).thenReturn(Optional.of(payment(id, PaymentStatus.PROCESSING, 2L, null)));
+
+        assertThat(repository.findById(id)).map(Payment::getStatus).contains(PaymentStatus.PROCESSING);
+        assertThat(repository.findById(id)).map(Payment::getVersion).contains(2L);
+        verify(delegate, times(1)).findById(id);
+    }
+
+    @Test
+    @DisplayName("Should discard cached copies of every payment changed by a bulk transition")
+    void shouldFloorBulkTransitions() {
+        UUID id = UUID.randomUUID();
+        when(delegate.findById(id)).thenReturn(
+            Optional.of(payment(id, PaymentStatus.PROCESSING, 1L, null)),
+            Optional.of(payment(id, PaymentStatus.FAILED, 2L, null)));
+        repository.findById(id);
+        when(delegate.transitionAllVersions(List.of(id), PaymentTransition.FAIL, "timeout"))
+            .thenReturn(Map.of(id, 2L));
+
+        assertThat(repository.transitionAll(List.of(id), PaymentTransition.FAIL, "timeout")).containsExactly(id);
+
+        assertThat(repository.findById(id)).map(Payment::getStatus).contains(PaymentStatus.FAILED);
+    }
+
+    @Test
+    @DisplayName("Should only cache rows read inside a write transaction once it commits")
+    void shouldDeferPopulationUntilCommit() {
+        UUID id = UUID.randomUUID();
+        when(delegate.findById(id)).thenReturn(Optional.of(payment(id, PaymentStatus.PROCESSING, 1L, null)));
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            repository.findById(id);
+            repository.findById(id);
+            verify(delegate, times(2)).findById(id);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(repository.findById(id)).isPresent();
+        verify(delegate, times(2)).findById(id);
+    }
+
+    @Test
+    @DisplayName("Should cache rows read inside a read-only transaction right away")
+    void shouldPopulateInsideReadOnlyTransaction() {
+        UUID id = UUID.randomUUID();
+        when(delegate.findById(id)).thenReturn(Optional.of(payment(id, PaymentStatus.PROCESSING, 1L, null)));
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            repository.findById(id);
+            repository.findById(id);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(delegate, times(1)).findById(id);
+    }
+
+    private Payment payment(UUID id, PaymentStatus status, Long version, String gatewayTransactionId) {
+        return Payment.builder()
+            .id(id)
+            .paymentReference("ref-1")
+            .amount(new BigDecimal("10.00"))
+            .currency("USD")
+            .status(status)
+            .paymentMethod(PaymentMethod.CREDIT_CARD)
+            .gatewayProvider("STRIPE")
+            .gatewayTransactionId(gatewayTransactionId)
+            .customerId("cust-1")
+            .merchantId("merch-1")
+            .createdAt(LocalDateTime.of(2025, 1, 1, 10, 0))
+            .version(version)
+            .build();
+    }
+}
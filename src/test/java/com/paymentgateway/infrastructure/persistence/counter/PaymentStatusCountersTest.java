@@ -0,0 +1,92 @@
+package com.paymentgateway.infrastructure.persistence.counter;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.paymentgateway.domain.model.PaymentStatus;
+import com.paymentgateway.infrastructure.persistence.PaymentJpaRepository;
+import com.paymentgateway.infrastructure.persistence.PaymentStatusCount;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests unitarios de los contadores de pagos por estado
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentStatusCounters Tests")
+class PaymentStatusCountersTest {
+
+    @Mock
+    private PaymentJpaRepository paymentJpaRepository;
+
+    private PaymentStatusCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        counters = new PaymentStatusCounters(paymentJpaRepository, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Should not be ready before the first reconciliation")
+    void shouldNotBeReadyBeforeReconciliation() {
+        counters.recordTransition(null, PaymentStatus.PENDING);
+
+        assertThat(counters.isReady()).isFalse();
+        assertThatThrownBy(() -> counters.count(PaymentStatus.PENDING)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Should apply transitions on top of the reconciled base")
+    void shouldApplyTransitions() {
+        when(paymentJpaRepository.countGroupedByStatus()).thenReturn(List.of(
+            count(PaymentStatus.PENDING, 10), count(PaymentStatus.COMPLETED, 5)));
+        counters.reconcile();
+
+        counters.recordTransition(null, PaymentStatus.PENDING);
+        counters.recordTransition(PaymentStatus.PENDING, PaymentStatus.PROCESSING);
+        counters.recordTransition(PaymentStatus.PROCESSING, PaymentStatus.COMPLETED);
+        counters.recordTransition(PaymentStatus.COMPLETED, null);
+
+        assertThat(counters.count(PaymentStatus.PENDING)).isEqualTo(10);
+        assertThat(counters.count(PaymentStatus.PROCESSING)).isZero();
+        assertThat(counters.count(PaymentStatus.COMPLETED)).isEqualTo(5);
+        assertThat(counters.count(PaymentStatus.FAILED)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should replace drifted values on reconciliation")
+    void shouldCorrectDriftOnReconciliation() {
+        when(paymentJpaRepository.countGroupedByStatus())
+            .thenReturn(List.of(count(PaymentStatus.FAILED, 1)))
+            .thenReturn(List.of(count(PaymentStatus.FAILED, 4)));
+        counters.reconcile();
+        counters.recordTransition(null, PaymentStatus.FAILED);
+
+        counters.reconcile();
+
+        assertThat(counters.count(PaymentStatus.FAILED)).isEqualTo(4);
+    }
+
+    private PaymentStatusCount count(PaymentStatus status, long total) {
+        return new PaymentStatusCount() {
+            @Override
+            public PaymentStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public long getTotal() {
+                return total;
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.paymentgateway.infrastructure.persistence.lock;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Tests del advisory lock de sesion sobre PostgreSQL real
+ * Cada AdvisoryLock abre su propia conexion, como dos nodos distintos
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("AdvisoryLock Tests")
+class AdvisoryLockTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+
+    @Test
+    @DisplayName("Should skip the task while another session holds the lock")
+    void shouldExcludeConcurrentHolder() {
+        AdvisoryLock node1 = new AdvisoryLock(dataSource);
+        AdvisoryLock node2 = new AdvisoryLock(dataSource);
+        AtomicBoolean ranOnNode2 = new AtomicBoolean();
+        AtomicBoolean ranOther = new AtomicBoolean();
+
+        boolean ran = node1.runExclusively("test.sync", () -> {
+            assertThat(node2.runExclusively("test.sync", () -> ranOnNode2.set(true))).isFalse();
+            assertThat(node2.runExclusively("test.other", () -> ranOther.set(true))).isTrue();
+        });
+
+        assertThat(ran).isTrue();
+        assertThat(ranOnNode2).isFalse();
+        assertThat(ranOther).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should release the lock when the task fails even if the session stays open")
+    void shouldReleaseAfterTask() throws Exception {
+        // la conexion no se cierra, como en un pool: solo el unlock explicito libera el lock
+        SingleConnectionDataSource pooled = new SingleConnectionDataSource(dataSource.getConnection(), true);
+        AdvisoryLock node1 = new AdvisoryLock(pooled);
+        AdvisoryLock node2 = new AdvisoryLock(dataSource);
+
+        assertThatThrownBy(() -> node1.runExclusively("test.release", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+
+        assertThat(node2.runExclusively("test.release", () -> { })).isTrue();
+        assertThat(node1.runExclusively("test.release", () -> { })).isTrue();
+        pooled.destroy();
+    }
+}
@@ -0,0 +1,101 @@
+package com.paymentgateway.infrastructure.persistence.partition;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Tests unitarios del mantenimiento de particiones mensuales
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentPartitionMaintenance Tests")
+class PaymentPartitionMaintenanceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2025-03-10T12:00:00Z"), ZoneOffset.UTC);
+
+    private PaymentPartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        maintenance = new PaymentPartitionMaintenance(jdbcTemplate, clock, true, 2, 12);
+    }
+
+    @Test
+    @DisplayName("Should pre-create the current and upcoming monthly partitions")
+    void shouldCreateUpcomingPartitions() {
+        givenPartitionedTable(List.of());
+
+        maintenance.maintain();
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS payments_y2025m03 PARTITION OF payments"
+            + " FOR VALUES FROM ('2025-03-01') TO ('2025-04-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS payments_y2025m04 PARTITION OF payments"
+            + " FOR VALUES FROM ('2025-04-01') TO ('2025-05-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS payments_y2025m05 PARTITION OF payments"
+            + " FOR VALUES FROM ('2025-05-01') TO ('2025-06-01')");
+        verify(jdbcTemplate, never()).execute(contains("payments_y2025m06"));
+    }
+
+    @Test
+    @DisplayName("Should detach only monthly partitions older than the retention window")
+    void shouldDetachExpiredPartitions() {
+        givenPartitionedTable(List.of("payments_default", "payments_y2024m02", "payments_y2024m03", "payments_y2025m03"));
+
+        maintenance.maintain();
+
+        verify(jdbcTemplate).execute("ALTER TABLE payments DETACH PARTITION payments_y2024m02");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE payments DETACH PARTITION payments_y2024m03");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE payments DETACH PARTITION payments_default");
+    }
+
+    @Test
+    @DisplayName("Should keep creating and detaching partitions after one of them fails")
+    void shouldContinueAfterPartitionFailure() {
+        givenPartitionedTable(List.of("payments_y2024m01", "payments_y2024m02"));
+        doThrow(new DataAccessResourceFailureException("lock timeout"))
+            .when(jdbcTemplate).execute(contains("payments_y2025m03 PARTITION OF"));
+        doThrow(new DataAccessResourceFailureException("lock timeout"))
+            .when(jdbcTemplate).execute("ALTER TABLE payments DETACH PARTITION payments_y2024m01");
+
+        maintenance.maintain();
+
+        verify(jdbcTemplate).execute(contains("payments_y2025m04 PARTITION OF"));
+        verify(jdbcTemplate).execute(contains("payments_y2025m05 PARTITION OF"));
+        verify(jdbcTemplate).execute("ALTER TABLE payments DETACH PARTITION payments_y2024m02");
+        verify(jdbcTemplate).queryForObject(contains("payments_default"), eq(Boolean.class));
+    }
+
+    @Test
+    @DisplayName("Should skip maintenance when the table is not partitioned")
+    void shouldSkipWhenTableIsNotPartitioned() {
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), any()))
+            .thenReturn(false);
+
+        maintenance.maintain();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    private void givenPartitionedTable(List<String> partitions) {
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), any()))
+            .thenReturn(true);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class), any())).thenReturn(partitions);
+        when(jdbcTemplate.queryForObject(contains("payments_default"), eq(Boolean.class))).thenReturn(false);
+    }
+}
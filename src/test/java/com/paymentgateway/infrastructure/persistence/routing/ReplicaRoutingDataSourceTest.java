@@ -0,0 +1,108 @@
+package com.paymentgateway.infrastructure.persistence.routing;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests del enrutado primario / replica con dos bases H2 en memoria
+ * Cada base contiene una fila que identifica a que instancia se ha ido la consulta
+ */
+@DisplayName("ReplicaRoutingDataSource Tests")
+class ReplicaRoutingDataSourceTest {
+
+    private static final String WHO_AM_I = "SELECT name FROM instance";
+
+    private DataSource primary;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    @Test
+    @DisplayName("Should send read-only transactions to the replica and everything else to the primary")
+    void shouldRouteByReadOnlyFlag() {
+        ReplicaLagMonitor monitor = monitor("SELECT 0");
+        monitor.check();
+        Routed routed = routed(replica, monitor);
+
+        assertThat(routed.instanceIn(routed.readOnly))
+            .isEqualTo("replica");
+        assertThat(routed.instanceIn(routed.readWrite))
+            .isEqualTo("primary");
+        assertThat(routed.jdbc.queryForObject(WHO_AM_I, String.class)).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Should fall back to the primary while the replica lags behind")
+    void shouldFallBackWhenReplicaLags() {
+        ReplicaLagMonitor monitor = monitor("SELECT 10");
+        monitor.check();
+        Routed routed = routed(replica, monitor);
+
+        assertThat(monitor.isReplicaUsable()).isFalse();
+        assertThat(routed.instanceIn(routed.readOnly))
+            .isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Should fall back to the primary and disable the replica when it refuses connections")
+    void shouldFallBackWhenReplicaIsDown() throws SQLException {
+        ReplicaLagMonitor monitor = monitor("SELECT 0");
+        monitor.check();
+        DataSource downReplica = mock(DataSource.class);
+        when(downReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        Routed routed = routed(downReplica, monitor);
+
+        assertThat(routed.instanceIn(routed.readOnly))
+            .isEqualTo("primary");
+        assertThat(monitor.isReplicaUsable()).isFalse();
+    }
+
+    private ReplicaLagMonitor monitor(String lagQuery) {
+        return new ReplicaLagMonitor(replica, lagQuery, Duration.ofSeconds(2), new SimpleMeterRegistry());
+    }
+
+    private Routed routed(DataSource replicaTarget, ReplicaLagMonitor monitor) {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+            new ReplicaRoutingDataSource(primary, replicaTarget, monitor, new SimpleMeterRegistry()));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return new Routed(new JdbcTemplate(dataSource), readOnly, new TransactionTemplate(transactionManager));
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS instance (name VARCHAR(16))");
+        jdbc.execute("DELETE FROM instance");
+        jdbc.update("INSERT INTO instance (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private record Routed(JdbcTemplate jdbc, TransactionTemplate readOnly, TransactionTemplate readWrite) {
+
+        String instanceIn(TransactionTemplate transaction) {
+            return transaction.execute(status -> jdbc.queryForObject(WHO_AM_I, String.class));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.paymentgateway.infrastructure.warmup;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentgateway.application.port.PaymentGatewayPort;
+import com.paymentgateway.application.usecase.ValidateCreditCardUseCaseImpl;
+import com.paymentgateway.infrastructure.adapter.gateway.PaymentGatewayFactory;
+import com.paymentgateway.infrastructure.adapter.gateway.paypal.PayPalPaymentGateway;
+import com.paymentgateway.infrastructure.persistence.PaymentMapperImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+
+/**
+ * Tests del warm-up de arranque y de su indicador de readiness
+ */
+@DisplayName("StartupWarmup Tests")
+class StartupWarmupTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PaymentGatewayFactory gatewayFactory;
+    private PaymentGatewayPort paypalGateway;
+    private volatile boolean gatewayWarmedUp;
+
+    @BeforeEach
+    void setUp() {
+        paypalGateway = new PayPalPaymentGateway("client", "secret", "sandbox") {
+            @Override
+            public void warmUp() throws IOException {
+                gatewayWarmedUp = true;
+                throw new IOException("connection refused");
+            }
+        };
+        gatewayFactory = mock(PaymentGatewayFactory.class);
+        when(gatewayFactory.getBestGatewayForPaymentMethod(any())).thenReturn(paypalGateway);
+    }
+
+    @Test
+    @DisplayName("Should report out of service until every stage has run, then report per-stage timings")
+    void shouldGateReadinessOnWarmup() {
+        StartupWarmup warmup = warmup(true);
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        warmup.run();
+
+        Health health = warmup.health();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsKey("durationMs");
+        @SuppressWarnings("unchecked")
+        Map<String, String> stages = (Map<String, String>) health.getDetails().get("stages");
+        assertThat(stages).containsOnlyKeys("database", "serialization", "validation", "mapping", "gateways");
+        assertThat(stages.get("serialization")).endsWith("ms").doesNotStartWith("failed");
+        assertThat(stages.get("validation")).doesNotStartWith("failed");
+        assertThat(stages.get("mapping")).doesNotStartWith("failed");
+        // una pasarela inaccesible marca la etapa pero no impide terminar el warm-up
+        assertThat(gatewayWarmedUp).isTrue();
+        assertThat(stages.get("gateways")).startsWith("failed");
+        verify(gatewayFactory, atLeastOnce()).getBestGatewayForPaymentMethod(any());
+        assertThat(meterRegistry.get("payments.warmup.stage").tag("stage", "gateways").tag("outcome", "failed")
+            .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should report up without running any stage when disabled")
+    void shouldSkipWhenDisabled() {
+        StartupWarmup warmup = warmup(false);
+
+        warmup.run();
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(gatewayWarmedUp).isFalse();
+        verifyNoInteractions(gatewayFactory);
+    }
+
+    private StartupWarmup warmup(boolean enabled) {
+        return new StartupWarmup(
+            new ObjectMapper().findAndRegisterModules(),
+            Validation.buildDefaultValidatorFactory().getValidator(),
+            new ValidateCreditCardUseCaseImpl(),
+            new PaymentMapperImpl(),
+            gatewayFactory,
+            List.of(paypalGateway),
+            List.of(),
+            meterRegistry,
+            enabled,
+            50,
+            Duration.ofSeconds(30),
+            true
+        );
+    }
+}
@@ -0,0 +1,187 @@
+package com.paymentgateway.infrastructure.web.idempotency;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tests del filtro Idempotency-Key sobre el almacen local
+ */
+@DisplayName("IdempotencyFilter Tests")
+class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"paymentReference\":\"ref-1\",\"amount\":10.00}";
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private LocalIdempotencyStore store;
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalIdempotencyStore(Duration.ofMinutes(1), Duration.ofHours(1));
+        filter = new IdempotencyFilter(store, new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Should replay the stored bytes without processing the payment again")
+    void shouldReplayCompletedResponse() throws Exception {
+        MockHttpServletResponse first = post("key-1", BODY, respondWith(200, "{\"id\":\"p-1\"}"));
+        MockHttpServletResponse retry = post("key-1", BODY, respondWith(200, "{\"id\":\"p-2\"}"));
+
+        assertThat(executions).hasValue(1);
+        assertThat(first.getContentAsString()).isEqualTo("{\"id\":\"p-1\"}");
+        assertThat(retry.getContentAsString()).isEqualTo("{\"id\":\"p-1\"}");
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    @DisplayName("Should make a concurrent duplicate wait for the first result")
+    void shouldWaitForInFlightRequest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            executions.incrementAndGet();
+            request.getInputStream().readAllBytes();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            write((HttpServletResponse) response, 200, "{\"id\":\"p-1\"}");
+        };
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> postUnchecked(slow));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<MockHttpServletResponse> duplicate =
+            CompletableFuture.supplyAsync(() -> postUnchecked(respondWith(200, "{\"id\":\"p-2\"}")));
+
+        release.countDown();
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).getContentAsString()).isEqualTo("{\"id\":\"p-1\"}");
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused with a different body")
+    void shouldRejectFingerprintMismatch() throws Exception {
+        post("key-1", BODY, respondWith(200, "{}"));
+
+        MockHttpServletResponse reused = post("key-1", "{\"amount\":99}", respondWith(200, "{}"));
+
+        assertThat(reused.getStatus()).isEqualTo(422);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should release the key after a server error so the retry executes")
+    void shouldReleaseKeyOnServerError() throws Exception {
+        post("key-1", BODY, respondWith(503, "{}"));
+        MockHttpServletResponse retry = post("key-1", BODY, respondWith(200, "{\"id\":\"p-1\"}"));
+
+        assertThat(executions).hasValue(2);
+        assertThat(retry.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should release the key after a throttled response so the retry executes")
+    void shouldReleaseKeyOnThrottling() throws Exception {
+        post("key-1", BODY, respondWith(429, "{\"code\":\"GATEWAY_THROTTLED\"}"));
+        MockHttpServletResponse retry = post("key-1", BODY, respondWith(201, "{\"id\":\"p-1\"}"));
+
+        assertThat(executions).hasValue(2);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should process requests without the header as usual")
+    void shouldIgnoreRequestsWithoutKey() throws Exception {
+        post(null, BODY, respondWith(200, "{}"));
+        post(null, BODY, respondWith(200, "{}"));
+
+        assertThat(executions).hasValue(2);
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should scope keys by merchant so equal keys from different merchants do not collide")
+    void shouldScopeKeysByMerchant() throws Exception {
+        MockHttpServletResponse first = post("key-1", "{\"merchantId\":\"merch-1\"}",
+            respondWith(200, "{\"id\":\"p-1\"}"));
+        MockHttpServletResponse other = post("key-1", "{\"merchantId\":\"merch-2\"}",
+            respondWith(200, "{\"id\":\"p-2\"}"));
+
+        assertThat(executions).hasValue(2);
+        assertThat(first.getContentAsString()).isEqualTo("{\"id\":\"p-1\"}");
+        assertThat(other.getContentAsString()).isEqualTo("{\"id\":\"p-2\"}");
+    }
+
+    @Test
+    @DisplayName("Should ignore completion and release from a reservation that expired and was replaced")
+    void shouldIgnoreStaleReservationOwner() throws Exception {
+        LocalIdempotencyStore shortLived = new LocalIdempotencyStore(Duration.ofMillis(1), Duration.ofHours(1));
+        IdempotencyStore.Acquired stale = (IdempotencyStore.Acquired) shortLived.reserve("key-1", "fp");
+        Thread.sleep(5);
+        IdempotencyStore.Acquired current = (IdempotencyStore.Acquired) shortLived.reserve("key-1", "fp");
+
+        shortLived.complete("key-1", stale.token(), new StoredResponse("fp", 200, null, new byte[0]));
+        shortLived.release("key-1", stale.token());
+
+        assertThat(current.token()).isNotEqualTo(stale.token());
+        assertThat(shortLived.size()).isEqualTo(1);
+        assertThat(shortLived.await("key-1", Duration.ofMillis(20))).isEmpty();
+    }
+
+    private FilterChain respondWith(int status, String body) {
+        return (request, response) -> {
+            executions.incrementAndGet();
+            assertThat(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isNotEmpty();
+            write((HttpServletResponse) response, status, body);
+        };
+    }
+
+    private static void write(HttpServletResponse response, int status, String body) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MockHttpServletResponse postUnchecked(FilterChain chain) {
+        try {
+            return post("key-1", BODY, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MockHttpServletResponse post(String key, String body, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", IdempotencyFilter.PAYMENTS_PATH);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}